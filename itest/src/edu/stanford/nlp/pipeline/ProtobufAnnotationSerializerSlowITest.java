@@ -243,6 +243,10 @@ public class ProtobufAnnotationSerializerSlowITest {
       kis.close();
 
       sameAsRead(doc, readDoc);
+
+      // Read lazily
+      Annotation lazyDoc = ((ProtobufAnnotationSerializer) serializer).readLazy(new ByteArrayInputStream(ks.toByteArray())).first;
+      sameAsRead(doc, lazyDoc);
     } catch (Exception e) { throw new RuntimeException(e); }
   }
 
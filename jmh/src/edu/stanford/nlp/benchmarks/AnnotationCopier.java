@@ -0,0 +1,110 @@
+package edu.stanford.nlp.benchmarks;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes copies of an annotated document which an annotator can change
+ * without changing the original, so that a benchmark can annotate a
+ * fresh copy of the same document over and over.
+ * <br>
+ * The tokens, sentences and other CoreMaps, the lists holding them,
+ * the trees and the dependency graphs are copied, keeping the objects
+ * which the original shares shared in the copy: the tokens of a sentence
+ * are the tokens of the document, and the nodes of its graphs are its tokens.
+ * A copy of a frozen graph is frozen as well.
+ * Any other value, such as a String, is taken to be immutable and is not copied.
+ */
+class AnnotationCopier {
+
+  /** The copy of each object copied so far */
+  private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+  private AnnotationCopier() {}
+
+  /** A copy of the document which shares nothing mutable with it */
+  static Annotation copy(Annotation document) {
+    AnnotationCopier copier = new AnnotationCopier();
+    Annotation copy = new Annotation();
+    copier.copies.put(document, copy);
+    copier.copyValues(document, copy);
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void copyValues(CoreMap from, CoreMap to) {
+    for (Class key : from.keySet()) {
+      to.set(key, copyOf(from.get(key)));
+    }
+  }
+
+  private Object copyOf(Object value) {
+    if (value == null) {
+      return null;
+    }
+    Object copy = copies.get(value);
+    if (copy != null) {
+      return copy;
+    }
+    if (value instanceof CoreLabel) {
+      copy = new CoreLabel((CoreLabel) value);
+    } else if (value instanceof CoreMap) {
+      ArrayCoreMap map = new ArrayCoreMap();
+      copies.put(value, map);
+      copyValues((CoreMap) value, map);
+      copy = map;
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      List<Object> listCopy = new ArrayList<>(list.size());
+      for (Object element : list) {
+        listCopy.add(copyOf(element));
+      }
+      copy = listCopy;
+    } else if (value instanceof Tree) {
+      copy = ((Tree) value).deepCopy();
+    } else if (value instanceof SemanticGraph) {
+      copy = copyOf((SemanticGraph) value);
+    } else {
+      return value;
+    }
+    copies.put(value, copy);
+    return copy;
+  }
+
+  private SemanticGraph copyOf(SemanticGraph graph) {
+    SemanticGraph copy = new SemanticGraph();
+    Map<IndexedWord, IndexedWord> vertices = new IdentityHashMap<>();
+    for (IndexedWord vertex : graph.vertexSet()) {
+      IndexedWord vertexCopy = new IndexedWord((CoreLabel) copyOf(vertex.backingLabel()));
+      vertexCopy.setCopyCount(vertex.copyCount());
+      vertices.put(vertex, vertexCopy);
+      copy.addVertex(vertexCopy);
+    }
+    List<IndexedWord> roots = new ArrayList<>();
+    for (IndexedWord root : graph.getRoots()) {
+      roots.add(vertices.get(root));
+    }
+    copy.setRoots(roots);
+    for (SemanticGraphEdge edge : graph.edgeIterable()) {
+      copy.addEdge(vertices.get(edge.getGovernor()), vertices.get(edge.getDependent()),
+          edge.getRelation(), edge.getWeight(), edge.isExtra());
+    }
+    // an annotator should see the same kind of graph the pipeline built
+    if (graph.isFrozen()) {
+      copy.freeze();
+    }
+    return copy;
+  }
+
+}
@@ -0,0 +1,230 @@
+package edu.stanford.nlp.benchmarks;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.StringUtils;
+import edu.stanford.nlp.util.logging.Redwood;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of single CoreNLP annotators over a fixed corpus.
+ * <br>
+ * Each trial loads the annotator given by the {@code annotator}
+ * parameter together with its prerequisites, and runs the prerequisites
+ * over the corpus once.  Only the annotator itself is then measured, on
+ * fresh copies of the prerequisite annotations, so the numbers for, say,
+ * {@code parse} do not include tagging.  The copies are made before each
+ * invocation by {@link AnnotationCopier}, which is much cheaper than
+ * running the prerequisites or deserializing their output.  There are two benchmarks:
+ * <ul>
+ * <li> {@link #corpus}: the throughput of annotating the whole corpus, as
+ *      corpus passes per second and as tokens per second
+ * <li> {@link #document}: the latency of annotating a single document,
+ *      sampled so that JMH reports its percentiles
+ * </ul>
+ * Running this class (which is the main class of the benchmarks jar)
+ * adds the GC profiler to whatever JMH options are given, which reports
+ * the allocation rate of each benchmark.
+ * <br>
+ * The {@code corpus} parameter is either the name of a corpus bundled
+ * with the benchmarks or the path of a UTF-8 text file, in which
+ * documents are separated by blank lines.  The {@code properties}
+ * parameter optionally names a properties file for the pipeline, for
+ * example to benchmark a different model.
+ */
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@Warmup(iterations = 5, time = 10)
+@Measurement(iterations = 10, time = 10)
+public class AnnotatorBenchmark {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(AnnotatorBenchmark.class);
+
+  /** The annotator, and the corpus after its prerequisites have been run */
+  @State(Scope.Benchmark)
+  public static class Corpus {
+
+    @Param({ "tokenize", "ssplit", "pos", "ner", "parse", "depparse", "coref" })
+    public String annotator;
+
+    @Param({ "news" })
+    public String corpus;
+
+    @Param({ "" })
+    public String properties;
+
+    Annotator target;
+    /** The text of each document, for annotators without prerequisites */
+    List<String> texts;
+    /** Each document with the prerequisites annotated, which is copied for each run, or null if there are none */
+    List<Annotation> prepared;
+    long numTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      Properties props = properties.isEmpty() ? new Properties() : StringUtils.argsToProperties("-props", properties);
+      String[] annotators = StanfordCoreNLP.ensurePrerequisiteAnnotators(new String[] { annotator }, props).split(",");
+      props.setProperty("annotators", String.join(",", annotators));
+      new StanfordCoreNLP(props);
+      target = StanfordCoreNLP.getExistingAnnotator(annotator);
+
+      texts = readCorpus(corpus);
+      prepared = null;
+      numTokens = 0;
+      List<String> prerequisites = Arrays.asList(annotators).subList(0, annotators.length - 1);
+      if ( ! prerequisites.isEmpty()) {
+        AnnotationPipeline pipeline = new AnnotationPipeline();
+        for (String name : prerequisites) {
+          pipeline.addAnnotator(StanfordCoreNLP.getExistingAnnotator(name));
+        }
+        prepared = new ArrayList<>(texts.size());
+        for (String text : texts) {
+          Annotation document = new Annotation(text);
+          pipeline.annotate(document);
+          prepared.add(document);
+          numTokens += document.get(CoreAnnotations.TokensAnnotation.class).size();
+        }
+      } else {
+        for (String text : texts) {
+          Annotation document = new Annotation(text);
+          target.annotate(document);
+          numTokens += document.get(CoreAnnotations.TokensAnnotation.class).size();
+        }
+      }
+      log.info("Benchmarking " + annotator + " on " + texts.size() + " documents and " + numTokens + " tokens of " + corpus);
+    }
+
+    /** A fresh copy of a document, ready for the annotator */
+    Annotation document(int i) {
+      if (prepared == null) {
+        return new Annotation(texts.get(i));
+      }
+      return AnnotationCopier.copy(prepared.get(i));
+    }
+
+    int size() {
+      return texts.size();
+    }
+  }
+
+  /** Fresh copies of all the documents for each pass over the corpus */
+  @State(Scope.Thread)
+  public static class CorpusCopy {
+    List<Annotation> documents;
+
+    @Setup(Level.Invocation)
+    public void copy(Corpus corpus) {
+      documents = new ArrayList<>(corpus.size());
+      for (int i = 0; i < corpus.size(); i++) {
+        documents.add(corpus.document(i));
+      }
+    }
+  }
+
+  /** A fresh copy of the next document, going round the corpus */
+  @State(Scope.Thread)
+  public static class DocumentCopy {
+    private int next = 0;
+    Annotation document;
+
+    @Setup(Level.Invocation)
+    public void copy(Corpus corpus) {
+      document = corpus.document(next);
+      next = (next + 1) % corpus.size();
+    }
+  }
+
+  /** Counts the tokens annotated, which JMH reports as a rate next to the score */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Tokens {
+    public long tokens;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      tokens = 0;
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public List<Annotation> corpus(Corpus corpus, CorpusCopy copy, Tokens counter) {
+    for (Annotation document : copy.documents) {
+      corpus.target.annotate(document);
+    }
+    counter.tokens += corpus.numTokens;
+    return copy.documents;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Annotation document(Corpus corpus, DocumentCopy copy) {
+    corpus.target.annotate(copy.document);
+    return copy.document;
+  }
+
+  /** Reads the documents of a bundled corpus, or of a file */
+  static List<String> readCorpus(String corpus) throws IOException {
+    InputStream bundled = AnnotatorBenchmark.class.getResourceAsStream("corpus/" + corpus + ".txt");
+    String text;
+    if (bundled != null) {
+      try (InputStream in = bundled) {
+        text = IOUtils.slurpInputStream(in, "UTF-8");
+      }
+    } else {
+      text = IOUtils.slurpFile(corpus, "UTF-8");
+    }
+    List<String> documents = new ArrayList<>();
+    for (String document : text.split("\\n\\s*\\n")) {
+      if ( ! document.trim().isEmpty()) {
+        documents.add(document.trim());
+      }
+    }
+    if (documents.isEmpty()) {
+      throw new IllegalArgumentException("No documents in corpus " + corpus);
+    }
+    return documents;
+  }
+
+  /**
+   * Runs the benchmarks with the given JMH command line options, adding
+   * the GC profiler so that allocation rates are reported.  For example,
+   * {@code -p annotator=pos,ner -rf json -rff pos-ner.json}.
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+  }
+
+}
@@ -1314,6 +1314,17 @@ public class LinearClassifier<L, F> implements ProbabilisticClassifier<L, F>, RV
     weights = newWeights;
   }
 
+  /**
+   * Returns a scorer for many datums at a time, with a copy of the
+   * current weights.
+   *
+   * @param useFloats Whether to keep the weights as floats, which takes
+   *                  half the memory but gives less precise scores
+   */
+  public LinearClassifierScorer<L, F> batchScorer(boolean useFloats) {
+    return new LinearClassifierScorer<>(weights, thresholds, featureIndex, labelIndex, useFloats);
+  }
+
   /**
    * Loads a classifier from a file.
    * Simple convenience wrapper for IOUtils.readFromString.
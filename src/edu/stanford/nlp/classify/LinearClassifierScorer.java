@@ -0,0 +1,255 @@
+package edu.stanford.nlp.classify;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+import edu.stanford.nlp.math.ArrayMath;
+import edu.stanford.nlp.util.Index;
+
+/**
+ * Scores many datums at once with the weights of a {@link LinearClassifier},
+ * writing the scores into an array given by the caller rather than
+ * making a Counter for each datum.  Get one from
+ * {@link LinearClassifier#batchScorer(boolean)}.
+ * <br>
+ * The weights are copied into one flat array, with the weights of a
+ * feature for all of the labels next to each other, so each feature of
+ * a datum is one run of memory rather than a separate row object.
+ * The weights can be kept as floats, which halves their size, at the
+ * cost of the scores only being accurate to about 7 digits.
+ * <br>
+ * A datum is given as the indices of its features in the
+ * {@link #featureIndex()}, either as an {@code int[]} per datum or as
+ * one packed (compressed sparse row) matrix for the whole batch, with
+ * an optional value for each feature as in an RVFDatum.
+ * The scores of datum i of a batch are at {@code i * numLabels()} to
+ * {@code (i + 1) * numLabels()} of the scores array, in the order of the
+ * {@link #labelIndex()}.  They are the same as the scores from
+ * {@link LinearClassifier#scoresOf(int[])}.  Features which are negative,
+ * as {@code featureIndex.indexOf} returns for unknown features, or past
+ * the end of the weights are ignored.
+ * <br>
+ * The weights are a copy, so later changes to the weights of the
+ * classifier aren't seen.  This is threadsafe.
+ *
+ * @param <L> The type of the labels in the Classifier
+ * @param <F> The type of the features in the Classifier
+ */
+public class LinearClassifierScorer<L, F> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Index<L> labelIndex;
+  private final Index<F> featureIndex;
+  private final int numLabels;
+  private final int numFeatures;
+  /** The weight of feature f for label l is at f * numLabels + l; null if using floats */
+  private final double[] weights;
+  /** The same as weights, as floats; null if using doubles */
+  private final float[] floatWeights;
+  private final double[] thresholds;
+
+  LinearClassifierScorer(double[][] weights, double[] thresholds, Index<F> featureIndex, Index<L> labelIndex,
+                         boolean useFloats) {
+    this.labelIndex = labelIndex;
+    this.featureIndex = featureIndex;
+    this.numLabels = labelIndex.size();
+    this.numFeatures = weights.length;
+    this.thresholds = new double[numLabels];
+    if (thresholds != null) {
+      System.arraycopy(thresholds, 0, this.thresholds, 0, Math.min(thresholds.length, numLabels));
+    }
+    if (useFloats) {
+      this.weights = null;
+      this.floatWeights = new float[numFeatures * numLabels];
+      for (int f = 0; f < numFeatures; ++f) {
+        for (int l = 0, length = Math.min(weights[f].length, numLabels); l < length; ++l) {
+          floatWeights[f * numLabels + l] = (float) weights[f][l];
+        }
+      }
+    } else {
+      this.floatWeights = null;
+      this.weights = new double[numFeatures * numLabels];
+      for (int f = 0; f < numFeatures; ++f) {
+        System.arraycopy(weights[f], 0, this.weights, f * numLabels, Math.min(weights[f].length, numLabels));
+      }
+    }
+  }
+
+  public int numLabels() {
+    return numLabels;
+  }
+
+  public Index<L> labelIndex() {
+    return labelIndex;
+  }
+
+  public Index<F> featureIndex() {
+    return featureIndex;
+  }
+
+  /**
+   * The indices of the features which the classifier knows, in the
+   * same order, as {@link LinearClassifier#scoresOf(edu.stanford.nlp.ling.Datum)}
+   * finds them.
+   */
+  public int[] indexFeatures(Collection<F> features) {
+    int[] indices = new int[features.size()];
+    int i = 0;
+    for (F feature : features) {
+      int index = featureIndex.indexOf(feature);
+      if (index >= 0) {
+        indices[i++] = index;
+      }
+    }
+    if (i == indices.length) {
+      return indices;
+    }
+    int[] known = new int[i];
+    System.arraycopy(indices, 0, known, 0, i);
+    return known;
+  }
+
+  /**
+   * Writes the scores of one datum to {@code scores[offset]} to
+   * {@code scores[offset + numLabels() - 1]}.
+   */
+  public void scoresOf(int[] features, double[] scores, int offset) {
+    checkSize(scores, offset, 1);
+    score(features, 0, features.length, null, scores, offset);
+  }
+
+  /**
+   * Writes the scores of one datum with a value for each feature, as in
+   * an RVFDatum, to {@code scores[offset]} to {@code scores[offset + numLabels() - 1]}.
+   *
+   * @param values The value of each feature, or null if every feature has the value 1.0
+   */
+  public void scoresOf(int[] features, double[] values, double[] scores, int offset) {
+    checkSize(scores, offset, 1);
+    score(features, 0, features.length, values, scores, offset);
+  }
+
+  /**
+   * Writes the scores of each of the datums to the scores array, which
+   * must hold at least {@code data.length * numLabels()} scores.
+   */
+  public void scoresOf(int[][] data, double[] scores) {
+    checkSize(scores, 0, data.length);
+    for (int i = 0; i < data.length; ++i) {
+      score(data[i], 0, data[i].length, null, scores, i * numLabels);
+    }
+  }
+
+  /**
+   * Writes the scores of a packed batch of datums to the scores array.
+   * The features of datum i are {@code features[rowStarts[i]]} to
+   * {@code features[rowStarts[i + 1] - 1]}, so there are
+   * {@code rowStarts.length - 1} datums.
+   *
+   * @param rowStarts Where the features of each datum start, followed by the total number of features
+   * @param features The indices of the features of all the datums
+   * @param values The value of each feature, or null if every feature has the value 1.0
+   * @param scores Where to write the scores, which must hold at least
+   *               {@code (rowStarts.length - 1) * numLabels()} scores
+   */
+  public void scoresOf(int[] rowStarts, int[] features, double[] values, double[] scores) {
+    int numRows = rowStarts.length - 1;
+    checkSize(scores, 0, numRows);
+    for (int i = 0; i < numRows; ++i) {
+      score(features, rowStarts[i], rowStarts[i + 1], values, scores, i * numLabels);
+    }
+  }
+
+  /**
+   * Writes the log probabilities of each of the labels for each of the
+   * datums to the scores array, as {@link LinearClassifier#logProbabilityOf(int[])} would give.
+   */
+  public void logProbabilitiesOf(int[][] data, double[] scores) {
+    scoresOf(data, scores);
+    logNormalize(scores, data.length);
+  }
+
+  /**
+   * Writes the probabilities of each of the labels for each of the
+   * datums to the scores array, as {@link LinearClassifier#probabilityOf(int[])} would give.
+   */
+  public void probabilitiesOf(int[][] data, double[] scores) {
+    logProbabilitiesOf(data, scores);
+    for (int i = 0, length = data.length * numLabels; i < length; ++i) {
+      scores[i] = Math.exp(scores[i]);
+    }
+  }
+
+  /** The label with the highest score in the scores of datum i, as an index in the labelIndex */
+  public int argmax(double[] scores, int i) {
+    int offset = i * numLabels;
+    int best = 0;
+    for (int l = 1; l < numLabels; ++l) {
+      if (scores[offset + l] > scores[offset + best]) {
+        best = l;
+      }
+    }
+    return best;
+  }
+
+  private void checkSize(double[] scores, int offset, int numRows) {
+    if (scores.length - offset < (long) numRows * numLabels) {
+      throw new IllegalArgumentException("Need room for " + numRows + " x " + numLabels +
+          " scores at " + offset + " but the scores array has length " + scores.length);
+    }
+  }
+
+  private void score(int[] features, int from, int to, double[] values, double[] scores, int offset) {
+    for (int l = 0; l < numLabels; ++l) {
+      scores[offset + l] = 0.0;
+    }
+    // the weights are added up before the thresholds, as in LinearClassifier,
+    // so that the scores are exactly the same
+    if (weights != null) {
+      for (int j = from; j < to; ++j) {
+        int f = features[j];
+        if (f < 0 || f >= numFeatures) {
+          continue;
+        }
+        int start = f * numLabels;
+        if (values == null) {
+          for (int l = 0; l < numLabels; ++l) {
+            scores[offset + l] += weights[start + l];
+          }
+        } else {
+          double value = values[j];
+          for (int l = 0; l < numLabels; ++l) {
+            scores[offset + l] += weights[start + l] * value;
+          }
+        }
+      }
+    } else {
+      for (int j = from; j < to; ++j) {
+        int f = features[j];
+        if (f < 0 || f >= numFeatures) {
+          continue;
+        }
+        int start = f * numLabels;
+        double value = (values == null) ? 1.0 : values[j];
+        for (int l = 0; l < numLabels; ++l) {
+          scores[offset + l] += floatWeights[start + l] * value;
+        }
+      }
+    }
+    for (int l = 0; l < numLabels; ++l) {
+      scores[offset + l] += thresholds[l];
+    }
+  }
+
+  private void logNormalize(double[] scores, int numRows) {
+    for (int i = 0; i < numRows; ++i) {
+      int offset = i * numLabels;
+      double logSum = ArrayMath.logSum(scores, offset, offset + numLabels);
+      for (int l = 0; l < numLabels; ++l) {
+        scores[offset + l] -= logSum;
+      }
+    }
+  }
+
+}
@@ -13,8 +13,8 @@ import edu.stanford.nlp.coref.data.Dictionaries;
 import edu.stanford.nlp.coref.data.Document;
 import edu.stanford.nlp.coref.data.Mention;
 import edu.stanford.nlp.io.IOUtils;
-import edu.stanford.nlp.stats.ClassicCounter;
-import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.neural.Embedding;
+import edu.stanford.nlp.neural.MappedWordVectors;
 import edu.stanford.nlp.util.Pair;
 import edu.stanford.nlp.util.logging.Redwood;
 import org.ejml.simple.SimpleMatrix;
@@ -34,6 +34,9 @@ import org.ejml.simple.SimpleMatrix;
 public class NeuralCorefAlgorithm implements CorefAlgorithm {
   private static Redwood.RedwoodChannels log = Redwood.channels(NeuralCorefAlgorithm.class);
 
+  /** The most candidate pairs scored in one batch */
+  private static final int PAIR_BATCH_SIZE = 512;
+
   private final double greedyness;
   private final int maxMentionDistance;
   private final int maxMentionDistanceWithStringMatch;
@@ -49,10 +52,13 @@ public class NeuralCorefAlgorithm implements CorefAlgorithm {
 
     model = IOUtils.readObjectAnnouncingTimingFromURLOrClasspathOrFileSystem(
         log, "Loading coref model", NeuralCorefProperties.modelPath(props));
-    embeddingExtractor = new EmbeddingExtractor(CorefProperties.conll(props),
+    String embeddingsPath = NeuralCorefProperties.pretrainedEmbeddingsPath(props);
+    Embedding staticWordEmbeddings = MappedWordVectors.isMappedFile(embeddingsPath) ?
+        new Embedding(embeddingsPath) :
         IOUtils.readObjectAnnouncingTimingFromURLOrClasspathOrFileSystem(
-            log, "Loading coref embeddings", NeuralCorefProperties.pretrainedEmbeddingsPath(props)),
-        model.getWordEmbeddings());
+            log, "Loading coref embeddings", embeddingsPath);
+    embeddingExtractor = new EmbeddingExtractor(CorefProperties.conll(props),
+        staticWordEmbeddings, model.getWordEmbeddings());
     featureExtractor = new CategoricalFeatureExtractor(props, dictionaries);
   }
 
@@ -69,29 +75,44 @@ public class NeuralCorefAlgorithm implements CorefAlgorithm {
       withIndex.add(m);
     }
 
+    if (sortedMentions.isEmpty()) {
+      return;
+    }
+
+    // Embed every mention, then project the embeddings and score anaphoricity for all of
+    // the mentions at once
     SimpleMatrix documentEmbedding = embeddingExtractor.getDocumentEmbedding(document);
-    Map<Integer, SimpleMatrix> antecedentEmbeddings = new HashMap<>();
-    Map<Integer, SimpleMatrix> anaphorEmbeddings = new HashMap<>();
-    Counter<Integer> anaphoricityScores = new ClassicCounter<>();
-    for (Mention m : sortedMentions) {
+    SimpleMatrix mentionEmbeddings = null;
+    SimpleMatrix anaphoricityFeatures = null;
+    Map<Integer, Integer> mentionColumns = new HashMap<>();
+    for (int i = 0; i < sortedMentions.size(); i++) {
+      Mention m = sortedMentions.get(i);
       SimpleMatrix mentionEmbedding = embeddingExtractor.getMentionEmbeddings(m, documentEmbedding);
-      antecedentEmbeddings.put(m.mentionID, model.getAntecedentEmbedding(mentionEmbedding));
-      anaphorEmbeddings.put(m.mentionID, model.getAnaphorEmbedding(mentionEmbedding));
-      anaphoricityScores.incrementCount(m.mentionID,
-          model.getAnaphoricityScore(mentionEmbedding,
-              featureExtractor.getAnaphoricityFeatures(m, document, mentionsByHeadIndex)));
+      SimpleMatrix features = featureExtractor.getAnaphoricityFeatures(m, document, mentionsByHeadIndex);
+      if (mentionEmbeddings == null) {
+        mentionEmbeddings = new SimpleMatrix(mentionEmbedding.numRows(), sortedMentions.size());
+        anaphoricityFeatures = new SimpleMatrix(features.numRows(), sortedMentions.size());
+      }
+      mentionEmbeddings.insertIntoThis(0, i, mentionEmbedding);
+      anaphoricityFeatures.insertIntoThis(0, i, features);
+      mentionColumns.put(m.mentionID, i);
     }
+    SimpleMatrix antecedentEmbeddings = model.getAntecedentEmbedding(mentionEmbeddings);
+    SimpleMatrix anaphorEmbeddings = model.getAnaphorEmbedding(mentionEmbeddings);
+    double[] anaphoricityScores = model.getAnaphoricityScores(mentionEmbeddings, anaphoricityFeatures);
 
     Map<Integer, List<Integer>> mentionToCandidateAntecedents = CorefUtils.heuristicFilter(sortedMentions,
         maxMentionDistance, maxMentionDistanceWithStringMatch);
+    double[] pairScores = getPairwiseScores(document, mentionsByHeadIndex, mentionToCandidateAntecedents,
+        mentionColumns, antecedentEmbeddings, anaphorEmbeddings);
+
+    int pair = 0;
     for (Map.Entry<Integer, List<Integer>> e : mentionToCandidateAntecedents.entrySet()) {
-      double bestScore = anaphoricityScores.getCount(e.getKey()) - 50 * (greedyness - 0.5);
       int m = e.getKey();
+      double bestScore = anaphoricityScores[mentionColumns.get(m)] - 50 * (greedyness - 0.5);
       Integer antecedent = null;
       for (int ca : e.getValue()) {
-        double score = model.getPairwiseScore(antecedentEmbeddings.get(ca),
-            anaphorEmbeddings.get(m), featureExtractor.getPairFeatures(
-                  new Pair<>(ca, m), document, mentionsByHeadIndex));
+        double score = pairScores[pair++];
         if (score > bestScore) {
           bestScore = score;
           antecedent = ca;
@@ -103,4 +124,42 @@ public class NeuralCorefAlgorithm implements CorefAlgorithm {
       }
     }
   }
+
+  /**
+   * Scores every candidate pair, in the order of the candidate antecedents of each mention.
+   * The pairs are scored in batches of {@code PAIR_BATCH_SIZE}, which keeps the matrices
+   * small on long documents.
+   */
+  private double[] getPairwiseScores(Document document, Map<Integer, List<Mention>> mentionsByHeadIndex,
+      Map<Integer, List<Integer>> mentionToCandidateAntecedents, Map<Integer, Integer> mentionColumns,
+      SimpleMatrix antecedentEmbeddings, SimpleMatrix anaphorEmbeddings) {
+    List<Pair<Integer, Integer>> pairs = new ArrayList<>();
+    for (Map.Entry<Integer, List<Integer>> e : mentionToCandidateAntecedents.entrySet()) {
+      for (int ca : e.getValue()) {
+        pairs.add(new Pair<>(ca, e.getKey()));
+      }
+    }
+
+    double[] scores = new double[pairs.size()];
+    for (int start = 0; start < pairs.size(); start += PAIR_BATCH_SIZE) {
+      int batchSize = Math.min(PAIR_BATCH_SIZE, pairs.size() - start);
+      int[] antecedents = new int[batchSize];
+      int[] anaphors = new int[batchSize];
+      SimpleMatrix pairFeatures = null;
+      for (int i = 0; i < batchSize; i++) {
+        Pair<Integer, Integer> pair = pairs.get(start + i);
+        SimpleMatrix features = featureExtractor.getPairFeatures(pair, document, mentionsByHeadIndex);
+        if (pairFeatures == null) {
+          pairFeatures = new SimpleMatrix(features.numRows(), batchSize);
+        }
+        pairFeatures.insertIntoThis(0, i, features);
+        antecedents[i] = mentionColumns.get(pair.first);
+        anaphors[i] = mentionColumns.get(pair.second);
+      }
+      double[] batchScores = model.getPairwiseScores(antecedentEmbeddings, anaphorEmbeddings,
+          antecedents, anaphors, pairFeatures);
+      System.arraycopy(batchScores, 0, scores, start, batchSize);
+    }
+    return scores;
+  }
 }
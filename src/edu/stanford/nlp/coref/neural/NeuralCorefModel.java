@@ -5,6 +5,7 @@ import java.util.List;
 
 import edu.stanford.nlp.neural.Embedding;
 import edu.stanford.nlp.neural.NeuralUtils;
+import org.ejml.data.DenseMatrix64F;
 import org.ejml.simple.SimpleMatrix;
 
 /**
@@ -37,27 +38,81 @@ public class NeuralCorefModel implements Serializable {
   public double getAnaphoricityScore(SimpleMatrix mentionEmbedding,
       SimpleMatrix anaphoricityFeatures) {
     return score(NeuralUtils.concatenate(mentionEmbedding, anaphoricityFeatures),
+        anaphoricityModel)[0];
+  }
+
+  /**
+   * Scores many mentions at once.  Column i of each matrix holds the embedding and the
+   * anaphoricity features of mention i.
+   */
+  public double[] getAnaphoricityScores(SimpleMatrix mentionEmbeddings,
+      SimpleMatrix anaphoricityFeatures) {
+    return score(mentionEmbeddings.combine(mentionEmbeddings.numRows(), 0, anaphoricityFeatures),
         anaphoricityModel);
   }
 
   public double getPairwiseScore(SimpleMatrix antecedentEmbedding, SimpleMatrix anaphorEmbedding,
       SimpleMatrix pairFeatures) {
-    SimpleMatrix firstLayerOutput = NeuralUtils.elementwiseApplyReLU(
-        antecedentEmbedding
-          .plus(anaphorEmbedding)
-          .plus(pairFeaturesMatrix.mult(pairFeatures))
-          .plus(pairwiseFirstLayerBias));
+    return getPairwiseScores(antecedentEmbedding, anaphorEmbedding,
+        new int[] {0}, new int[] {0}, pairFeatures)[0];
+  }
+
+  /**
+   * Scores a batch of candidate pairs with one matrix multiply per layer, rather than
+   * several small ones per pair.  The columns of {@code antecedentEmbeddings} and
+   * {@code anaphorEmbeddings} are the projected embeddings of the mentions, as returned by
+   * {@link #getAntecedentEmbedding} and {@link #getAnaphorEmbedding} for a matrix with one
+   * mention per column.  Pair i is the antecedent in column {@code antecedents[i]} and the
+   * anaphor in column {@code anaphors[i]}, and its features are column i of
+   * {@code pairFeatures}.
+   */
+  public double[] getPairwiseScores(SimpleMatrix antecedentEmbeddings,
+      SimpleMatrix anaphorEmbeddings, int[] antecedents, int[] anaphors,
+      SimpleMatrix pairFeatures) {
+    SimpleMatrix firstLayerOutput = pairFeaturesMatrix.mult(pairFeatures);
+    DenseMatrix64F output = firstLayerOutput.getMatrix();
+    DenseMatrix64F antecedent = antecedentEmbeddings.getMatrix();
+    DenseMatrix64F anaphor = anaphorEmbeddings.getMatrix();
+    int numPairs = output.numCols;
+    for (int row = 0; row < output.numRows; row++) {
+      double bias = pairwiseFirstLayerBias.get(row);
+      int antecedentRow = row * antecedent.numCols;
+      int anaphorRow = row * anaphor.numCols;
+      int outputRow = row * numPairs;
+      for (int i = 0; i < numPairs; i++) {
+        double x = antecedent.data[antecedentRow + antecedents[i]]
+            + anaphor.data[anaphorRow + anaphors[i]]
+            + output.data[outputRow + i]
+            + bias;
+        output.data[outputRow + i] = Math.max(0, x);
+      }
+    }
     return score(firstLayerOutput, pairwiseModel);
   }
 
-  private static double score(SimpleMatrix features, List<SimpleMatrix> weights) {
+  /** Runs each column of features through the layers, returning the sum of the output of each */
+  private static double[] score(SimpleMatrix features, List<SimpleMatrix> weights) {
     for (int i = 0; i < weights.size(); i += 2) {
-      features = weights.get(i).mult(features).plus(weights.get(i + 1));
-      if (weights.get(i).numRows() > 1) {
-        features = NeuralUtils.elementwiseApplyReLU(features);
+      features = weights.get(i).mult(features);
+      DenseMatrix64F output = features.getMatrix();
+      SimpleMatrix bias = weights.get(i + 1);
+      boolean relu = weights.get(i).numRows() > 1;
+      for (int row = 0; row < output.numRows; row++) {
+        double b = bias.get(row);
+        for (int col = 0, index = row * output.numCols; col < output.numCols; col++, index++) {
+          double x = output.data[index] + b;
+          output.data[index] = relu ? Math.max(0, x) : x;
+        }
+      }
+    }
+    DenseMatrix64F output = features.getMatrix();
+    double[] scores = new double[output.numCols];
+    for (int row = 0; row < output.numRows; row++) {
+      for (int col = 0, index = row * output.numCols; col < output.numCols; col++, index++) {
+        scores[col] += output.data[index];
       }
     }
-    return features.elementSum();
+    return scores;
   }
 
   public SimpleMatrix getAnaphorEmbedding(SimpleMatrix mentionEmbedding) {
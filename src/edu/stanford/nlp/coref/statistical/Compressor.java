@@ -44,6 +44,11 @@ public class Compressor<K> implements Serializable {
     return new CompressedFeatureVector(keys, values);
   }
 
+  /** Returns the key with the given id */
+  public K getKey(Integer id) {
+    return inverse.get(id);
+  }
+
   public Counter<K> uncompress(CompressedFeatureVector cvf) {
     Counter<K> c = new ClassicCounter<>();
     for (int i = 0; i < cvf.keys.size(); i++) {
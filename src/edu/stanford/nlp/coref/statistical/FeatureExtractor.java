@@ -28,8 +28,8 @@ import edu.stanford.nlp.ling.CoreAnnotations.SpeakerAnnotation;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
-import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.stats.OpenAddressCounter;
 import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.util.Pair;
 import edu.stanford.nlp.util.StringUtils;
@@ -141,7 +141,7 @@ public class FeatureExtractor {
 
   private Counter<String> getFeatures(Document doc, Mention m,
       Map<Integer, List<Mention>> mentionsByHeadIndex) {
-    Counter<String> features = new ClassicCounter<>();
+    Counter<String> features = new OpenAddressCounter<>();
 
     // type features
     features.incrementCount("mention-type=" + m.mentionType);
@@ -261,7 +261,7 @@ public class FeatureExtractor {
 
   private Counter<String> getFeatures(Document doc, Mention m1, Mention m2) {
     assert(m1.appearEarlierThan(m2));
-    Counter<String> features = new ClassicCounter<>();
+    Counter<String> features = new OpenAddressCounter<>();
 
     // global features
     features.incrementCount("bias");
@@ -0,0 +1,88 @@
+package edu.stanford.nlp.coref.statistical;
+
+import java.util.Arrays;
+
+/**
+ * A reusable feature vector for scoring with a {@link HashedLinearClassifier}.  Each feature is
+ * stored as the {@link String#hashCode} of its name together with its value, so features can be
+ * added without building their names.  Features added more than once are not merged, which
+ * makes no difference to a linear model.
+ */
+public class HashedFeatureVector {
+  private int[] hashes;
+  private double[] values;
+  private int size;
+
+  public HashedFeatureVector() {
+    this(64);
+  }
+
+  public HashedFeatureVector(int initialCapacity) {
+    hashes = new int[initialCapacity];
+    values = new double[initialCapacity];
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int hash(int i) {
+    return hashes[i];
+  }
+
+  public double value(int i) {
+    return values[i];
+  }
+
+  /** Adds a feature given the hash code of its name */
+  public void add(int hash, double value) {
+    if (size == hashes.length) {
+      hashes = Arrays.copyOf(hashes, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    hashes[size] = hash;
+    values[size] = value;
+    size++;
+  }
+
+  /**
+   * Returns the hash code of the concatenation of two strings, given the hash code of the first
+   * and the {@link Suffix} of the second.
+   */
+  public static int concatHash(int hash, Suffix suffix) {
+    return hash * suffix.multiplier + suffix.hash;
+  }
+
+  /**
+   * Returns the hash code of the concatenation of two strings, given the hash code of the first
+   * and the hash code and {@link #multiplier} of the second.
+   */
+  public static int concatHash(int hash, int suffixHash, int suffixMultiplier) {
+    return hash * suffixMultiplier + suffixHash;
+  }
+
+  /** 31 to the power of the given length, which a hash code is multiplied by to append that many chars */
+  public static int multiplier(int length) {
+    int m = 1;
+    for (int i = 0; i < length; i++) {
+      m *= 31;
+    }
+    return m;
+  }
+
+  /** A string to be appended to feature names, with what is needed to hash the results */
+  public static class Suffix {
+    public final int hash;
+    /** 31 to the power of the length of the suffix */
+    public final int multiplier;
+
+    public Suffix(String suffix) {
+      hash = suffix.hashCode();
+      multiplier = multiplier(suffix.length());
+    }
+  }
+}
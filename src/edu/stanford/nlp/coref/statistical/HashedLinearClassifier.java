@@ -0,0 +1,81 @@
+package edu.stanford.nlp.coref.statistical;
+
+import java.util.Map;
+
+import edu.stanford.nlp.coref.statistical.SimpleLinearClassifier.Loss;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.util.Hashing;
+import edu.stanford.nlp.util.logging.Redwood;
+
+/**
+ * The weights of a {@link SimpleLinearClassifier} keyed by the hash codes of the feature names,
+ * for scoring {@link HashedFeatureVector}s without building or looking up strings.  The weights
+ * are held in an open addressing table of primitive arrays.  Only used for prediction; it is
+ * made from a trained classifier with {@link SimpleLinearClassifier#toHashed}.
+ * <br>
+ * A feature whose name has the same {@link String#hashCode} as a weighted feature gets that
+ * feature's weight.  Weighted features which share a hash code share the sum of their weights;
+ * these are counted and logged when the table is built.
+ */
+public class HashedLinearClassifier {
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(HashedLinearClassifier.class);
+
+  private final Loss loss;
+  private final int[] keys;
+  private final double[] weights;
+  private final boolean[] used;
+  private final int mask;
+  private final int numCollisions;
+
+  HashedLinearClassifier(Loss loss, Counter<String> weights) {
+    this.loss = loss;
+    int capacity = Hashing.tableSize(weights.size());
+    this.keys = new int[capacity];
+    this.weights = new double[capacity];
+    this.used = new boolean[capacity];
+    this.mask = capacity - 1;
+    int collisions = 0;
+    for (Map.Entry<String, Double> e : weights.entrySet()) {
+      int hash = e.getKey().hashCode();
+      int slot = slot(hash);
+      if (used[slot]) {
+        // the names are distinct, so this is another name with the same hash code
+        ++collisions;
+      }
+      keys[slot] = hash;
+      used[slot] = true;
+      this.weights[slot] += e.getValue();
+    }
+    numCollisions = collisions;
+    if (numCollisions > 0) {
+      log.warn("Found " + numCollisions + " feature(s) with the same hash code as another feature");
+    }
+  }
+
+  /** The number of weighted features whose hash code was already taken by another feature */
+  public int numCollisions() {
+    return numCollisions;
+  }
+
+  /** The slot holding the hash, or the empty slot where it would go */
+  private int slot(int hash) {
+    int slot = Hashing.fmix32(hash) & mask;
+    while (used[slot] && keys[slot] != hash) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  public double label(HashedFeatureVector features) {
+    return loss.predict(weightFeatureProduct(features));
+  }
+
+  public double weightFeatureProduct(HashedFeatureVector features) {
+    double product = 0;
+    for (int i = 0; i < features.size(); i++) {
+      product += features.value(i) * weights[slot(features.hash(i))];
+    }
+    return product;
+  }
+}
@@ -2,6 +2,7 @@ package edu.stanford.nlp.coref.statistical;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -119,8 +120,8 @@ public class MetaFeatureExtractor {
     }
 
     List<String> ids1 = example.isNewLink() ? new ArrayList<>() :
-      identifiers(features1, example.mentionType1);
-    List<String> ids2 = identifiers(features2, example.mentionType2);
+      identifiers(features1.keySet(), example.mentionType1);
+    List<String> ids2 = identifiers(features2.keySet(), example.mentionType2);
     features.addAll(pairFeatures);
     for (String id1 : ids1) {
       for (String id2 : ids2) {
@@ -169,19 +170,233 @@ public class MetaFeatureExtractor {
     return features;
   }
 
-  private List<String> identifiers(Counter<String> features, MentionType mentionType) {
+  /**
+   * Adds the same features as {@link #getFeatures} to a {@link HashedFeatureVector}, for
+   * scoring with a {@link HashedLinearClassifier}.  The conjunctions are hashed from the hash
+   * codes of the input features, the fixed parts of their suffixes and the mention identifiers,
+   * so no strings, lists or counters are made for a pair.
+   */
+  public void getHashedFeatures(Example example,
+      Map<Integer, CompressedFeatureVector> mentionFeatures, Compressor<String> compressor,
+      HashedFeatureVector features) {
+    features.clear();
+    CompressedFeatureVector features2 = mentionFeatures.get(example.mentionId2);
+    String idFeature2 = identifierFeature(features2, compressor, example.mentionType2);
+    int id2 = identifierHash(idFeature2, example.mentionType2);
+    int id2Multiplier = identifierMultiplier(idFeature2, example.mentionType2);
+
+    if (example.isNewLink()) {
+      // the input features of the mention, with a bias, and no pair or first mention features
+      addConjunction(features, features2, compressor, 0, 1, true);
+      addConjunction(features, features2, compressor,
+          HashedFeatureVector.concatHash(M.hash, id2, id2Multiplier), M.multiplier * id2Multiplier,
+          true);
+      return;
+    }
+
+    assert(!anaphoricityClassifier);
+    CompressedFeatureVector pairFeatures = example.pairwiseFeatures;
+    CompressedFeatureVector features1 = mentionFeatures.get(example.mentionId1);
+    String idFeature1 = identifierFeature(features1, compressor, example.mentionType1);
+    int id1 = identifierHash(idFeature1, example.mentionType1);
+    int id1Multiplier = identifierMultiplier(idFeature1, example.mentionType1);
+    // "_" + id2, the end of the suffixes with both identifiers
+    int underscoreId2 = HashedFeatureVector.concatHash(UNDERSCORE.hash, id2, id2Multiplier);
+    int underscoreId2Multiplier = UNDERSCORE.multiplier * id2Multiplier;
+
+    addConjunction(features, pairFeatures, compressor, 0, 1, false);
+    if (pairConjunctions.contains(PairConjunction.FIRST)) {
+      addConjunction(features, pairFeatures, compressor, M1, id1, id1Multiplier);
+    }
+    if (pairConjunctions.contains(PairConjunction.LAST)) {
+      addConjunction(features, pairFeatures, compressor, M2, id2, id2Multiplier);
+    }
+    if (pairConjunctions.contains(PairConjunction.BOTH)) {
+      addConjunction(features, pairFeatures, compressor, MS, id1, id1Multiplier,
+          underscoreId2, underscoreId2Multiplier);
+    }
+    if (singleConjunctions.contains(SingleConjunction.INDEX)) {
+      addConjunction(features, features1, compressor, INDEX_1.hash, INDEX_1.multiplier, false);
+      addConjunction(features, features2, compressor, INDEX_2.hash, INDEX_2.multiplier, false);
+    }
+    if (singleConjunctions.contains(SingleConjunction.INDEX_CURRENT)) {
+      addConjunction(features, features1, compressor, INDEX_1_M, id1, id1Multiplier);
+      addConjunction(features, features2, compressor, INDEX_2_M, id2, id2Multiplier);
+    }
+    if (singleConjunctions.contains(SingleConjunction.INDEX_LAST)) {
+      addConjunction(features, features1, compressor, INDEX_1_M2, id2, id2Multiplier);
+      addConjunction(features, features2, compressor, INDEX_2_M2, id2, id2Multiplier);
+    }
+    if (singleConjunctions.contains(SingleConjunction.INDEX_OTHER)) {
+      addConjunction(features, features1, compressor, INDEX_1_M, id2, id2Multiplier);
+      addConjunction(features, features2, compressor, INDEX_2_M, id1, id1Multiplier);
+    }
+    if (singleConjunctions.contains(SingleConjunction.INDEX_BOTH)) {
+      addConjunction(features, features1, compressor, INDEX_1_MS, id1, id1Multiplier,
+          underscoreId2, underscoreId2Multiplier);
+      addConjunction(features, features2, compressor, INDEX_2_MS, id1, id1Multiplier,
+          underscoreId2, underscoreId2Multiplier);
+    }
+  }
+
+  // The fixed parts of the suffixes of the conjunctions
+  private static final HashedFeatureVector.Suffix M = new HashedFeatureVector.Suffix("_m=");
+  private static final HashedFeatureVector.Suffix M1 = new HashedFeatureVector.Suffix("_m1=");
+  private static final HashedFeatureVector.Suffix M2 = new HashedFeatureVector.Suffix("_m2=");
+  private static final HashedFeatureVector.Suffix MS = new HashedFeatureVector.Suffix("_ms=");
+  private static final HashedFeatureVector.Suffix UNDERSCORE = new HashedFeatureVector.Suffix("_");
+  private static final HashedFeatureVector.Suffix INDEX_1 = new HashedFeatureVector.Suffix("_1");
+  private static final HashedFeatureVector.Suffix INDEX_2 = new HashedFeatureVector.Suffix("_2");
+  private static final HashedFeatureVector.Suffix INDEX_1_M = new HashedFeatureVector.Suffix("_1_m=");
+  private static final HashedFeatureVector.Suffix INDEX_2_M = new HashedFeatureVector.Suffix("_2_m=");
+  private static final HashedFeatureVector.Suffix INDEX_1_M2 = new HashedFeatureVector.Suffix("_1_m2=");
+  private static final HashedFeatureVector.Suffix INDEX_2_M2 = new HashedFeatureVector.Suffix("_2_m2=");
+  private static final HashedFeatureVector.Suffix INDEX_1_MS = new HashedFeatureVector.Suffix("_1_ms=");
+  private static final HashedFeatureVector.Suffix INDEX_2_MS = new HashedFeatureVector.Suffix("_2_ms=");
+  private static final HashedFeatureVector.Suffix NEW_LINK = new HashedFeatureVector.Suffix("_NEW");
+  private static final HashedFeatureVector.Suffix PROPER =
+      new HashedFeatureVector.Suffix(MentionType.PROPER.toString() + "_");
+
+  /** Adds the conjunctions with the suffix {@code fixed + id} */
+  private void addConjunction(HashedFeatureVector features, CompressedFeatureVector original,
+      Compressor<String> compressor, HashedFeatureVector.Suffix fixed, int id, int idMultiplier) {
+    addConjunction(features, original, compressor,
+        HashedFeatureVector.concatHash(fixed.hash, id, idMultiplier), fixed.multiplier * idMultiplier,
+        false);
+  }
+
+  /** Adds the conjunctions with the suffix {@code fixed + id + rest} */
+  private void addConjunction(HashedFeatureVector features, CompressedFeatureVector original,
+      Compressor<String> compressor, HashedFeatureVector.Suffix fixed, int id, int idMultiplier,
+      int rest, int restMultiplier) {
+    addConjunction(features, original, compressor,
+        HashedFeatureVector.concatHash(HashedFeatureVector.concatHash(fixed.hash, id, idMultiplier),
+            rest, restMultiplier),
+        fixed.multiplier * idMultiplier * restMultiplier, false);
+  }
+
+  /**
+   * Adds the allowed features of {@code original}, each with the given suffix appended.  For a
+   * new link a bias feature is added first, and "_NEW" is appended after the suffix.
+   */
+  private void addConjunction(HashedFeatureVector features, CompressedFeatureVector original,
+      Compressor<String> compressor, int suffix, int suffixMultiplier, boolean newLink) {
+    for (int i = 0; i < original.keys.size(); i++) {
+      String name = compressor.getKey(original.keys.get(i));
+      if (isAllowed(name)) {
+        addFeature(features, name.hashCode(), original.values.get(i), suffix, suffixMultiplier,
+            newLink);
+      }
+    }
+    if (newLink && isAllowed("bias")) {
+      addFeature(features, BIAS_HASH, 1.0, suffix, suffixMultiplier, true);
+    }
+  }
+
+  private static final int BIAS_HASH = "bias".hashCode();
+
+  private static void addFeature(HashedFeatureVector features, int hash, double value,
+      int suffix, int suffixMultiplier, boolean newLink) {
+    hash = HashedFeatureVector.concatHash(hash, suffix, suffixMultiplier);
+    if (newLink) {
+      hash = HashedFeatureVector.concatHash(hash, NEW_LINK);
+    }
+    features.add(hash, value);
+  }
+
+  private boolean isAllowed(String feature) {
+    for (String prefix : disallowedPrefixes) {
+      if (feature.startsWith(prefix)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The allowed feature which {@link #identifiers} takes the identifier of a mention from, or
+   * null if the identifier is just the mention type.
+   */
+  private String identifierFeature(CompressedFeatureVector cfv, Compressor<String> compressor,
+      MentionType mentionType) {
+    String prefix;
+    if (mentionType == MentionType.PRONOMINAL) {
+      prefix = HEAD_WORD;
+    } else if (neTypeConjuntion && mentionType == MentionType.PROPER) {
+      prefix = HEAD_NE_TYPE;
+    } else {
+      return null;
+    }
+    for (int i = 0; i < cfv.keys.size(); i++) {
+      String feature = compressor.getKey(cfv.keys.get(i));
+      if (feature.startsWith(prefix) && isAllowed(feature)) {
+        return feature;
+      }
+    }
+    return null;
+  }
+
+  /** The hash code of the identifier which {@link #identifiers} makes from the feature */
+  private static int identifierHash(String feature, MentionType mentionType) {
+    if (feature == null) {
+      return mentionType.toString().hashCode();
+    } else if (mentionType == MentionType.PRONOMINAL) {
+      return identifierValueHash(feature, HEAD_WORD);
+    } else {
+      return HashedFeatureVector.concatHash(PROPER.hash,
+          identifierValueHash(feature, HEAD_NE_TYPE),
+          HashedFeatureVector.multiplier(identifierValueLength(feature, HEAD_NE_TYPE)));
+    }
+  }
+
+  /** The {@link HashedFeatureVector#multiplier} of the identifier made from the feature */
+  private static int identifierMultiplier(String feature, MentionType mentionType) {
+    if (feature == null) {
+      return HashedFeatureVector.multiplier(mentionType.toString().length());
+    } else if (mentionType == MentionType.PRONOMINAL) {
+      return HashedFeatureVector.multiplier(identifierValueLength(feature, HEAD_WORD));
+    } else {
+      return PROPER.multiplier *
+          HashedFeatureVector.multiplier(identifierValueLength(feature, HEAD_NE_TYPE));
+    }
+  }
+
+  /** The hash code of {@code feature.replace(prefix, "")}, without making it in the usual case */
+  private static int identifierValueHash(String feature, String prefix) {
+    if (feature.indexOf(prefix, prefix.length()) >= 0) {
+      return feature.replace(prefix, "").hashCode();
+    }
+    int hash = 0;
+    for (int i = prefix.length(); i < feature.length(); i++) {
+      hash = 31 * hash + feature.charAt(i);
+    }
+    return hash;
+  }
+
+  /** The length of {@code feature.replace(prefix, "")} */
+  private static int identifierValueLength(String feature, String prefix) {
+    if (feature.indexOf(prefix, prefix.length()) >= 0) {
+      return feature.replace(prefix, "").length();
+    }
+    return feature.length() - prefix.length();
+  }
+
+  private static final String HEAD_WORD = "head-word=";
+  private static final String HEAD_NE_TYPE = "head-ne-type=";
+
+  private List<String> identifiers(Collection<String> features, MentionType mentionType) {
     List<String> identifiers = new ArrayList<>();
     if (mentionType == MentionType.PRONOMINAL) {
-      for (String feature : features.keySet()) {
-        if (feature.startsWith("head-word=")) {
-          identifiers.add(feature.replace("head-word=", ""));
+      for (String feature : features) {
+        if (feature.startsWith(HEAD_WORD)) {
+          identifiers.add(feature.replace(HEAD_WORD, ""));
           return identifiers;
         }
       }
     } else if (neTypeConjuntion && mentionType == MentionType.PROPER) {
-      for (String feature : features.keySet()) {
-        if (feature.startsWith("head-ne-type=")) {
-          identifiers.add(mentionType.toString() + "_" + feature.replace("head-ne-type=", ""));
+      for (String feature : features) {
+        if (feature.startsWith(HEAD_NE_TYPE)) {
+          identifiers.add(mentionType.toString() + "_" + feature.replace(HEAD_NE_TYPE, ""));
           return identifiers;
         }
       }
@@ -18,6 +18,7 @@ public class PairwiseModel {
   private final int trainingExamples;
   private final int epochs;
   protected final SimpleLinearClassifier classifier;
+  private final HashedLinearClassifier hashedClassifier;
   private final double singletonRatio;
   private final String str;
   protected final MetaFeatureExtractor meta;
@@ -36,6 +37,7 @@ public class PairwiseModel {
     private double regularizationStrength = 1e-7;
     private double singletonRatio = 0.3;
     private String modelFile = null;
+    private boolean hashedFeatures = false;
 
     public Builder(String name, MetaFeatureExtractor meta) {
       this.name = name;
@@ -56,6 +58,9 @@ public class PairwiseModel {
       { this.learningRateSchedule = learningRateSchedule; return this; }
     public Builder modelPath(String modelFile)
       { this.modelFile = modelFile; return this; }
+    /** Predict with hashed features (see {@link HashedLinearClassifier}) */
+    public Builder hashedFeatures(boolean hashedFeatures)
+      { this.hashedFeatures = hashedFeatures; return this; }
 
     public PairwiseModel build() {
       return new PairwiseModel(this);
@@ -76,6 +81,7 @@ public class PairwiseModel {
         builder.regularizationStrength, builder.modelFile == null ? null :
           ((builder.modelFile.endsWith(".ser") || builder.modelFile.endsWith(".gz"))  ? builder.modelFile :
           StatisticalCorefTrainer.pairwiseModelsPath + builder.modelFile + "/model.ser"));
+    hashedClassifier = builder.hashedFeatures ? classifier.toHashed() : null;
     str = StatisticalCorefTrainer.fieldValues(builder);
   }
 
@@ -150,10 +156,27 @@ public class PairwiseModel {
 
   public double predict(Example example,
       Map<Integer, CompressedFeatureVector> mentionFeatures, Compressor<String> compressor) {
+    if (hashedClassifier != null) {
+      return predict(example, mentionFeatures, compressor, new HashedFeatureVector());
+    }
     Counter<String> features = meta.getFeatures(example, mentionFeatures, compressor);
     return classifier.label(features);
   }
 
+  /**
+   * Predicts with hashed features if the model was built with {@code hashedFeatures},
+   * reusing the given vector for the features.
+   */
+  public double predict(Example example,
+      Map<Integer, CompressedFeatureVector> mentionFeatures, Compressor<String> compressor,
+      HashedFeatureVector features) {
+    if (hashedClassifier == null) {
+      return predict(example, mentionFeatures, compressor);
+    }
+    meta.getHashedFeatures(example, mentionFeatures, compressor, features);
+    return hashedClassifier.label(features);
+  }
+
   public int getNumTrainingExamples() {
     return trainingExamples;
   }
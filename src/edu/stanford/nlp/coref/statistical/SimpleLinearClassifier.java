@@ -94,6 +94,14 @@ public class SimpleLinearClassifier {
     return product;
   }
 
+  /**
+   * Returns a copy of the weights for scoring hashed features.  Later training doesn't change
+   * the copy.
+   */
+  public HashedLinearClassifier toHashed() {
+    return new HashedLinearClassifier(defaultLoss, weights);
+  }
+
   public void setWeight(String featureName, double weight) {
     weights.setCount(featureName, weight);
   }
@@ -62,7 +62,8 @@ public class StatisticalCorefAlgorithm implements CorefAlgorithm {
       double[] thresholds) {
     extractor = new FeatureExtractor(props, dictionaries, null, wordCountsFile);
     classifier = PairwiseModel.newBuilder("classifier",
-        MetaFeatureExtractor.newBuilder().build()).modelPath(modelPath).build();
+        MetaFeatureExtractor.newBuilder().build()).modelPath(modelPath)
+        .hashedFeatures(StatisticalCorefProperties.hashedFeatures(props)).build();
     this.maxMentionDistance = maxMentionDistance;
     this.maxMentionDistanceWithStringMatch = maxMentionDistanceWithStringMatch;
     this.thresholds = makeThresholds(thresholds);
@@ -95,12 +96,13 @@ public class StatisticalCorefAlgorithm implements CorefAlgorithm {
 
     DocumentExamples examples = extractor.extract(0, document, pairs, compressor);
     Counter<Pair<Integer, Integer>> pairwiseScores = new ClassicCounter<>();
+    HashedFeatureVector features = new HashedFeatureVector();
     for (Example mentionPair : examples.examples) {
       if (Thread.interrupted()) {  // Allow interrupting
         throw new RuntimeInterruptedException();
       }
       pairwiseScores.incrementCount(new Pair<>(mentionPair.mentionId1, mentionPair.mentionId2),
-          classifier.predict(mentionPair, examples.mentionFeatures, compressor));
+          classifier.predict(mentionPair, examples.mentionFeatures, compressor, features));
     }
 
     List<Pair<Integer, Integer>> mentionPairs = new ArrayList<>(pairwiseScores.keySet());
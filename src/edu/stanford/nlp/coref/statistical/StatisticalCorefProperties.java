@@ -45,6 +45,14 @@ public class StatisticalCorefProperties {
         "edu/stanford/nlp/models/coref/statistical/word_counts.ser.gz");
   }
 
+  /**
+   * If true, pairs are scored with features hashed to ints rather than with feature names,
+   * which avoids building the names of the feature conjunctions.
+   */
+  public static boolean hashedFeatures(Properties props) {
+    return PropertiesUtils.getBool(props, "coref.statistical.hashedFeatures", false);
+  }
+
   public static double[] pairwiseScoreThresholds(Properties props) {
     String thresholdsProp = props.getProperty("coref.statistical.pairwiseScoreThresholds");
     if (thresholdsProp != null) {
@@ -6,14 +6,13 @@ import edu.stanford.nlp.ie.machinereading.structure.Span;
 import edu.stanford.nlp.io.IOUtils;
 import edu.stanford.nlp.io.RuntimeIOException;
 import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.ling.Datum;
 import edu.stanford.nlp.ling.RVFDatum;
 import edu.stanford.nlp.optimization.*;
 import edu.stanford.nlp.pipeline.DefaultPaths;
 import edu.stanford.nlp.simple.Sentence;
-import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
 import edu.stanford.nlp.stats.Counters;
+import edu.stanford.nlp.stats.OpenAddressCounter;
 import edu.stanford.nlp.util.*;
 import edu.stanford.nlp.util.logging.Redwood;
 import edu.stanford.nlp.util.logging.RedwoodConfiguration;
@@ -243,7 +242,7 @@ public class KBPStatisticalExtractor implements KBPRelationExtractor, Serializab
   }
 
   @SuppressWarnings("UnusedParameters")
-  private static void denseFeatures(KBPInput input, Sentence sentence, ClassicCounter<String> feats) {
+  private static void denseFeatures(KBPInput input, Sentence sentence, Counter<String> feats) {
     boolean subjBeforeObj = input.subjectSpan.isBefore(input.objectSpan);
 
     // Type signature
@@ -254,7 +253,7 @@ public class KBPStatisticalExtractor implements KBPRelationExtractor, Serializab
   }
 
   @SuppressWarnings("UnusedParameters")
-  private static void surfaceFeatures(KBPInput input, Sentence simpleSentence, ClassicCounter<String> feats) {
+  private static void surfaceFeatures(KBPInput input, Sentence simpleSentence, Counter<String> feats) {
     List<String> lemmaSpan = spanBetweenMentions(input, CoreLabel::lemma);
     List<String> nerSpan = spanBetweenMentions(input, CoreLabel::ner);
     List<String> posSpan = spanBetweenMentions(input, CoreLabel::tag);
@@ -360,7 +359,7 @@ public class KBPStatisticalExtractor implements KBPRelationExtractor, Serializab
   }
 
 
-  private static void dependencyFeatures(KBPInput input, Sentence sentence, ClassicCounter<String> feats) {
+  private static void dependencyFeatures(KBPInput input, Sentence sentence, Counter<String> feats) {
     int subjectHead = sentence.algorithms().headOfSpan(input.subjectSpan);
     int objectHead = sentence.algorithms().headOfSpan(input.objectSpan);
 
@@ -439,7 +438,7 @@ public class KBPStatisticalExtractor implements KBPRelationExtractor, Serializab
 
 
   @SuppressWarnings("UnusedParameters")
-  private static void relationSpecificFeatures(KBPInput input, Sentence sentence, ClassicCounter<String> feats) {
+  private static void relationSpecificFeatures(KBPInput input, Sentence sentence, Counter<String> feats) {
     if (input.objectType.equals(KBPRelationExtractor.NERTag.NUMBER)) {
       // Bucket the object value if it is a number
       // This is to prevent things like "age:9000" and to soft penalize "age:one"
@@ -545,9 +544,9 @@ public class KBPStatisticalExtractor implements KBPRelationExtractor, Serializab
   public static Counter<String> features(KBPInput input) {
     
     // Get useful variables
-    ClassicCounter<String> feats = new ClassicCounter<>();
+    Counter<String> feats = new OpenAddressCounter<>();
     if (Span.overlaps(input.subjectSpan, input.objectSpan) || input.subjectSpan.size() == 0 || input.objectSpan.size() == 0) {
-      return new ClassicCounter<>();
+      return new OpenAddressCounter<>();
     }
 
     // Actually featurize
@@ -624,10 +623,17 @@ public class KBPStatisticalExtractor implements KBPRelationExtractor, Serializab
     log.info("END training");
 
     // Debug
+    // The dataset shares its indices with the classifier, so its datums can be scored as they are
     Accuracy trainAccuracy = new Accuracy();
-    for (Datum<String, String> datum : dataset) {
-      String guess = classifier.classOf(datum);
-      trainAccuracy.predict(Collections.singleton(guess), Collections.singleton(datum.label()));
+    LinearClassifierScorer<String, String> scorer = classifier.batchScorer(false);
+    int[][] data = dataset.getDataArray();
+    double[][] values = dataset.getValuesArray();
+    int[] labels = dataset.getLabelsArray();
+    double[] scores = new double[scorer.numLabels()];
+    for (int i = 0; i < dataset.size(); ++i) {
+      scorer.scoresOf(data[i], values == null ? null : values[i], scores, 0);
+      String guess = scorer.labelIndex().get(scorer.argmax(scores, 0));
+      trainAccuracy.predict(Collections.singleton(guess), Collections.singleton(dataset.labelIndex().get(labels[i])));
     }
     log.info("Training accuracy:");
     log.info(trainAccuracy.toString());
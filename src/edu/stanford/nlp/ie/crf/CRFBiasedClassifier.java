@@ -57,6 +57,12 @@ public class CRFBiasedClassifier<IN extends CoreMap> extends CRFClassifier<IN>
 
   public CRFBiasedClassifier(SeqClassifierFlags flags) {super(flags); }
 
+  /** The bias feature is only added in {@link #makeDatum}. */
+  @Override
+  protected boolean canDecodeWithScratchViterbi() {
+    return false;
+  }
+
   @Override
   public CRFDatum<List<String>, CRFLabel> makeDatum(List<IN> info, int loc, List<FeatureFactory<IN>> featureFactories) {
 
@@ -98,6 +104,7 @@ public class CRFBiasedClassifier<IN extends CoreMap> extends CRFClassifier<IN>
       System.arraycopy (weights,0,newWeights,0,weights.length);
       newWeights[weights.length] = new double[classIndex.size()];
       weights = newWeights;
+      cliquePotentialFunction = null;
     }
   }
 
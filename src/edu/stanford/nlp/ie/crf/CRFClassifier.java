@@ -81,6 +81,16 @@ import java.util.zip.GZIPOutputStream;
  * conll.ner.gz -textFile sampleSentences.txt }
  * </p>
  * <p>
+ * To convert a serialized classifier to the memory-mapped format, which
+ * loads almost instantly and whose features and weights are shared
+ * between JVMs through the file cache (the result is also loaded with
+ * -loadClassifier):
+ * </p>
+ * <p>
+ * {@code java -mx2g edu.stanford.nlp.ie.crf.CRFClassifier -loadClassifier
+ * conll.ner.gz -serializeToMapped conll.ner.mmap }
+ * </p>
+ * <p>
  * When specifying all parameters in a properties file (train, test, or
  * runtime):
  * </p>
@@ -172,6 +182,12 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
   // Label dictionary for fast decoding
   private LabelDictionary labelDictionary;
 
+  /**
+   * Per-thread scratch space for {@link SeqClassifierFlags#useScratchViterbi} decoding
+   * with this classifier.  It is made again if the labels of the classifier change.
+   */
+  private final ThreadLocal<CRFViterbiDecoder> viterbiDecoders = new ThreadLocal<>();
+
   // List selftraindatums = new ArrayList();
 
   protected CRFClassifier() {
@@ -1220,10 +1236,54 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       return document;
     }
 
+    if (flags.useScratchViterbi && canDecodeWithScratchViterbi()) {
+      return classifyScratchViterbi(document);
+    }
+
     SequenceModel model = getSequenceModel(document);
     return classifyMaxEnt(document, model);
   }
 
+  /**
+   * Whether {@link #classifyScratchViterbi} gives the same answers as
+   * building a clique tree for this classifier.  This requires Viterbi
+   * inference with linear clique potentials, and none of the options
+   * which change the features or the possible labels of a document.
+   * Subclasses which change how features are made should return false.
+   */
+  protected boolean canDecodeWithScratchViterbi() {
+    return (flags.inferenceType == null || flags.inferenceType.equalsIgnoreCase("Viterbi")) &&
+        getCliquePotentialFunctionForTest() instanceof LinearCliquePotentialFunction &&
+        labelDictionary == null && ! flags.useReverse && ! flags.useEmbedding && flags.printFeatures == null;
+  }
+
+  /**
+   * Labels the document with {@link CRFViterbiDecoder}, which finds the
+   * best sequence directly from the clique potentials and reuses its
+   * buffers across documents on the same thread.
+   */
+  private List<IN> classifyScratchViterbi(List<IN> document) {
+    CRFViterbiDecoder decoder = viterbiDecoder();
+    double[][] testWeights = ((LinearCliquePotentialFunction) getCliquePotentialFunctionForTest()).weights();
+    int[] bestSequence = decoder.bestSequence(document, pad, featureFactories, featureIndex, testWeights);
+    for (int j = 0, docSize = document.size(); j < docSize; j++) {
+      document.get(j).set(CoreAnnotations.AnswerAnnotation.class, classIndex.get(bestSequence[j]));
+    }
+    return document;
+  }
+
+  /** The scratch Viterbi decoder of this thread, made again if the labels of the classifier changed */
+  CRFViterbiDecoder viterbiDecoder() {
+    int numClasses = classIndex.size();
+    int backgroundIndex = classIndex.indexOf(flags.backgroundSymbol);
+    CRFViterbiDecoder decoder = viterbiDecoders.get();
+    if (decoder == null || ! decoder.isFor(labelIndices, numClasses, backgroundIndex)) {
+      decoder = new CRFViterbiDecoder(labelIndices, numClasses, backgroundIndex);
+      viterbiDecoders.set(decoder);
+    }
+    return decoder;
+  }
+
   private List<IN> classifyMaxEnt(List<IN> document, Triple<int[][][], int[], double[][][]> documentDataAndLabels) {
     if (document.isEmpty()) {
       return document;
@@ -2302,6 +2362,8 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     }
     int weightsLength = Integer.parseInt(toks[1]);
     weights = new double[weightsLength][];
+    // made again from the new weights when it is next needed
+    cliquePotentialFunction = null;
     count = 0;
     while (count < weightsLength) {
       line = br.readLine();
@@ -2557,6 +2619,9 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    */
   @Override
   public void serializeClassifier(ObjectOutputStream oos) {
+    if (weights == null) {
+      throw new IllegalStateException("This classifier has no weights on the heap, perhaps because it was loaded from a memory-mapped model");
+    }
     try {
       oos.writeObject(labelIndices);
       oos.writeObject(classIndex);
@@ -2585,6 +2650,120 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     }
   }
 
+  /**
+   * Writes the classifier in the memory-mapped format of {@link MappedCRFModel}.
+   * The feature index and weights are laid out so that
+   * {@link #loadClassifier(File, Properties)} can map them instead of
+   * deserializing them, and the rest of the classifier is serialized
+   * as in {@link #serializeClassifier(ObjectOutputStream)}.
+   * Only classifiers with linear clique potentials can be written this way.
+   *
+   * @param serializePath The file to write.  It is not compressed.
+   */
+  public void serializeMappedClassifier(String serializePath) {
+    if (weights == null || ! (getCliquePotentialFunctionForTest() instanceof LinearCliquePotentialFunction)) {
+      throw new UnsupportedOperationException("Only a CRF with linear clique potentials can be saved as a memory-mapped model");
+    }
+    log.info("Serializing memory-mapped classifier to " + serializePath + "...");
+    try {
+      ByteArrayOutputStream meta = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(meta)) {
+        oos.writeObject(labelIndices);
+        oos.writeObject(classIndex);
+        oos.writeObject(flags);
+        if (flags.useEmbedding) {
+          oos.writeObject(embeddings);
+        }
+        oos.writeObject(featureFactories.size());
+        for (FeatureFactory<IN> ff : featureFactories) {
+          oos.writeObject(ff);
+        }
+        oos.writeInt(windowSize);
+        oos.writeObject(knownLCWords);
+        oos.writeBoolean(labelDictionary != null);
+        if (labelDictionary != null) {
+          oos.writeObject(labelDictionary);
+        }
+      }
+      MappedCRFModel.write(new File(serializePath), meta.toByteArray(), featureIndex, weights);
+      log.info("done.");
+    } catch (IOException e) {
+      throw new RuntimeIOException("Failed to save classifier", e);
+    }
+  }
+
+  /**
+   * Loads a classifier written by {@link #serializeMappedClassifier}.
+   * The feature index and the clique potential function use the mapped
+   * file directly, so {@link #weights} stays null, and methods which
+   * inspect the weights, such as printing features, are not available.
+   */
+  @SuppressWarnings("unchecked")
+  private void loadMappedClassifier(File file, Properties props) throws IOException, ClassNotFoundException {
+    MappedCRFModel model = MappedCRFModel.open(file);
+    try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(model.metaStream()))) {
+      labelIndices = (List<Index<CRFLabel>>) ois.readObject();
+      classIndex = (Index<String>) ois.readObject();
+      flags = (SeqClassifierFlags) ois.readObject();
+      if (flags.useEmbedding) {
+        embeddings = (Map<String, double[]>) ois.readObject();
+      }
+      int size = (Integer) ois.readObject();
+      featureFactories = Generics.newArrayList(size);
+      for (int i = 0; i < size; ++i) {
+        featureFactories.add((FeatureFactory<IN>) ois.readObject());
+      }
+      if (props != null) {
+        flags.setProperties(props, false);
+      }
+      windowSize = ois.readInt();
+      Set<String> lcWords = (Set<String>) ois.readObject();
+      if (lcWords instanceof MaxSizeConcurrentHashSet) {
+        knownLCWords = (MaxSizeConcurrentHashSet<String>) lcWords;
+      } else {
+        knownLCWords = new MaxSizeConcurrentHashSet<>(lcWords);
+      }
+      labelDictionary = ois.readBoolean() ? (LabelDictionary) ois.readObject() : null;
+    }
+    featureIndex = model.featureIndex;
+    weights = null;
+    cliquePotentialFunction = model.potentials;
+    reinit();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <br>
+   * A file written by {@link #serializeMappedClassifier} is memory-mapped
+   * instead.
+   */
+  @Override
+  public void loadClassifier(String loadPath, Properties props) throws ClassCastException, IOException, ClassNotFoundException {
+    File file = new File(loadPath);
+    if (MappedCRFModel.isMappedModel(file)) {
+      loadClassifier(file, props);
+    } else {
+      super.loadClassifier(loadPath, props);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <br>
+   * A file written by {@link #serializeMappedClassifier} is memory-mapped
+   * instead.
+   */
+  @Override
+  public void loadClassifier(File file, Properties props) throws ClassCastException, IOException, ClassNotFoundException {
+    if (MappedCRFModel.isMappedModel(file)) {
+      Timing t = new Timing();
+      loadMappedClassifier(file, props);
+      t.done(log, "Loading memory-mapped classifier from " + file.getAbsolutePath());
+    } else {
+      super.loadClassifier(file, props);
+    }
+  }
+
   /**
    * Loads a classifier from the specified InputStream. This version works
    * quietly (unless VERBOSE is true). If props is non-null then any properties
@@ -2648,6 +2827,8 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
 
     windowSize = ois.readInt();
     weights = (double[][]) ois.readObject();
+    // made again from the new weights when it is next needed
+    cliquePotentialFunction = null;
 
     // WordShapeClassifier.setKnownLowerCaseWords((Set) ois.readObject());
     Set<String> lcWords = (Set<String>) ois.readObject();
@@ -3056,6 +3237,10 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       crf.serializeTextClassifier(serializeToText);
     }
 
+    if (crf.flags.serializeToMapped != null) {
+      crf.serializeMappedClassifier(crf.flags.serializeToMapped);
+    }
+
     if (testFile != null) {
       // todo: Change testFile to call testFiles with a singleton list
       DocumentReaderAndWriter<CoreLabel> readerAndWriter = crf.defaultReaderAndWriter();
@@ -0,0 +1,228 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.math.SloppyMath;
+import edu.stanford.nlp.sequences.Clique;
+import edu.stanford.nlp.sequences.FeatureFactory;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.Index;
+import edu.stanford.nlp.util.PaddedList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Viterbi decoding for a linear chain CRF with linear clique potentials
+ * which works directly on the clique potentials, without building a
+ * {@link CRFDatum} per token or a calibrated {@link CRFCliqueTree} per
+ * document.
+ * <br>
+ * The conditional label probabilities used by {@link TestSequenceModel}
+ * multiply out to the joint probability of the sequence given that the
+ * labels before the start of the document are the background symbol, so
+ * maximizing the sum of the unnormalized clique potentials under the same
+ * constraint finds the same best sequence.  Forward-backward calibration
+ * is therefore unnecessary for decoding.
+ * <br>
+ * All the per-document state (feature ids, clique potential tables,
+ * Viterbi scores and backpointers) lives in scratch buffers which grow to
+ * the largest document seen and are then reused.  An instance must only
+ * be used by one thread at a time; {@link CRFClassifier} keeps one per
+ * thread.
+ */
+class CRFViterbiDecoder {
+
+  /** The label indices this decoder was made for */
+  private final List<Index<CRFLabel>> labelIndices;
+  private final int numClasses;
+  private final int backgroundIndex;
+  /** Number of labels in the largest clique */
+  private final int window;
+  /** Viterbi states are assignments to the previous window - 1 labels */
+  private final int numStates;
+  /** The state in which all previous labels are the background symbol */
+  private final int backgroundState;
+  /** For cliques of size j+1, the base numClasses code of each labeling in labelIndices.get(j) */
+  private final int[][] labelCodes;
+  /** For cliques of size j+1, the cliques whose features go with that size, as in CRFClassifier.makeDatum */
+  private final List<List<Clique>> windowCliques;
+
+  /** Feature ids of the current position, grouped by clique size */
+  private int[] featureIds = new int[256];
+  private final int[] featureEnds;
+  /** Potential of each labeling in labelIndices.get(j) */
+  private final double[][] labelPotentials;
+  /** Potentials of cliques of size j+1, including those of all smaller cliques at the end of the window */
+  private final double[][] cliqueTables;
+  private double[] delta;
+  private double[] nextDelta;
+  private int[] backpointers = new int[0];
+
+  CRFViterbiDecoder(List<Index<CRFLabel>> labelIndices, int numClasses, int backgroundIndex) {
+    this.labelIndices = labelIndices;
+    this.numClasses = numClasses;
+    this.backgroundIndex = backgroundIndex;
+    this.window = labelIndices.size();
+    this.numStates = window > 1 ? SloppyMath.intPow(numClasses, window - 1) : 1;
+
+    int state = 0;
+    for (int i = 0; i < window - 1; i++) {
+      state = state * numClasses + backgroundIndex;
+    }
+    this.backgroundState = state;
+
+    labelCodes = new int[window][];
+    labelPotentials = new double[window][];
+    cliqueTables = new double[window][];
+    for (int j = 0; j < window; j++) {
+      Index<CRFLabel> labelIndex = labelIndices.get(j);
+      labelCodes[j] = new int[labelIndex.size()];
+      for (int k = 0; k < labelIndex.size(); k++) {
+        int code = 0;
+        for (int label : labelIndex.get(k).getLabel()) {
+          code = code * numClasses + label;
+        }
+        labelCodes[j][k] = code;
+      }
+      labelPotentials[j] = new double[labelIndex.size()];
+      cliqueTables[j] = new double[SloppyMath.intPow(numClasses, j + 1)];
+    }
+
+    windowCliques = new ArrayList<>(window);
+    Collection<Clique> done = Generics.newHashSet();
+    for (int j = 0; j < window; j++) {
+      List<Clique> cliques = FeatureFactory.getCliques(j, 0);
+      cliques.removeAll(done);
+      done.addAll(cliques);
+      windowCliques.add(cliques);
+    }
+    featureEnds = new int[window];
+    delta = new double[numStates];
+    nextDelta = new double[numStates];
+  }
+
+  /** Whether this decoder was made with these arguments */
+  boolean isFor(List<Index<CRFLabel>> labelIndices, int numClasses, int backgroundIndex) {
+    return this.labelIndices == labelIndices && this.numClasses == numClasses &&
+        this.backgroundIndex == backgroundIndex;
+  }
+
+  /**
+   * Finds the best labeling of the document.
+   *
+   * @param <IN> The type of the tokens being labeled
+   * @param document The tokens to label
+   * @param pad The token used to pad positions outside the document
+   * @param featureFactories The feature factories of the classifier
+   * @param featureIndex The feature index of the classifier
+   * @param weights The weights of the classifier, indexed by feature and then labeling
+   * @return The best label index for each token
+   */
+  <IN extends CoreMap> int[] bestSequence(List<IN> document, IN pad, List<FeatureFactory<IN>> featureFactories,
+                     Index<String> featureIndex, double[][] weights) {
+    int docSize = document.size();
+    PaddedList<IN> pInfo = new PaddedList<>(document, pad);
+    if (backpointers.length < docSize * numStates) {
+      backpointers = new int[Math.max(docSize * numStates, backpointers.length * 2)];
+    }
+
+    Arrays.fill(delta, Double.NEGATIVE_INFINITY);
+    delta[backgroundState] = 0.0;
+    for (int pos = 0; pos < docSize; pos++) {
+      double[] table = computePotentials(pInfo, pos, featureFactories, featureIndex, weights);
+
+      Arrays.fill(nextDelta, Double.NEGATIVE_INFINITY);
+      int offset = pos * numStates;
+      for (int state = 0; state < numStates; state++) {
+        double score = delta[state];
+        if (score == Double.NEGATIVE_INFINITY) {
+          continue;
+        }
+        int base = state * numClasses;
+        for (int label = 0; label < numClasses; label++) {
+          double candidate = score + table[base + label];
+          int next = (base + label) % numStates;
+          if (candidate > nextDelta[next]) {
+            nextDelta[next] = candidate;
+            backpointers[offset + next] = base + label;
+          }
+        }
+      }
+      double[] tmp = delta;
+      delta = nextDelta;
+      nextDelta = tmp;
+    }
+
+    int best = 0;
+    for (int state = 1; state < numStates; state++) {
+      if (delta[state] > delta[best]) {
+        best = state;
+      }
+    }
+    // Each backpointer is the whole window of labels ending at its
+    // position, so the label there is its last digit, and dropping that
+    // digit gives the state at the previous position.
+    int[] sequence = new int[docSize];
+    int state = best;
+    for (int pos = docSize - 1; pos >= 0; pos--) {
+      int windowCode = backpointers[pos * numStates + state];
+      sequence[pos] = windowCode % numClasses;
+      state = windowCode / numClasses;
+    }
+    return sequence;
+  }
+
+  /**
+   * Fills in the potential of every labeling of the window ending at
+   * the given position, returning the table of size numClasses^window,
+   * which is indexed the same way as a {@link FactorTable}.
+   */
+  private <IN extends CoreMap> double[] computePotentials(PaddedList<IN> pInfo, int pos, List<FeatureFactory<IN>> featureFactories,
+                                     Index<String> featureIndex, double[][] weights) {
+    int numFeatures = 0;
+    for (int j = 0; j < window; j++) {
+      for (Clique c : windowCliques.get(j)) {
+        for (FeatureFactory<IN> featureFactory : featureFactories) {
+          for (String feature : featureFactory.getCliqueFeatures(pInfo, pos, c)) {
+            int index = featureIndex.indexOf(feature);
+            if (index >= 0) {
+              if (numFeatures == featureIds.length) {
+                featureIds = Arrays.copyOf(featureIds, numFeatures * 2);
+              }
+              featureIds[numFeatures++] = index;
+            }
+          }
+        }
+      }
+      featureEnds[j] = numFeatures;
+    }
+
+    for (int j = 0, start = 0; j < window; start = featureEnds[j], j++) {
+      double[] potentials = labelPotentials[j];
+      Arrays.fill(potentials, 0.0);
+      for (int m = start; m < featureEnds[j]; m++) {
+        double[] row = weights[featureIds[m]];
+        for (int k = 0; k < potentials.length; k++) {
+          potentials[k] += row[k];
+        }
+      }
+
+      double[] table = cliqueTables[j];
+      Arrays.fill(table, Double.NEGATIVE_INFINITY);
+      int[] codes = labelCodes[j];
+      for (int k = 0; k < codes.length; k++) {
+        table[codes[k]] = potentials[k];
+      }
+      if (j > 0) {
+        double[] smaller = cliqueTables[j - 1];
+        for (int i = 0; i < table.length; i++) {
+          table[i] += smaller[i % smaller.length];
+        }
+      }
+    }
+    return cliqueTables[window - 1];
+  }
+
+}
@@ -11,6 +11,10 @@ public class LinearCliquePotentialFunction implements CliquePotentialFunction {
     this.weights = weights;
   }
 
+  double[][] weights() {
+    return weights;
+  }
+
   @Override
   public double computeCliquePotential(int cliqueSize, int labelIndex,
       int[] cliqueFeatures, double[] featureVal, int posInSent) {
@@ -0,0 +1,256 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.util.Hashing;
+import edu.stanford.nlp.util.Index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The on-disk format of a CRF model whose features and weights are
+ * memory-mapped rather than deserialized.
+ * <br>
+ * The file starts with a small header giving the sizes of the sections
+ * which follow it:
+ * <ol>
+ * <li> the rest of the model (label indices, flags, feature factories,
+ *      and so on), written by {@link CRFClassifier} with Java serialization
+ * <li> the feature index (see {@link MappedFeatureIndex}): the hash of each
+ *      feature, the open-addressed table of feature numbers, and the offsets
+ *      and UTF-8 text of the features
+ * <li> the weights: the offset of the row of each feature, then the weights
+ *      of all features one row after the other
+ * </ol>
+ * Numbers are big-endian, and every section but the text starts on an
+ * 8 byte boundary.  Only the first section is read onto the heap when a
+ * model is opened; the feature index and weights are used directly from
+ * the mapped file, so loading is fast, the pages are only read in when
+ * used, and several JVMs which load the same model share its pages in
+ * the operating system's file cache.
+ * <br>
+ * A mapped buffer is limited to 2GB, so each section must be smaller
+ * than that.
+ */
+class MappedCRFModel {
+
+  /** "CRF-MMAP" in ASCII.  A Java serialization stream starts with 0xACED and a gzip file with 0x1F8B. */
+  static final long MAGIC = 0x4352462d4d4d4150L;
+  /** The version of the format, which a later, changed format will increase */
+  static final int VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+
+  /** The serialized rest of the model */
+  private final ByteBuffer meta;
+  final MappedFeatureIndex featureIndex;
+  final MappedLinearCliquePotentialFunction potentials;
+
+  private MappedCRFModel(ByteBuffer meta, MappedFeatureIndex featureIndex, MappedLinearCliquePotentialFunction potentials) {
+    this.meta = meta;
+    this.featureIndex = featureIndex;
+    this.potentials = potentials;
+  }
+
+  /** A stream over the serialized rest of the model */
+  InputStream metaStream() {
+    ByteBuffer buffer = meta.duplicate();
+    return new InputStream() {
+      @Override
+      public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if ( ! buffer.hasRemaining()) {
+          return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+      }
+
+      @Override
+      public int available() {
+        return buffer.remaining();
+      }
+    };
+  }
+
+  /** Whether the file is a model in this format, judging by its first bytes */
+  static boolean isMappedModel(File file) {
+    if ( ! file.isFile() || file.length() < HEADER_SIZE) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readLong() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** The start of each section, and the end of the file, given the sizes in the header */
+  private static long[] sectionOffsets(int numFeatures, int numSlots, int metaLength, int textLength, int numWeights) {
+    long[] offsets = new long[8];
+    offsets[0] = HEADER_SIZE;                                     // meta
+    offsets[1] = align(offsets[0] + metaLength);                  // hashes
+    offsets[2] = offsets[1] + 8L * numFeatures;                   // slots
+    offsets[3] = align(offsets[2] + 4L * numSlots);               // text offsets
+    offsets[4] = offsets[3] + 4L * (numFeatures + 1);             // text
+    offsets[5] = align(offsets[4] + textLength);                  // row offsets
+    offsets[6] = align(offsets[5] + 4L * (numFeatures + 1));      // weights
+    offsets[7] = offsets[6] + 8L * numWeights;                    // end
+    return offsets;
+  }
+
+  private static long align(long position) {
+    return (position + 7) & ~7L;
+  }
+
+  /**
+   * Writes a model in this format.
+   *
+   * @param file The file to write
+   * @param meta The serialized rest of the model
+   * @param featureIndex The features of the model
+   * @param weights The weights of the model, indexed by feature and then labeling
+   */
+  static void write(File file, byte[] meta, Index<String> featureIndex, double[][] weights) throws IOException {
+    int numFeatures = featureIndex.size();
+    if (weights.length != numFeatures) {
+      throw new IllegalArgumentException("There are " + numFeatures + " features but " + weights.length + " rows of weights");
+    }
+    if (numFeatures > Integer.MAX_VALUE / 16) {
+      throw new IOException("Too many features for a memory-mapped model: " + numFeatures);
+    }
+
+    int numSlots = Hashing.tableSize(numFeatures);
+    long[] hashes = new long[numFeatures];
+    int[] slots = new int[numSlots];
+    Arrays.fill(slots, MappedFeatureIndex.EMPTY);
+    int[] textOffsets = new int[numFeatures + 1];
+    ByteArrayOutputStream text = new ByteArrayOutputStream();
+    for (int i = 0; i < numFeatures; i++) {
+      String feature = featureIndex.get(i);
+      long hash = Hashing.hash64(feature);
+      int slot = (int) hash & (numSlots - 1);
+      while (slots[slot] != MappedFeatureIndex.EMPTY) {
+        slot = (slot + 1) & (numSlots - 1);
+      }
+      slots[slot] = i;
+      hashes[i] = hash;
+      byte[] bytes = feature.getBytes(StandardCharsets.UTF_8);
+      if ((long) text.size() + bytes.length > Integer.MAX_VALUE) {
+        throw new IOException("The text of the features is too large for a memory-mapped model");
+      }
+      text.write(bytes);
+      textOffsets[i + 1] = text.size();
+    }
+
+    int[] rowOffsets = new int[numFeatures + 1];
+    long numWeights = 0;
+    for (int i = 0; i < numFeatures; i++) {
+      numWeights += weights[i].length;
+      if (numWeights > Integer.MAX_VALUE / 8) {
+        throw new IOException("Too many weights for a memory-mapped model");
+      }
+      rowOffsets[i + 1] = (int) numWeights;
+    }
+
+    long[] offsets = sectionOffsets(numFeatures, numSlots, meta.length, text.size(), (int) numWeights);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(numFeatures);
+      out.writeInt(numSlots);
+      out.writeInt(meta.length);
+      out.writeInt(text.size());
+      out.writeInt((int) numWeights);
+
+      out.write(meta);
+      pad(out, offsets[0] + meta.length, offsets[1]);
+      for (long hash : hashes) {
+        out.writeLong(hash);
+      }
+      for (int slot : slots) {
+        out.writeInt(slot);
+      }
+      pad(out, offsets[2] + 4L * numSlots, offsets[3]);
+      for (int offset : textOffsets) {
+        out.writeInt(offset);
+      }
+      text.writeTo(out);
+      pad(out, offsets[4] + text.size(), offsets[5]);
+      for (int offset : rowOffsets) {
+        out.writeInt(offset);
+      }
+      pad(out, offsets[5] + 4L * (numFeatures + 1), offsets[6]);
+      for (double[] row : weights) {
+        for (double weight : row) {
+          out.writeDouble(weight);
+        }
+      }
+    }
+  }
+
+  /** Writes zeros from the current position up to the start of the next section */
+  private static void pad(DataOutputStream out, long position, long target) throws IOException {
+    for (; position < target; position++) {
+      out.writeByte(0);
+    }
+  }
+
+  /**
+   * Maps a model in this format.  The file may be closed, or even
+   * deleted, once this returns, but it must not be changed.
+   */
+  static MappedCRFModel open(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getLong() != MAGIC) {
+        throw new IOException(file + " is not a memory-mapped CRF model");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException(file + " is version " + version + " of the memory-mapped CRF format, but only version " +
+            VERSION + " is supported");
+      }
+      int numFeatures = header.getInt();
+      int numSlots = header.getInt();
+      int metaLength = header.getInt();
+      int textLength = header.getInt();
+      int numWeights = header.getInt();
+      long[] offsets = sectionOffsets(numFeatures, numSlots, metaLength, textLength, numWeights);
+      if (channel.size() < offsets[7]) {
+        throw new IOException(file + " is truncated: expected " + offsets[7] + " bytes but found " + channel.size());
+      }
+
+      ByteBuffer meta = map(channel, offsets[0], metaLength);
+      MappedFeatureIndex featureIndex = new MappedFeatureIndex(numFeatures,
+          map(channel, offsets[1], 8L * numFeatures).asLongBuffer(),
+          map(channel, offsets[2], 4L * numSlots).asIntBuffer(),
+          map(channel, offsets[3], 4L * (numFeatures + 1)).asIntBuffer(),
+          map(channel, offsets[4], textLength));
+      MappedLinearCliquePotentialFunction potentials = new MappedLinearCliquePotentialFunction(
+          map(channel, offsets[5], 4L * (numFeatures + 1)).asIntBuffer(),
+          map(channel, offsets[6], 8L * numWeights).asDoubleBuffer());
+      return new MappedCRFModel(meta, featureIndex, potentials);
+    }
+  }
+
+  private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+  }
+
+}
@@ -0,0 +1,228 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Hashing;
+import edu.stanford.nlp.util.Index;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A read-only feature {@link Index} which works directly on the feature
+ * table of a memory-mapped CRF model (see {@link MappedCRFModel}), so
+ * that nothing about the features has to be deserialized or copied onto
+ * the heap.
+ * <br>
+ * The table is an open-addressed hash table from the 64-bit
+ * {@link Hashing#hash64 hash} of the feature string to its index,
+ * together with the hash of each feature and the UTF-8 text of all the
+ * features laid out one after the other.
+ * A lookup probes the table, checks the stored hash, and then compares
+ * the stored text with the string, so only the bytes of a single feature
+ * are read for a hit and usually none are for a miss.
+ * <br>
+ * The index is always locked.  Serializing it writes out an ordinary
+ * {@link HashIndex} with the same contents.
+ */
+class MappedFeatureIndex extends AbstractCollection<String> implements Index<String>, RandomAccess {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Marks an unused slot in the table */
+  static final int EMPTY = -1;
+
+  private final int size;
+  /** The hash of each feature */
+  private final transient LongBuffer hashes;
+  /** The feature stored in each slot, or EMPTY */
+  private final transient IntBuffer slots;
+  /** Start of the text of each feature in {@link #text}, plus the end of the last one */
+  private final transient IntBuffer textOffsets;
+  private final transient ByteBuffer text;
+
+  MappedFeatureIndex(int size, LongBuffer hashes, IntBuffer slots, IntBuffer textOffsets, ByteBuffer text) {
+    this.size = size;
+    this.hashes = hashes;
+    this.slots = slots;
+    this.textOffsets = textOffsets;
+    this.text = text;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String get(int i) {
+    if (i < 0 || i >= size) {
+      throw new ArrayIndexOutOfBoundsException("Index " + i + " outside the bounds [0," + size + ")");
+    }
+    int start = textOffsets.get(i);
+    byte[] bytes = new byte[textOffsets.get(i + 1) - start];
+    for (int j = 0; j < bytes.length; j++) {
+      bytes[j] = text.get(start + j);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public int indexOf(String o) {
+    if (o == null) {
+      return -1;
+    }
+    int mask = slots.limit() - 1;
+    long hash = Hashing.hash64(o);
+    for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+      int feature = slots.get(slot);
+      if (feature == EMPTY) {
+        return -1;
+      }
+      if (hashes.get(feature) == hash && textEquals(feature, o)) {
+        return feature;
+      }
+    }
+  }
+
+  /** Compares the stored text of the feature with the string, avoiding decoding it if the string is ASCII */
+  private boolean textEquals(int feature, String o) {
+    int start = textOffsets.get(feature);
+    int length = textOffsets.get(feature + 1) - start;
+    int chars = o.length();
+    if (length == chars) {
+      for (int i = 0; i < chars; i++) {
+        char c = o.charAt(i);
+        if (c >= 0x80) {
+          return get(feature).equals(o);
+        }
+        if (text.get(start + i) != (byte) c) {
+          return false;
+        }
+      }
+      return true;
+    }
+    // Every char takes at least one byte, so the text can only be
+    // longer, and then only if it is not all ASCII
+    return length > chars && get(feature).equals(o);
+  }
+
+  /** The index is locked, so this is the same as {@link #indexOf(String)} */
+  @Override
+  public int addToIndex(String o) {
+    return indexOf(o);
+  }
+
+  /** The index is locked, so this is the same as {@link #indexOf(String)} */
+  @Override
+  @Deprecated
+  public int indexOf(String o, boolean add) {
+    return indexOf(o);
+  }
+
+  @Override
+  public List<String> objectsList() {
+    List<String> objects = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      objects.add(get(i));
+    }
+    return objects;
+  }
+
+  @Override
+  public Collection<String> objects(int[] indices) {
+    List<String> objects = new ArrayList<>(indices.length);
+    for (int index : indices) {
+      objects.add(get(index));
+    }
+    return objects;
+  }
+
+  @Override
+  public boolean isLocked() {
+    return true;
+  }
+
+  @Override
+  public void lock() {
+    // always locked
+  }
+
+  @Override
+  public void unlock() {
+    throw new UnsupportedOperationException("A memory-mapped feature index cannot be changed");
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof String && indexOf((String) o) >= 0;
+  }
+
+  /** The index is locked, so this never adds anything */
+  @Override
+  public boolean add(String s) {
+    return false;
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("A memory-mapped feature index cannot be changed");
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new Iterator<String>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public String next() {
+        if (next >= size) {
+          throw new NoSuchElementException();
+        }
+        return get(next++);
+      }
+    };
+  }
+
+  @Override
+  public void saveToWriter(Writer bw) throws IOException {
+    for (int i = 0; i < size; i++) {
+      bw.write(i + "=" + get(i) + '\n');
+    }
+  }
+
+  @Override
+  public void saveToFilename(String file) {
+    try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+      saveToWriter(bw);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** The mapped buffers cannot be serialized, so an ordinary index is written in their place */
+  private Object writeReplace() throws ObjectStreamException {
+    HashIndex<String> index = new HashIndex<>(objectsList());
+    index.lock();
+    return index;
+  }
+
+}
@@ -0,0 +1,42 @@
+package edu.stanford.nlp.ie.crf;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The same clique potentials as {@link LinearCliquePotentialFunction},
+ * computed from the weights of a memory-mapped CRF model (see
+ * {@link MappedCRFModel}) rather than a {@code double[][]} on the heap.
+ * The weights of feature {@code f} are the entries of {@link #weights}
+ * from {@code rowOffsets[f]} up to {@code rowOffsets[f+1]}.
+ */
+class MappedLinearCliquePotentialFunction implements CliquePotentialFunction {
+
+  private final IntBuffer rowOffsets;
+  private final DoubleBuffer weights;
+
+  MappedLinearCliquePotentialFunction(IntBuffer rowOffsets, DoubleBuffer weights) {
+    this.rowOffsets = rowOffsets;
+    this.weights = weights;
+  }
+
+  /** The weight of the given feature for the given labeling of its clique */
+  double weight(int feature, int labelIndex) {
+    return weights.get(rowOffsets.get(feature) + labelIndex);
+  }
+
+  @Override
+  public double computeCliquePotential(int cliqueSize, int labelIndex,
+      int[] cliqueFeatures, double[] featureVal, int posInSent) {
+    double output = 0.0;
+    for (int m = 0; m < cliqueFeatures.length; m++) {
+      double dotProd = weights.get(rowOffsets.get(cliqueFeatures[m]) + labelIndex);
+      if (featureVal != null) {
+        dotProd *= featureVal[m];
+      }
+      output += dotProd;
+    }
+    return output;
+  }
+
+}
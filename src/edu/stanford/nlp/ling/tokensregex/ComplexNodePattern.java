@@ -43,8 +43,14 @@ public class ComplexNodePattern<M,K> extends NodePattern<M> {
   // TODO: make this a pattern of non special characters: [,],?,.,\,^,$,(,),*,+,{,},| ... what else?
   private static final Pattern LITERAL_PATTERN = Pattern.compile("[^\\[\\]?.\\\\^$()*+{}|]*");
   //private static final Pattern LITERAL_PATTERN = Pattern.compile("[A-Za-z0-9_\\-']*");
+
+  /** Whether the regex has none of the special characters, and so is matched as a plain string */
+  public static boolean isLiteral(String regex) {
+    return LITERAL_PATTERN.matcher(regex).matches();
+  }
+
   public static NodePattern<String> newStringRegexPattern(String regex, int flags) {
-    boolean isLiteral = ((flags & Pattern.LITERAL) != 0) || LITERAL_PATTERN.matcher(regex).matches();
+    boolean isLiteral = ((flags & Pattern.LITERAL) != 0) || isLiteral(regex);
     if (isLiteral) {
       boolean caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
       int stringMatchFlags = (caseInsensitive)? CASE_INSENSITIVE:0;
@@ -14,6 +14,7 @@ import edu.stanford.nlp.util.logging.Redwood;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.StringReader;
 import java.util.*;
 import java.util.function.Predicate;
@@ -40,7 +41,8 @@ import java.util.function.Predicate;
  * @author Angel Chang
  * @see SequenceMatchRules
  */
-public class CoreMapExpressionExtractor<T extends MatchedExpression>  {
+public class CoreMapExpressionExtractor<T extends MatchedExpression> implements Serializable {
+  private static final long serialVersionUID = 1L;
 
   /** A logger for this class */
   private static final Redwood.RedwoodChannels log = Redwood.channels(CoreMapExpressionExtractor.class);
@@ -61,7 +63,9 @@ public class CoreMapExpressionExtractor<T extends MatchedExpression>  {
    * Describes one stage of extraction.
    * @param <T>
    */
-  public static class Stage<T> {
+  public static class Stage<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /** Whether to clear matched expressions from previous stages or not */
     boolean clearMatched = false;
     /**
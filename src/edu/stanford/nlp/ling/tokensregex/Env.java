@@ -9,6 +9,9 @@ import java.util.function.Function;
 import edu.stanford.nlp.process.CoreLabelTokenFactory;
 import edu.stanford.nlp.util.Pair;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,13 +32,15 @@ import java.util.regex.Pattern;
  */
 // Various of the public variables in this class are instantiated by reflection from TokensRegex rules
 @SuppressWarnings({"WeakerAccess", "unused"})
-public class Env {
+public class Env implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   /**
    * Parser that converts a string into a SequencePattern.
    * @see edu.stanford.nlp.ling.tokensregex.parser.TokenSequenceParser
    */
-  SequencePattern.Parser parser;
+  transient SequencePattern.Parser parser;
 
   /**
    * Mapping of variable names to their values
@@ -45,7 +50,7 @@ public class Env {
   /**
    * Mapping of per thread temporary variables to their values.
    */
-  private ThreadLocal<Map<String,Object>> threadLocalVariables = new ThreadLocal<>();
+  private transient ThreadLocal<Map<String,Object>> threadLocalVariables = new ThreadLocal<>();
 
   /**
    * Mapping of variables that can be expanded in a regular expression for strings,
@@ -150,6 +155,43 @@ public class Env {
     bind("tags", Tags.TagsAnnotation.class);
   }
 
+  /**
+   * Returns the objects which were bound to this environment from outside,
+   * by a name which finds the same kind of object in another environment
+   * set up the same way.  A {@link RulesBundle} doesn't write these objects
+   * out, but refers to them by name, as they need not be serializable and
+   * are bound again before the bundle is read.
+   * Immutable values such as strings and classes are left out, as are
+   * environments.
+   */
+  Map<String, Object> getBoundObjects() {
+    Map<String, Object> bound = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : variables.entrySet()) {
+      addBoundObject(bound, "variable:" + entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<String, Object> entry : defaults.entrySet()) {
+      addBoundObject(bound, "default:" + entry.getKey(), entry.getValue());
+    }
+    addBoundObject(bound, "defaultTokensResultAnnotationKey", defaultTokensResultAnnotationKey);
+    addBoundObject(bound, "defaultResultAnnotationKey", defaultResultAnnotationKey);
+    addBoundObject(bound, "defaultTokensAggregators", defaultTokensAggregators);
+    addBoundObject(bound, "defaultTokensAggregator", defaultTokensAggregator);
+    addBoundObject(bound, "defaultResultsAnnotationExtractor", defaultResultsAnnotationExtractor);
+    return bound;
+  }
+
+  private static void addBoundObject(Map<String, Object> bound, String name, Object obj) {
+    if (obj != null && !(obj instanceof String || obj instanceof Number || obj instanceof Boolean ||
+        obj instanceof Class || obj instanceof Enum || obj instanceof Env)) {
+      bound.put(name, obj);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    threadLocalVariables = new ThreadLocal<>();
+  }
+
   public Map<String, Object> getDefaults() {
     return defaults;
   }
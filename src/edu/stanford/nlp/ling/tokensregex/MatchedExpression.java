@@ -1,5 +1,6 @@
 package edu.stanford.nlp.ling.tokensregex;
 
+import java.io.Serializable;
 import java.util.*;
 import java.util.function.Function;
 
@@ -51,7 +52,9 @@ public class MatchedExpression {
    * Function that takes a CoreMap, applies an extraction function to it, to get a value.
    * Also contains information on how to construct a final annotation.
    */
-  public static class SingleAnnotationExtractor implements Function<CoreMap,Value> {
+  public static class SingleAnnotationExtractor implements Function<CoreMap,Value>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String name;
     public double priority;      // Priority/Order in which this rule should be applied with respect to others
     public double weight;        // Weight given to the rule (how likely is this rule to fire)
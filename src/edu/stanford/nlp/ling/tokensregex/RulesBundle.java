@@ -0,0 +1,411 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.ling.tokensregex.types.Expressions;
+import edu.stanford.nlp.pipeline.CoreMapAggregator;
+import edu.stanford.nlp.pipeline.CoreMapAttributeAggregator;
+import edu.stanford.nlp.pipeline.TokensRegexAnnotator;
+import edu.stanford.nlp.time.TimeExpressionExtractorFactory;
+import edu.stanford.nlp.util.StringUtils;
+import edu.stanford.nlp.util.logging.Redwood;
+
+/**
+ * A bundle of compiled TokensRegex rules, so that an extractor can be
+ * loaded without parsing its rule files again.
+ * <br>
+ * Bundles are made ahead of time, for example when building an image,
+ * by running {@link #main} with the properties of the pipeline, or from
+ * code with {@link #buildExtractor}.  {@link #createExtractor} only reads
+ * them: it reads the extractor from the bundle if the bundle was made from
+ * the same rule files, settings and version of the code, which is checked
+ * with a checksum of all three.  Otherwise it parses the rules, as
+ * {@link CoreMapExpressionExtractor#createExtractorFromFiles} does, and
+ * leaves the bundle alone.
+ * <br>
+ * The bundle holds the extractor and its {@link Env}, written with Java
+ * serialization.  Objects which are bound to the environment before the
+ * rules are read, but which can't be serialized (functions, holiday
+ * calendars, annotator options which aren't serializable...), are not written:
+ * the bundle refers to them by name, and they are taken from the environment
+ * passed in when it is read, which must be set up the same way.
+ * The same goes for the shared constants of TokensRegex, such as
+ * {@link Expressions#TRUE}, and the constants passed in by the caller,
+ * so that they keep their identity.
+ * <br>
+ * A bundle which can't be read is ignored with a warning, and the rules
+ * are parsed.
+ */
+public class RulesBundle {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(RulesBundle.class);
+
+  /**
+   * The version of the bundle format.  Change this when the classes written
+   * to a bundle change in a way their serialVersionUIDs don't show.
+   */
+  private static final String FORMAT = "TokensRegexRulesBundle/2";
+
+  /** Classes whose serialVersionUIDs are part of the checksum of a bundle */
+  private static final Class<?>[] VERSIONED_CLASSES = {
+      CoreMapExpressionExtractor.class, CoreMapExpressionExtractor.Stage.class, Env.class,
+      SequencePattern.class, TokenSequencePattern.class, SequenceMatchRules.AnnotationExtractRule.class,
+      Expressions.CompositeValue.class, CoreMapAggregator.class, CoreMapAttributeAggregator.class };
+
+  /** The constants of TokensRegex which are referred to by name rather than written */
+  private static final Map<String, Object> CONSTANTS = new LinkedHashMap<>();
+  static {
+    CONSTANTS.put("Expressions.TRUE", Expressions.TRUE);
+    CONSTANTS.put("Expressions.FALSE", Expressions.FALSE);
+    CONSTANTS.put("Expressions.NIL", Expressions.NIL);
+    CONSTANTS.put("NodePattern.ANY_NODE", NodePattern.ANY_NODE);
+    CONSTANTS.put("SequencePattern.ANY_NODE_PATTERN_EXPR", SequencePattern.ANY_NODE_PATTERN_EXPR);
+    CONSTANTS.put("SequencePattern.SEQ_BEGIN_PATTERN_EXPR", SequencePattern.SEQ_BEGIN_PATTERN_EXPR);
+    CONSTANTS.put("SequencePattern.SEQ_END_PATTERN_EXPR", SequencePattern.SEQ_END_PATTERN_EXPR);
+    CONSTANTS.put("SequencePattern.NODES_EQUAL_CHECKER", SequencePattern.NODES_EQUAL_CHECKER);
+    CONSTANTS.put("SequencePattern.MATCH_STATE", SequencePattern.MATCH_STATE);
+    CONSTANTS.put("TokenSequencePattern.ANY_NODE_PATTERN", TokenSequencePattern.ANY_NODE_PATTERN);
+    CONSTANTS.put("CoreMapAggregator.DEFAULT_AGGREGATOR", CoreMapAggregator.DEFAULT_AGGREGATOR);
+    CONSTANTS.put("CoreMapAggregator.DEFAULT_NUMERIC_TOKENS_AGGREGATOR", CoreMapAggregator.DEFAULT_NUMERIC_TOKENS_AGGREGATOR);
+    CONSTANTS.put("CoreMapAttributeAggregator.FIRST_NON_NIL", CoreMapAttributeAggregator.FIRST_NON_NIL);
+    CONSTANTS.put("CoreMapAttributeAggregator.FIRST", CoreMapAttributeAggregator.FIRST);
+    CONSTANTS.put("CoreMapAttributeAggregator.LAST_NON_NIL", CoreMapAttributeAggregator.LAST_NON_NIL);
+    CONSTANTS.put("CoreMapAttributeAggregator.LAST", CoreMapAttributeAggregator.LAST);
+    CONSTANTS.put("CoreMapAttributeAggregator.CONCAT_TOKENS", CoreMapAttributeAggregator.CONCAT_TOKENS);
+    CONSTANTS.put("CoreMapAttributeAggregator.CONCAT_COREMAP", CoreMapAttributeAggregator.CONCAT_COREMAP);
+    CONSTANTS.put("CoreMapAttributeAggregator.CONCAT", CoreMapAttributeAggregator.CONCAT);
+    CONSTANTS.put("CoreMapAttributeAggregator.CONCAT_TEXT", CoreMapAttributeAggregator.CONCAT_TEXT);
+    CONSTANTS.put("CoreMapAttributeAggregator.COUNT", CoreMapAttributeAggregator.COUNT);
+    CONSTANTS.put("CoreMapAttributeAggregator.SUM", CoreMapAttributeAggregator.SUM);
+    CONSTANTS.put("CoreMapAttributeAggregator.MIN", CoreMapAttributeAggregator.MIN);
+    CONSTANTS.put("CoreMapAttributeAggregator.MAX", CoreMapAttributeAggregator.MAX);
+    CONSTANTS.put("CoreMapAttributeAggregator.MOST_FREQ", CoreMapAttributeAggregator.MOST_FREQ);
+    CONSTANTS.put("CoreMapAttributeAggregator.DEFAULT_AGGREGATORS", CoreMapAttributeAggregator.DEFAULT_AGGREGATORS);
+    CONSTANTS.put("CoreMapAttributeAggregator.DEFAULT_NUMERIC_AGGREGATORS", CoreMapAttributeAggregator.DEFAULT_NUMERIC_AGGREGATORS);
+    CONSTANTS.put("CoreMapAttributeAggregator.DEFAULT_NUMERIC_TOKENS_AGGREGATORS", CoreMapAttributeAggregator.DEFAULT_NUMERIC_TOKENS_AGGREGATORS);
+  }
+
+  /** Set while {@link #main} builds bundles, so that the annotators it makes write their bundles */
+  private static final ThreadLocal<Boolean> building = new ThreadLocal<>();
+
+  private RulesBundle() {} // static methods
+
+  /**
+   * Returns a checksum of the contents of the rule files, the settings
+   * used to set up the environment they are read in, and the version of
+   * the code (see {@link #codeVersion()}).
+   */
+  public static String checksum(List<String> filenames, String settings) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(codeVersion().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(String.valueOf(settings).getBytes(StandardCharsets.UTF_8));
+      byte[] buffer = new byte[8192];
+      for (String filename : filenames) {
+        digest.update((byte) 0);
+        try (InputStream in = IOUtils.getInputStreamFromURLOrClasspathOrFileSystem(filename)) {
+          for (int n; (n = in.read(buffer)) > 0; ) {
+            digest.update(buffer, 0, n);
+          }
+        }
+      }
+      StringBuilder sb = new StringBuilder();
+      for (byte b : digest.digest()) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading rules files " + filenames, e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * The version of the code which writes and reads bundles: the bundle format,
+   * the serialVersionUIDs of the main classes in a bundle, and the version of
+   * the jar, if it has one.
+   */
+  static String codeVersion() {
+    StringBuilder sb = new StringBuilder(FORMAT);
+    String jarVersion = RulesBundle.class.getPackage().getImplementationVersion();
+    if (jarVersion != null) {
+      sb.append(' ').append(jarVersion);
+    }
+    for (Class<?> c : VERSIONED_CLASSES) {
+      sb.append(' ').append(ObjectStreamClass.lookup(c).getSerialVersionUID());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Creates an extractor from the given rule files, reading it from the
+   * bundle if the bundle is up to date, and otherwise parsing the rules.
+   * The bundle is not written here, except while {@link #main} is building bundles.
+   *
+   * @param env The environment to read the rules in, set up as for
+   *            {@link CoreMapExpressionExtractor#createExtractorFromFiles}.
+   *            A bundle which is read comes with its own copy of the environment,
+   *            with the rules' variables, which {@link CoreMapExpressionExtractor#getEnv()}
+   *            returns.
+   * @param filenames The rule files
+   * @param settings Anything else which changes how the rules are compiled, such as
+   *                 the options of the annotator, as a string
+   * @param bundleFile The bundle to read
+   * @param constants Constants of the caller which should keep their identity, by name
+   */
+  public static <M extends MatchedExpression> CoreMapExpressionExtractor<M> createExtractor(Env env, List<String> filenames,
+                                                                                          String settings, String bundleFile,
+                                                                                          Map<String, ?> constants) {
+    if (Boolean.TRUE.equals(building.get())) {
+      return buildExtractor(env, filenames, settings, bundleFile, constants);
+    }
+    String checksum = checksum(filenames, settings);
+    CoreMapExpressionExtractor<M> extractor = read(env, checksum, bundleFile, constants);
+    if (extractor != null) {
+      return extractor;
+    }
+    return CoreMapExpressionExtractor.createExtractorFromFiles(env, filenames);
+  }
+
+  /** Creates an extractor as above, for a caller without constants of its own */
+  public static <M extends MatchedExpression> CoreMapExpressionExtractor<M> createExtractor(Env env, List<String> filenames,
+                                                                                          String settings, String bundleFile) {
+    return createExtractor(env, filenames, settings, bundleFile, Collections.emptyMap());
+  }
+
+  /**
+   * Parses the rules and writes them to a bundle, which
+   * {@link #createExtractor} will read as long as the rules, settings,
+   * and code stay the same.  The arguments are the same as for createExtractor.
+   *
+   * @return The extractor which was parsed
+   * @throws RuntimeIOException If the bundle can't be written
+   */
+  public static <M extends MatchedExpression> CoreMapExpressionExtractor<M> buildExtractor(Env env, List<String> filenames,
+                                                                                         String settings, String bundleFile,
+                                                                                         Map<String, ?> constants) {
+    String checksum = checksum(filenames, settings);
+    Map<String, Object> bound = env.getBoundObjects();
+    CoreMapExpressionExtractor<M> extractor = CoreMapExpressionExtractor.createExtractorFromFiles(env, filenames);
+    try {
+      write(extractor, bound, checksum, bundleFile, constants);
+    } catch (IOException e) {
+      throw new RuntimeIOException("Could not write TokensRegex rules bundle " + bundleFile, e);
+    }
+    log.info("Wrote TokensRegex rules bundle " + bundleFile);
+    return extractor;
+  }
+
+  /**
+   * Reads an extractor from a bundle, returning null if there is no bundle,
+   * or it was made from different rules or settings, or it can't be read.
+   */
+  public static <M extends MatchedExpression> CoreMapExpressionExtractor<M> read(Env env, String checksum, String bundleFile,
+                                                                               Map<String, ?> constants) {
+    File file = new File(bundleFile);
+    if ( ! file.isFile()) {
+      log.info("No TokensRegex rules bundle " + bundleFile + ", so parsing the rules; it can be built with " + RulesBundle.class.getName());
+      return null;
+    }
+    try (InputStream in = openBundle(file);
+         DataInputStream header = new DataInputStream(in)) {
+      if ( ! FORMAT.equals(header.readUTF())) {
+        log.warn("Ignoring " + bundleFile + ": not a TokensRegex rules bundle of this format");
+        return null;
+      }
+      if ( ! checksum.equals(header.readUTF())) {
+        log.info("Ignoring TokensRegex rules bundle " + bundleFile + ": the rules, settings or code have changed");
+        return null;
+      }
+      Map<String, Object> shared = sharedObjects(env.getBoundObjects(), constants);
+      @SuppressWarnings("unchecked")
+      CoreMapExpressionExtractor<M> extractor = (CoreMapExpressionExtractor<M>) new SharedObjectInputStream(in, shared).readObject();
+      extractor.getEnv().parser = env.parser;
+      return extractor;
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      log.warn("Ignoring TokensRegex rules bundle " + bundleFile + ", which could not be read: " + e);
+      return null;
+    }
+  }
+
+  private static InputStream openBundle(File file) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+    if (file.getName().endsWith(".gz")) {
+      in = new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16);
+    }
+    return in;
+  }
+
+  private static void write(CoreMapExpressionExtractor<?> extractor, Map<String, Object> bound,
+                            String checksum, String bundleFile, Map<String, ?> constants) throws IOException {
+    Map<String, Object> shared = sharedObjects(bound, constants);
+    // Bound objects which can be serialized are written with the rest, so that the
+    // bundle keeps whatever the rules did to them; the others are referred to by name
+    for (Map.Entry<String, Object> entry : bound.entrySet()) {
+      if (isSerializable(entry.getValue(), shared)) {
+        shared.remove(entry.getKey());
+      }
+    }
+
+    // Write to a temporary file first, so that a reader never sees half a bundle
+    File file = new File(bundleFile);
+    File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+    try {
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16)) {
+        OutputStream dataOut = bundleFile.endsWith(".gz") ? new GZIPOutputStream(out, 1 << 16) : out;
+        DataOutputStream header = new DataOutputStream(dataOut);
+        header.writeUTF(FORMAT);
+        header.writeUTF(checksum);
+        header.flush();
+        SharedObjectOutputStream objects = new SharedObjectOutputStream(dataOut, shared);
+        objects.writeObject(extractor);
+        objects.flush();
+        if (dataOut instanceof GZIPOutputStream) {
+          ((GZIPOutputStream) dataOut).finish();
+        }
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      if (tmp.exists() && ! tmp.delete()) {
+        log.warn("Could not delete " + tmp);
+      }
+    }
+  }
+
+  private static boolean isSerializable(Object obj, Map<String, Object> shared) {
+    if ( ! (obj instanceof Serializable)) {
+      return false;
+    }
+    try {
+      Map<String, Object> others = new LinkedHashMap<>(shared);
+      others.values().removeIf(o -> o == obj);
+      SharedObjectOutputStream out = new SharedObjectOutputStream(new OutputStream() {
+        @Override
+        public void write(int b) { }
+        @Override
+        public void write(byte[] b, int off, int len) { }
+      }, others);
+      out.writeObject(obj);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * The objects which are referred to by name: the objects bound to the
+   * environment, the constants of TokensRegex, and the given constants.
+   */
+  private static Map<String, Object> sharedObjects(Map<String, Object> bound, Map<String, ?> constants) {
+    Map<String, Object> shared = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : CONSTANTS.entrySet()) {
+      shared.put("constant:" + entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<String, ?> entry : constants.entrySet()) {
+      if (entry.getValue() != null) {
+        shared.put("constant:" + entry.getKey(), entry.getValue());
+      }
+    }
+    shared.putAll(bound);
+    return shared;
+  }
+
+  /** Stands in for an object which is referred to by name */
+  private static class SharedObject implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final String name;
+
+    SharedObject(String name) {
+      this.name = name;
+    }
+  }
+
+  private static class SharedObjectOutputStream extends ObjectOutputStream {
+    private final Map<Object, String> names = new IdentityHashMap<>();
+
+    SharedObjectOutputStream(OutputStream out, Map<String, Object> shared) throws IOException {
+      super(out);
+      for (Map.Entry<String, Object> entry : shared.entrySet()) {
+        names.putIfAbsent(entry.getValue(), entry.getKey());
+      }
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      String name = names.get(obj);
+      return (name != null) ? new SharedObject(name) : obj;
+    }
+  }
+
+  private static class SharedObjectInputStream extends ObjectInputStream {
+    private final Map<String, Object> shared;
+
+    SharedObjectInputStream(InputStream in, Map<String, Object> shared) throws IOException {
+      super(in);
+      this.shared = shared;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+      if (obj instanceof SharedObject) {
+        String name = ((SharedObject) obj).name;
+        if ( ! shared.containsKey(name)) {
+          throw new InvalidObjectException("Nothing is bound to " + name);
+        }
+        return shared.get(name);
+      }
+      return obj;
+    }
+  }
+
+  /**
+   * Builds the bundles of annotators, which are set up from the properties
+   * as they would be in a pipeline.  Each annotator parses its rules and
+   * writes the bundle named by its {@code rulesBundle} property.
+   * An annotator named sutime is SUTime, as the ner annotator sets it up,
+   * and any other is a {@link TokensRegexAnnotator}.  For example:
+   * <pre>
+   * java edu.stanford.nlp.ling.tokensregex.RulesBundle -props my.properties -annotators sutime,tokensregex
+   * </pre>
+   */
+  public static void main(String[] args) {
+    Properties props = StringUtils.argsToProperties(args);
+    String annotators = props.getProperty("annotators");
+    if (annotators == null) {
+      log.info("Usage: java " + RulesBundle.class.getName() + " -props <file> -annotators <names>");
+      return;
+    }
+    building.set(true);
+    try {
+      for (String name : annotators.split("\\s*,\\s*")) {
+        if (props.getProperty(name + ".rulesBundle") == null) {
+          throw new IllegalArgumentException("No " + name + ".rulesBundle property to write the bundle of " + name + " to");
+        }
+        if ("sutime".equals(name)) {
+          TimeExpressionExtractorFactory.createExtractor(name, props);
+        } else {
+          new TokensRegexAnnotator(name, props);
+        }
+      }
+    } finally {
+      building.remove();
+    }
+  }
+
+}
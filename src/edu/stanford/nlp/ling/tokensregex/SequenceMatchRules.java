@@ -455,11 +455,7 @@ public class SequenceMatchRules {
       SequencePatternExtractRule<CoreMap, MatchedExpression> exprExtractRule =
         new SequencePatternExtractRule<>(pattern, exprExtractor, r.matchFindType, r.matchWithResults);
 
-      annotationExtractor.expressionToValue = matched -> {
-        if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
-          return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
-        } else return null;
-      };
+      annotationExtractor.expressionToValue = new SequenceMatchedExpressionToValue(valueExtractor);
       annotationExtractor.valueExtractor = new CoreMapFunctionApplier<>(env, r.annotationField, valueExtractRule);
       r.extractRule = exprExtractRule;
       r.filterRule = new AnnotationMatchedFilter(annotationExtractor);
@@ -521,11 +517,7 @@ public class SequenceMatchRules {
       SequencePatternExtractRule<CoreMap, MatchedExpression> exprExtractRule =
         new SequencePatternExtractRule<>(pattern, exprExtractor, r.matchFindType, r.matchWithResults);
 
-      annotationExtractor.expressionToValue = matched -> {
-        if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
-          return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
-        } else return null;
-      };
+      annotationExtractor.expressionToValue = new SequenceMatchedExpressionToValue(valueExtractor);
       if (r.annotationField != null && r.annotationField != CoreMap.class) {
         annotationExtractor.valueExtractor = new CoreMapFunctionApplier<>(env, r.annotationField, valueExtractRule);
         r.extractRule = new CoreMapExtractRule<>(env, r.annotationField, exprExtractRule);
@@ -577,11 +569,7 @@ public class SequenceMatchRules {
       MultiSequencePatternExtractRule<CoreMap, MatchedExpression> exprExtractRule =
         new MultiSequencePatternExtractRule<>(pattern, exprExtractor);
 
-      annotationExtractor.expressionToValue = matched -> {
-        if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
-          return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
-        } else return null;
-      };
+      annotationExtractor.expressionToValue = new SequenceMatchedExpressionToValue(valueExtractor);
       if (r.annotationField != null && r.annotationField != CoreMap.class) {
         annotationExtractor.valueExtractor = new CoreMapFunctionApplier<>(env, r.annotationField, valueExtractRule);
         r.extractRule = new CoreMapExtractRule<>(env, r.annotationField, exprExtractRule);
@@ -671,7 +659,28 @@ public class SequenceMatchRules {
     }
   }
 
+  /**
+   * Gets the value of a matched expression from the sequence match it came from.
+   */
+  public static class SequenceMatchedExpressionToValue implements Function<MatchedExpression, Value>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final SequenceMatchResultExtractor<CoreMap> valueExtractor;
+
+    public SequenceMatchedExpressionToValue(SequenceMatchResultExtractor<CoreMap> valueExtractor) {
+      this.valueExtractor = valueExtractor;
+    }
+
+    @Override
+    public Value apply(MatchedExpression matched) {
+      if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
+        return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
+      } else return null;
+    }
+  }
+
   public static class AnnotationMatchedFilter implements Predicate<MatchedExpression>, Serializable {
+    private static final long serialVersionUID = -4746026983483454029L;
 
     MatchedExpression.SingleAnnotationExtractor extractor;
 
@@ -697,7 +706,9 @@ public class SequenceMatchRules {
     }
   }
 
-  public static class StringMatchResultExtractor implements Function<MatchResult,Value> {
+  public static class StringMatchResultExtractor implements Function<MatchResult,Value>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     Env env;
     Expression action;
     Expression result;
@@ -726,7 +737,9 @@ public class SequenceMatchRules {
     }
   }
 
-  public static class SequenceMatchResultExtractor<T> implements Function<SequenceMatchResult<T>,Value> {
+  public static class SequenceMatchResultExtractor<T> implements Function<SequenceMatchResult<T>,Value>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     Env env;
     Expression action;
     Expression result;
@@ -772,7 +785,8 @@ public class SequenceMatchRules {
    * @param <I> input type
    * @param <O> output type
    */
-  public static class FilterExtractRule<I,O> implements ExtractRule<I,O> {
+  public static class FilterExtractRule<I,O> implements ExtractRule<I,O>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     Predicate<I> filter;
     ExtractRule<I,O> rule;
@@ -805,7 +819,8 @@ public class SequenceMatchRules {
    * @param <I> input type
    * @param <O> output type
    */
-  public static class ListExtractRule<I,O> implements ExtractRule<I,O> {
+  public static class ListExtractRule<I,O> implements ExtractRule<I,O>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     List<ExtractRule<I,O>> rules;
 
@@ -874,8 +889,10 @@ public class SequenceMatchRules {
    * @param <T> type of the annotation field
    * @param <O> output type
    */
-  public static class CoreMapExtractRule<T,O> implements ExtractRule<CoreMap, O>
+  public static class CoreMapExtractRule<T,O> implements ExtractRule<CoreMap, O>, Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     Env env;
     Class annotationField;
     ExtractRule<T,O> extractRule;
@@ -903,8 +920,10 @@ public class SequenceMatchRules {
    * Input is of type CoreMap, output is templated type O.
    * @param <O> output type
    */
-  public static class CoreMapToListExtractRule<O> implements ExtractRule<CoreMap, O>
+  public static class CoreMapToListExtractRule<O> implements ExtractRule<CoreMap, O>, Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     ExtractRule<List<? extends CoreMap>,O> extractRule;
 
     public CoreMapToListExtractRule(ExtractRule<List<? extends CoreMap>,O> extractRule) {
@@ -921,8 +940,10 @@ public class SequenceMatchRules {
    * Extraction rule.
    * Input is of type CoreMap, output is MatchedExpression.
    */
-  public static class BasicSequenceExtractRule implements ExtractRule< List<? extends CoreMap>, MatchedExpression>
+  public static class BasicSequenceExtractRule implements ExtractRule< List<? extends CoreMap>, MatchedExpression>, Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     MatchedExpression.SingleAnnotationExtractor extractor;
 
     public BasicSequenceExtractRule(MatchedExpression.SingleAnnotationExtractor extractor) {
@@ -946,7 +967,8 @@ public class SequenceMatchRules {
   }
 
 
-  public static class SequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O> {
+  public static class SequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     SequencePattern<T> pattern;
     Function<SequenceMatchResult<T>, O> extractor;
@@ -1003,7 +1025,9 @@ public class SequenceMatchRules {
   } // end static class
 
 
-  public static class MultiSequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O> {
+  public static class MultiSequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     MultiPatternMatcher<T> matcher;
     Function<SequenceMatchResult<T>, O> extractor;
 
@@ -1037,7 +1061,8 @@ public class SequenceMatchRules {
   }
 
 
-  public static class StringPatternExtractRule<O> implements ExtractRule<String, O>, Function<String, O> {
+  public static class StringPatternExtractRule<O> implements ExtractRule<String, O>, Function<String, O>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     private final Pattern pattern;
     private final Function<MatchResult, O> extractor;
@@ -1092,8 +1117,10 @@ public class SequenceMatchRules {
 
   } // end static class StringPatternExtractRule
 
-  public static class StringMatchedExpressionExtractor implements Function<MatchResult, MatchedExpression>
+  public static class StringMatchedExpressionExtractor implements Function<MatchResult, MatchedExpression>, Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     MatchedExpression.SingleAnnotationExtractor extractor;
     int group = 0;
 
@@ -1109,8 +1136,10 @@ public class SequenceMatchRules {
     }
   }
 
-  public static class SequenceMatchedExpressionExtractor implements Function<SequenceMatchResult<CoreMap>, MatchedExpression>
+  public static class SequenceMatchedExpressionExtractor implements Function<SequenceMatchResult<CoreMap>, MatchedExpression>, Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     MatchedExpression.SingleAnnotationExtractor extractor;
     int group = 0;
 
@@ -1135,8 +1164,10 @@ public class SequenceMatchRules {
     }
   }
 
-  public static class CoreMapFunctionApplier<T,O> implements Function<CoreMap, O>
+  public static class CoreMapFunctionApplier<T,O> implements Function<CoreMap, O>, Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     Env env;
     Class annotationField;
     Function<T,O> func;
@@ -1160,8 +1191,10 @@ public class SequenceMatchRules {
     }
   }
 
-  public static class CoreMapToListFunctionApplier<O> implements Function<CoreMap, O>
+  public static class CoreMapToListFunctionApplier<O> implements Function<CoreMap, O>, Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     Env env;
     Function<List<? extends CoreMap>,O> func;
 
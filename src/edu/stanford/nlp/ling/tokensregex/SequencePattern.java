@@ -2,6 +2,7 @@ package edu.stanford.nlp.ling.tokensregex;
 
 import edu.stanford.nlp.util.*;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -90,6 +91,8 @@ import java.util.function.Function;
  * @see SequenceMatcher
  */
 public class SequencePattern<T> implements Serializable {
+  private static final long serialVersionUID = 8137809304622025409L;
+
   // TODO:
   //  1. Validate backref capture groupid
   //  2. Actions
@@ -298,6 +301,7 @@ public class SequencePattern<T> implements Serializable {
    * Represents a sequence pattern expressions (before translating into NFA).
    */
   public abstract static class PatternExpr implements Serializable {
+    private static final long serialVersionUID = -4387001757406146787L;
 
     protected abstract Frag build();
 
@@ -331,6 +335,7 @@ public class SequencePattern<T> implements Serializable {
 
   /** Represents one element to be matched. */
   public static class NodePatternExpr extends PatternExpr {
+    private static final long serialVersionUID = 2016023104473568924L;
 
     final NodePattern nodePattern;
 
@@ -368,6 +373,7 @@ public class SequencePattern<T> implements Serializable {
 
   /** Represents a pattern that can match multiple nodes. */
   public static class MultiNodePatternExpr extends PatternExpr {
+    private static final long serialVersionUID = 2394565728445497750L;
 
     private final MultiNodePattern multiNodePattern;
 
@@ -403,6 +409,7 @@ public class SequencePattern<T> implements Serializable {
 
   /** Represents one element to be matched. */
   public static class SpecialNodePatternExpr extends PatternExpr {
+    private static final long serialVersionUID = 7373889278649428670L;
 
     private final String name;
     Factory<State> stateFactory;
@@ -444,6 +451,8 @@ public class SequencePattern<T> implements Serializable {
   }
 
   public static class SequenceStartPatternExpr extends SpecialNodePatternExpr implements Factory<State> {
+    private static final long serialVersionUID = 5898509814032214832L;
+
     public SequenceStartPatternExpr() {
       super("SEQ_START");
       this.stateFactory = this;
@@ -456,6 +465,8 @@ public class SequencePattern<T> implements Serializable {
   }
 
   public static class SequenceEndPatternExpr extends SpecialNodePatternExpr implements Factory<State> {
+    private static final long serialVersionUID = 7154020532149909011L;
+
     public SequenceEndPatternExpr() {
       super("SEQ_END");
       this.stateFactory = this;
@@ -469,6 +480,7 @@ public class SequencePattern<T> implements Serializable {
 
   // Represents a sequence of patterns to be matched
   public static class SequencePatternExpr extends PatternExpr {
+    private static final long serialVersionUID = -2095042341605772072L;
 
     final List<PatternExpr> patterns;
 
@@ -548,6 +560,7 @@ public class SequencePattern<T> implements Serializable {
   // Expression that indicates a back reference
   // Need to match a previously matched group somehow
   public static class BackRefPatternExpr extends PatternExpr {
+    private static final long serialVersionUID = -7710556026638121059L;
 
     private NodesMatchChecker matcher; // How a match is determined
     private int captureGroupId = -1;  // Indicates the previously matched group this need to match
@@ -597,6 +610,7 @@ public class SequencePattern<T> implements Serializable {
   }
 
   public static class ValuePatternExpr extends PatternExpr {
+    private static final long serialVersionUID = 6276678376497027966L;
 
     private final PatternExpr expr;
     private final Object value;
@@ -641,6 +655,7 @@ public class SequencePattern<T> implements Serializable {
 
   /** Expression that represents a group. */
   public static class GroupPatternExpr extends PatternExpr {
+    private static final long serialVersionUID = 1400231072600202370L;
 
     private final PatternExpr pattern;
     private final boolean capture; // Do capture or not?  If do capture, an capture group id will be assigned
@@ -727,6 +742,7 @@ public class SequencePattern<T> implements Serializable {
 
   /**  Expression that represents a pattern that repeats for a number of times. */
   public static class RepeatPatternExpr extends PatternExpr {
+    private static final long serialVersionUID = -7662823899067276667L;
 
     private final PatternExpr pattern;
     private final int minMatch;
@@ -847,6 +863,7 @@ public class SequencePattern<T> implements Serializable {
 
   /**  Expression that represents a disjunction. */
   public static class OrPatternExpr extends PatternExpr {
+    private static final long serialVersionUID = -9060794384581524476L;
 
     private final List<PatternExpr> patterns;
 
@@ -1081,6 +1098,7 @@ public class SequencePattern<T> implements Serializable {
 
   // Expression that represents a conjunction
   public static class AndPatternExpr extends PatternExpr {
+    private static final long serialVersionUID = 1056027825864923744L;
 
     private final List<PatternExpr> patterns;
 
@@ -1835,6 +1853,12 @@ public class SequencePattern<T> implements Serializable {
     this.root = f.start;
     varGroupBindings = new VarGroupBindings(totalGroups+1);
     patternExpr.updateBindings(varGroupBindings);
+    try {
+      priority = ois.readDouble();
+      weight = ois.readDouble();
+    } catch (EOFException e) {
+      // written before the priority and weight were saved
+    }
   }
 
 
@@ -1843,6 +1867,8 @@ public class SequencePattern<T> implements Serializable {
     oos.writeObject(toString());
     oos.writeObject(this.getPatternExpr());
     oos.writeObject(this.getAction());
+    oos.writeDouble(priority);
+    oos.writeDouble(weight);
 
   }  //  public void writeObject()
 
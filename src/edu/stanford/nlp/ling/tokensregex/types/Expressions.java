@@ -209,7 +209,8 @@ public class Expressions  {
   /**
    * An expression that is a wrapper around another expression.
    */
-  public abstract static class WrappedExpression implements Expression {
+  public abstract static class WrappedExpression implements Expression, Serializable {
+    private static final long serialVersionUID = 1L;
 
     protected Expression expr;
 
@@ -324,6 +325,8 @@ public class Expressions  {
    * @param <T> type of the expression object
    */
   public abstract static class SimpleExpression<T> extends Expressions.TypedExpression {
+    private static final long serialVersionUID = -4929103695786657707L;
+
     T value;
 
     protected SimpleExpression(String typename, T value, String... tags) {
@@ -366,6 +369,8 @@ public class Expressions  {
    * @param <T> type of the expression object
    */
   public static class SimpleCachedExpression<T> extends SimpleExpression<T> {
+    private static final long serialVersionUID = -6718882289767149037L;
+
     Value evaluated;
     boolean disableCaching = false;
 
@@ -417,6 +422,8 @@ public class Expressions  {
    * @param <T>
    */
   public static class SimpleValue<T> extends Expressions.TypedExpression implements Value<T> {
+    private static final long serialVersionUID = 2615127782756826357L;
+
     T value;
 
     protected SimpleValue(String typename, T value, String... tags) {
@@ -465,6 +472,8 @@ public class Expressions  {
    * A string that represents a regular expression
    */
   public static class RegexValue extends SimpleValue<String> {
+    private static final long serialVersionUID = -3755355741928297048L;
+
     public RegexValue(String regex, String... tags) {
       super(TYPE_REGEX, regex, tags);
     }
@@ -475,6 +484,7 @@ public class Expressions  {
    * A variable assignment with the name of the variable, and the expression to assign to that variable
    */
   public static class VarAssignmentExpression extends Expressions.TypedExpression {
+    private static final long serialVersionUID = 7648744524855021138L;
 
     final String varName;
     final Expression valueExpr;
@@ -548,6 +558,7 @@ public class Expressions  {
    *   environment, evaluated, and returned.
    */
   public static class VarExpression extends SimpleExpression<String> implements AssignableExpression  {
+    private static final long serialVersionUID = -2118094736022110897L;
 
     public VarExpression(String varname, String... tags) {
       super(TYPE_VAR, varname, tags);
@@ -597,6 +608,8 @@ public class Expressions  {
    */
   private static final Pattern DIGITS_PATTERN = Pattern.compile("\\d+");
   public static class RegexMatchVarExpression extends SimpleExpression implements AssignableExpression {
+    private static final long serialVersionUID = -8979084940420001176L;
+
     public RegexMatchVarExpression(String groupname, String... tags) {
       super(TYPE_REGEXMATCHVAR, groupname, tags);
     }
@@ -643,6 +656,8 @@ public class Expressions  {
   }
 
   public static class RegexMatchResultVarExpression extends SimpleExpression {
+    private static final long serialVersionUID = 4148836536676455913L;
+
     public RegexMatchResultVarExpression(String groupname, String... tags) {
       super(TYPE_REGEXMATCHVAR, groupname, tags);
     }
@@ -679,6 +694,8 @@ public class Expressions  {
    * A function call that can be assigned a value.
    */
   public static class AssignableFunctionCallExpression extends FunctionCallExpression implements AssignableExpression {
+    private static final long serialVersionUID = 747348388935702681L;
+
     public AssignableFunctionCallExpression(String function, List<Expression> params, String... tags) {
       super(function, params, tags);
     }
@@ -693,12 +710,16 @@ public class Expressions  {
   }
 
   public static class IndexedExpression extends AssignableFunctionCallExpression {
+    private static final long serialVersionUID = 6963028732007124816L;
+
     public IndexedExpression(Expression expr, int index) {
       super("ListSelect", Arrays.asList(expr, new PrimitiveValue("Integer", index)));
     }
   }
 
   public static class FieldExpression extends AssignableFunctionCallExpression {
+    private static final long serialVersionUID = -2311339115012320897L;
+
     public FieldExpression(Expression expr, String field) {
       super("Select", Arrays.asList(expr, new PrimitiveValue(TYPE_STRING, field)));
     }
@@ -708,24 +729,32 @@ public class Expressions  {
   }
 
   public static class OrExpression extends FunctionCallExpression {
+    private static final long serialVersionUID = 5171473996060953051L;
+
     public OrExpression(List<Expression> children) {
       super("Or", children);
     }
   }
 
   public static class AndExpression extends FunctionCallExpression {
+    private static final long serialVersionUID = 684798703434663367L;
+
     public AndExpression(List<Expression> children) {
       super("And", children);
     }
   }
 
   public static class NotExpression extends FunctionCallExpression {
+    private static final long serialVersionUID = 4716511627010883517L;
+
     public NotExpression(Expression expr) {
       super("Not", Arrays.asList(expr));
     }
   }
 
   public static class IfExpression extends Expressions.TypedExpression {
+    private static final long serialVersionUID = 5969157500381253181L;
+
     Expression condExpr;
     Expression trueExpr;
     Expression falseExpr;
@@ -749,6 +778,8 @@ public class Expressions  {
   }
 
   public static class CaseExpression extends Expressions.WrappedExpression {
+    private static final long serialVersionUID = 1L;
+
     public CaseExpression(List<Pair<Expression,Expression>> conds, Expression elseExpr) {
       if (conds.size() == 0) {
         throw new IllegalArgumentException("No conditions!");
@@ -764,6 +795,7 @@ public class Expressions  {
 
 
   public static class ConditionalExpression extends Expressions.WrappedExpression {
+    private static final long serialVersionUID = 1L;
 
     public ConditionalExpression(Expression expr) {
       this.expr = expr;
@@ -817,6 +849,7 @@ public class Expressions  {
   }
 
   public static class ListExpression extends TypedExpression {
+    private static final long serialVersionUID = 8695375379996850419L;
 
     List<Expression> exprs;
 
@@ -882,6 +915,7 @@ public class Expressions  {
   protected static final String NEWLINE = System.getProperty("line.separator");
 
   public static class FunctionCallExpression extends Expressions.TypedExpression {
+    private static final long serialVersionUID = -395646760713001706L;
 
     final String function;
     final List<? extends Expression> params;
@@ -1036,6 +1070,7 @@ public class Expressions  {
   }
 
   public static class MethodCallExpression extends Expressions.TypedExpression {
+    private static final long serialVersionUID = -2494743742795966808L;
 
     String function;
     private final Expression object;
@@ -1158,6 +1193,8 @@ public class Expressions  {
   * Primitive value that is directly represented by a Java object of type T
   */
   public static class PrimitiveValue<T> extends SimpleValue<T> {
+    private static final long serialVersionUID = -5273981547021985534L;
+
     public PrimitiveValue(String typename, T value, String... tags) {
       super(typename, value, tags);
     }
@@ -1167,6 +1204,8 @@ public class Expressions  {
   * A composite value with field names and values for each field
   */
   public static class CompositeValue extends SimpleCachedExpression<Map<String,Expression>> implements Value<Map<String,Expression>>{
+    private static final long serialVersionUID = 2308922656317578575L;
+
     public CompositeValue(String... tags) {
       super(TYPE_COMPOSITE, new HashMap<>(), tags);//Generics.<String,Expression>newHashMap()
     }
@@ -9,6 +9,7 @@ import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
 import edu.stanford.nlp.stats.Counters;
+import edu.stanford.nlp.stats.OpenAddressCounter;
 import edu.stanford.nlp.trees.GrammaticalRelation;
 import edu.stanford.nlp.util.*;
 import edu.stanford.nlp.util.PriorityQueue;
@@ -951,7 +952,7 @@ public class ClauseSplitterSearchProblem  {
       boolean parentHasObj = false;
       boolean childHasSubj = false;
       boolean childHasObj = false;
-      Counter<String> feats = new ClassicCounter<>();
+      Counter<String> feats = new OpenAddressCounter<>();
 
       // 1. edge taken
       feats.incrementCount(signature + "&edge:" + edgeRelTaken);
@@ -62,10 +62,23 @@ public class Embedding implements Serializable  {
     this(wordVectorFile, 0);
   }
 
+  /**
+   * Reads word vectors from a text file, or maps them if the file was
+   * written by {@link #writeMapped}.  Mapped vectors stay off the heap,
+   * and the map returned by {@link #getWordVectors()} is then read-only.
+   */
   public Embedding(String wordVectorFile, int embeddingSize) {
-    this.wordVectors = Generics.newHashMap();
-    this.embeddingSize = embeddingSize;
-    loadWordVectors(wordVectorFile);
+    if (MappedWordVectors.isMappedFile(wordVectorFile)) {
+      log.info("# Mapping embedding ...\n  word vector file = " + wordVectorFile);
+      MappedWordVectors mapped = new MappedWordVectors(wordVectorFile, embeddingSize);
+      this.wordVectors = mapped;
+      this.embeddingSize = mapped.getDimension();
+      log.info("  num words = " + mapped.size());
+    } else {
+      this.wordVectors = Generics.newHashMap();
+      this.embeddingSize = embeddingSize;
+      loadWordVectors(wordVectorFile);
+    }
   }
 
   public Embedding(String wordFile, String vectorFile) {
@@ -205,6 +218,14 @@ public class Embedding implements Serializable  {
     IOUtils.writeObjectToFile(wordVectors, filename);
   }
 
+  /**
+   * Writes the word vectors in the format of {@link MappedWordVectors},
+   * which {@link #Embedding(String, int)} maps instead of reading.
+   */
+  public void writeMapped(String filename) throws IOException {
+    MappedWordVectors.write(wordVectors, filename);
+  }
+
   /*** Getters & Setters ***/
   public int size(){
     return wordVectors.size();
@@ -0,0 +1,436 @@
+package edu.stanford.nlp.neural;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import org.ejml.simple.SimpleMatrix;
+
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.util.Hashing;
+import edu.stanford.nlp.util.logging.Redwood;
+
+/**
+ * Word vectors kept in a memory-mapped file rather than on the heap.
+ * <br>
+ * The file holds a hash table from word to row and a row-major matrix of
+ * 32 bit floats, so opening it reads nothing but the header: pages of
+ * the matrix are loaded by the operating system as words are looked up,
+ * and several JVMs using the same file share those pages.  The vectors
+ * are stored as floats, so they may differ from text vectors in the last
+ * digits of a double.
+ * <br>
+ * The map is read-only.  Each {@link #get} makes a new column vector, so
+ * callers which look up the same word often should hold on to it.
+ * Serializing the map writes an ordinary {@link HashMap} of its vectors.
+ * <br>
+ * A file can be made from any map of word vectors with {@link #write},
+ * or from a text vector file with the main method.
+ * The words and the table of them are one mapping with int offsets, so
+ * together they must take less than 2GB, which is about 50 million
+ * words; the matrix of vectors has no such limit.
+ * {@link Embedding#Embedding(String, int)} opens files in this format.
+ *
+ * @see VectorMap
+ */
+public class MappedWordVectors extends AbstractMap<String, SimpleMatrix> implements Serializable {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(MappedWordVectors.class);
+
+  private static final long serialVersionUID = 1L;
+
+  /** The first int of a file in this format, "WVM1" */
+  private static final int MAGIC = 0x57564d31;
+
+  private static final int HEADER_INTS = 6;
+
+  /** The most bytes of the matrix put in one mapping */
+  private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+  private final int numWords;
+  private final int dimension;
+  private final int columns;
+  private final int tableMask;
+
+  /** Offsets of the word rows, word offsets, hash table and word bytes in {@link #dictionary} */
+  private final int rowsStart;
+  private final int offsetsStart;
+  private final int tableStart;
+  private final int wordsStart;
+
+  private final transient ByteBuffer dictionary;
+  private final transient FloatBuffer[] matrix;
+  private final int rowsPerChunk;
+
+  /** Opens a file of vectors, keeping all of their dimensions. */
+  public MappedWordVectors(String file) {
+    this(file, 0);
+  }
+
+  /**
+   * Opens a file of vectors.
+   *
+   * @param columns How many dimensions of each vector to use, or 0 for all of them.
+   *                If the vectors are longer, they are truncated.
+   */
+  public MappedWordVectors(String file, int columns) {
+    try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_INTS * 4);
+      if (header.getInt(0) != MAGIC) {
+        throw new IllegalArgumentException(file + " is not a file of mapped word vectors");
+      }
+      numWords = header.getInt(4);
+      int numRows = header.getInt(8);
+      dimension = header.getInt(12);
+      int tableSize = header.getInt(16);
+      int wordBytes = header.getInt(20);
+
+      if (columns <= 0) {
+        columns = dimension;
+      } else if (columns > dimension) {
+        throw new RuntimeException("Word vectors file has dimension too small for requested numHid of " + columns);
+      }
+      this.columns = columns;
+      tableMask = tableSize - 1;
+
+      rowsStart = HEADER_INTS * 4;
+      offsetsStart = rowsStart + numWords * 4;
+      tableStart = offsetsStart + (numWords + 1) * 4;
+      wordsStart = tableStart + tableSize * 8;
+      long matrixStart = align(wordsStart + wordBytes);
+      dictionary = channel.map(FileChannel.MapMode.READ_ONLY, 0, matrixStart);
+
+      // A single mapping can't be larger than 2GB, so big matrices are mapped a block of rows at a time
+      int rowBytes = dimension * 4;
+      rowsPerChunk = Math.max(1, MAX_CHUNK_BYTES / Math.max(1, rowBytes));
+      matrix = new FloatBuffer[(numRows + rowsPerChunk - 1) / rowsPerChunk];
+      for (int i = 0; i < matrix.length; i++) {
+        long firstRow = (long) i * rowsPerChunk;
+        long chunkRows = Math.min(rowsPerChunk, numRows - firstRow);
+        matrix[i] = channel.map(FileChannel.MapMode.READ_ONLY, matrixStart + firstRow * rowBytes, chunkRows * rowBytes).asFloatBuffer();
+      }
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    }
+  }
+
+  /** Returns true if the file exists and is in this format. */
+  public static boolean isMappedFile(String file) {
+    File f = new File(file);
+    if ( ! f.isFile() || f.length() < HEADER_INTS * 4) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+      return in.readInt() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** The length of the vectors returned, which may be less than the length of the stored vectors. */
+  public int getDimension() {
+    return columns;
+  }
+
+  @Override
+  public int size() {
+    return numWords;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && findWord((String) key) >= 0;
+  }
+
+  @Override
+  public SimpleMatrix get(Object key) {
+    if ( ! (key instanceof String)) {
+      return null;
+    }
+    int word = findWord((String) key);
+    return (word < 0) ? null : vector(rowOf(word));
+  }
+
+  /**
+   * Returns the vector for a word as a new array, or null if the word
+   * isn't known.
+   */
+  public double[] getArray(String key) {
+    int word = findWord(key);
+    if (word < 0) {
+      return null;
+    }
+    double[] array = new double[columns];
+    copyRow(rowOf(word), array);
+    return array;
+  }
+
+  private SimpleMatrix vector(int row) {
+    SimpleMatrix vector = new SimpleMatrix(columns, 1);
+    copyRow(row, vector.getMatrix().getData());
+    return vector;
+  }
+
+  private void copyRow(int row, double[] into) {
+    FloatBuffer chunk = matrix[row / rowsPerChunk];
+    int start = (row % rowsPerChunk) * dimension;
+    for (int i = 0; i < columns; i++) {
+      into[i] = chunk.get(start + i);
+    }
+  }
+
+  private int rowOf(int word) {
+    return dictionary.getInt(rowsStart + word * 4);
+  }
+
+  private String wordAt(int word) {
+    int start = dictionary.getInt(offsetsStart + word * 4);
+    int end = dictionary.getInt(offsetsStart + (word + 1) * 4);
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = dictionary.get(wordsStart + start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the index of the word, or -1 if it isn't in the file. */
+  private int findWord(String key) {
+    int hash = key.hashCode();
+    byte[] bytes = null;
+    for (int slot = Hashing.fmix32(hash) & tableMask; ; slot = (slot + 1) & tableMask) {
+      int entry = tableStart + slot * 8;
+      int word = dictionary.getInt(entry + 4) - 1;
+      if (word < 0) {
+        return -1;
+      }
+      if (dictionary.getInt(entry) != hash) {
+        continue;
+      }
+      if (bytes == null) {
+        bytes = key.getBytes(StandardCharsets.UTF_8);
+      }
+      if (wordEquals(word, bytes)) {
+        return word;
+      }
+    }
+  }
+
+  private boolean wordEquals(int word, byte[] bytes) {
+    int start = dictionary.getInt(offsetsStart + word * 4);
+    int end = dictionary.getInt(offsetsStart + (word + 1) * 4);
+    if (end - start != bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (dictionary.get(wordsStart + start + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long align(long offset) {
+    return (offset + 3) & ~3L;
+  }
+
+  @Override
+  public Set<Entry<String, SimpleMatrix>> entrySet() {
+    return new AbstractSet<Entry<String, SimpleMatrix>>() {
+      @Override
+      public int size() {
+        return numWords;
+      }
+
+      @Override
+      public Iterator<Entry<String, SimpleMatrix>> iterator() {
+        return new Iterator<Entry<String, SimpleMatrix>>() {
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < numWords;
+          }
+
+          @Override
+          public Entry<String, SimpleMatrix> next() {
+            if (next >= numWords) {
+              throw new NoSuchElementException();
+            }
+            return new WordEntry(next++);
+          }
+        };
+      }
+    };
+  }
+
+  /** An entry which only reads its vector if asked, so iterating over the words is cheap */
+  private class WordEntry implements Entry<String, SimpleMatrix> {
+    private final int word;
+    private String key;
+
+    WordEntry(int word) {
+      this.word = word;
+    }
+
+    @Override
+    public String getKey() {
+      if (key == null) {
+        key = wordAt(word);
+      }
+      return key;
+    }
+
+    @Override
+    public SimpleMatrix getValue() {
+      return vector(rowOf(word));
+    }
+
+    @Override
+    public SimpleMatrix setValue(SimpleMatrix value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if ( ! (o instanceof Entry)) {
+        return false;
+      }
+      Entry<?, ?> e = (Entry<?, ?>) o;
+      return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return getKey().hashCode() ^ getValue().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+
+  private Object writeReplace() {
+    return new HashMap<>(this);
+  }
+
+  /**
+   * Writes word vectors to a file in the format this class maps.
+   * Words which share a vector object, such as an alias for the unknown
+   * word, share a row of the file.
+   */
+  public static void write(Map<String, SimpleMatrix> vectors, String file) throws IOException {
+    int numWords = vectors.size();
+    String[] words = new String[numWords];
+    byte[][] wordBytes = new byte[numWords][];
+    int[] rows = new int[numWords];
+    List<SimpleMatrix> rowVectors = new ArrayList<>();
+    Map<SimpleMatrix, Integer> rowIndex = new IdentityHashMap<>();
+    int dimension = -1;
+    long totalWordBytes = 0;
+
+    int word = 0;
+    for (Map.Entry<String, SimpleMatrix> entry : vectors.entrySet()) {
+      SimpleMatrix vector = entry.getValue();
+      if (dimension < 0) {
+        dimension = vector.getNumElements();
+      } else if (vector.getNumElements() != dimension) {
+        throw new IllegalArgumentException("Vector for " + entry.getKey() + " has " + vector.getNumElements() + " elements, not " + dimension);
+      }
+      Integer row = rowIndex.get(vector);
+      if (row == null) {
+        row = rowVectors.size();
+        rowIndex.put(vector, row);
+        rowVectors.add(vector);
+      }
+      words[word] = entry.getKey();
+      wordBytes[word] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      totalWordBytes += wordBytes[word].length;
+      rows[word] = row;
+      word++;
+    }
+    if (dimension < 0) {
+      dimension = 0;
+    }
+
+    int tableSize = Hashing.tableSize(numWords);
+    long dictionaryBytes = HEADER_INTS * 4 + numWords * 4L + (numWords + 1) * 4L + tableSize * 8L + totalWordBytes;
+    if (dictionaryBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The words of a mapped word vector file must take less than 2GB, but " +
+          numWords + " words take " + dictionaryBytes + " bytes");
+    }
+    int[] table = new int[tableSize * 2];
+    for (int i = 0; i < numWords; i++) {
+      int hash = words[i].hashCode();
+      int slot = Hashing.fmix32(hash) & (tableSize - 1);
+      while (table[slot * 2 + 1] != 0) {
+        slot = (slot + 1) & (tableSize - 1);
+      }
+      table[slot * 2] = hash;
+      table[slot * 2 + 1] = i + 1;
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(numWords);
+      out.writeInt(rowVectors.size());
+      out.writeInt(dimension);
+      out.writeInt(tableSize);
+      out.writeInt((int) totalWordBytes);
+      for (int row : rows) {
+        out.writeInt(row);
+      }
+      int offset = 0;
+      out.writeInt(offset);
+      for (byte[] bytes : wordBytes) {
+        offset += bytes.length;
+        out.writeInt(offset);
+      }
+      for (int x : table) {
+        out.writeInt(x);
+      }
+      for (byte[] bytes : wordBytes) {
+        out.write(bytes);
+      }
+      for (long pad = align(out.size()) - out.size(); pad > 0; pad--) {
+        out.writeByte(0);
+      }
+      for (SimpleMatrix vector : rowVectors) {
+        for (int i = 0; i < dimension; i++) {
+          out.writeFloat((float) vector.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Converts a text file of word vectors, in any format {@link Embedding}
+   * reads, to a file which can be mapped.
+   * <br>
+   * Usage: <code>java edu.stanford.nlp.neural.MappedWordVectors vectorFile outputFile</code>
+   * or <code>java edu.stanford.nlp.neural.MappedWordVectors wordFile vectorFile outputFile</code>
+   */
+  public static void main(String[] args) throws IOException {
+    Embedding embedding;
+    String output;
+    if (args.length == 2) {
+      embedding = new Embedding(args[0]);
+      output = args[1];
+    } else if (args.length == 3) {
+      embedding = new Embedding(args[0], args[1]);
+      output = args[2];
+    } else {
+      log.info("Usage: java edu.stanford.nlp.neural.MappedWordVectors [wordFile] vectorFile outputFile");
+      return;
+    }
+    embedding.writeMapped(output);
+    log.info("Wrote " + embedding.size() + " word vectors to " + output);
+  }
+
+}
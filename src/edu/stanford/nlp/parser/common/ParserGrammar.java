@@ -45,6 +45,13 @@ public abstract class ParserGrammar implements Function<List<? extends HasWord>,
 
   private static Redwood.RedwoodChannels logger = Redwood.channels(ParserGrammar.class);
 
+  /**
+   * Callers which keep a query per thread and reuse it for each sentence
+   * drop it after parsing a sentence longer than this, so that a thread
+   * does not hold the charts of the longest sentence it ever parsed.
+   */
+  public static final int MAX_REUSED_QUERY_LENGTH = 80;
+
   public abstract ParserQuery parserQuery();
 
   /**
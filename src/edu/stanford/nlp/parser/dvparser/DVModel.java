@@ -453,6 +453,8 @@ public class DVModel implements Serializable  {
     int chinesePercentCount = 0;
 
     //Map<String, SimpleMatrix> rawWordVectors = NeuralUtils.readRawWordVectors(op.lexOptions.wordVectorFile, op.lexOptions.numHid);
+    // The word vectors are parameters of the model, which training may
+    // change in place, so vectors from a mapped file are copied here
     Embedding rawWordVectors = new Embedding(op.lexOptions.wordVectorFile, op.lexOptions.numHid);
 
     for (String word : rawWordVectors.keySet()) {
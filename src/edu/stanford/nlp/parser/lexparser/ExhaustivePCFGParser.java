@@ -859,6 +859,9 @@ oScore[split][end][br.rightChild] = totR;
       tick("Binaries for span " + diff + " start " + start + " ...");
     }
     int end = start + diff;
+    // When pruning, the extents are only updated once the cell is done, so
+    // that states which fall outside the beam never widen them
+    final boolean pruneCell = op.testOptions.pcfgBeam > 0 && diff < length;
 
     final List<ParserConstraint> constraints = getConstraints();
     if (constraints != null) {
@@ -991,7 +994,7 @@ oScore[split][end][br.rightChild] = totR;
           iScore_start_end[parentState] = bestIScore;
 
           if (spillGuts) log.info("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " score " + bestIScore);
-          if (oldIScore == Float.NEGATIVE_INFINITY) {
+          if (oldIScore == Float.NEGATIVE_INFINITY && ! pruneCell) {
             if (start > narrowLExtent_end[parentState]) {
               narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
             } else if (start < wideLExtent_end[parentState]) {
@@ -1121,7 +1124,7 @@ oScore[split][end][br.rightChild] = totR;
         if (foundBetter) { // this way of making "parentState" is better than previous
           iScore_start_end[parentState] = bestIScore;
           if (spillGuts) log.info("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " with score " + bestIScore);
-          if (oldIScore == Float.NEGATIVE_INFINITY) {
+          if (oldIScore == Float.NEGATIVE_INFINITY && ! pruneCell) {
             if (start > narrowLExtent_end[parentState]) {
               narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
             } else if (start < wideLExtent_end[parentState]) {
@@ -1187,7 +1190,7 @@ oScore[split][end][br.rightChild] = totR;
         if (foundBetter) {
           if (spillGuts) log.info("Could build " + stateIndex.get(parentState) + " from " + start + " to " + end + " with score " + tot);
           iScore_start_end[parentState] = tot;
-          if (cur == Float.NEGATIVE_INFINITY) {
+          if (cur == Float.NEGATIVE_INFINITY && ! pruneCell) {
             if (start > narrowLExtent_end[parentState]) {
               narrowLExtent_end[parentState] = wideLExtent_end[parentState] = start;
             } else if (start < wideLExtent_end[parentState]) {
@@ -1202,6 +1205,55 @@ oScore[split][end][br.rightChild] = totR;
         } // end if foundBetter
       } // for UnaryRule r
     } // for unary rules
+
+    if (pruneCell) {
+      pruneChartCell(start, end);
+    }
+  }
+
+
+  /** Drops the states over [start, end) whose inside score is more than
+   *  op.testOptions.pcfgBeam below that of the best state over the span,
+   *  and records the extents of the states which are kept.  The whole
+   *  sentence span is never pruned, since the goal state may not be the
+   *  best state there.
+   */
+  private void pruneChartCell(int start, int end) {
+    float[] iScore_start_end = iScore[start][end];
+    float best = Float.NEGATIVE_INFINITY;
+    for (int state = 0; state < numStates; state++) {
+      if (iScore_start_end[state] > best) {
+        best = iScore_start_end[state];
+      }
+    }
+    if (best == Float.NEGATIVE_INFINITY) {
+      return;
+    }
+    float threshold = best - (float) op.testOptions.pcfgBeam;
+    int[] narrowRExtent_start = narrowRExtent[start];
+    int[] wideRExtent_start = wideRExtent[start];
+    int[] narrowLExtent_end = narrowLExtent[end];
+    int[] wideLExtent_end = wideLExtent[end];
+    for (int state = 0; state < numStates; state++) {
+      float iS = iScore_start_end[state];
+      if (iS == Float.NEGATIVE_INFINITY) {
+        continue;
+      }
+      if (iS < threshold) {
+        iScore_start_end[state] = Float.NEGATIVE_INFINITY;
+        continue;
+      }
+      if (start > narrowLExtent_end[state]) {
+        narrowLExtent_end[state] = wideLExtent_end[state] = start;
+      } else if (start < wideLExtent_end[state]) {
+        wideLExtent_end[state] = start;
+      }
+      if (end < narrowRExtent_start[state]) {
+        narrowRExtent_start[state] = wideRExtent_start[state] = end;
+      } else if (end > wideRExtent_start[state]) {
+        wideRExtent_start[state] = end;
+      }
+    }
   }
 
 
@@ -249,6 +249,9 @@ public class Options implements Serializable  {
     } else if (args[i].equalsIgnoreCase("-iterativeCKY")) {
       testOptions.iterativeCKY = true;
       i++;
+    } else if (args[i].equalsIgnoreCase("-pcfgBeam") && (i + 1 < args.length)) {
+      testOptions.pcfgBeam = Double.parseDouble(args[i + 1]);
+      i += 2;
     } else if (args[i].equalsIgnoreCase("-vMarkov") && (i + 1 < args.length)) {
       int order = Integer.parseInt(args[i + 1]);
       if (order <= 1) {
@@ -69,6 +69,15 @@ public class TestOptions implements Serializable  {
   /** If true, use faster iterative deepening CKY algorithm. */
   public boolean iterativeCKY = false;
 
+  /**
+   * If positive, the exhaustive PCFG parser drops states from each span
+   * whose inside log probability is more than this far below the best
+   * state over that span.  This makes long sentences much faster to
+   * parse, but the parse is no longer guaranteed to be the most likely
+   * one.  The span of the whole sentence is never pruned.
+   */
+  public double pcfgBeam = 0.0;
+
   /**
    * The maximum sentence length (including punctuation, etc.) to parse.
    */
@@ -711,6 +711,82 @@ public class Classifier  {
     return scores;
   }
 
+  /**
+   * Feed a batch of feature vectors forward through the network at
+   * once. Gives exactly the same values as calling
+   * {@link #computeScores(int[])} on each row of {@code features}, but
+   * the hidden layer is computed as a matrix product for each feature
+   * position: the block of {@code W1} belonging to the position is
+   * multiplied by the embeddings of every configuration in the batch
+   * which has no precomputed value there, so each row of the block is
+   * read once per batch rather than once per configuration. Likewise,
+   * each row of {@code W2} is dotted against every hidden layer in the
+   * batch.
+   *
+   * @param features One feature vector per configuration
+   * @return A {@code features.length x numLabels} matrix of output
+   *         layer values
+   */
+  double[][] computeScores(int[][] features) {
+    int batchSize = features.length;
+    int hiddenSize = config.hiddenSize;
+    int embeddingSize = config.embeddingSize;
+
+    double[][] hidden = new double[batchSize][hiddenSize];
+    // The configurations of the batch which need the product at the
+    // current position, and the embeddings they multiply
+    int[] rows = new int[batchSize];
+    double[][] embeddings = new double[batchSize][];
+    for (int j = 0, offset = 0; j < Config.numTokens; ++j, offset += embeddingSize) {
+      int numRows = 0;
+      for (int b = 0; b < batchSize; ++b) {
+        int tok = features[b][j];
+        Integer id = preMap.get(tok * Config.numTokens + j);
+        if (id != null) {
+          double[] savedRow = saved[id];
+          double[] h = hidden[b];
+          for (int i = 0; i < hiddenSize; ++i)
+            h[i] += savedRow[i];
+        } else {
+          rows[numRows] = b;
+          embeddings[numRows++] = E[tok];
+        }
+      }
+
+      for (int i = 0; i < hiddenSize; ++i) {
+        double[] w1Row = W1[i];
+        for (int r = 0; r < numRows; ++r) {
+          double[] embedding = embeddings[r];
+          double[] h = hidden[rows[r]];
+          double sum = h[i];
+          for (int k = 0; k < embeddingSize; ++k)
+            sum += w1Row[offset + k] * embedding[k];
+          h[i] = sum;
+        }
+      }
+    }
+
+    for (double[] h : hidden) {
+      for (int i = 0; i < hiddenSize; ++i) {
+        h[i] += b1[i];
+        h[i] = h[i] * h[i] * h[i];  // cube nonlinearity
+      }
+    }
+
+    double[][] scores = new double[batchSize][numLabels];
+    for (int i = 0; i < numLabels; ++i) {
+      double[] w2Row = W2[i];
+      for (int b = 0; b < batchSize; ++b) {
+        double[] h = hidden[b];
+        double score = 0.0;
+        for (int j = 0; j < hiddenSize; ++j)
+          score += w2Row[j] * h[j];
+        scores[b][i] = score;
+      }
+    }
+    return scores;
+  }
+
   public double[][] getW1() {
     return W1;
   }
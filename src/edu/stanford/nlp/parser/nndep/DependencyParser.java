@@ -12,6 +12,7 @@ import edu.stanford.nlp.ling.HasWord;
 import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.ling.TaggedWord;
 import edu.stanford.nlp.ling.Word;
+import edu.stanford.nlp.neural.MappedWordVectors;
 import edu.stanford.nlp.process.DocumentPreprocessor;
 import edu.stanford.nlp.stats.Counter;
 import edu.stanford.nlp.stats.Counters;
@@ -37,6 +38,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.util.*;
+import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
 
@@ -606,45 +608,74 @@ public class DependencyParser  {
     t.done(log, "Initializing dependency parser");
   }
 
-  // TODO this should be a function which returns the embeddings array + embedID
-  // otherwise the class needlessly carries around the extra baggage of `embeddings`
-  // (never again used) for the entire training process
-  private double[][] readEmbedFile(String embedFile, Map<String, Integer> embedID) {
-
-    double[][] embeddings = null;
-    if (embedFile != null) {
-      BufferedReader input = null;
-      try {
-        input = IOUtils.readerFromString(embedFile);
-        List<String> lines = new ArrayList<>();
-        for (String s; (s = input.readLine()) != null; ) {
-          lines.add(s);
+  /**
+   * Reads the embeddings of a file, scaled to a mean of 0 and a standard
+   * deviation of 1 over the whole file, and returns a function from a word
+   * to its embedding, or to null if the file has no embedding for it.
+   * A file of {@link MappedWordVectors} stays mapped: only the embeddings
+   * of the words asked for are copied out of it.
+   */
+  private Function<String, double[]> readEmbedFile(String embedFile) {
+    if (embedFile == null) {
+      return word -> null;
+    }
+    if (MappedWordVectors.isMappedFile(embedFile)) {
+      MappedWordVectors vectors = new MappedWordVectors(embedFile);
+      int dim = vectors.getDimension();
+      log.info("Embedding File " + embedFile + ": #Words = " + vectors.size() + ", dim = " + dim);
+      if (dim != config.embeddingSize)
+          throw new IllegalArgumentException("The dimension of embedding file does not match config.embeddingSize");
+
+      // the same statistics as Util.scaling, one vector at a time
+      double[] stats = Util.scalingStatistics(() -> vectors.keySet().stream().map(vectors::getArray).iterator(), 0.0, 1.0);
+      final double finalMean = stats[0];
+      final double finalStd = stats[1];
+      return word -> {
+        double[] embedding = vectors.getArray(word);
+        if (embedding != null) {
+          for (int j = 0; j < embedding.length; ++j)
+            embedding[j] = (embedding[j] - finalMean) / finalStd;
         }
+        return embedding;
+      };
+    }
 
-        int nWords = lines.size();
-        String[] splits = lines.get(0).split("\\s+");
+    Map<String, Integer> embedID = new HashMap<>();
+    double[][] embeddings;
+    BufferedReader input = null;
+    try {
+      input = IOUtils.readerFromString(embedFile);
+      List<String> lines = new ArrayList<>();
+      for (String s; (s = input.readLine()) != null; ) {
+        lines.add(s);
+      }
 
-        int dim = splits.length - 1;
-        embeddings = new double[nWords][dim];
-        log.info("Embedding File " + embedFile + ": #Words = " + nWords + ", dim = " + dim);
+      int nWords = lines.size();
+      String[] splits = lines.get(0).split("\\s+");
 
-        if (dim != config.embeddingSize)
-            throw new IllegalArgumentException("The dimension of embedding file does not match config.embeddingSize");
+      int dim = splits.length - 1;
+      embeddings = new double[nWords][dim];
+      log.info("Embedding File " + embedFile + ": #Words = " + nWords + ", dim = " + dim);
 
-        for (int i = 0; i < lines.size(); ++i) {
-          splits = lines.get(i).split("\\s+");
-          embedID.put(splits[0], i);
-          for (int j = 0; j < dim; ++j)
-            embeddings[i][j] = Double.parseDouble(splits[j + 1]);
-        }
-      } catch (IOException e) {
-        throw new RuntimeIOException(e);
-      } finally {
-        IOUtils.closeIgnoringExceptions(input);
+      if (dim != config.embeddingSize)
+          throw new IllegalArgumentException("The dimension of embedding file does not match config.embeddingSize");
+
+      for (int i = 0; i < lines.size(); ++i) {
+        splits = lines.get(i).split("\\s+");
+        embedID.put(splits[0], i);
+        for (int j = 0; j < dim; ++j)
+          embeddings[i][j] = Double.parseDouble(splits[j + 1]);
       }
-      embeddings = Util.scaling(embeddings, 0, 1.0);
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    } finally {
+      IOUtils.closeIgnoringExceptions(input);
     }
-    return embeddings;
+    double[][] scaled = Util.scaling(embeddings, 0, 1.0);
+    return word -> {
+      Integer index = embedID.get(word);
+      return (index == null) ? null : scaled[index];
+    };
   }
 
   /**
@@ -792,23 +823,22 @@ public class DependencyParser  {
       for (int j = 0; j < W2[i].length; ++j)
         W2[i][j] = random.nextDouble() * 2 * config.initRange - config.initRange;
 
-    // Read embeddings into `embedID`, `embeddings`
-     Map<String, Integer> embedID = new HashMap<>();
-     double[][] embeddings = readEmbedFile(embedFile, embedID);
+    // Read the embeddings
+    Function<String, double[]> embeddings = readEmbedFile(embedFile);
 
     // Try to match loaded embeddings with words in dictionary
     int foundEmbed = 0;
     for (int i = 0; i < E.length; ++i) {
-      int index = -1;
+      double[] embedding = null;
       if (i < knownWords.size()) {
         String str = knownWords.get(i);
         //NOTE: exact match first, and then try lower case..
-        if (embedID.containsKey(str)) index = embedID.get(str);
-        else if (embedID.containsKey(str.toLowerCase())) index = embedID.get(str.toLowerCase());
+        embedding = embeddings.apply(str);
+        if (embedding == null) embedding = embeddings.apply(str.toLowerCase());
       }
-      if (index >= 0) {
+      if (embedding != null) {
         ++foundEmbed;
-        System.arraycopy(embeddings[index], 0, E[i], 0, E[i].length);
+        System.arraycopy(embedding, 0, E[i], 0, E[i].length);
       } else {
         for (int j = 0; j < E[i].length; ++j)
           //E[i][j] = random.nextDouble() * config.initRange * 2 - config.initRange;
@@ -917,27 +947,81 @@ public class DependencyParser  {
    * for general parsing purposes.
    */
   private DependencyTree predictInner(CoreMap sentence) {
-    int numTrans = system.numTransitions();
-
     Configuration c = system.initialConfiguration(sentence);
     while (!system.isTerminal(c)) {
       if (Thread.interrupted()) {  // Allow interrupting
         throw new RuntimeInterruptedException();
       }
       double[] scores = classifier.computeScores(getFeatureArray(c));
+      system.apply(c, bestTransition(c, scores));
+    }
+    return c.tree;
+  }
 
-      double optScore = Double.NEGATIVE_INFINITY;
-      String optTrans = null;
+  /**
+   * Determine the dependency parses of a batch of sentences.
+   * <p>
+   * The configurations of all sentences are advanced in lockstep: at
+   * each step the features of every configuration which has not yet
+   * reached a terminal state are scored with a single call to
+   * {@link Classifier#computeScores(int[][])}. The resulting parses
+   * are identical to those of {@link #predictInner(CoreMap)}.
+   */
+  private List<DependencyTree> predictInner(List<? extends CoreMap> sentences) {
+    int numSentences = sentences.size();
+    Configuration[] configurations = new Configuration[numSentences];
+    int[] active = new int[numSentences];
+    int numActive = 0;
+    for (int i = 0; i < numSentences; ++i) {
+      configurations[i] = system.initialConfiguration(sentences.get(i));
+      if (!system.isTerminal(configurations[i]))
+        active[numActive++] = i;
+    }
 
-      for (int j = 0; j < numTrans; ++j) {
-        if (scores[j] > optScore && system.canApply(c, system.transitions.get(j))) {
-          optScore = scores[j];
-          optTrans = system.transitions.get(j);
-        }
+    while (numActive > 0) {
+      if (Thread.interrupted()) {  // Allow interrupting
+        throw new RuntimeInterruptedException();
+      }
+      int[][] features = new int[numActive][];
+      for (int a = 0; a < numActive; ++a)
+        features[a] = getFeatureArray(configurations[active[a]]);
+      double[][] scores = classifier.computeScores(features);
+
+      // Apply the best transition to each configuration, compacting
+      // the list of active configurations as parses finish
+      int stillActive = 0;
+      for (int a = 0; a < numActive; ++a) {
+        Configuration c = configurations[active[a]];
+        system.apply(c, bestTransition(c, scores[a]));
+        if (!system.isTerminal(c))
+          active[stillActive++] = active[a];
       }
-      system.apply(c, optTrans);
+      numActive = stillActive;
     }
-    return c.tree;
+
+    List<DependencyTree> trees = new ArrayList<>(numSentences);
+    for (Configuration c : configurations)
+      trees.add(c.tree);
+    return trees;
+  }
+
+  /**
+   * Find the highest-scoring transition which may legally be applied
+   * to the given configuration.
+   */
+  private String bestTransition(Configuration c, double[] scores) {
+    int numTrans = system.numTransitions();
+
+    double optScore = Double.NEGATIVE_INFINITY;
+    String optTrans = null;
+
+    for (int j = 0; j < numTrans; ++j) {
+      if (scores[j] > optScore && system.canApply(c, system.transitions.get(j))) {
+        optScore = scores[j];
+        optTrans = system.transitions.get(j);
+      }
+    }
+    return optTrans;
   }
 
   /**
@@ -952,11 +1036,37 @@ public class DependencyParser  {
       throw new IllegalStateException("Parser has not been  " +
           "loaded and initialized; first load a model.");
 
-    DependencyTree result = predictInner(sentence);
+    return toGrammaticalStructure(sentence, predictInner(sentence));
+  }
 
-    // The rest of this method is just busy-work to convert the
-    // package-local representation into a CoreNLP-standard
-    // GrammaticalStructure.
+  /**
+   * Determine the dependency parses of many sentences at once using
+   * the loaded model. Configurations of all sentences are advanced in
+   * lockstep and scored together, which is considerably faster than
+   * calling {@link #predict(edu.stanford.nlp.util.CoreMap)} on each
+   * sentence in turn when there are many sentences to parse.
+   *
+   * @return One GrammaticalStructure per sentence, in the same order
+   * @throws java.lang.IllegalStateException If parser has not yet been loaded and initialized
+   *         (see {@link #initialize(boolean)}
+   */
+  public List<GrammaticalStructure> predictAll(List<? extends CoreMap> sentences) {
+    if (system == null)
+      throw new IllegalStateException("Parser has not been  " +
+          "loaded and initialized; first load a model.");
+
+    List<DependencyTree> results = predictInner(sentences);
+    List<GrammaticalStructure> structures = new ArrayList<>(results.size());
+    for (int i = 0; i < results.size(); i++)
+      structures.add(toGrammaticalStructure(sentences.get(i), results.get(i)));
+    return structures;
+  }
+
+  /**
+   * Convert the package-local representation of a parse into a
+   * CoreNLP-standard GrammaticalStructure.
+   */
+  private GrammaticalStructure toGrammaticalStructure(CoreMap sentence, DependencyTree result) {
 
     List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
     List<TypedDependency> dependencies = new ArrayList<>();
@@ -1092,7 +1202,7 @@ public class DependencyParser  {
     }
     System.err.printf("OOV Words: %d / %d = %.2f%%\n", numOOVWords, numWords, numOOVWords * 100.0 / numWords);
 
-    List<DependencyTree> predicted = testSents.stream().map(this::predictInner).collect(toList());
+    List<DependencyTree> predicted = predictInner(testSents);
     Map<String, Double> result = system.evaluate(testSents, predicted, testTrees);
 
     double uas = config.noPunc ? result.get("UASnoPunc") : result.get("UAS");
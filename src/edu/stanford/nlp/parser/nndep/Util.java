@@ -36,20 +36,9 @@ public class Util  {
    * Normalize word embeddings by setting mean = rMean, std = rStd
    */
   public static double[][] scaling(double[][] A, double rMean, double rStd) {
-    int count = 0;
-    double mean = 0.0;
-    double std = 0.0;
-    for (double[] aA : A)
-      for (int j = 0; j < aA.length; ++j) {
-        count += 1;
-        mean += aA[j];
-        std += aA[j] * aA[j];
-      }
-    mean = mean / count;
-    std = Math.sqrt(std / count - mean * mean);
-
-    System.err.printf("Scaling word embeddings:");
-    System.err.printf("(mean = %.2f, std = %.2f) -> (mean = %.2f, std = %.2f)", mean, std, rMean, rStd);
+    double[] stats = scalingStatistics(Arrays.asList(A), rMean, rStd);
+    double mean = stats[0];
+    double std = stats[1];
 
     double[][] rA = new double[A.length][A[0].length];
     for (int i = 0; i < rA.length; ++ i)
@@ -58,6 +47,31 @@ public class Util  {
     return rA;
   }
 
+  /**
+   * Returns the mean and standard deviation of all the values of the
+   * word embeddings, as {mean, std}, and logs that they are being scaled
+   * to rMean and rStd.  The values are counted with a long, as a large
+   * vocabulary of embeddings can have more than 2^31 values.
+   */
+  static double[] scalingStatistics(Iterable<double[]> embeddings, double rMean, double rStd) {
+    long count = 0;
+    double mean = 0.0;
+    double std = 0.0;
+    for (double[] embedding : embeddings) {
+      count += embedding.length;
+      for (double value : embedding) {
+        mean += value;
+        std += value * value;
+      }
+    }
+    mean = mean / count;
+    std = Math.sqrt(std / count - mean * mean);
+
+    log.info(String.format("Scaling word embeddings: (mean = %.2f, std = %.2f) -> (mean = %.2f, std = %.2f)",
+        mean, std, rMean, rStd));
+    return new double[] { mean, std };
+  }
+
   /**
    *  Normalize word embeddings by setting mean = 0, std = 1
    */
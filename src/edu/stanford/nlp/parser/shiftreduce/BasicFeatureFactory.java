@@ -177,6 +177,143 @@ public class BasicFeatureFactory extends FeatureFactory {
     }
   }
 
+  // The methods below add the same features as the methods above
+  // with the same names, but hash them without building the strings
+
+  public static void addUnaryStackFeatures(HashedFeatures features, CoreLabel label, String conFeature, String wordTagFeature, String tagFeature, String wordConFeature, String tagConFeature) {
+    if (label == null) {
+      features.start(conFeature).append(NULL).end();
+      return;
+    }
+    String constituent = getFeatureFromCoreLabel(label, FeatureComponent.VALUE);
+    String tag = getFeatureFromCoreLabel(label, FeatureComponent.HEADTAG);
+    String word = getFeatureFromCoreLabel(label, FeatureComponent.HEADWORD);
+
+    features.start(conFeature).append(constituent).end();
+    features.start(wordTagFeature).append(word).append('-').append(tag).end();
+    features.start(tagFeature).append(tag).end();
+    features.start(wordConFeature).append(word).append('-').append(constituent).end();
+    features.start(tagConFeature).append(tag).append('-').append(constituent).end();
+  }
+
+  public static void addUnaryQueueFeatures(HashedFeatures features, CoreLabel label, String wtFeature) {
+    if (label == null) {
+      features.start(wtFeature).append(NULL).end();
+      return;
+    }
+    String tag = label.get(TreeCoreAnnotations.HeadTagLabelAnnotation.class).value();
+    String word = label.get(TreeCoreAnnotations.HeadWordLabelAnnotation.class).value();
+
+    features.start(wtFeature).append(tag).append('-').append(word).end();
+  }
+
+  public static void addBinaryFeatures(HashedFeatures features,
+                                       String name1, CoreLabel label1, FeatureComponent feature11, FeatureComponent feature12,
+                                       String name2, CoreLabel label2, FeatureComponent feature21, FeatureComponent feature22) {
+    if (label1 == null) {
+      if (label2 == null) {
+        features.start(name1).append('n').append(name2).append('n').end();
+      } else {
+        addUnaryFeature(features, name1, "n", name2, feature21.shortName(), label2, feature21);
+        addUnaryFeature(features, name1, "n", name2, feature22.shortName(), label2, feature22);
+      }
+    } else if (label2 == null) {
+      addUnaryFeature(features, name1, feature11.shortName(), name2, "n", label1, feature11);
+      addUnaryFeature(features, name1, feature12.shortName(), name2, "n", label1, feature12);
+    } else {
+      addBinaryFeature(features, name1, label1, feature11, name2, label2, feature21);
+      addBinaryFeature(features, name1, label1, feature11, name2, label2, feature22);
+      addBinaryFeature(features, name1, label1, feature12, name2, label2, feature21);
+      addBinaryFeature(features, name1, label1, feature12, name2, label2, feature22);
+    }
+  }
+
+  /** Adds the feature {@code name1 + component1 + name2 + component2 + "-" + value} */
+  private static void addUnaryFeature(HashedFeatures features, String name1, String component1, String name2, String component2, CoreLabel label, FeatureComponent feature) {
+    String value = getFeatureFromCoreLabel(label, feature);
+    features.start(name1).append(component1).append(name2).append(component2).append('-').append(value).end();
+  }
+
+  private static void addBinaryFeature(HashedFeatures features, String name1, CoreLabel label1, FeatureComponent feature1, String name2, CoreLabel label2, FeatureComponent feature2) {
+    String value1 = getFeatureFromCoreLabel(label1, feature1);
+    String value2 = getFeatureFromCoreLabel(label2, feature2);
+    features.start(name1).append(feature1.shortName()).append(name2).append(feature2.shortName()).append('-')
+        .append(value1).append('-').append(value2).end();
+  }
+
+  public static void addUnaryFeature(HashedFeatures features, String featureType, CoreLabel label, FeatureComponent feature) {
+    String value = getFeatureFromCoreLabel(label, feature);
+    features.start(featureType).append(value).end();
+  }
+
+  public static void addBinaryFeature(HashedFeatures features, String featureType, CoreLabel label1, FeatureComponent feature1, CoreLabel label2, FeatureComponent feature2) {
+    String value1 = getFeatureFromCoreLabel(label1, feature1);
+    String value2 = getFeatureFromCoreLabel(label2, feature2);
+    features.start(featureType).append(value1).append('-').append(value2).end();
+  }
+
+  public static void addTrigramFeature(HashedFeatures features, String featureType, CoreLabel label1, FeatureComponent feature1, CoreLabel label2, FeatureComponent feature2, CoreLabel label3, FeatureComponent feature3) {
+    String value1 = getFeatureFromCoreLabel(label1, feature1);
+    String value2 = getFeatureFromCoreLabel(label2, feature2);
+    String value3 = getFeatureFromCoreLabel(label3, feature3);
+
+    features.start(featureType).append(value1).append('-').append(value2).append('-').append(value3).end();
+  }
+
+  public static void addPositionFeatures(HashedFeatures features, State state) {
+    if (state.tokenPosition >= state.sentence.size()) {
+      features.add("QUEUE_FINISHED");
+    }
+    if (state.tokenPosition >= state.sentence.size() && state.stack.size() == 1) {
+      features.add("QUEUE_FINISHED_STACK_SINGLETON");
+    }
+  }
+
+  public static void addSeparatorFeatures(HashedFeatures features, String name1, CoreLabel label1, String name2, CoreLabel label2, String separatorBetween, int countBetween) {
+    if (label1 == null || label2 == null) {
+      return;
+    }
+
+    String word1 = getFeatureFromCoreLabel(label1, FeatureComponent.HEADWORD);
+    String constituent1 = getFeatureFromCoreLabel(label1, FeatureComponent.VALUE);
+    String word2 = getFeatureFromCoreLabel(label2, FeatureComponent.HEADWORD);
+    String constituent2 = getFeatureFromCoreLabel(label2, FeatureComponent.VALUE);
+
+    // 0 separators is captured by the countBetween features
+    if (separatorBetween != null) {
+      addSeparatorFeatures(features, name1, word1, constituent1, name2, word2, constituent2, separatorBetween, 0);
+    }
+    addSeparatorFeatures(features, name1, word1, constituent1, name2, word2, constituent2, null, countBetween);
+  }
+
+  /**
+   * Adds the five features of the separators between two nodes,
+   * either for the separator string or, if that is null, for the count
+   */
+  private static void addSeparatorFeatures(HashedFeatures features, String name1, String word1, String constituent1, String name2, String word2, String constituent2,
+                                           String separatorBetween, int countBetween) {
+    appendSeparatorName(features.start(name1).append('w'), name1, name2, separatorBetween, countBetween)
+        .append(word1).end();
+    appendSeparatorName(features.start(name1).append("wc"), name1, name2, separatorBetween, countBetween)
+        .append(word1).append('-').append(constituent1).end();
+    appendSeparatorName(features.start(name2).append('w'), name1, name2, separatorBetween, countBetween)
+        .append(word2).end();
+    appendSeparatorName(features.start(name2).append("wc"), name1, name2, separatorBetween, countBetween)
+        .append(word2).append('-').append(constituent2).end();
+    appendSeparatorName(features.start(name1).append('c').append(name2).append('c'), name1, name2, separatorBetween, countBetween)
+        .append(constituent1).append('-').append(constituent2).end();
+  }
+
+  private static HashedFeatures appendSeparatorName(HashedFeatures features, String name1, String name2, String separatorBetween, int countBetween) {
+    features.append("Sepb").append(name1).append(name2).append('-');
+    if (separatorBetween != null) {
+      features.append(separatorBetween);
+    } else {
+      features.append(countBetween);
+    }
+    return features.append('-');
+  }
+
   /**
    * Could potentially add the tags and words for the left and right
    * ends of the tree.  Also adds notes about the sizes of the given
@@ -380,6 +517,113 @@ public class BasicFeatureFactory extends FeatureFactory {
     return features;
   }
 
+  /**
+   * The same features as {@link #featurize(State, List)}, in the same
+   * order, hashed without building the feature strings.
+   */
+  @Override
+  public void featurize(State state, HashedFeatures features) {
+    final TreeShapedStack<Tree> stack = state.stack;
+    final List<Tree> sentence = state.sentence;
+    final int tokenPosition = state.tokenPosition;
+
+    CoreLabel s0Label = getStackLabel(stack, 0); // current top of stack
+    CoreLabel s1Label = getStackLabel(stack, 1); // one previous
+    CoreLabel s2Label = getStackLabel(stack, 2); // two previous
+    CoreLabel s3Label = getStackLabel(stack, 3); // three previous
+
+    CoreLabel s0LLabel = getStackLabel(stack, 0, Transition.LEFT);
+    CoreLabel s0RLabel = getStackLabel(stack, 0, Transition.RIGHT);
+    CoreLabel s0ULabel = getStackLabel(stack, 0, Transition.UNARY);
+
+    CoreLabel s0LLLabel = getStackLabel(stack, 0, Transition.LEFT, Transition.LEFT);
+    CoreLabel s0LRLabel = getStackLabel(stack, 0, Transition.LEFT, Transition.RIGHT);
+    CoreLabel s0LULabel = getStackLabel(stack, 0, Transition.LEFT, Transition.UNARY);
+
+    CoreLabel s0RLLabel = getStackLabel(stack, 0, Transition.RIGHT, Transition.LEFT);
+    CoreLabel s0RRLabel = getStackLabel(stack, 0, Transition.RIGHT, Transition.RIGHT);
+    CoreLabel s0RULabel = getStackLabel(stack, 0, Transition.RIGHT, Transition.UNARY);
+
+    CoreLabel s0ULLabel = getStackLabel(stack, 0, Transition.UNARY, Transition.LEFT);
+    CoreLabel s0URLabel = getStackLabel(stack, 0, Transition.UNARY, Transition.RIGHT);
+    CoreLabel s0UULabel = getStackLabel(stack, 0, Transition.UNARY, Transition.UNARY);
+
+    CoreLabel s1LLabel = getStackLabel(stack, 1, Transition.LEFT);
+    CoreLabel s1RLabel = getStackLabel(stack, 1, Transition.RIGHT);
+    CoreLabel s1ULabel = getStackLabel(stack, 1, Transition.UNARY);
+
+    CoreLabel q0Label = getQueueLabel(sentence, tokenPosition, 0); // current location in queue
+    CoreLabel q1Label = getQueueLabel(sentence, tokenPosition, 1); // next location in queue
+    CoreLabel q2Label = getQueueLabel(sentence, tokenPosition, 2); // two locations later in queue
+    CoreLabel q3Label = getQueueLabel(sentence, tokenPosition, 3); // three locations later in queue
+    CoreLabel qP1Label = getQueueLabel(sentence, tokenPosition, -1); // previous location in queue
+    CoreLabel qP2Label = getQueueLabel(sentence, tokenPosition, -2); // two locations prior in queue
+
+    addUnaryStackFeatures(features, s0Label, "S0C-", "S0WT-", "S0T-", "S0WC-", "S0TC-");
+    addUnaryStackFeatures(features, s1Label, "S1C-", "S1WT-", "S1T-", "S1WC-", "S1TC-");
+    addUnaryStackFeatures(features, s2Label, "S2C-", "S2WT-", "S2T-", "S2WC-", "S2TC-");
+    addUnaryStackFeatures(features, s3Label, "S3C-", "S3WT-", "S3T-", "S3WC-", "S3TC-");
+
+    addUnaryStackFeatures(features, s0LLabel, "S0LC-", "S0LWT-", "S0LT-", "S0LWC-", "S0LTC-");
+    addUnaryStackFeatures(features, s0RLabel, "S0RC-", "S0RWT-", "S0RT-", "S0RWC-", "S0RTC-");
+    addUnaryStackFeatures(features, s0ULabel, "S0UC-", "S0UWT-", "S0UT-", "S0UWC-", "S0UTC-");
+
+    addUnaryStackFeatures(features, s0LLLabel, "S0LLC-", "S0LLWT-", "S0LLT-", "S0LLWC-", "S0LLTC-");
+    addUnaryStackFeatures(features, s0LRLabel, "S0LRC-", "S0LRWT-", "S0LRT-", "S0LRWC-", "S0LRTC-");
+    addUnaryStackFeatures(features, s0LULabel, "S0LUC-", "S0LUWT-", "S0LUT-", "S0LUWC-", "S0LUTC-");
+
+    addUnaryStackFeatures(features, s0RLLabel, "S0RLC-", "S0RLWT-", "S0RLT-", "S0RLWC-", "S0RLTC-");
+    addUnaryStackFeatures(features, s0RRLabel, "S0RRC-", "S0RRWT-", "S0RRT-", "S0RRWC-", "S0RRTC-");
+    addUnaryStackFeatures(features, s0RULabel, "S0RUC-", "S0RUWT-", "S0RUT-", "S0RUWC-", "S0RUTC-");
+
+    addUnaryStackFeatures(features, s0ULLabel, "S0ULC-", "S0ULWT-", "S0ULT-", "S0ULWC-", "S0ULTC-");
+    addUnaryStackFeatures(features, s0URLabel, "S0URC-", "S0URWT-", "S0URT-", "S0URWC-", "S0URTC-");
+    addUnaryStackFeatures(features, s0UULabel, "S0UUC-", "S0UUWT-", "S0UUT-", "S0UUWC-", "S0UUTC-");
+
+    addUnaryStackFeatures(features, s1LLabel, "S1LC-", "S1LWT-", "S1LT-", "S1LWC-", "S1LTC-");
+    addUnaryStackFeatures(features, s1RLabel, "S1RC-", "S1RWT-", "S1RT-", "S1RWC-", "S1RTC-");
+    addUnaryStackFeatures(features, s1ULabel, "S1UC-", "S1UWT-", "S1UT-", "S1UWC-", "S1UTC-");
+
+    addUnaryQueueFeatures(features, q0Label, "Q0WT-");
+    addUnaryQueueFeatures(features, q1Label, "Q1WT-");
+    addUnaryQueueFeatures(features, q2Label, "Q2WT-");
+    addUnaryQueueFeatures(features, q3Label, "Q3WT-");
+    addUnaryQueueFeatures(features, qP1Label, "QP1WT-");
+    addUnaryQueueFeatures(features, qP2Label, "QP2WT-");
+
+    CoreLabel recentL0Label = getRecentDependent(stack, Transition.LEFT, 0);
+    CoreLabel recentR0Label = getRecentDependent(stack, Transition.RIGHT, 0);
+    CoreLabel recentL1Label = getRecentDependent(stack, Transition.LEFT, 1);
+    CoreLabel recentR1Label = getRecentDependent(stack, Transition.RIGHT, 1);
+    addUnaryStackFeatures(features, recentL0Label, "recL0C-", "recL0WT-", "recL0T-", "recL0WC-", "recL0TC-");
+    addUnaryStackFeatures(features, recentR0Label, "recR0C-", "recR0WT-", "recR0T-", "recR0WC-", "recR0TC-");
+    addUnaryStackFeatures(features, recentL1Label, "recL1C-", "recL1WT-", "recL1T-", "recL1WC-", "recL1TC-");
+    addUnaryStackFeatures(features, recentR1Label, "recR1C-", "recR1WT-", "recR1T-", "recR1WC-", "recR1TC-");
+
+    addBinaryFeatures(features, "S0", s0Label, FeatureComponent.HEADWORD, FeatureComponent.VALUE, "S1", s1Label, FeatureComponent.HEADWORD, FeatureComponent.VALUE);
+    addBinaryFeatures(features, "S0", s0Label, FeatureComponent.HEADWORD, FeatureComponent.VALUE, "Q0", q0Label, FeatureComponent.HEADWORD, FeatureComponent.HEADTAG);
+    addBinaryFeatures(features, "S1", s1Label, FeatureComponent.HEADWORD, FeatureComponent.VALUE, "Q0", q0Label, FeatureComponent.HEADWORD, FeatureComponent.HEADTAG);
+    addBinaryFeatures(features, "Q0", q0Label, FeatureComponent.HEADWORD, FeatureComponent.HEADTAG, "Q1", q1Label, FeatureComponent.HEADWORD, FeatureComponent.HEADTAG);
+
+    addTrigramFeature(features, "S0cS1cS2c-", s0Label, FeatureComponent.VALUE, s1Label, FeatureComponent.VALUE, s2Label, FeatureComponent.VALUE);
+    addTrigramFeature(features, "S0wS1cS2c-", s0Label, FeatureComponent.HEADWORD, s1Label, FeatureComponent.VALUE, s2Label, FeatureComponent.VALUE);
+    addTrigramFeature(features, "S0cS1wS2c-", s0Label, FeatureComponent.VALUE, s1Label, FeatureComponent.HEADWORD, s2Label, FeatureComponent.VALUE);
+    addTrigramFeature(features, "S0cS1cS2w-", s0Label, FeatureComponent.VALUE, s1Label, FeatureComponent.VALUE, s2Label, FeatureComponent.HEADWORD);
+
+    addTrigramFeature(features, "S0cS1cQ0t-", s0Label, FeatureComponent.VALUE, s1Label, FeatureComponent.VALUE, q0Label, FeatureComponent.HEADTAG);
+    addTrigramFeature(features, "S0wS1cQ0t-", s0Label, FeatureComponent.HEADWORD, s1Label, FeatureComponent.VALUE, q0Label, FeatureComponent.HEADTAG);
+    addTrigramFeature(features, "S0cS1wQ0t-", s0Label, FeatureComponent.VALUE, s1Label, FeatureComponent.HEADWORD, q0Label, FeatureComponent.HEADTAG);
+    addTrigramFeature(features, "S0cS1cQ0w-", s0Label, FeatureComponent.VALUE, s1Label, FeatureComponent.VALUE, q0Label, FeatureComponent.HEADWORD);
+
+    addPositionFeatures(features, state);
+
+    Tree s0Node = state.getStackNode(0);
+    Tree s1Node = state.getStackNode(1);
+    Tree q0Node = state.getQueueNode(0);
+    addSeparatorFeatures(features, "S0", s0Label, "S1", s1Label, state.getSeparatorBetween(s0Node, s1Node), state.getSeparatorCount(s0Node, s1Node));
+    addSeparatorFeatures(features, "S0", s0Label, "Q0", q0Label, state.getSeparatorBetween(q0Node, s0Node), state.getSeparatorCount(q0Node, s0Node));
+  }
+
   private static final long serialVersionUID = 1;
 }
 
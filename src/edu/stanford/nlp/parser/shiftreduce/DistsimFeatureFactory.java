@@ -36,6 +36,20 @@ public class DistsimFeatureFactory extends FeatureFactory {
     features.add(featureName + "disT-" + cluster + "-" + tag);
   }
 
+  public void addDistsimFeatures(HashedFeatures features, CoreLabel label, String featureName) {
+    if (label == null) {
+      return;
+    }
+
+    String word = getFeatureFromCoreLabel(label, FeatureComponent.HEADWORD);
+    String tag = getFeatureFromCoreLabel(label, FeatureComponent.HEADTAG);
+
+    String cluster = distsim.getMapping(word);
+
+    features.start(featureName).append("dis-").append(cluster).end();
+    features.start(featureName).append("disT-").append(cluster).append('-').append(tag).end();
+  }
+
   @Override
   public List<String> featurize(State state, List<String> features) {
     CoreLabel s0Label = getStackLabel(state.stack, 0); // current top of stack
@@ -49,5 +63,16 @@ public class DistsimFeatureFactory extends FeatureFactory {
     return features;
   }
 
+  @Override
+  public void featurize(State state, HashedFeatures features) {
+    CoreLabel s0Label = getStackLabel(state.stack, 0);
+    CoreLabel s1Label = getStackLabel(state.stack, 1);
+    CoreLabel q0Label = getQueueLabel(state.sentence, state.tokenPosition, 0);
+
+    addDistsimFeatures(features, s0Label, "S0");
+    addDistsimFeatures(features, s1Label, "S1");
+    addDistsimFeatures(features, q0Label, "Q0");
+  }
+
   private static final long serialVersionUID = -396152777907151063L;
 }
@@ -16,6 +16,17 @@ public abstract class FeatureFactory implements Serializable {
 
   abstract public List<String> featurize(State state, List<String> features);
 
+  /**
+   * Adds the hashes of the same features as {@link #featurize(State, List)}
+   * to {@code features}.  This does so by building the feature strings;
+   * subclasses can hash the features without building them.
+   */
+  public void featurize(State state, HashedFeatures features) {
+    for (String feature : featurize(state)) {
+      features.add(feature);
+    }
+  }
+
   enum Transition {
     LEFT, RIGHT, UNARY
   };
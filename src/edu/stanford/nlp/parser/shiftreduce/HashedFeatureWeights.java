@@ -0,0 +1,133 @@
+package edu.stanford.nlp.parser.shiftreduce;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import edu.stanford.nlp.util.Hashing;
+import edu.stanford.nlp.util.logging.Redwood;
+
+/**
+ * The weights of a {@link PerceptronModel}, indexed by the hashed
+ * feature ids of {@link HashedFeatures} rather than by feature strings.
+ * <br>
+ * This is an open addressed hash table with linear probing.  The keys
+ * are the feature ids, with 0 for an empty slot.  The weights of all the
+ * features are packed the same way as in {@link Weight}, one after
+ * another in a single array, in the order of the slots, so the weights
+ * of slot i are {@code packed[offsets[i]]} to {@code packed[offsets[i+1]]}.
+ * This avoids a String key and a Weight object per feature, which is
+ * most of the memory of a model, and scoring a feature doesn't need
+ * to build or hash the feature string.
+ * <br>
+ * The table can't be changed once it is built, so models are trained
+ * with feature strings and converted afterwards.
+ */
+public class HashedFeatureWeights implements Serializable {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(HashedFeatureWeights.class);
+
+  private final long[] keys;
+  private final int[] offsets;
+  private final long[] packed;
+  private final int size;
+
+  /**
+   * Builds the table from the weights of a model which was trained with
+   * feature strings.  Features with no weights are left out.
+   */
+  public HashedFeatureWeights(Map<String, Weight> featureWeights) {
+    int capacity = Hashing.tableSize(featureWeights.size());
+    keys = new long[capacity];
+    Weight[] weights = new Weight[capacity];
+
+    int numFeatures = 0;
+    int numCollisions = 0;
+    int numWeights = 0;
+    for (Map.Entry<String, Weight> entry : featureWeights.entrySet()) {
+      Weight weight = entry.getValue();
+      if (weight.size() == 0) {
+        continue;
+      }
+      long key = HashedFeatures.hash(entry.getKey());
+      int slot = findSlot(key);
+      if (keys[slot] == key) {
+        // Two features with the same 64 bit hash.  This should never
+        // happen in practice, but if it does, the best we can do is
+        // to score both of them whenever either is seen.
+        ++numCollisions;
+        numWeights -= weights[slot].size();
+        Weight combined = new Weight(weights[slot]);
+        combined.addScaled(weight, 1.0f);
+        weight = combined;
+      } else {
+        keys[slot] = key;
+        ++numFeatures;
+      }
+      weights[slot] = weight;
+      numWeights += weight.size();
+    }
+    if (numCollisions > 0) {
+      log.warn("Found " + numCollisions + " feature(s) with the same hash as another feature");
+    }
+    size = numFeatures;
+
+    offsets = new int[capacity + 1];
+    packed = new long[numWeights];
+    int offset = 0;
+    for (int slot = 0; slot < capacity; ++slot) {
+      offsets[slot] = offset;
+      if (weights[slot] != null) {
+        System.arraycopy(weights[slot].packed, 0, packed, offset, weights[slot].size());
+        offset += weights[slot].size();
+      }
+    }
+    offsets[capacity] = offset;
+  }
+
+  /** The slot with the given key, or the empty slot where it would go */
+  private int findSlot(long key) {
+    int mask = keys.length - 1;
+    int slot = (int) key & mask;
+    while (keys[slot] != 0 && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Adds the weights of the given feature to the scores of the
+   * transitions.  Features not in the model are ignored.
+   */
+  public void score(long feature, float[] scores) {
+    int slot = findSlot(feature);
+    if (keys[slot] == 0) {
+      return;
+    }
+    for (int i = offsets[slot], end = offsets[slot + 1]; i < end; ++i) {
+      final long pack = packed[i];
+      final int index = (int) (pack >>> 32);
+      final float score = Float.intBitsToFloat((int) (pack & 0xFFFFFFFF));
+      scores[index] += score;
+    }
+  }
+
+  /** Adds the weights of all of the given features to the scores */
+  public void score(HashedFeatures features, float[] scores) {
+    for (int i = 0; i < features.size(); ++i) {
+      score(features.get(i), scores);
+    }
+  }
+
+  /** The number of features with weights */
+  public int size() {
+    return size;
+  }
+
+  /** The number of non-zero weights over all features */
+  public int numWeights() {
+    return packed.length;
+  }
+
+  private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,111 @@
+package edu.stanford.nlp.parser.shiftreduce;
+
+import edu.stanford.nlp.util.Hashing;
+
+/**
+ * The features of a state, as 64 bit hashes of the feature strings.
+ * <br>
+ * A feature is hashed a piece at a time, as in
+ * {@code features.start("S0C-").append(value).end()}, so the feature
+ * string is never built.  The hash only depends on the characters of
+ * the feature, so this gives the same id as {@link #hash(String)} of
+ * {@code "S0C-" + value}.  This lets a model trained with feature
+ * strings be converted to hashed features (see {@link HashedFeatureWeights}).
+ * <br>
+ * The hash is {@link Hashing#hash64}, except that it is never 0.
+ * <br>
+ * This is not threadsafe; each thread should featurize into its own object.
+ */
+public class HashedFeatures {
+  private long[] ids;
+  private int size;
+
+  /** The hash of the feature being built */
+  private long current;
+
+  public HashedFeatures() {
+    this(200);
+  }
+
+  public HashedFeatures(int capacity) {
+    ids = new long[Math.max(capacity, 1)];
+  }
+
+  /** Starts a new feature, which begins with the given string */
+  public HashedFeatures start(String s) {
+    current = Hashing.FNV64_OFFSET_BASIS;
+    return append(s);
+  }
+
+  public HashedFeatures append(String s) {
+    current = Hashing.fnv64(current, s);
+    return this;
+  }
+
+  public HashedFeatures append(char c) {
+    current = Hashing.fnv64(current, c);
+    return this;
+  }
+
+  /** Appends the number as {@code String.valueOf(n)} would write it */
+  public HashedFeatures append(int n) {
+    if (n < 0) {
+      append('-');
+    }
+    long value = Math.abs((long) n);
+    long divisor = 1;
+    while (divisor * 10 <= value) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      append((char) ('0' + (value / divisor) % 10));
+    }
+    return this;
+  }
+
+  public HashedFeatures append(boolean b) {
+    return append(b ? "true" : "false");
+  }
+
+  /** Adds the feature which was built since the last {@link #start} */
+  public void end() {
+    if (size == ids.length) {
+      long[] newIds = new long[ids.length * 2];
+      System.arraycopy(ids, 0, newIds, 0, size);
+      ids = newIds;
+    }
+    ids[size++] = finish(current);
+  }
+
+  /** Adds the hash of a whole feature string */
+  public void add(String feature) {
+    start(feature).end();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long get(int i) {
+    if (i >= size) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+    return ids[i];
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  /** The id of the given feature string */
+  public static long hash(String feature) {
+    return finish(Hashing.fnv64(Hashing.FNV64_OFFSET_BASIS, feature));
+  }
+
+  private static long finish(long h) {
+    h = Hashing.fmix64(h);
+    // 0 marks an empty slot in HashedFeatureWeights
+    return (h == 0) ? 1 : h;
+  }
+
+}
@@ -3,6 +3,7 @@ import edu.stanford.nlp.util.logging.Redwood;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -39,6 +40,23 @@ public class PerceptronModel extends BaseModel  {
   Map<String, Weight> featureWeights;
   final FeatureFactory featureFactory;
 
+  /**
+   * The weights by hashed feature, for a model converted with
+   * {@link #hashFeatures()}.  The feature strings are dropped then,
+   * so featureWeights is empty.
+   */
+  HashedFeatureWeights hashedWeights;
+  /** The tag set of a model whose feature strings have been dropped */
+  Set<String> tags;
+
+  /** The space each thread featurizes and scores a state in, with the hashed weights */
+  private static class HashedScratch {
+    final HashedFeatures features = new HashedFeatures();
+    float[] scores = new float[0];
+  }
+
+  private static final ThreadLocal<HashedScratch> hashedScratch = ThreadLocal.withInitial(HashedScratch::new);
+
   public PerceptronModel(ShiftReduceOptions op, Index<Transition> transitionIndex,
                          Set<String> knownStates, Set<String> rootStates, Set<String> rootOnlyStates) {
     super(op, transitionIndex, knownStates, rootStates, rootOnlyStates);
@@ -70,6 +88,9 @@ public class PerceptronModel extends BaseModel  {
     for (String feature : other.featureWeights.keySet()) {
       featureWeights.put(feature, new Weight(other.featureWeights.get(feature)));
     }
+    // this can't be changed, so it can be shared
+    this.hashedWeights = other.hashedWeights;
+    this.tags = other.tags;
   }
 
   private static final NumberFormat NF = new DecimalFormat("0.00");
@@ -145,10 +166,31 @@ public class PerceptronModel extends BaseModel  {
   }
 
 
+  /**
+   * Replaces the feature strings of the model with their hashes, as
+   * made by {@link FeatureFactory#featurize(State, HashedFeatures)}.
+   * The model then takes less memory and loads and parses faster, but
+   * it can't be trained any further.
+   */
+  public void hashFeatures() {
+    if (hashedWeights != null) {
+      return;
+    }
+    tags = tagSet();
+    hashedWeights = new HashedFeatureWeights(featureWeights);
+    featureWeights = Generics.newHashMap();
+  }
+
   /**
    * Output some random facts about the model
    */
   public void outputStats() {
+    if (hashedWeights != null) {
+      log.info("Number of known hashed features: " + hashedWeights.size());
+      log.info("Number of non-zero weights: " + hashedWeights.numWeights());
+      log.info("Number of transitions: " + transitionIndex.size());
+      return;
+    }
     log.info("Number of known features: " + featureWeights.size());
     int numWeights = 0;
     for (Map.Entry<String, Weight> stringWeightEntry : featureWeights.entrySet()) {
@@ -170,6 +212,9 @@ public class PerceptronModel extends BaseModel  {
    */
   @Override
   Set<String> tagSet() {
+    if (this.tags != null) {
+      return this.tags;
+    }
     Set<String> tags = Generics.newHashSet();
     Pattern p1 = Pattern.compile("Q0TQ1T-([^-]+)-.*");
     Pattern p2 = Pattern.compile("S0T-(.*)");
@@ -201,6 +246,19 @@ public class PerceptronModel extends BaseModel  {
 
   @Override
   public Collection<ScoredObject<Integer>> findHighestScoringTransitions(State state, boolean requireLegal, int numTransitions, List<ParserConstraint> constraints) {
+    if (hashedWeights != null) {
+      // the scores are only used until this returns, so both can be reused
+      HashedScratch scratch = hashedScratch.get();
+      scratch.features.clear();
+      featureFactory.featurize(state, scratch.features);
+      if (scratch.scores.length != transitionIndex.size()) {
+        scratch.scores = new float[transitionIndex.size()];
+      } else {
+        Arrays.fill(scratch.scores, 0.0f);
+      }
+      hashedWeights.score(scratch.features, scratch.scores);
+      return findHighestScoringTransitions(state, scratch.scores, requireLegal, numTransitions, constraints);
+    }
     List<String> features = featureFactory.featurize(state);
     return findHighestScoringTransitions(state, features, requireLegal, numTransitions, constraints);
   }
@@ -215,7 +273,10 @@ public class PerceptronModel extends BaseModel  {
       }
       weight.score(scores);
     }
+    return findHighestScoringTransitions(state, scores, requireLegal, numTransitions, constraints);
+  }
 
+  private Collection<ScoredObject<Integer>> findHighestScoringTransitions(State state, float[] scores, boolean requireLegal, int numTransitions, List<ParserConstraint> constraints) {
     PriorityQueue<ScoredObject<Integer>> queue = new PriorityQueue<>(numTransitions + 1, ScoredComparator.ASCENDING_COMPARATOR);
     for (int i = 0; i < scores.length; ++i) {
       if (!requireLegal || transitionIndex.get(i).isLegal(state, constraints)) {
@@ -643,6 +704,9 @@ public class PerceptronModel extends BaseModel  {
    * after the first time through on a limited set of features.
    */
   public void trainModel(String serializedPath, Tagger tagger, Random random, List<Tree> binarizedTrees, List<List<Transition>> transitionLists, Treebank devTreebank, int nThreads) {
+    if (hashedWeights != null) {
+      throw new UnsupportedOperationException("Cannot train a model whose features have been hashed");
+    }
     if (op.trainOptions().retrainAfterCutoff && op.trainOptions().featureFrequencyCutoff > 0) {
       String tempName = serializedPath.substring(0, serializedPath.length() - 7) + "-" + "temp.ser.gz";
       trainModel(tempName, tagger, random, binarizedTrees, transitionLists, devTreebank, nThreads, null);
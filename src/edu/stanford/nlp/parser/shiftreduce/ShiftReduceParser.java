@@ -480,6 +480,18 @@ public class ShiftReduceParser extends ParserGrammar implements Serializable  {
     return parser;
   }
 
+  /**
+   * Converts the model to hashed features, which makes it smaller and
+   * faster, but means it can't be trained any further.
+   * See {@link PerceptronModel#hashFeatures()}.
+   */
+  public void hashFeatures() {
+    if (!(model instanceof PerceptronModel)) {
+      throw new UnsupportedOperationException("Cannot hash the features of a " + model.getClass().getName());
+    }
+    ((PerceptronModel) model).hashFeatures();
+  }
+
   public void saveModel(String path) {
     try {
       IOUtils.writeObjectToFile(this, path);
@@ -503,6 +515,8 @@ public class ShiftReduceParser extends ParserGrammar implements Serializable  {
 
     String continueTraining = null;
 
+    String hashedPath = null;
+
     for (int argIndex = 0; argIndex < args.length; ) {
       if (args[argIndex].equalsIgnoreCase("-trainTreebank")) {
         if (trainTreebankPath == null) {
@@ -525,6 +539,9 @@ public class ShiftReduceParser extends ParserGrammar implements Serializable  {
       } else if (args[argIndex].equalsIgnoreCase("-continueTraining")) {
         continueTraining = args[argIndex + 1];
         argIndex += 2;
+      } else if (args[argIndex].equalsIgnoreCase("-hashFeatures")) {
+        hashedPath = args[argIndex + 1];
+        argIndex += 2;
       } else {
         remainingArgs.add(args[argIndex]);
         ++argIndex;
@@ -558,6 +575,14 @@ public class ShiftReduceParser extends ParserGrammar implements Serializable  {
       parser = ShiftReduceParser.loadModel(serializedPath, ArrayUtils.concatenate(FORCE_TAGS, newArgs));
     }
 
+    if (hashedPath != null) {
+      // eg, -serializedPath englishSR.ser.gz -hashFeatures englishSR.hashed.ser.gz
+      log.info("Hashing the features of the model");
+      parser.hashFeatures();
+      parser.saveModel(hashedPath);
+      log.info("Saved the model with hashed features to " + hashedPath);
+    }
+
     //parser.outputStats();
 
     if (testTreebankPath != null) {
@@ -9,6 +9,10 @@ import edu.stanford.nlp.util.logging.Redwood;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 
@@ -167,6 +171,214 @@ public class AnnotationPipeline implements Annotator  {
     Redwood.Util.threadAndRun(this.getClass().getSimpleName(), threads, numThreads );
   }
 
+  /**
+   * Annotate a collection of input annotations as a staged pipeline.
+   * Each annotator runs in its own pool of worker threads, and
+   * annotations flow from one stage to the next through bounded queues,
+   * so different documents can be in different stages at the same time.
+   * Cheap stages such as tokenization can therefore run ahead of
+   * expensive ones such as parsing, while a stage which falls behind
+   * fills the queue in front of it and blocks the stages before it.
+   * <br>
+   * As with {@link #annotate(Iterable, int, Consumer)}, an annotator
+   * given more than one thread is called concurrently on different
+   * documents.  Annotations may finish in a different order than they
+   * were given.  If an annotator or the callback throws an exception,
+   * no more annotations are started and the first exception is rethrown
+   * once the workers have stopped.  The same goes for an exception from
+   * iterating over the annotations.
+   * <br>
+   * The callback is called from the worker threads of the last stage,
+   * so it is called concurrently if the last stage has more than one
+   * thread, and must be threadsafe in that case.
+   *
+   * @param annotations The input annotations to process
+   * @param threadsPerStage The number of threads to run each annotator on,
+   *                        in the same order as the annotators of this pipeline
+   * @param queueCapacity The maximum number of annotations waiting for each stage
+   * @param callback A function to be called when an annotation finishes.
+   */
+  public void annotateStaged(final Iterable<Annotation> annotations, int[] threadsPerStage, int queueCapacity,
+                             final Consumer<Annotation> callback) {
+    final int numStages = annotators.size();
+    if (threadsPerStage.length != numStages) {
+      throw new IllegalArgumentException("Expected thread counts for " + numStages + " stages, but got " +
+          threadsPerStage.length);
+    }
+    for (int threads : threadsPerStage) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("Each stage needs at least one thread: " + Arrays.toString(threadsPerStage));
+      }
+    }
+    if (numStages == 0) {
+      for (Annotation ann : annotations) {
+        callback.accept(ann);
+      }
+      return;
+    }
+
+    final List<BlockingQueue<Annotation>> queues = new ArrayList<>(numStages);
+    final AtomicInteger[] runningWorkers = new AtomicInteger[numStages];
+    for (int stage = 0; stage < numStages; ++stage) {
+      queues.add(new ArrayBlockingQueue<>(queueCapacity));
+      runningWorkers[stage] = new AtomicInteger(threadsPerStage[stage]);
+    }
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    List<Thread> workers = new ArrayList<>();
+    for (int stage = 0; stage < numStages; ++stage) {
+      final int currentStage = stage;
+      for (int i = 0; i < threadsPerStage[stage]; ++i) {
+        Thread worker = new Thread(() -> runStage(currentStage, queues, threadsPerStage, runningWorkers, failure, callback),
+            getClass().getSimpleName() + " stage " + stage + " [" +
+                StringUtils.getShortClassName(annotators.get(stage)) + "] #" + i);
+        worker.setDaemon(true);
+        workers.add(worker);
+        worker.start();
+      }
+    }
+
+    BlockingQueue<Annotation> first = queues.get(0);
+    boolean interrupted = false;
+    try {
+      for (Annotation ann : annotations) {
+        if (failure.get() != null) {
+          break;
+        }
+        first.put(ann);
+      }
+    } catch (InterruptedException e) {
+      interrupted = true;
+    } catch (RuntimeException | Error e) {
+      // the input failed: stop the workers as if an annotator had failed
+      failure.compareAndSet(null, e);
+    } finally {
+      // whatever happened above, no worker may be left waiting for more input
+      interrupted = stopStages(first, threadsPerStage[0], workers, interrupted);
+    }
+    if (interrupted) {
+      throw new RuntimeInterruptedException();
+    }
+
+    Throwable t = failure.get();
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t != null) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  /**
+   * Calls {@link #annotateStaged(Iterable, int[], int, Consumer)} with
+   * room for two waiting annotations per thread of the stage after each
+   * queue.
+   */
+  public void annotateStaged(final Iterable<Annotation> annotations, int[] threadsPerStage,
+                             final Consumer<Annotation> callback) {
+    int maxThreads = 1;
+    for (int threads : threadsPerStage) {
+      maxThreads = Math.max(maxThreads, threads);
+    }
+    annotateStaged(annotations, threadsPerStage, 2 * maxThreads, callback);
+  }
+
+  /**
+   * Sends the end of the input to the first stage of {@link #annotateStaged}
+   * and waits for all the workers to finish.  If this thread is or gets
+   * interrupted, the workers are interrupted instead, but still waited for.
+   *
+   * @return Whether this thread was interrupted
+   */
+  private static boolean stopStages(BlockingQueue<Annotation> first, int firstStageThreads, List<Thread> workers,
+                                    boolean interrupted) {
+    if (!interrupted) {
+      try {
+        for (int i = 0; i < firstStageThreads; ++i) {
+          first.put(END_OF_INPUT);
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      for (Thread worker : workers) {
+        worker.interrupt();
+      }
+    }
+    for (Thread worker : workers) {
+      while (worker.isAlive()) {
+        try {
+          worker.join();
+        } catch (InterruptedException e) {
+          if (!interrupted) {
+            interrupted = true;
+            for (Thread other : workers) {
+              other.interrupt();
+            }
+          }
+        }
+      }
+    }
+    return interrupted;
+  }
+
+  /** Marks the end of the input in the queues of {@link #annotateStaged}. */
+  private static final Annotation END_OF_INPUT = new Annotation("");
+
+  /**
+   * The loop run by each worker thread of {@link #annotateStaged}.  The
+   * last worker of a stage to see the end of the input passes it on to
+   * all of the workers of the next stage.
+   */
+  private void runStage(int stage, List<BlockingQueue<Annotation>> queues, int[] threadsPerStage,
+                        AtomicInteger[] runningWorkers, AtomicReference<Throwable> failure,
+                        Consumer<Annotation> callback) {
+    Annotator annotator = annotators.get(stage);
+    MutableLong time = TIME ? accumulatedTime.get(stage) : null;
+    BlockingQueue<Annotation> in = queues.get(stage);
+    BlockingQueue<Annotation> out = stage + 1 < queues.size() ? queues.get(stage + 1) : null;
+    try {
+      while (true) {
+        Annotation ann = in.take();
+        if (ann == END_OF_INPUT) {
+          break;
+        }
+        if (failure.get() != null) {
+          continue;  // drain the queue without doing any more work
+        }
+        try {
+          long start = System.currentTimeMillis();
+          annotator.annotate(ann);
+          if (TIME) {
+            long elapsed = System.currentTimeMillis() - start;
+            synchronized (time) {
+              time.incValue(elapsed);
+            }
+          }
+          if (out == null) {
+            callback.accept(ann);
+          }
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+          continue;
+        }
+        if (out != null) {
+          out.put(ann);
+        }
+      }
+      if (runningWorkers[stage].decrementAndGet() == 0 && out != null) {
+        for (int i = 0; i < threadsPerStage[stage + 1]; ++i) {
+          out.put(END_OF_INPUT);
+        }
+      }
+    } catch (InterruptedException e) {
+      // annotateStaged was interrupted and is shutting everything down
+      Thread.currentThread().interrupt();
+    }
+  }
+
   /** Return the total pipeline annotation time in milliseconds.
    *
    *  @return The total pipeline annotation time in milliseconds
@@ -7,6 +7,7 @@ import edu.stanford.nlp.util.ArrayMap;
 import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.Generics;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**
@@ -14,8 +15,10 @@ import java.util.*;
 *
 * @author Angel Chang
 */
-public abstract class CoreMapAttributeAggregator
+public abstract class CoreMapAttributeAggregator implements Serializable
 {
+  private static final long serialVersionUID = 1L;
+
   public static Map<Class, CoreMapAttributeAggregator> getDefaultAggregators()
   {
     return DEFAULT_AGGREGATORS;
@@ -78,6 +81,8 @@ public abstract class CoreMapAttributeAggregator
     };
 
   public static final class ConcatListAggregator<T> extends CoreMapAttributeAggregator {
+    private static final long serialVersionUID = 1L;
+
     public ConcatListAggregator()
     {
     }
@@ -97,6 +102,8 @@ public abstract class CoreMapAttributeAggregator
     }
   }
   public static final class ConcatCoreMapListAggregator<T extends CoreMap> extends CoreMapAttributeAggregator {
+    private static final long serialVersionUID = 1L;
+
     boolean concatSelf = false;
     public ConcatCoreMapListAggregator()
     {
@@ -128,6 +135,8 @@ public abstract class CoreMapAttributeAggregator
   public static final ConcatCoreMapListAggregator<CoreMap> CONCAT_COREMAP = new ConcatCoreMapListAggregator<>(true);
 
   public static final class ConcatAggregator extends CoreMapAttributeAggregator {
+    private static final long serialVersionUID = 1L;
+
     String delimiter;
     public ConcatAggregator(String delimiter)
     {
@@ -149,6 +158,8 @@ public abstract class CoreMapAttributeAggregator
     }
   }
   public static final class ConcatTextAggregator extends CoreMapAttributeAggregator {
+    private static final long serialVersionUID = 1L;
+
     String delimiter;
     public ConcatTextAggregator(String delimiter)
     {
@@ -232,6 +243,8 @@ public abstract class CoreMapAttributeAggregator
   };
 
   public static final class MostFreqAggregator extends CoreMapAttributeAggregator {
+    private static final long serialVersionUID = 1L;
+
     Set<Object> ignoreSet;
     public MostFreqAggregator()
     {
@@ -21,6 +21,12 @@ import java.util.*;
  *
  * Dependency parses are added to each sentence under the annotation
  * {@link edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation}.
+ * <br>
+ * If the {@code depparse.freezeGraphs} property is true, the dependency
+ * graphs are {@link SemanticGraph#freeze() frozen}.  Looking things up in
+ * them is then faster, but they can't be changed in place; copy one with
+ * {@link SemanticGraph#SemanticGraph(SemanticGraph)} to change it.
+ * This is false by default.
  *
  * @author Jon Gauthier
  */
@@ -48,6 +54,13 @@ public class DependencyParseAnnotator extends SentenceAnnotator  {
    */
   private final GrammaticalStructure.Extras extraDependencies;
 
+  /**
+   * If true, {@link SemanticGraph#freeze() freeze} the dependency graphs,
+   * which makes looking things up in them faster.  Code which changes the
+   * graphs in place must then copy them first, so this is off by default.
+   */
+  private final boolean freezeGraphs;
+
   public DependencyParseAnnotator() {
     this(new Properties());
   }
@@ -59,6 +72,7 @@ public class DependencyParseAnnotator extends SentenceAnnotator  {
     nThreads = PropertiesUtils.getInt(properties, "testThreads", DEFAULT_NTHREADS);
     maxTime = PropertiesUtils.getLong(properties, "sentenceTimeout", DEFAULT_MAXTIME);
     extraDependencies = MetaClass.cast(properties.getProperty("extradependencies", "NONE"), GrammaticalStructure.Extras.class);
+    freezeGraphs = PropertiesUtils.getBool(properties, "freezeGraphs", false);
   }
 
   @Override
@@ -71,10 +85,31 @@ public class DependencyParseAnnotator extends SentenceAnnotator  {
     return maxTime;
   }
 
+  /**
+   * When running single-threaded without a sentence timeout, parse
+   * all sentences of the document in one batch (see
+   * {@link DependencyParser#predictAll(List)}). Otherwise, fall back to
+   * the usual sentence-at-a-time processing.
+   */
+  @Override
+  public void annotate(Annotation annotation) {
+    List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+    if (sentences == null || nThreads() != 1 || maxTime() > 0) {
+      super.annotate(annotation);
+      return;
+    }
+    List<GrammaticalStructure> parses = parser.predictAll(sentences);
+    for (int i = 0; i < sentences.size(); i++) {
+      setDependencies(sentences.get(i), parses.get(i));
+    }
+  }
+
   @Override
   protected void doOneSentence(Annotation annotation, CoreMap sentence) {
-    GrammaticalStructure gs = parser.predict(sentence);
+    setDependencies(sentence, parser.predict(sentence));
+  }
 
+  private void setDependencies(CoreMap sentence, GrammaticalStructure gs) {
     SemanticGraph deps = SemanticGraphFactory.makeFromTree(gs, Mode.COLLAPSED, extraDependencies, null),
                   uncollapsedDeps = SemanticGraphFactory.makeFromTree(gs, Mode.BASIC, extraDependencies, null),
                   ccDeps = SemanticGraphFactory.makeFromTree(gs, Mode.CCPROCESSED, extraDependencies, null),
@@ -82,6 +117,13 @@ public class DependencyParseAnnotator extends SentenceAnnotator  {
                   enhancedPlusPlusDeps = SemanticGraphFactory.makeFromTree(gs, Mode.ENHANCED_PLUS_PLUS, extraDependencies, null);
 
 
+    if (freezeGraphs) {
+      deps.freeze();
+      uncollapsedDeps.freeze();
+      ccDeps.freeze();
+      enhancedDeps.freeze();
+      enhancedPlusPlusDeps.freeze();
+    }
     sentence.set(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class, deps);
     sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, uncollapsedDeps);
     sentence.set(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class, ccDeps);
@@ -6,8 +6,7 @@ import java.util.*;
 import edu.stanford.nlp.ling.*;
 import edu.stanford.nlp.tagger.maxent.MaxentTagger;
 import edu.stanford.nlp.util.*;
-import edu.stanford.nlp.util.concurrent.MulticoreWrapper;
-import edu.stanford.nlp.util.concurrent.ThreadsafeProcessor;
+import edu.stanford.nlp.util.concurrent.SharedForkJoinScheduler;
 
 /**
  * Wrapper for the maxent part of speech tagger.
@@ -98,35 +97,15 @@ public class POSTaggerAnnotator implements Annotator  {
           doOneSentence(sentence);
         }
       } else {
-        MulticoreWrapper<CoreMap, CoreMap> wrapper = new MulticoreWrapper<>(nThreads, new POSTaggerProcessor());
-        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
-          wrapper.put(sentence);
-          while (wrapper.peek()) {
-            wrapper.poll();
-          }
-        }
-        wrapper.join();
-        while (wrapper.peek()) {
-          wrapper.poll();
-        }
+        // there is no timeout, and an exception is thrown here as in the single thread case
+        SharedForkJoinScheduler.runAll(annotation.get(CoreAnnotations.SentencesAnnotation.class),
+            this::doOneSentence, nThreads, -1);
       }
     } else {
       throw new RuntimeException("unable to find words/tokens in: " + annotation);
     }
   }
 
-  private class POSTaggerProcessor implements ThreadsafeProcessor<CoreMap, CoreMap> {
-    @Override
-    public CoreMap process(CoreMap sentence) {
-      return doOneSentence(sentence);
-    }
-
-    @Override
-    public ThreadsafeProcessor<CoreMap, CoreMap> newInstance() {
-      return this;
-    }
-  }
-
   private CoreMap doOneSentence(CoreMap sentence) {
     List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
     List<TaggedWord> tagged = null;
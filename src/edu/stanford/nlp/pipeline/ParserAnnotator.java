@@ -34,6 +34,12 @@ import edu.stanford.nlp.util.logging.Redwood;
  * Parse trees are added to each sentence's CoreMap (get with
  * {@code CoreAnnotations.SentencesAnnotation}) under
  * {@code CoreAnnotations.TreeAnnotation}).
+ * <br>
+ * If the {@code parse.freezeGraphs} property is true, the dependency
+ * graphs added to each sentence are {@link SemanticGraph#freeze() frozen}.
+ * Looking things up in them is then faster, but they can't be changed in
+ * place; copy one with {@link SemanticGraph#SemanticGraph(SemanticGraph)}
+ * to change it.  This is false by default.
  *
  * @author Jenny Finkel
  */
@@ -44,8 +50,22 @@ public class ParserAnnotator extends SentenceAnnotator  {
 
   private final boolean VERBOSE;
   private final boolean BUILD_GRAPHS;
+  /**
+   * If true, {@link SemanticGraph#freeze() freeze} the dependency graphs,
+   * which makes looking things up in them faster.  Code which changes the
+   * graphs in place must then copy them first, so this is off by default.
+   */
+  private final boolean freezeGraphs;
   private final ParserGrammar parser;
 
+  /**
+   * Each thread reuses one query for its sentences, so that the charts
+   * of the parser are only allocated again for a new longest sentence,
+   * rather than once for every sentence.  The query is dropped after a
+   * sentence longer than {@link ParserGrammar#MAX_REUSED_QUERY_LENGTH}.
+   */
+  private final ThreadLocal<ParserQuery> parserQueries;
+
   private final Function<Tree, Tree> treeMap;
 
   /** Do not parse sentences larger than this sentence length */
@@ -90,7 +110,9 @@ public class ParserAnnotator extends SentenceAnnotator  {
   public ParserAnnotator(ParserGrammar parser, boolean verbose, int maxSent, Function<Tree, Tree> treeMap) {
     this.VERBOSE = verbose;
     this.BUILD_GRAPHS = parser.getTLPParams().supportsBasicDependencies();
+    this.freezeGraphs = false;
     this.parser = parser;
+    this.parserQueries = ThreadLocal.withInitial(parser::parserQuery);
     this.maxSentenceLength = maxSent;
     this.treeMap = treeMap;
     this.maxParseTime = 0;
@@ -119,6 +141,7 @@ public class ParserAnnotator extends SentenceAnnotator  {
 
     String[] flags = convertFlagsToArray(props.getProperty(annotatorName + ".flags"));
     this.parser = loadModel(model, VERBOSE, flags);
+    this.parserQueries = ThreadLocal.withInitial(parser::parserQuery);
     this.maxSentenceLength = PropertiesUtils.getInt(props, annotatorName + ".maxlen", -1);
 
     String treeMapClass = props.getProperty(annotatorName + ".treemap");
@@ -144,6 +167,7 @@ public class ParserAnnotator extends SentenceAnnotator  {
     } else {
       this.BUILD_GRAPHS = PropertiesUtils.getBool(props, buildGraphsProperty, true);
     }
+    this.freezeGraphs = PropertiesUtils.getBool(props, annotatorName + ".freezeGraphs", false);
 
     if (this.BUILD_GRAPHS) {
       boolean generateOriginalDependencies = PropertiesUtils.getBool(props, annotatorName + ".originalDependencies", false);
@@ -182,6 +206,8 @@ public class ParserAnnotator extends SentenceAnnotator  {
             props.getProperty(annotatorName + ".originalDependencies", "false"));
     os.append(annotatorName + ".buildgraphs:" +
       props.getProperty(annotatorName + ".buildgraphs", "true"));
+    os.append(annotatorName + ".freezeGraphs:" +
+      props.getProperty(annotatorName + ".freezeGraphs", "false"));
     os.append(annotatorName + ".nthreads:" +
               props.getProperty(annotatorName + ".nthreads", props.getProperty("nthreads", "")));
     os.append(annotatorName + ".nosquash:" +
@@ -294,7 +320,7 @@ public class ParserAnnotator extends SentenceAnnotator  {
       trees = mappedTrees;
     }
 
-    ParserAnnotatorUtils.fillInParseAnnotations(VERBOSE, BUILD_GRAPHS, gsf, sentence, trees, extraDependencies);
+    ParserAnnotatorUtils.fillInParseAnnotations(VERBOSE, BUILD_GRAPHS, freezeGraphs, gsf, sentence, trees, extraDependencies);
 
     if (saveBinaryTrees) {
       TreeBinarizer binarizer = TreeBinarizer.simpleTreeBinarizer(parser.getTLPParams().headFinder(), parser.treebankLanguagePack());
@@ -318,7 +344,7 @@ public class ParserAnnotator extends SentenceAnnotator  {
 
   private List<Tree> doOneSentence(List<ParserConstraint> constraints,
                              List<CoreLabel> words) {
-    ParserQuery pq = parser.parserQuery();
+    ParserQuery pq = parserQueries.get();
     pq.setConstraints(constraints);
     pq.parse(words);
     List<Tree> trees = Generics.newLinkedList();
@@ -359,6 +385,9 @@ public class ParserAnnotator extends SentenceAnnotator  {
               "Will ignore and continue: " +
               SentenceUtils.listToString(words));
     }
+    if (words.size() > ParserGrammar.MAX_REUSED_QUERY_LENGTH) {
+      parserQueries.remove();
+    }
     return trees;
   }
 
@@ -34,6 +34,19 @@ public class ParserAnnotatorUtils  {
   public static void fillInParseAnnotations(boolean verbose, boolean buildGraphs,
                                             GrammaticalStructureFactory gsf, CoreMap sentence,
                                             List<Tree> trees, GrammaticalStructure.Extras extras) {
+    fillInParseAnnotations(verbose, buildGraphs, false, gsf, sentence, trees, extras);
+  }
+
+  /** Put the tree in the CoreMap for the sentence, also add any
+   *  dependency graphs to the sentence, and fill in missing tag annotations.
+   *
+   *  @param freezeGraphs Whether to {@link SemanticGraph#freeze() freeze} the
+   *      dependency graphs, which makes looking things up in them faster, but
+   *      means that code which changes them must copy them first
+   */
+  public static void fillInParseAnnotations(boolean verbose, boolean buildGraphs, boolean freezeGraphs,
+                                            GrammaticalStructureFactory gsf, CoreMap sentence,
+                                            List<Tree> trees, GrammaticalStructure.Extras extras) {
 
     boolean first = true;
     for (Tree tree : trees) {
@@ -71,6 +84,13 @@ public class ParserAnnotatorUtils  {
             log.info("SDs:");
             log.info(deps.toString(SemanticGraph.OutputFormat.LIST));
           }
+          if (freezeGraphs) {
+            deps.freeze();
+            uncollapsedDeps.freeze();
+            ccDeps.freeze();
+            enhancedDeps.freeze();
+            enhancedPlusPlusDeps.freeze();
+          }
           sentence.set(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class, deps);
           sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, uncollapsedDeps);
           sentence.set(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class, ccDeps);
@@ -28,8 +28,15 @@ import edu.stanford.nlp.trees.TreeCoreAnnotations.*;
 import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.*;
 import edu.stanford.nlp.time.TimeAnnotations.*;
 
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+
 import java.io.*;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import edu.stanford.nlp.coref.CorefCoreAnnotations.*;
@@ -190,6 +197,83 @@ public class ProtobufAnnotationSerializer extends AnnotationSerializer {
     return Pair.makePair(fromProto(doc), is);
   }
 
+  /**
+   * Read a document like {@link ProtobufAnnotationSerializer#read(InputStream)}, but lazily.
+   * The protocol buffer is parsed straight away, but the sentences, tokens, coref chains, quotes and
+   * mentions of the document are only read from it when they are first asked for.
+   * See {@link ProtobufAnnotationSerializer#fromProtoLazy(CoreNLPProtos.Document)}.
+   *
+   * @param is The stream to read from.
+   * @return A lazily read Annotation, and the stream.
+   * @throws IOException In case the stream cannot be read from.
+   */
+  public Pair<Annotation, InputStream> readLazy(InputStream is) throws IOException {
+    CoreNLPProtos.Document doc = CoreNLPProtos.Document.parseDelimitedFrom(is);
+    return Pair.makePair(fromProtoLazy(doc), is);
+  }
+
+  /**
+   * Read a document like {@link ProtobufAnnotationSerializer#read(InputStream)}, keeping only some of its fields.
+   * See {@link ProtobufAnnotationSerializer#project(CoreNLPProtos.Document, Set)}.
+   *
+   * @param is The stream to read from.
+   * @param fields The names of the fields of the Document and Sentence messages to read,
+   *               such as "sentence", "token" and "basicDependencies".
+   * @return The Annotation, and the stream.
+   * @throws IOException In case the stream cannot be read from.
+   */
+  public Pair<Annotation, InputStream> read(InputStream is, Set<String> fields) throws IOException {
+    CoreNLPProtos.Document doc = CoreNLPProtos.Document.parseDelimitedFrom(is);
+    return Pair.makePair(fromProto(project(doc, fields)), is);
+  }
+
+  /**
+   * Clear all the fields of a document which are not asked for, so that reading it does not have to build
+   * the parse trees, dependency graphs and so on which are not needed.
+   * The Document message and the Sentence messages in it keep their required fields and the fields named;
+   * any other message, such as a token or a parse tree, is kept whole or cleared whole.
+   * The numerized tokens of the sentences are only made again if "hasNumerizedTokensAnnotation" is named.
+   * For example, {@code project(doc, Generics.newHashSet(Arrays.asList("sentence", "token", "basicDependencies")))}
+   * keeps just the sentences, with their tokens and basic dependencies.
+   *
+   * @param proto The document to project.
+   * @param fields The names of the fields of the Document and Sentence messages to keep.
+   * @return A copy of the document with only those fields set.
+   */
+  public static CoreNLPProtos.Document project(CoreNLPProtos.Document proto, Set<String> fields) {
+    CoreNLPProtos.Document.Builder builder = (CoreNLPProtos.Document.Builder) clearFields(proto, fields);
+    if (fields.contains("sentence")) {
+      builder.clearSentence();
+      for (CoreNLPProtos.Sentence sentence : proto.getSentenceList()) {
+        CoreNLPProtos.Sentence.Builder projected = (CoreNLPProtos.Sentence.Builder) clearFields(sentence, fields);
+        // The flags saying what a sentence was annotated with go with the fields they describe
+        if (sentence.hasHasRelationAnnotations() && (fields.contains("entity") || fields.contains("relation"))) {
+          projected.setHasRelationAnnotations(sentence.getHasRelationAnnotations());
+        }
+        if (sentence.hasHasCorefMentionsAnnotation() && fields.contains("mentionsForCoref")) {
+          projected.setHasCorefMentionsAnnotation(sentence.getHasCorefMentionsAnnotation());
+        }
+        // Numerized tokens aren't saved, but made again from the tokens; only do so if asked for
+        if ( ! fields.contains("hasNumerizedTokensAnnotation")) {
+          projected.setHasNumerizedTokensAnnotation(false);
+        }
+        builder.addSentence(projected);
+      }
+    }
+    return builder.build();
+  }
+
+  /** A builder for the message, with the optional fields which are not named cleared */
+  private static Message.Builder clearFields(Message proto, Set<String> fields) {
+    Message.Builder builder = proto.toBuilder();
+    for (Descriptors.FieldDescriptor field : proto.getDescriptorForType().getFields()) {
+      if ( ! field.isRequired() && ! fields.contains(field.getName())) {
+        builder.clearField(field);
+      }
+    }
+    return builder;
+  }
+
   /**
    * Read a single protocol buffer, which constitutes the entire stream.
    * This is in contrast to the default, where mutliple buffers may come out of the stream,
@@ -1423,135 +1507,590 @@ public class ProtobufAnnotationSerializer extends AnnotationSerializer {
     for (int sentenceIndex = 0; sentenceIndex < proto.getSentenceCount(); ++sentenceIndex) {
       CoreNLPProtos.Sentence sentence = proto.getSentenceList().get(sentenceIndex);
       CoreMap map = sentences.get(sentenceIndex);
-      List<CoreLabel> sentenceTokens = map.get(TokensAnnotation.class);
-      // Set dependency graphs
-      if (sentence.hasBasicDependencies()) {
-        map.set(BasicDependenciesAnnotation.class, fromProto(sentence.getBasicDependencies(), sentenceTokens, docid));
+      fromProtoInDocument(sentence, sentenceIndex, map, ann, docid);
+      // store the mentions in hash for more processing later in this method
+      for (int mentionInt = 0; mentionInt < sentence.getMentionsForCorefCount(); ++mentionInt) {
+        Mention mention = map.get(CorefMentionsAnnotation.class).get(mentionInt);
+        idToMention.put(mention.mentionID, mention);
+        idToProtoMention.put(mention.mentionID, sentence.getMentionsForCoref(mentionInt));
+      }
+    }
+
+    // Set quotes
+    List<CoreMap> quotes = proto.getQuoteList().stream().map(quote -> fromProto(quote, tokens)).collect(Collectors.toList());
+    if (!quotes.isEmpty()) {
+      ann.set(QuotationsAnnotation.class, quotes);
+    }
+
+    // Set NERmention
+    List<CoreMap> mentions = proto.getMentionsList().stream().map(this::fromProto).collect(Collectors.toList());
+    if (!mentions.isEmpty()) {
+      ann.set(MentionsAnnotation.class, mentions);
+    }
+
+    // add SpeakerInfo stuff to Mentions, this requires knowing all mentions in the document
+    // also add all the Set<Mention>
+    for (int mentionID : idToMention.keySet()) {
+      fromProtoSpeakerInfo(idToMention.get(mentionID), idToProtoMention.get(mentionID), idToMention::get);
+    }
+
+    // Return
+    return ann;
+  }
+
+  /**
+   * Returns a document like {@link ProtobufAnnotationSerializer#fromProto(CoreNLPProtos.Document)}, but one which
+   * is read from the protocol buffer as it is used.
+   * The text, docid and dates of the document are set straight away.
+   * The lists of tokens, sentences, quotes and mentions and the map of coref chains are set if the document has any,
+   * but each token, sentence, and so on is only read when it is first got from them.
+   * A sentence is read whole, with its tokens, trees and dependency graphs, and reading it may read the sentences
+   * its OpenIE triples and speakers refer to; reading a token reads the tokens of its sentence.
+   * Reading just the sentences a program needs can be much faster than reading the whole document.
+   * The lazy collections can be changed like the ones of a fully read document,
+   * but are not safe to use from several threads at once.
+   *
+   * @param proto The protocol buffer to read the document from.
+   * @return An Annotation corresponding to the protobuf, read as it is used.
+   */
+  public Annotation fromProtoLazy(CoreNLPProtos.Document proto) {
+    if (Thread.interrupted()) {
+      throw new RuntimeInterruptedException();
+    }
+    return new LazyDocument(proto).ann;
+  }
+
+  /**
+   * Set the annotations of a sentence which need a document context: its dependency graphs,
+   * entailments, OpenIE triples and numerized tokens, and the tokens and graphs of its coref mentions.
+   * The sentence should already have its tokens.
+   *
+   * @param sentence The serialized sentence.
+   * @param sentenceIndex The index of the sentence in the document.
+   * @param map The sentence read by {@link ProtobufAnnotationSerializer#fromProtoNoTokens(CoreNLPProtos.Sentence)}.
+   * @param ann The document being read, which must already have its sentences set.
+   * @param docid The id of the document, if any.
+   */
+  @SuppressWarnings("deprecation")
+  private void fromProtoInDocument(CoreNLPProtos.Sentence sentence, int sentenceIndex, CoreMap map, Annotation ann, String docid) {
+    List<CoreLabel> sentenceTokens = map.get(TokensAnnotation.class);
+    // Set dependency graphs
+    if (sentence.hasBasicDependencies()) {
+      map.set(BasicDependenciesAnnotation.class, fromProto(sentence.getBasicDependencies(), sentenceTokens, docid));
+    }
+    if (sentence.hasCollapsedDependencies()) {
+      map.set(CollapsedDependenciesAnnotation.class, fromProto(sentence.getCollapsedDependencies(), sentenceTokens, docid));
+    }
+    if (sentence.hasCollapsedCCProcessedDependencies()) {
+      map.set(CollapsedCCProcessedDependenciesAnnotation.class, fromProto(sentence.getCollapsedCCProcessedDependencies(), sentenceTokens, docid));
+    }
+    if (sentence.hasAlternativeDependencies()) {
+      map.set(AlternativeDependenciesAnnotation.class, fromProto(sentence.getAlternativeDependencies(), sentenceTokens, docid));
+    }
+    if (sentence.hasEnhancedDependencies()) {
+      map.set(EnhancedDependenciesAnnotation.class, fromProto(sentence.getEnhancedDependencies(), sentenceTokens, docid));
+    }
+    if (sentence.hasEnhancedPlusPlusDependencies()) {
+      map.set(EnhancedPlusPlusDependenciesAnnotation.class, fromProto(sentence.getEnhancedPlusPlusDependencies(), sentenceTokens, docid));
+    }
+    // Set entailed sentences
+    if (sentence.getEntailedSentenceCount() > 0) {
+      Set<SentenceFragment> entailedSentences = sentence.getEntailedSentenceList().stream().map(frag -> fromProto(frag, map.get(EnhancedPlusPlusDependenciesAnnotation.class))).collect(Collectors.toSet());
+      map.set(NaturalLogicAnnotations.EntailedSentencesAnnotation.class, entailedSentences);
+    }
+    if (sentence.getEntailedClauseCount() > 0) {
+      Set<SentenceFragment> entailedClauses = sentence.getEntailedClauseList().stream().map(frag -> fromProto(frag, map.get(CollapsedDependenciesAnnotation.class))).collect(Collectors.toSet());
+      map.set(NaturalLogicAnnotations.EntailedClausesAnnotation.class, entailedClauses);
+    }
+    // Set relation triples
+    if (sentence.getOpenieTripleCount() > 0) {
+      List<RelationTriple> triples = new ArrayList<>();
+      for (CoreNLPProtos.RelationTriple triple : sentence.getOpenieTripleList()) {
+        triples.add(fromProto(triple, ann, sentenceIndex));
       }
-      if (sentence.hasCollapsedDependencies()) {
-        map.set(CollapsedDependenciesAnnotation.class, fromProto(sentence.getCollapsedDependencies(), sentenceTokens, docid));
+      map.set(NaturalLogicAnnotations.RelationTriplesAnnotation.class, triples);
+    }
+    // Redo some light annotation
+    if ( map.containsKey(TokensAnnotation.class) &&
+        (!sentence.hasHasNumerizedTokensAnnotation() || sentence.getHasNumerizedTokensAnnotation())) {
+      map.set(NumerizedTokensAnnotation.class, NumberNormalizer.findAndMergeNumbers(map));
+    }
+    // add the CoreLabel and IndexedWord info to each mention
+    // when Mentions are serialized, just storing the index in the sentence for CoreLabels and IndexedWords
+    // this is the point where the de-serialized sentence has tokens
+    int mentionInt = 0;
+    for (CoreNLPProtos.Mention protoMention : sentence.getMentionsForCorefList()) {
+      // get the mention
+      Mention mentionToUpdate = map.get(CorefMentionsAnnotation.class).get(mentionInt);
+      // update the values
+      int headIndexedWordIndex = protoMention.getHeadIndexedWord().getTokenIndex();
+      if (headIndexedWordIndex >= 0) {
+        mentionToUpdate.headIndexedWord = new IndexedWord(sentenceTokens.get(protoMention.getHeadIndexedWord().getTokenIndex()));
+        mentionToUpdate.headIndexedWord.setCopyCount(protoMention.getHeadIndexedWord().getCopyCount());
       }
-      if (sentence.hasCollapsedCCProcessedDependencies()) {
-        map.set(CollapsedCCProcessedDependenciesAnnotation.class, fromProto(sentence.getCollapsedCCProcessedDependencies(), sentenceTokens, docid));
+      int dependingVerbIndex = protoMention.getDependingVerb().getTokenIndex();
+      if (dependingVerbIndex >= 0) {
+        mentionToUpdate.dependingVerb = new IndexedWord(sentenceTokens.get(protoMention.getDependingVerb().getTokenIndex()));
+        mentionToUpdate.dependingVerb.setCopyCount(protoMention.getDependingVerb().getCopyCount());
       }
-      if (sentence.hasAlternativeDependencies()) {
-        map.set(AlternativeDependenciesAnnotation.class, fromProto(sentence.getAlternativeDependencies(), sentenceTokens, docid));
+      int headWordIndex = protoMention.getHeadWord().getTokenIndex();
+      if (headWordIndex >= 0) {
+        mentionToUpdate.headWord = sentenceTokens.get(protoMention.getHeadWord().getTokenIndex());
       }
-      if (sentence.hasEnhancedDependencies()) {
-        map.set(EnhancedDependenciesAnnotation.class, fromProto(sentence.getEnhancedDependencies(), sentenceTokens, docid));
+      mentionToUpdate.sentenceWords = new ArrayList<>();
+      for (CoreNLPProtos.IndexedWord clp : protoMention.getSentenceWordsList()) {
+        int ti = clp.getTokenIndex();
+        mentionToUpdate.sentenceWords.add(sentenceTokens.get(ti));
       }
-      if (sentence.hasEnhancedPlusPlusDependencies()) {
-        map.set(EnhancedPlusPlusDependenciesAnnotation.class, fromProto(sentence.getEnhancedPlusPlusDependencies(), sentenceTokens, docid));
+      mentionToUpdate.originalSpan = new ArrayList<>();
+      for (CoreNLPProtos.IndexedWord clp : protoMention.getOriginalSpanList()) {
+        int ti = clp.getTokenIndex();
+        mentionToUpdate.originalSpan.add(sentenceTokens.get(ti));
       }
-      // Set entailed sentences
-      if (sentence.getEntailedSentenceCount() > 0) {
-        Set<SentenceFragment> entailedSentences = sentence.getEntailedSentenceList().stream().map(frag -> fromProto(frag, map.get(EnhancedPlusPlusDependenciesAnnotation.class))).collect(Collectors.toSet());
-        map.set(NaturalLogicAnnotations.EntailedSentencesAnnotation.class, entailedSentences);
+      if (protoMention.getHasBasicDependency()) {
+        mentionToUpdate.basicDependency = map.get(BasicDependenciesAnnotation.class);
       }
-      if (sentence.getEntailedClauseCount() > 0) {
-        Set<SentenceFragment> entailedClauses = sentence.getEntailedClauseList().stream().map(frag -> fromProto(frag, map.get(CollapsedDependenciesAnnotation.class))).collect(Collectors.toSet());
-        map.set(NaturalLogicAnnotations.EntailedClausesAnnotation.class, entailedClauses);
+      if (protoMention.getHasEnhancedDepenedncy()) {
+        mentionToUpdate.enhancedDependency = map.get(EnhancedDependenciesAnnotation.class);
       }
-      // Set relation triples
-      if (sentence.getOpenieTripleCount() > 0) {
-        List<RelationTriple> triples = new ArrayList<>();
-        for (CoreNLPProtos.RelationTriple triple : sentence.getOpenieTripleList()) {
-          triples.add(fromProto(triple, ann, sentenceIndex));
-        }
-        map.set(NaturalLogicAnnotations.RelationTriplesAnnotation.class, triples);
-      }
-      // Redo some light annotation
-      if ( map.containsKey(TokensAnnotation.class) &&
-          (!sentence.hasHasNumerizedTokensAnnotation() || sentence.getHasNumerizedTokensAnnotation())) {
-        map.set(NumerizedTokensAnnotation.class, NumberNormalizer.findAndMergeNumbers(map));
-      }
-      // add the CoreLabel and IndexedWord info to each mention
-      // when Mentions are serialized, just storing the index in the sentence for CoreLabels and IndexedWords
-      // this is the point where the de-serialized sentence has tokens
-      int mentionInt = 0;
-      for (CoreNLPProtos.Mention protoMention : sentence.getMentionsForCorefList()) {
-        // get the mention
-        Mention mentionToUpdate = map.get(CorefMentionsAnnotation.class).get(mentionInt);
-        // store these in hash for more processing later in this method
-        idToMention.put(mentionToUpdate.mentionID, mentionToUpdate);
-        idToProtoMention.put(mentionToUpdate.mentionID, protoMention);
-        // update the values
-        int headIndexedWordIndex = protoMention.getHeadIndexedWord().getTokenIndex();
-        if (headIndexedWordIndex >= 0) {
-          mentionToUpdate.headIndexedWord = new IndexedWord(sentenceTokens.get(protoMention.getHeadIndexedWord().getTokenIndex()));
-          mentionToUpdate.headIndexedWord.setCopyCount(protoMention.getHeadIndexedWord().getCopyCount());
-        }
-        int dependingVerbIndex = protoMention.getDependingVerb().getTokenIndex();
-        if (dependingVerbIndex >= 0) {
-          mentionToUpdate.dependingVerb = new IndexedWord(sentenceTokens.get(protoMention.getDependingVerb().getTokenIndex()));
-          mentionToUpdate.dependingVerb.setCopyCount(protoMention.getDependingVerb().getCopyCount());
-        }
-        int headWordIndex = protoMention.getHeadWord().getTokenIndex();
-        if (headWordIndex >= 0) {
-          mentionToUpdate.headWord = sentenceTokens.get(protoMention.getHeadWord().getTokenIndex());
+      if (protoMention.getHasContextParseTree()) {
+        mentionToUpdate.contextParseTree = map.get(TreeAnnotation.class);
+      }
+      // move on to next mention
+      mentionInt++;
+    }
+  }
+
+  /**
+   * Restore the speaker info of a coref mention, if one was saved.
+   *
+   * @param mentionToUpdate The mention to set the speaker info of.
+   * @param correspondingProtoMention The Mention message corresponding to this Mention.
+   * @param idToMention Gets the mention in the document with a given mention ID.
+   */
+  private void fromProtoSpeakerInfo(Mention mentionToUpdate, CoreNLPProtos.Mention correspondingProtoMention,
+                                    Function<Integer, Mention> idToMention) {
+    if (!correspondingProtoMention.hasSpeakerInfo()) {
+      // keep speakerInfo null for this Mention if it didn't store a speakerInfo
+      return;
+    }
+    // if we're here we know a speakerInfo was stored
+    SpeakerInfo speakerInfo = fromProto(correspondingProtoMention.getSpeakerInfo());
+    // go through all ids stored for the speakerInfo in its mentions list, and get the Mention
+    // Mentions are stored by MentionID , MentionID should be set by MentionAnnotator
+    // MentionID is ID in document, 0, 1, 2, etc...
+    for (int speakerInfoMentionID : correspondingProtoMention.getSpeakerInfo().getMentionsList()) {
+      speakerInfo.addMention(idToMention.apply(speakerInfoMentionID));
+    }
+    // now the SpeakerInfo for this Mention should be fully restored
+    mentionToUpdate.speakerInfo = speakerInfo;
+  }
+
+  /**
+   * The state of a document read by {@link ProtobufAnnotationSerializer#fromProtoLazy(CoreNLPProtos.Document)}.
+   * Tokens are read a sentence at a time, so that a sentence and the document share the same tokens,
+   * and a sentence is cached before the parts of it which may refer to other sentences are read.
+   */
+  private class LazyDocument {
+
+    private final CoreNLPProtos.Document proto;
+    private final Annotation ann;
+    private final String docid;
+    /** The sentence of each document token, or -1 for padding, and its index in the sentence's tokens */
+    private int[] tokenSentence;
+    private int[] tokenInSentence;
+    /** The tokens of each sentence which has been read, in the order of the sentence message */
+    private final CoreLabel[][] sentenceTokens;
+    private final List<CoreLabel> tokens;
+    private final List<CoreMap> sentences;
+    /** The coref mentions of the sentences read so far, and the sentence of every coref mention */
+    private final Map<Integer, Mention> idToMention = new HashMap<>();
+    private Map<Integer, Integer> mentionSentence;
+
+    @SuppressWarnings("deprecation")
+    LazyDocument(CoreNLPProtos.Document proto) {
+      this.proto = proto;
+      this.docid = proto.hasDocID() ? proto.getDocID() : null;
+      this.ann = new Annotation(proto.getText());
+      this.sentenceTokens = new CoreLabel[proto.getSentenceCount()][];
+
+      // if there are characters, add characters
+      if (proto.getCharacterCount() > 0) {
+        ann.set(SegmenterCoreAnnotations.CharactersAnnotation.class,
+            new LazyList<>(proto.getCharacterCount(), i -> fromProto(proto.getCharacter(i)), null));
+      }
+
+      // Add tokens, placing them as fromProto(Document) does
+      int numTokens = 0;
+      if (proto.getSentenceCount() > 0) {
+        tokenSentence = new int[16];
+        tokenInSentence = new int[16];
+        for (int sentIndex = 0; sentIndex < proto.getSentenceCount(); ++sentIndex) {
+          CoreNLPProtos.Sentence sentence = proto.getSentence(sentIndex);
+          if (sentence.hasTokenOffsetBegin()) {
+            numTokens = padTokens(numTokens, sentence.getTokenOffsetBegin());
+          }
+          for (int i = 0; i < sentence.getTokenCount(); ++i) {
+            CoreNLPProtos.Token token = sentence.getToken(i);
+            int position;
+            if (token.hasTokenBeginIndex() && token.hasTokenEndIndex()) {
+              numTokens = padTokens(numTokens, sentence.getTokenOffsetEnd());
+              position = token.getTokenBeginIndex();
+            } else {
+              numTokens = padTokens(numTokens, numTokens + 1);
+              position = numTokens - 1;
+            }
+            tokenSentence[position] = sentIndex;
+            tokenInSentence[position] = i;
+          }
         }
-        mentionToUpdate.sentenceWords = new ArrayList<>();
-        for (CoreNLPProtos.IndexedWord clp : protoMention.getSentenceWordsList()) {
-          int ti = clp.getTokenIndex();
-          mentionToUpdate.sentenceWords.add(sentenceTokens.get(ti));
+        tokens = new LazyList<>(numTokens, i -> tokenSentence[i] < 0 ? null : sentenceTokens(tokenSentence[i])[tokenInSentence[i]], null);
+      } else if (proto.getSentencelessTokenCount() > 0) {
+        // Eek -- no sentences. Try to recover tokens directly
+        numTokens = proto.getSentencelessTokenCount();
+        tokens = new LazyList<>(numTokens, i -> {
+          CoreLabel coreLabel = fromProto(proto.getSentencelessToken(i));
+          if (docid != null) { coreLabel.setDocID(docid); }
+          return coreLabel;
+        }, null);
+      } else {
+        tokens = Collections.emptyList();
+      }
+      if (numTokens > 0) { ann.set(TokensAnnotation.class, tokens); }
+
+      // Add sentences
+      sentences = new LazyList<>(proto.getSentenceCount(), this::readSentence, this::readSentenceInDocument);
+      if (!sentences.isEmpty()) { ann.set(SentencesAnnotation.class, sentences); }
+
+      // Set DocID
+      if (docid != null) {
+        ann.set(DocIDAnnotation.class, docid);
+      }
+      // Set reference time
+      if (proto.hasDocDate()) {
+        ann.set(DocDateAnnotation.class, proto.getDocDate());
+      }
+      if (proto.hasCalendar()) {
+        GregorianCalendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(proto.getCalendar());
+        ann.set(CalendarAnnotation.class, calendar);
+      }
+
+      // Set coref chain
+      if (proto.getCorefChainCount() > 0) {
+        ann.set(CorefChainAnnotation.class, new LazyMap<>(() -> {
+          Map<Integer, CorefChain> corefChains = new HashMap<>();
+          for (CoreNLPProtos.CorefChain chainProto : proto.getCorefChainList()) {
+            CorefChain chain = fromProto(chainProto, ann);
+            corefChains.put(chain.getChainID(), chain);
+          }
+          return corefChains;
+        }));
+      }
+
+      // Set quotes
+      if (proto.getQuoteCount() > 0) {
+        ann.set(QuotationsAnnotation.class, new LazyList<>(proto.getQuoteCount(), i -> fromProto(proto.getQuote(i), tokens), null));
+      }
+
+      // Set NERmention
+      if (proto.getMentionsCount() > 0) {
+        ann.set(MentionsAnnotation.class, new LazyList<>(proto.getMentionsCount(), i -> fromProto(proto.getMentions(i)), null));
+      }
+    }
+
+    /** Grow the token positions to the given size, marking the new ones as padding */
+    private int padTokens(int numTokens, int size) {
+      if (size <= numTokens) {
+        return numTokens;
+      }
+      if (size > tokenSentence.length) {
+        int capacity = Math.max(size, tokenSentence.length * 2);
+        tokenSentence = Arrays.copyOf(tokenSentence, capacity);
+        tokenInSentence = Arrays.copyOf(tokenInSentence, capacity);
+      }
+      Arrays.fill(tokenSentence, numTokens, size, -1);
+      return size;
+    }
+
+    /** The tokens of a sentence, in the order of the sentence message, read the first time they are needed */
+    private CoreLabel[] sentenceTokens(int sentIndex) {
+      if (sentenceTokens[sentIndex] == null) {
+        CoreNLPProtos.Sentence sentence = proto.getSentence(sentIndex);
+        CoreLabel[] labels = new CoreLabel[sentence.getTokenCount()];
+        for (int i = 0; i < labels.length; ++i) {
+          CoreLabel coreLabel = fromProto(sentence.getToken(i));
+          // Set docid
+          if (docid != null) { coreLabel.setDocID(docid); }
+          labels[i] = coreLabel;
         }
-        mentionToUpdate.originalSpan = new ArrayList<>();
-        for (CoreNLPProtos.IndexedWord clp : protoMention.getOriginalSpanList()) {
-          int ti = clp.getTokenIndex();
-          mentionToUpdate.originalSpan.add(sentenceTokens.get(ti));
+        sentenceTokens[sentIndex] = labels;
+        // Set sentence index + token index + paragraph index
+        for (int i = sentence.getTokenOffsetBegin(); i < Math.min(sentence.getTokenOffsetEnd(), tokens.size()); ++i) {
+          if (tokenSentence[i] == sentIndex) {
+            CoreLabel token = labels[tokenInSentence[i]];
+            token.setSentIndex(sentIndex);
+            token.setIndex(i - sentence.getTokenOffsetBegin() + 1);
+            if (sentence.hasParagraph()) { token.set(ParagraphAnnotation.class, sentence.getParagraph()); }
+          }
         }
-        if (protoMention.getHasBasicDependency()) {
-          mentionToUpdate.basicDependency = map.get(BasicDependenciesAnnotation.class);
+      }
+      return sentenceTokens[sentIndex];
+    }
+
+    /** Read the parts of a sentence which don't need the other sentences of the document */
+    private CoreMap readSentence(int sentIndex) {
+      if (Thread.interrupted()) {
+        throw new RuntimeInterruptedException();
+      }
+      CoreNLPProtos.Sentence sentence = proto.getSentence(sentIndex);
+      CoreMap map = fromProtoNoTokens(sentence);
+      if (!tokens.isEmpty() && map.get(TokensAnnotation.class) == null) {
+        // Set tokens for sentence
+        int tokenBegin = sentence.getTokenOffsetBegin();
+        int tokenEnd = sentence.getTokenOffsetEnd();
+        sentenceTokens(sentIndex);
+        map.set(TokensAnnotation.class, tokens.subList(tokenBegin, tokenEnd));
+        // Set text
+        int characterBegin = sentence.getCharacterOffsetBegin();
+        int characterEnd = sentence.getCharacterOffsetEnd();
+        if (characterEnd <= proto.getText().length()) {
+          // The usual case -- get the text from the document text
+          map.set(TextAnnotation.class, proto.getText().substring(characterBegin, characterEnd));
+        } else {
+          // The document text is wrong -- guess the text from the tokens
+          map.set(TextAnnotation.class, recoverOriginalText(tokens.subList(tokenBegin, tokenEnd), sentence));
         }
-        if (protoMention.getHasEnhancedDepenedncy()) {
-          mentionToUpdate.enhancedDependency = map.get(EnhancedDependenciesAnnotation.class);
+      }
+      for (int mentionInt = 0; mentionInt < sentence.getMentionsForCorefCount(); ++mentionInt) {
+        Mention mention = map.get(CorefMentionsAnnotation.class).get(mentionInt);
+        idToMention.put(mention.mentionID, mention);
+      }
+      return map;
+    }
+
+    /** Read the rest of a sentence, once it is cached in the list of sentences */
+    private void readSentenceInDocument(CoreMap map, int sentIndex) {
+      CoreNLPProtos.Sentence sentence = proto.getSentence(sentIndex);
+      fromProtoInDocument(sentence, sentIndex, map, ann, docid);
+      for (int mentionInt = 0; mentionInt < sentence.getMentionsForCorefCount(); ++mentionInt) {
+        fromProtoSpeakerInfo(map.get(CorefMentionsAnnotation.class).get(mentionInt), sentence.getMentionsForCoref(mentionInt), this::getMention);
+      }
+    }
+
+    /** The coref mention with the given id, reading the sentence it is in if need be */
+    private Mention getMention(int mentionID) {
+      if (mentionSentence == null) {
+        mentionSentence = new HashMap<>();
+        for (int sentIndex = 0; sentIndex < proto.getSentenceCount(); ++sentIndex) {
+          for (CoreNLPProtos.Mention protoMention : proto.getSentence(sentIndex).getMentionsForCorefList()) {
+            mentionSentence.put(protoMention.getMentionID(), sentIndex);
+          }
         }
-        if (protoMention.getHasContextParseTree()) {
-          mentionToUpdate.contextParseTree = map.get(TreeAnnotation.class);
+      }
+      Integer sentIndex = mentionSentence.get(mentionID);
+      if (sentIndex != null && !idToMention.containsKey(mentionID)) {
+        sentences.get(sentIndex);
+      }
+      return idToMention.get(mentionID);
+    }
+
+  }
+
+  /**
+   * A list whose elements are made the first time they are got.
+   * The list can be changed like an ArrayList; adding or removing an element first makes all of them.
+   * It is serialized as an ArrayList of all its elements.
+   *
+   * @param <E> The type of the elements.
+   */
+  private static class LazyList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Object UNREAD = new Object();
+
+    private final IntFunction<E> reader;
+    /** Called with each element after it is cached, to finish it.  May be null. */
+    private final ObjIntConsumer<E> finisher;
+    private final ArrayList<Object> elements;
+
+    LazyList(int size, IntFunction<E> reader, ObjIntConsumer<E> finisher) {
+      this.reader = reader;
+      this.finisher = finisher;
+      this.elements = new ArrayList<>(Collections.nCopies(size, UNREAD));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E get(int index) {
+      Object element = elements.get(index);
+      if (element == UNREAD) {
+        E read = reader.apply(index);
+        elements.set(index, read);
+        if (finisher != null) {
+          finisher.accept(read, index);
         }
-        // move on to next mention
-        mentionInt++;
+        return read;
       }
+      return (E) element;
+    }
 
+    @Override
+    public int size() {
+      return elements.size();
     }
 
-    // Set quotes
-    List<CoreMap> quotes = proto.getQuoteList().stream().map(quote -> fromProto(quote, tokens)).collect(Collectors.toList());
-    if (!quotes.isEmpty()) {
-      ann.set(QuotationsAnnotation.class, quotes);
+    @Override
+    public E set(int index, E element) {
+      E old = get(index);
+      elements.set(index, element);
+      return old;
     }
 
-    // Set NERmention
-    List<CoreMap> mentions = proto.getMentionsList().stream().map(this::fromProto).collect(Collectors.toList());
-    if (!mentions.isEmpty()) {
-      ann.set(MentionsAnnotation.class, mentions);
+    @Override
+    public void add(int index, E element) {
+      readAll();
+      modCount++;
+      elements.add(index, element);
     }
 
-    // add SpeakerInfo stuff to Mentions, this requires knowing all mentions in the document
-    // also add all the Set<Mention>
-    for (int mentionID : idToMention.keySet()) {
-      // this is the Mention message corresponding to this Mention
-      Mention mentionToUpdate = idToMention.get(mentionID);
-      CoreNLPProtos.Mention correspondingProtoMention = idToProtoMention.get(mentionID);
-      if (!correspondingProtoMention.hasSpeakerInfo()) {
-        // keep speakerInfo null for this Mention if it didn't store a speakerInfo
-        // so just continue to next Mention
-        continue;
-      }
-      // if we're here we know a speakerInfo was stored
-      SpeakerInfo speakerInfo = fromProto(correspondingProtoMention.getSpeakerInfo());
-      // go through all ids stored for the speakerInfo in its mentions list, and get the Mention
-      // Mentions are stored by MentionID , MentionID should be set by MentionAnnotator
-      // MentionID is ID in document, 0, 1, 2, etc...
-      for (int speakerInfoMentionID : correspondingProtoMention.getSpeakerInfo().getMentionsList()) {
-        speakerInfo.addMention(idToMention.get(speakerInfoMentionID));
-      }
-      // now the SpeakerInfo for this Mention should be fully restored
-      mentionToUpdate.speakerInfo = speakerInfo;
+    @SuppressWarnings("unchecked")
+    @Override
+    public E remove(int index) {
+      readAll();
+      modCount++;
+      return (E) elements.remove(index);
+    }
+
+    private void readAll() {
+      for (int i = 0; i < elements.size(); ++i) {
+        get(i);
+      }
+    }
+
+    /** The tokens of a sentence are a view of the tokens of the document, which must be serializable too */
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+      return new SubList<>(super.subList(fromIndex, toIndex));
+    }
+
+    /** The readers can't be serialized, so write the elements instead */
+    private Object writeReplace() {
+      return new ArrayList<>(this);
+    }
+
+  }
+
+  /**
+   * A view of part of a {@link LazyList}, which is serialized as an ArrayList of its elements.
+   *
+   * @param <E> The type of the elements.
+   */
+  private static class SubList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<E> view;
+
+    SubList(List<E> view) {
+      this.view = view;
+    }
+
+    @Override
+    public E get(int index) {
+      return view.get(index);
+    }
+
+    @Override
+    public int size() {
+      return view.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+      return view.set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+      modCount++;
+      view.add(index, element);
+    }
+
+    @Override
+    public E remove(int index) {
+      modCount++;
+      return view.remove(index);
+    }
+
+    private Object writeReplace() {
+      return new ArrayList<>(this);
+    }
+
+  }
+
+  /**
+   * A map which is made the first time it is used.
+   * It is serialized as a HashMap.
+   *
+   * @param <K> The type of the keys.
+   * @param <V> The type of the values.
+   */
+  private static class LazyMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Supplier<Map<K, V>> reader;
+    private Map<K, V> map;
+
+    LazyMap(Supplier<Map<K, V>> reader) {
+      this.reader = reader;
+    }
+
+    private Map<K, V> map() {
+      if (map == null) {
+        map = reader.get();
+        reader = null;
+      }
+      return map;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      return map().entrySet();
+    }
+
+    @Override
+    public int size() {
+      return map().size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return map().containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+      return map().get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+      return map().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+      return map().remove(key);
+    }
+
+    /** The reader can't be serialized, so write the map instead */
+    private Object writeReplace() {
+      return new HashMap<>(map());
     }
 
-    // Return
-    return ann;
   }
 
   /**
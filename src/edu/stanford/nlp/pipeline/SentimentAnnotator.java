@@ -8,7 +8,7 @@ import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.neural.rnn.RNNCoreAnnotations;
 import edu.stanford.nlp.sentiment.CollapseUnaryTransformer;
 import edu.stanford.nlp.sentiment.SentimentCoreAnnotations;
-import edu.stanford.nlp.sentiment.SentimentCostAndGradient;
+import edu.stanford.nlp.sentiment.SentimentBatchPropagator;
 import edu.stanford.nlp.sentiment.SentimentModel;
 import edu.stanford.nlp.sentiment.SentimentUtils;
 import edu.stanford.nlp.trees.Tree;
@@ -43,6 +43,8 @@ public class SentimentAnnotator implements Annotator {
   private final String modelPath;
   private final SentimentModel model;
   private final CollapseUnaryTransformer transformer = new CollapseUnaryTransformer();
+  /** The propagator keeps its buffers between documents, so each thread gets its own */
+  private final ThreadLocal<SentimentBatchPropagator> propagator;
 
   public SentimentAnnotator(String name, Properties props) {
     this.modelPath = props.getProperty(name + ".model", DEFAULT_MODEL);
@@ -50,6 +52,7 @@ public class SentimentAnnotator implements Annotator {
       throw new IllegalArgumentException("No model specified for Sentiment annotator");
     }
     this.model = SentimentModel.loadSerialized(modelPath);
+    this.propagator = ThreadLocal.withInitial(() -> new SentimentBatchPropagator(model));
   }
 
   @Override
@@ -72,14 +75,19 @@ public class SentimentAnnotator implements Annotator {
     if (annotation.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
       // TODO: parallelize
       List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+      // all of the sentences of the document are scored together
+      List<Tree> collapsedTrees = new ArrayList<>(sentences.size());
       for (CoreMap sentence : sentences) {
         Tree binarized = sentence.get(TreeCoreAnnotations.BinarizedTreeAnnotation.class);
         if (binarized == null) {
           throw new AssertionError("Binarized sentences not built by parser");
         }
-        Tree collapsedUnary = transformer.transformTree(binarized);
-        SentimentCostAndGradient scorer = new SentimentCostAndGradient(model, null);
-        scorer.forwardPropagateTree(collapsedUnary);
+        collapsedTrees.add(transformer.transformTree(binarized));
+      }
+      propagator.get().forwardPropagateTrees(collapsedTrees);
+      for (int sentenceIndex = 0; sentenceIndex < sentences.size(); ++sentenceIndex) {
+        CoreMap sentence = sentences.get(sentenceIndex);
+        Tree collapsedUnary = collapsedTrees.get(sentenceIndex);
         sentence.set(SentimentCoreAnnotations.SentimentAnnotatedTree.class, collapsedUnary);
         int sentiment = RNNCoreAnnotations.getPredictedClass(collapsedUnary);
         sentence.set(SentimentCoreAnnotations.SentimentClass.class, SentimentUtils.sentimentString(model, sentiment));
@@ -3,13 +3,17 @@ package edu.stanford.nlp.pipeline;
 import edu.stanford.nlp.io.FileSequentialCollection;
 import edu.stanford.nlp.io.IOUtils;
 import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.util.ErasureUtils;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
 import edu.stanford.nlp.util.StringUtils;
+import edu.stanford.nlp.util.TypesafeMap;
 import edu.stanford.nlp.util.logging.Redwood;
 import edu.stanford.nlp.util.logging.StanfordRedwoodConfiguration;
 
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -219,6 +223,9 @@ public class StanfordCoreNLPClient extends AnnotationPipeline  {
 
   /** The path on the server to connect to. */
   private final String path = "";
+
+  /** The path on the server to send streams of documents to. */
+  private final String streamPath = "/stream";
   /** The Properties file to annotate with. */
   private final Properties properties;
 
@@ -512,9 +519,7 @@ public class StanfordCoreNLPClient extends AnnotationPipeline  {
       // -- It might be possible to send more than one message, but we are not going to do that.
       Annotation response = serializer.read(connection.getInputStream()).first;
       // 2.3. Copy response over to original annotation
-      for (Class key : response.keySet()) {
-        annotation.set(key, response.get(key));
-      }
+      copyAnnotations(response, annotation);
 
     } catch (Throwable t) {
       // 3. We encountered an error -- retry
@@ -527,6 +532,135 @@ public class StanfordCoreNLPClient extends AnnotationPipeline  {
     }
   }
 
+  /** Copies every annotation of the server's response over to the original annotation */
+  private static void copyAnnotations(Annotation response, Annotation annotation) {
+    for (Class<?> key : response.keySet()) {
+      Class<? extends TypesafeMap.Key<Object>> typedKey = ErasureUtils.uncheckedCast(key);
+      annotation.set(typedKey, response.get(typedKey));
+    }
+  }
+
+
+  /**
+   * Annotate many documents with few requests, using the server's stream endpoint.
+   * The documents are split into batches of up to batchSize documents, and each batch
+   * is sent to a backend as a single request. Batches run in parallel when there are
+   * several backends, and the server annotates the documents of a batch in parallel.
+   * This method blocks until every document has been annotated.
+   *
+   * @param annotations The input annotations to process.
+   * @param batchSize The maximum number of documents to send in one request.
+   * @param callback Called with each document once it has been annotated. The documents
+   *                 of a batch are passed in order, but batches may finish in any order
+   *                 and on different threads.
+   */
+  public void annotateStream(Iterable<Annotation> annotations, int batchSize, Consumer<Annotation> callback) {
+    List<CountDownLatch> batchesDone = new ArrayList<>();
+    List<Annotation> batch = new ArrayList<>();
+    Iterator<Annotation> iter = annotations.iterator();
+    while (iter.hasNext()) {
+      batch.add(iter.next());
+      if (batch.size() >= batchSize || !iter.hasNext()) {
+        List<Annotation> toSend = batch;
+        CountDownLatch done = new CountDownLatch(1);
+        batchesDone.add(done);
+        scheduler.schedule((Backend backend, Consumer<Backend> isFinishedCallback) -> new Thread(() -> {
+          try {
+            String queryParams = String.format(
+                "properties=%s",
+                URLEncoder.encode(StanfordCoreNLPClient.this.propsAsJSON, "utf-8"));
+            URL serverURL = new URL(backend.protocol, backend.host,
+                backend.port,
+                StanfordCoreNLPClient.this.streamPath + '?' + queryParams);
+            // Like doAnnotation(), this calls the callback on every document and does not throw
+            doStreamAnnotation(toSend, backend, serverURL, callback, 0);
+          } catch (UnsupportedEncodingException | MalformedURLException e) {
+            throw new IllegalStateException(e);
+          } finally {
+            done.countDown();
+            isFinishedCallback.accept(backend);
+          }
+        }).start());
+        batch = new ArrayList<>();
+      }
+    }
+    try {
+      for (CountDownLatch done : batchesDone) {
+        done.await();
+      }
+    } catch (InterruptedException e) {
+      throw new RuntimeInterruptedException(e);
+    }
+  }
+
+
+  /**
+   * Send a batch of documents to the stream endpoint of the server, and fill them in
+   * from the response as each comes back.
+   * If the request fails, the documents which did not come back are retried up to 3 times,
+   * after which they are annotated locally.
+   *
+   * @param batch The annotations we need to fill.
+   * @param backend The backend we are querying against.
+   * @param serverURL The URL of the stream endpoint of the server.
+   * @param callback Called with each document once it has been filled in.
+   * @param tries The number of times we've tried already.
+   */
+  @SuppressWarnings("unchecked")
+  private void doStreamAnnotation(List<Annotation> batch, Backend backend, URL serverURL,
+                                  Consumer<Annotation> callback, int tries) {
+    int finished = 0;
+    try {
+      // 1. Set up the connection
+      HttpURLConnection connection = (HttpURLConnection) serverURL.openConnection();
+      if (apiKey != null && apiSecret != null) {
+        String userpass = apiKey + ":" + apiSecret;
+        String basicAuth = "Basic " + new String(Base64.getEncoder().encode(userpass.getBytes()));
+        connection.setRequestProperty("Authorization", basicAuth);
+      }
+      connection.setDoOutput(true);
+      connection.setChunkedStreamingMode(0);  // don't buffer the whole batch in memory
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Content-Type", "application/x-protobuf");
+      connection.setRequestProperty("User-Agent", StanfordCoreNLPClient.class.getName());
+
+      // 2. Send the documents
+      try (OutputStream os = new BufferedOutputStream(connection.getOutputStream())) {
+        for (Annotation annotation : batch) {
+          serializer.write(annotation, os);
+        }
+      }
+
+      // 3. Read the documents back as they arrive
+      try (InputStream is = new BufferedInputStream(connection.getInputStream())) {
+        for (Annotation annotation : batch) {
+          CoreNLPProtos.Document proto = CoreNLPProtos.Document.parseDelimitedFrom(is);
+          if (proto == null) {
+            throw new IOException("Server returned " + finished + " of " + batch.size() + " documents");
+          }
+          copyAnnotations(serializer.fromProto(proto), annotation);
+          finished += 1;
+          callback.accept(annotation);
+        }
+      }
+
+    } catch (Throwable t) {
+      // 4. We encountered an error -- retry what is left
+      List<Annotation> remaining = batch.subList(finished, batch.size());
+      if (tries < 3) {
+        log.warn(t);
+        doStreamAnnotation(remaining, backend, serverURL, callback, tries + 1);
+      } else {
+        log.warn("Could not annotate via server! Trying to annotate locally...", t);
+        StanfordCoreNLP corenlp = new StanfordCoreNLP(properties);
+        for (Annotation annotation : remaining) {
+          corenlp.annotate(annotation);
+          callback.accept(annotation);
+        }
+      }
+    }
+  }
+
 
   /**
    * Runs the entire pipeline on the content of the given text passed in.
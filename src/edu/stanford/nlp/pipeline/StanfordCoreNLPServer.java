@@ -34,6 +34,7 @@ import java.security.cert.CertificateException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -76,14 +77,26 @@ public class StanfordCoreNLPServer implements Runnable {
   protected static String preloadedAnnotators = "";
   @ArgumentParser.Option(name="serverProperties", gloss="Default properties file for server's StanfordCoreNLP instance")
   protected static String serverPropertiesPath = null;
+  @ArgumentParser.Option(name="queue_size", gloss="The number of requests which may wait for an annotation thread. Requests beyond this are refused with HTTP 429. If not positive (the default), there is no limit.")
+  protected static int queueSize = 0;
+  @ArgumentParser.Option(name="server_threads", gloss="The number of threads which read requests and write responses. If not positive, four times the number of annotation threads, plus the queue size.")
+  protected static int serverThreads = 0;
 
   protected final String shutdownKey;
 
   public static int MAX_CHAR_LENGTH = 100000;
+  /** Too Many Requests, which is not defined in HttpURLConnection. */
+  private static final int HTTP_TOO_MANY_REQUESTS = 429;
   public final Properties defaultProps;
 
   /**
    * The thread pool for the HTTP server.
+   * These threads only read requests and write responses, which may block for
+   * as long as a slow client takes, so there are more of them than annotation threads:
+   * enough for every request which can be annotated or queued, plus some for slow clients
+   * (see {@link StanfordCoreNLPServer#serverThreads}).
+   * Connections which arrive while they are all busy wait in this executor's queue.
+   * The annotation work itself runs on {@link StanfordCoreNLPServer#corenlpExecutor}.
    */
   private final ExecutorService serverExecutor;
   /**
@@ -93,8 +106,16 @@ public class StanfordCoreNLPServer implements Runnable {
   private final WeakHashMap<Properties, StanfordCoreNLP> pipelineCache = new WeakHashMap<>();
   /**
    * An executor to time out CoreNLP execution with.
+   * It has one thread per core (as set by -threads), and requests waiting for
+   * a thread are held in a queue. By default the queue has no limit; if
+   * {@link StanfordCoreNLPServer#queueSize} is set, it holds at most that many
+   * entries, and requests which do not fit are rejected and the client gets a 429.
    */
-  private final ExecutorService corenlpExecutor;
+  final ThreadPoolExecutor corenlpExecutor;
+  /**
+   * The number of requests refused because the annotation queue was full.
+   */
+  private final AtomicLong rejectedRequests = new AtomicLong();
 
   /**
    * Create a new Stanford CoreNLP Server.
@@ -176,8 +197,15 @@ public class StanfordCoreNLPServer implements Runnable {
       PropertiesUtils.overWriteProperties(this.defaultProps, serverProperties);
     }
 
-    this.serverExecutor = Executors.newFixedThreadPool(ArgumentParser.threads);
-    this.corenlpExecutor = Executors.newFixedThreadPool(ArgumentParser.threads);
+    int numServerThreads = serverThreads > 0 ? serverThreads : 4 * ArgumentParser.threads + Math.max(queueSize, 0);
+    this.serverExecutor = Executors.newFixedThreadPool(numServerThreads);
+    this.corenlpExecutor = new ThreadPoolExecutor(ArgumentParser.threads, ArgumentParser.threads,
+        0L, TimeUnit.MILLISECONDS,
+        queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new LinkedBlockingQueue<>(),
+        (task, executor) -> {
+          rejectedRequests.incrementAndGet();
+          throw new RejectedExecutionException("CoreNLP server annotation queue is full");
+        });
 
     // Generate and write a shutdown key, get optional server_id from passed in properties
     // this way if multiple servers running can shut them all down with different ids
@@ -346,6 +374,24 @@ public class StanfordCoreNLPServer implements Runnable {
   }
 
 
+  /**
+   * A helper function to respond to a request which was refused because the server
+   * already has as many requests waiting as it will take.
+   *
+   * @param httpExchange The exchange to send the error over.
+   *
+   * @throws IOException Thrown if the HttpExchange cannot communicate the error.
+   */
+  private static void respondOverloaded(HttpExchange httpExchange) throws IOException {
+    httpExchange.getResponseHeaders().add("Content-type", "text/plain");
+    httpExchange.getResponseHeaders().add("Retry-After", "1");
+    byte[] content = "CoreNLP server is overloaded; try again later.".getBytes("utf-8");
+    httpExchange.sendResponseHeaders(HTTP_TOO_MANY_REQUESTS, content.length);
+    httpExchange.getResponseBody().write(content);
+    httpExchange.close();
+  }
+
+
   /**
    * A helper function to respond to a request with an error stating that the user is not authorized
    * to make this request.
@@ -459,6 +505,30 @@ public class StanfordCoreNLPServer implements Runnable {
   }
 
 
+  /**
+   * Reports the load on the annotation threads: how many requests are waiting,
+   * how many are being annotated, and how many have been turned away.
+   */
+  protected class MetricsHandler implements HttpHandler {
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+      String response = JSONOutputter.JSONWriter.objectToJSON(writer -> {
+        writer.set("threads", corenlpExecutor.getMaximumPoolSize());
+        writer.set("active", corenlpExecutor.getActiveCount());
+        writer.set("queued", corenlpExecutor.getQueue().size());
+        writer.set("queueCapacity", queueSize > 0 ? queueSize : -1);
+        writer.set("completed", corenlpExecutor.getCompletedTaskCount());
+        writer.set("rejected", rejectedRequests.get());
+      });
+      byte[] content = response.getBytes("utf-8");
+      httpExchange.getResponseHeaders().set("Content-type", "application/json");
+      httpExchange.sendResponseHeaders(HTTP_OK, content.length);
+      httpExchange.getResponseBody().write(content);
+      httpExchange.close();
+    }
+  }
+
+
   /**
    * Sending the appropriate shutdown key will gracefully shutdown the server.
    * This key is, by default, saved into the local file /tmp/corenlp.shutdown on the
@@ -521,12 +591,12 @@ public class StanfordCoreNLPServer implements Runnable {
     /**
      * An authenticator to determine if we can perform this API request.
      */
-    private final Predicate<Properties> authenticator;
+    protected final Predicate<Properties> authenticator;
 
     /**
      * A callback to call when an annotation job has finished.
      */
-    private final Consumer<FinishedRequest> callback;
+    protected final Consumer<FinishedRequest> callback;
 
 
     private final FileHandler homepage;
@@ -666,6 +736,8 @@ public class StanfordCoreNLPServer implements Runnable {
         if (completedAnnotation != null && props.getProperty("annotators") != null && !"".equals(props.getProperty("annotators"))) {
           callback.accept(new FinishedRequest(props, completedAnnotation));
         }
+      } catch (RejectedExecutionException e) {
+        respondOverloaded(httpExchange);
       } catch (TimeoutException e) {
         // Print the stack trace for debugging
         e.printStackTrace();
@@ -699,7 +771,7 @@ public class StanfordCoreNLPServer implements Runnable {
      *
      * @throws UnsupportedEncodingException Thrown if we could not decode the key/value pairs with UTF-8.
      */
-    private Properties getProperties(HttpExchange httpExchange) throws UnsupportedEncodingException {
+    protected Properties getProperties(HttpExchange httpExchange) throws UnsupportedEncodingException {
       Map<String, String> urlParams = getURLParams(httpExchange.getRequestURI());
 
       // Load the default properties
@@ -774,6 +846,241 @@ public class StanfordCoreNLPServer implements Runnable {
 
 
 
+  /**
+   * Thrown when the body of a /stream request is not a valid stream of documents,
+   * which is the client's fault rather than the server's.
+   */
+  static class MalformedStreamException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    MalformedStreamException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Read one varint-prefixed UTF-8 document, as sent to the /stream endpoint.
+   * The length is checked before the document is read, so a client cannot make
+   * the server allocate more than {@link StanfordCoreNLPServer#MAX_CHAR_LENGTH}
+   * characters could take.
+   *
+   * @param first The first byte of the length, which has already been read.
+   * @param input The rest of the stream.
+   *
+   * @return The text of the document.
+   *
+   * @throws MalformedStreamException Thrown if the length is negative or too long, or the stream ends too soon.
+   * @throws IOException Thrown if the stream cannot be read.
+   */
+  static String readDelimitedText(int first, InputStream input) throws IOException {
+    int length;
+    try {
+      length = com.google.protobuf.CodedInputStream.readRawVarint32(first, input);
+    } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+      throw new MalformedStreamException("Stream ended in the middle of a document length");
+    }
+    // a UTF-8 character takes at most 4 bytes
+    if (length < 0 || length > 4L * MAX_CHAR_LENGTH) {
+      throw new MalformedStreamException("Document length of " + (length & 0xFFFFFFFFL) + " bytes is out of range; max length is " + MAX_CHAR_LENGTH + " characters.");
+    }
+    byte[] bytes = new byte[length];
+    for (int read = 0; read < length; ) {
+      int count = input.read(bytes, read, length - read);
+      if (count < 0) {
+        throw new MalformedStreamException("Stream ended in the middle of a document");
+      }
+      read += count;
+    }
+    return new String(bytes, "UTF-8");
+  }
+
+
+  /**
+   * A handler for annotating many documents with a single request.
+   * <br>
+   * The request body is a sequence of documents, one after the other. With the
+   * inputFormat "text", each document is its length in bytes as a protocol buffer
+   * varint, followed by that many bytes of UTF-8 text. With the inputFormat
+   * "serialized", each document is a delimited {@link CoreNLPProtos.Document}, as
+   * written by {@link ProtobufAnnotationSerializer#write(Annotation, OutputStream)}.
+   * The documents are annotated in parallel on the server's annotation threads, and
+   * the response is the annotated documents as delimited {@link CoreNLPProtos.Document}s,
+   * in the order they were sent.
+   * <br>
+   * Most HTTP clients do not read the response until they have sent the whole request,
+   * so nothing is written until the request has been read. From then on, each document
+   * is written as soon as it and all the documents before it are done. A failure at that
+   * point closes the connection, so a client which gets back fewer documents than it sent
+   * should treat the rest as failed. The annotated documents of a request are held by the
+   * server until the whole request has been read, so very large batches are best split
+   * across several requests.
+   */
+  protected class StreamHandler extends CoreNLPHandler {
+
+    /**
+     * Create a handler for streams of documents.
+     * @param props The properties file to use as the default if none were sent by the client.
+     */
+    public StreamHandler(Properties props, Predicate<Properties> authenticator,
+                         Consumer<FinishedRequest> callback) {
+      super(props, authenticator, callback, null);
+    }
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+      // Set common response headers
+      httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+      httpExchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET,POST,PUT,DELETE,OPTIONS");
+      httpExchange.getResponseHeaders().add("Access-Control-Allow-Headers", "*");
+      httpExchange.getResponseHeaders().add("Access-Control-Allow-Credentials", "true");
+      httpExchange.getResponseHeaders().add("Access-Control-Allow-Credentials-Header", "*");
+
+      if ( ! "POST".equalsIgnoreCase(httpExchange.getRequestMethod())) {
+        respondBadInput("Documents must be POSTed to this endpoint", httpExchange);
+        return;
+      }
+      Properties props;
+      try {
+        props = getProperties(httpExchange);
+      } catch (Exception e) {
+        e.printStackTrace();
+        respondError("Could not handle incoming annotation", httpExchange);
+        return;
+      }
+      if (authenticator != null && !authenticator.test(props)) {
+        respondUnauthorized(httpExchange);
+        return;
+      }
+      log("[" + httpExchange.getRemoteAddress() + "] Stream API call w/annotators " + props.getProperty("annotators", "<unknown>"));
+
+      int timeoutMilliseconds = PropertiesUtils.getInt(props, "timeout", StanfordCoreNLPServer.this.timeoutMilliseconds);
+      // Keep at most one document per annotation thread in flight, so that a single
+      // large request does not crowd everyone else out of the queue
+      int window = corenlpExecutor.getMaximumPoolSize();
+      List<Future<Annotation>> annotated = new ArrayList<>();
+      int waited = 0;  // the documents before this one are known to be done
+
+      // 1. Read the documents, annotating them as they come in
+      try {
+        StanfordCoreNLP pipeline = mkStanfordCoreNLP(props);
+        PushbackInputStream input = new PushbackInputStream(httpExchange.getRequestBody());
+        Annotation doc;
+        while ((doc = readStreamedDocument(props, input)) != null) {
+          String text = doc.get(CoreAnnotations.TextAnnotation.class);
+          if (text != null && text.length() > MAX_CHAR_LENGTH) {
+            cancelAll(annotated);
+            respondBadInput("Document " + annotated.size() + " is too long to be handled by server: " + text.length() + " characters. Max length is " + MAX_CHAR_LENGTH + " characters.", httpExchange);
+            return;
+          }
+          Annotation toAnnotate = doc;
+          Future<Annotation> future = null;
+          while (future == null) {
+            if (annotated.size() - waited >= window) {
+              annotated.get(waited++).get(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+            }
+            try {
+              future = corenlpExecutor.submit(() -> {
+                pipeline.annotate(toAnnotate);
+                return toAnnotate;
+              });
+            } catch (RejectedExecutionException e) {
+              // Wait for one of our own documents to finish and try again,
+              // unless none of them are left to wait on
+              if (waited == annotated.size()) {
+                throw e;
+              }
+              window = annotated.size() - waited;
+            }
+          }
+          annotated.add(future);
+        }
+      } catch (RejectedExecutionException e) {
+        cancelAll(annotated);
+        respondOverloaded(httpExchange);
+        return;
+      } catch (MalformedStreamException e) {
+        cancelAll(annotated);
+        respondBadInput("Document " + annotated.size() + ": " + e.getMessage(), httpExchange);
+        return;
+      } catch (TimeoutException e) {
+        e.printStackTrace();
+        cancelAll(annotated);
+        respondError("CoreNLP request timed out. Your document may be too long.", httpExchange);
+        return;
+      } catch (Exception e) {
+        e.printStackTrace();
+        cancelAll(annotated);
+        respondError(e.getClass().getName() + ": " + e.getMessage(), httpExchange);
+        return;
+      }
+
+      // 2. Write the documents back in order as they finish
+      ProtobufAnnotationSerializer serializer = new ProtobufAnnotationSerializer(false);
+      httpExchange.getResponseHeaders().add("Content-type", "application/x-protobuf");
+      httpExchange.sendResponseHeaders(HTTP_OK, 0);  // 0 means the length is not known in advance
+      OutputStream output = httpExchange.getResponseBody();
+      try {
+        for (Future<Annotation> future : annotated) {
+          Annotation completedAnnotation = future.get(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+          serializer.write(completedAnnotation, output);
+          if (props.getProperty("annotators") != null && !"".equals(props.getProperty("annotators"))) {
+            callback.accept(new FinishedRequest(props, completedAnnotation));
+          }
+        }
+      } catch (Exception e) {
+        // The response has started, so the best we can do is to stop it short
+        e.printStackTrace();
+        cancelAll(annotated);
+      } finally {
+        httpExchange.close();
+      }
+    }
+
+    /**
+     * Read the next document of a stream.
+     *
+     * @param props The properties of the request. This is where the input format is retrieved from.
+     * @param input The request body.
+     *
+     * @return The next document, or null if the stream has ended.
+     *
+     * @throws MalformedStreamException Thrown if a text document is too long or ends early.
+     * @throws IOException Thrown if the stream cannot be read or ends in the middle of a document.
+     * @throws ClassNotFoundException Thrown if we cannot load the serializer.
+     */
+    private Annotation readStreamedDocument(Properties props, PushbackInputStream input) throws IOException, ClassNotFoundException {
+      int first = input.read();
+      if (first < 0) {
+        return null;
+      }
+      String inputFormat = props.getProperty("inputFormat", "text");
+      switch (inputFormat) {
+        case "text":
+          Annotation annotation = new Annotation(readDelimitedText(first, input));
+          String date = props.getProperty("date");
+          if (date != null) {
+            annotation.set(CoreAnnotations.DocDateAnnotation.class, date);
+          }
+          return annotation;
+        case "serialized":
+          input.unread(first);
+          String inputSerializerName = props.getProperty("inputSerializer", ProtobufAnnotationSerializer.class.getName());
+          AnnotationSerializer serializer = MetaClass.create(inputSerializerName).createInstance();
+          return serializer.read(input).first;
+        default:
+          throw new IOException("Could not parse input format: " + inputFormat);
+      }
+    }
+
+    private void cancelAll(List<Future<Annotation>> futures) {
+      for (Future<Annotation> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+
+
   /**
    * A handler for matching TokensRegex patterns against text.
    */
@@ -814,10 +1121,18 @@ public class StanfordCoreNLPServer implements Runnable {
       }
       Map<String, String> params = getURLParams(httpExchange.getRequestURI());
 
-      Future<Pair<String, Annotation>> future = corenlpExecutor.submit(() -> {
+      // Read the request here rather than on an annotation thread, so a slow client only holds up its own connection
+      Annotation doc;
+      try {
+        doc = getDocument(props, httpExchange);
+      } catch (Exception e) {
+        e.printStackTrace();
+        respondError("Could not handle incoming annotation", httpExchange);
+        return;
+      }
+
+      Callable<Pair<String, Annotation>> query = () -> {
         try {
-          // Get the document
-          Annotation doc = getDocument(props, httpExchange);
           if (!doc.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
             StanfordCoreNLP pipeline = mkStanfordCoreNLP(props);
             pipeline.annotate(doc);
@@ -879,7 +1194,14 @@ public class StanfordCoreNLPServer implements Runnable {
           }
         }
         return new Pair<>("", null);
-      });
+      };
+      Future<Pair<String, Annotation>> future;
+      try {
+        future = corenlpExecutor.submit(query);
+      } catch (RejectedExecutionException e) {
+        respondOverloaded(httpExchange);
+        return;
+      }
 
       // Send response
       try {
@@ -940,10 +1262,18 @@ public class StanfordCoreNLPServer implements Runnable {
       }
       Map<String, String> params = getURLParams(httpExchange.getRequestURI());
 
-      Future<Pair<String, Annotation>> response = corenlpExecutor.submit(() -> {
+      // Read the request here rather than on an annotation thread, so a slow client only holds up its own connection
+      Annotation doc;
+      try {
+        doc = getDocument(props, httpExchange);
+      } catch (Exception e) {
+        e.printStackTrace();
+        respondError("Could not handle incoming annotation", httpExchange);
+        return;
+      }
+
+      Callable<Pair<String, Annotation>> query = () -> {
         try {
-          // Get the document
-          Annotation doc = getDocument(props, httpExchange);
           if (!doc.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
             StanfordCoreNLP pipeline = mkStanfordCoreNLP(props);
             pipeline.annotate(doc);
@@ -1003,7 +1333,14 @@ public class StanfordCoreNLPServer implements Runnable {
           }
         }
         return Pair.makePair("", null);
-      });
+      };
+      Future<Pair<String, Annotation>> response;
+      try {
+        response = corenlpExecutor.submit(query);
+      } catch (RejectedExecutionException e) {
+        respondOverloaded(httpExchange);
+        return;
+      }
 
       // Send response
       try {
@@ -1062,10 +1399,18 @@ public class StanfordCoreNLPServer implements Runnable {
       }
       Map<String, String> params = getURLParams(httpExchange.getRequestURI());
 
-      Future<Pair<String, Annotation>> response = corenlpExecutor.submit(() -> {
+      // Read the request here rather than on an annotation thread, so a slow client only holds up its own connection
+      Annotation doc;
+      try {
+        doc = getDocument(props, httpExchange);
+      } catch (Exception e) {
+        e.printStackTrace();
+        respondError("Could not handle incoming annotation", httpExchange);
+        return;
+      }
+
+      Callable<Pair<String, Annotation>> query = () -> {
         try {
-          // Get the document
-          Annotation doc = getDocument(props, httpExchange);
           if ( ! doc.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
             StanfordCoreNLP pipeline = mkStanfordCoreNLP(props);
             pipeline.annotate(doc);
@@ -1109,7 +1454,14 @@ public class StanfordCoreNLPServer implements Runnable {
           }
         }
         return Pair.makePair("", null);
-      });
+      };
+      Future<Pair<String, Annotation>> response;
+      try {
+        response = corenlpExecutor.submit(query);
+      } catch (RejectedExecutionException e) {
+        respondOverloaded(httpExchange);
+        return;
+      }
 
       // Send response
       try {
@@ -1191,6 +1543,7 @@ public class StanfordCoreNLPServer implements Runnable {
         // Add the two status endpoints
         withAuth(server.createContext("/live", new LiveHandler()), Optional.empty());
         withAuth(server.createContext("/ready", new ReadyHandler(live)), Optional.empty());
+        withAuth(server.createContext("/metrics", new MetricsHandler()), Optional.empty());
         // Start the server
         server.start();
         // Server started
@@ -1259,6 +1612,7 @@ public class StanfordCoreNLPServer implements Runnable {
         server = HttpServer.create(new InetSocketAddress(serverPort), 0); // 0 is the default 'backlog'
       }
       withAuth(server.createContext("/", new CoreNLPHandler(defaultProps, authenticator, callback, homepage)), basicAuth);
+      withAuth(server.createContext("/stream", new StreamHandler(defaultProps, authenticator, callback)), basicAuth);
       withAuth(server.createContext("/tokensregex", new TokensRegexHandler(authenticator, callback)), basicAuth);
       withAuth(server.createContext("/semgrex", new SemgrexHandler(authenticator, callback)), basicAuth);
       withAuth(server.createContext("/tregex", new TregexHandler(authenticator, callback)), basicAuth);
@@ -1270,6 +1624,7 @@ public class StanfordCoreNLPServer implements Runnable {
       if (this.serverPort == this.statusPort) {
         withAuth(server.createContext("/live", new LiveHandler()), Optional.empty());
         withAuth(server.createContext("/ready", new ReadyHandler(live)), Optional.empty());
+        withAuth(server.createContext("/metrics", new MetricsHandler()), Optional.empty());
 
       }
       server.setExecutor(serverExecutor);
@@ -1311,6 +1666,11 @@ public class StanfordCoreNLPServer implements Runnable {
       server.statusPort = Integer.parseInt(serverProperties.getProperty("port"));
     }
     log("    Threads: " + ArgumentParser.threads);
+    if (queueSize > 0) {
+      log("    Queue size: " + queueSize);
+    } else {
+      log("    Queue size: unbounded");
+    }
 
     // Start the liveness server
     AtomicBoolean live = new AtomicBoolean(false);
@@ -11,7 +11,9 @@ import edu.stanford.nlp.ling.tokensregex.TokenSequencePattern;
 import edu.stanford.nlp.util.*;
 import edu.stanford.nlp.util.logging.Redwood;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
@@ -26,6 +28,8 @@ import java.util.Set;
  *   <ul>
  *     <li>{@code rules} - Name of file containing extraction rules
  *        (see {@link CoreMapExpressionExtractor} and {@link edu.stanford.nlp.ling.tokensregex.SequenceMatchRules}</li>
+ *     <li>{@code rulesBundle} - File with the compiled rules, which is read instead of the rules files
+ *        if it is up to date.  It is written by {@link RulesBundle#main}.</li>
  *   </ul>
  *   Other options (can be set in rules file using {@code options.xxx = ...})
  *   <ul>
@@ -49,7 +53,9 @@ public class TokensRegexAnnotator implements Annotator {
 
 
   // Make public so can be accessed and set via reflection
-  public static class Options {
+  public static class Options implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public Class matchedExpressionsAnnotationKey;
     public boolean setTokenOffsets;
     public boolean extractWithTokens;
@@ -66,18 +72,33 @@ public class TokensRegexAnnotator implements Annotator {
   public TokensRegexAnnotator(String name, Properties props) {
     String prefix = (name == null)? "": name + '.';
     String[] files  = PropertiesUtils.getStringArray(props, prefix + "rules");
-    env = TokenSequencePattern.getNewEnv();
+    String rulesBundle = props.getProperty(prefix + "rulesBundle");
+    Env env = TokenSequencePattern.getNewEnv();
     env.bind("options", options);
-    if (PropertiesUtils.getBool(props, prefix+"caseInsensitive")) {
+    boolean caseInsensitive = PropertiesUtils.getBool(props, prefix+"caseInsensitive");
+    if (caseInsensitive) {
       System.err.println("using case insensitive!");
       env.setDefaultStringMatchFlags(NodePattern.CASE_INSENSITIVE);
       env.setDefaultStringPatternFlags(Pattern.CASE_INSENSITIVE);
     }
-    if (files.length != 0) {
+    if (files.length != 0 && rulesBundle != null) {
+      extractor = RulesBundle.createExtractor(env, Arrays.asList(files), "caseInsensitive=" + caseInsensitive, rulesBundle);
+      env = extractor.getEnv();
+      // the options set by the rules come with the bundle
+      Options bundleOptions = (Options) env.get("options");
+      if (bundleOptions != options) {
+        options.matchedExpressionsAnnotationKey = bundleOptions.matchedExpressionsAnnotationKey;
+        options.setTokenOffsets = bundleOptions.setTokenOffsets;
+        options.extractWithTokens = bundleOptions.extractWithTokens;
+        options.flatten = bundleOptions.flatten;
+        env.bind("options", options);
+      }
+    } else if (files.length != 0) {
       extractor = CoreMapExpressionExtractor.createExtractorFromFiles(env, files);
     } else {
       extractor = null;
     }
+    this.env = env;
     verbose = PropertiesUtils.getBool(props, prefix + "verbose", false);
     options.setTokenOffsets = PropertiesUtils.getBool(props, prefix + "setTokenOffsets", options.setTokenOffsets);
     options.extractWithTokens = PropertiesUtils.getBool(props, prefix + "extractWithTokens", options.extractWithTokens);
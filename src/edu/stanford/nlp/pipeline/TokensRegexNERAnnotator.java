@@ -145,7 +145,13 @@ public class TokensRegexNERAnnotator implements Annotator  {
   private final Set<String> commonWords;
   private final List<Entry> entries;
   private final Map<SequencePattern<CoreMap>,Entry> patternToEntry;
-  private final MultiPatternMatcher<CoreMap>  multiPatternMatcher;
+  private final MultiPatternMatcher<CoreMap>  multiPatternMatcher; // null if all entries are literal
+  // Entries whose tokens are all literal strings are looked up in a trie over the token text
+  // instead of being compiled into TokensRegex patterns.  Entries from files which ignore case
+  // are kept in a separate trie keyed by case folded text.
+  private final TrieMap<String, List<Entry>> literalEntries;
+  private final TrieMap<String, List<Entry>> literalEntriesIgnoreCase;
+  private final Map<Entry, Integer> entryToOrder; // position of each entry in entries, used to break ties
   private final List<Class> annotationFields; // list of fields to annotate (default to just NamedEntityTag)
 
   private final Set<String> myLabels;  // set of labels to always overwrite
@@ -293,8 +299,15 @@ public class TokensRegexNERAnnotator implements Annotator  {
     processPerFileOptions(name, mappings, ignoreCaseList, validPosPatternList, ignoreCase, validPosPattern);
     entries = Collections.unmodifiableList(readEntries(name, noDefaultOverwriteLabels, ignoreCaseList, entryToMappingFileNumber, verbose, headerFields, annotationFieldnames, mappings));
     IdentityHashMap<SequencePattern<CoreMap>, Entry> patternToEntry = new IdentityHashMap<>();
+    literalEntries = new TrieMap<>();
+    literalEntriesIgnoreCase = new TrieMap<>();
     multiPatternMatcher = createPatternMatcher(patternToEntry);
     this.patternToEntry = Collections.unmodifiableMap(patternToEntry);
+    IdentityHashMap<Entry, Integer> entryToOrder = new IdentityHashMap<>();
+    for (Entry entry : entries) {
+      entryToOrder.put(entry, entryToOrder.size());
+    }
+    this.entryToOrder = entryToOrder;
     Set<String> myLabels = Generics.newHashSet();
     // Can always override background or none.
     Collections.addAll(myLabels, backgroundSymbols);
@@ -343,12 +356,25 @@ public class TokensRegexNERAnnotator implements Annotator  {
       Boolean ignoreCaseEntry = ignoreCaseList.get(entryToMappingFileNumber.get(entry));
       int patternFlags = ignoreCaseEntry? Pattern.CASE_INSENSITIVE:0;
       int stringMatchFlags = ignoreCaseEntry? NodePattern.CASE_INSENSITIVE:0;
+
+      NodePattern<String> posTagPattern = (validPosPatternList.get(entryToMappingFileNumber.get(entry)) != null && PosMatchType.MATCH_ALL_TOKENS.equals(posMatchType))?
+              new CoreMapNodePattern.StringAnnotationRegexPattern(validPosPatternList.get(entryToMappingFileNumber.get(entry))):null;
+      if (entry.tokensRegex == null && posTagPattern == null && isLiteral(entry.regex)) {
+        // Matches exactly the token text, so no need for a pattern
+        if (entry.annotateGroup != 0) {
+          throw new RuntimeException("Invalid match group for entry " + entry);
+        }
+        if (ignoreCaseEntry) {
+          addLiteralEntry(literalEntriesIgnoreCase, foldCase(entry.regex), entry);
+        } else {
+          addLiteralEntry(literalEntries, entry.regex, entry);
+        }
+        continue;
+      }
       Env env = TokenSequencePattern.getNewEnv();
       env.setDefaultStringPatternFlags(patternFlags);
       env.setDefaultStringMatchFlags(stringMatchFlags);
 
-      NodePattern<String> posTagPattern = (validPosPatternList.get(entryToMappingFileNumber.get(entry)) != null && PosMatchType.MATCH_ALL_TOKENS.equals(posMatchType))?
-              new CoreMapNodePattern.StringAnnotationRegexPattern(validPosPatternList.get(entryToMappingFileNumber.get(entry))):null;
       if (entry.tokensRegex != null) {
         // TODO: posTagPatterns...
         pattern = TokenSequencePattern.compile(env, entry.tokensRegex);
@@ -372,24 +398,173 @@ public class TokensRegexNERAnnotator implements Annotator  {
       patterns.add(pattern);
       patternToEntry.put(pattern, entry);
     }
-    return TokenSequencePattern.getMultiPatternMatcher(patterns);
+    return patterns.isEmpty() ? null : TokenSequencePattern.getMultiPatternMatcher(patterns);
+  }
+
+  // Whether every token of the entry is one which the node patterns would match as a plain string
+  private static boolean isLiteral(String[] regex) {
+    for (String p : regex) {
+      if ( ! ComplexNodePattern.isLiteral(p)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void addLiteralEntry(TrieMap<String, List<Entry>> trie, String[] key, Entry entry) {
+    List<Entry> entriesForKey = trie.get(key);
+    if (entriesForKey == null) {
+      entriesForKey = new ArrayList<>(1);
+      trie.put(key, entriesForKey);
+    }
+    entriesForKey.add(entry);
+  }
+
+  /** Maps strings which are equal ignoring case (as in {@link String#equalsIgnoreCase}) to the same string */
+  private static String foldCase(String str) {
+    StringBuilder sb = null;
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      char folded = Character.toLowerCase(Character.toUpperCase(c));
+      if (folded != c && sb == null) {
+        sb = new StringBuilder(str.length());
+        sb.append(str, 0, i);
+      }
+      if (sb != null) {
+        sb.append(folded);
+      }
+    }
+    return (sb == null) ? str : sb.toString();
+  }
+
+  private static String[] foldCase(String[] strs) {
+    String[] folded = new String[strs.length];
+    for (int i = 0; i < strs.length; i++) {
+      folded[i] = foldCase(strs[i]);
+    }
+    return folded;
+  }
+
+  /** A match of an entry, found either by a TokensRegex pattern or by looking the tokens up in a trie */
+  private static class EntryMatch {
+    final Entry entry;
+    final int order;
+    final int start, end;  // the whole match
+    final SequenceMatchResult<CoreMap> result; // null for literal entries
+
+    EntryMatch(Entry entry, int order, int start, int end, SequenceMatchResult<CoreMap> result) {
+      this.entry = entry;
+      this.order = order;
+      this.start = start;
+      this.end = end;
+      this.result = result;
+    }
+
+    int start(int group) { return (result == null) ? start : result.start(group); }
+    int end(int group) { return (result == null) ? end : result.end(group); }
+  }
+
+  // Same order as SequenceMatchResult.DEFAULT_COMPARATOR: priority, score, length, order, offset
+  private static final Comparator<EntryMatch> ENTRY_MATCH_COMPARATOR = (m1, m2) -> {
+    if (m1.entry.priority != m2.entry.priority) {
+      return (m1.entry.priority > m2.entry.priority)? -1:1;
+    }
+    if (m1.entry.weight != m2.entry.weight) {
+      return (m1.entry.weight > m2.entry.weight)? -1:1;
+    }
+    int len1 = m1.end - m1.start;
+    int len2 = m2.end - m2.start;
+    if (len1 != len2) {
+      return (len1 > len2)? -1:1;
+    }
+    if (m1.order != m2.order) {
+      return (m1.order < m2.order)? -1:1;
+    }
+    if (m1.start != m2.start) {
+      return (m1.start < m2.start)? -1:1;
+    }
+    return Integer.compare(m1.end, m2.end);
+  };
+
+  /**
+   * Finds the matches of all entries, then picks non overlapping matches the way
+   * {@link MultiPatternMatcher#findNonOverlapping} does, with ties broken by the order
+   * of the entries.
+   */
+  private List<EntryMatch> findNonOverlapping(List<CoreLabel> tokens) {
+    List<EntryMatch> all = new ArrayList<>();
+    if (multiPatternMatcher != null) {
+      for (SequencePattern<CoreMap> p : multiPatternMatcher.getTriggeredPatterns(tokens)) {
+        if (Thread.interrupted()) {  // Allow interrupting
+          throw new RuntimeInterruptedException();
+        }
+        Entry entry = patternToEntry.get(p);
+        SequenceMatcher<CoreMap> m = p.getMatcher(tokens);
+        while (m.find()) {
+          all.add(new EntryMatch(entry, entryToOrder.get(entry), m.start(), m.end(), m.toBasicSequenceMatchResult()));
+        }
+      }
+    }
+    if ( ! literalEntries.isEmpty()) {
+      findLiteral(literalEntries, tokens, false, all);
+    }
+    if ( ! literalEntriesIgnoreCase.isEmpty()) {
+      findLiteral(literalEntriesIgnoreCase, tokens, true, all);
+    }
+    List<EntryMatch> res = IntervalTree.getNonOverlapping(all,
+            m -> Interval.toInterval(m.start, m.end, Interval.INTERVAL_OPEN_END), ENTRY_MATCH_COMPARATOR);
+    res.sort((m1, m2) -> (m1.start != m2.start) ? Integer.compare(m1.start, m2.start) : Integer.compare(m1.end, m2.end));
+    return res;
+  }
+
+  /**
+   * Adds the matches of the literal entries in the trie, walking the trie from each token.
+   * As with {@code find()} on a pattern, the matches of any one entry do not overlap.
+   */
+  private void findLiteral(TrieMap<String, List<Entry>> trie, List<CoreLabel> tokens, boolean foldCase, List<EntryMatch> all) {
+    String[] words = new String[tokens.size()];
+    for (int i = 0; i < words.length; i++) {
+      String word = tokens.get(i).get(CoreAnnotations.TextAnnotation.class);
+      words[i] = (word != null && foldCase) ? foldCase(word) : word;
+    }
+    Map<Entry, Integer> lastEnd = null;
+    for (int start = 0; start < words.length; start++) {
+      TrieMap<String, List<Entry>> node = trie;
+      for (int end = start; end < words.length && words[end] != null; end++) {
+        node = node.getChildTrie(words[end]);
+        if (node == null) break;
+        List<Entry> matched = node.getValue();
+        if (matched == null) continue;
+        for (Entry entry : matched) {
+          if (lastEnd == null) {
+            lastEnd = new IdentityHashMap<>();
+          }
+          Integer prevEnd = lastEnd.get(entry);
+          if (prevEnd == null || prevEnd <= start) {
+            all.add(new EntryMatch(entry, entryToOrder.get(entry), start, end + 1, null));
+            lastEnd.put(entry, end + 1);
+          }
+        }
+      }
+    }
   }
 
   private void annotateMatched(List<CoreLabel> tokens) {
-    List<SequenceMatchResult<CoreMap>> matched = multiPatternMatcher.findNonOverlapping(tokens);
-    for (SequenceMatchResult<CoreMap> m:matched) {
-      Entry entry = patternToEntry.get(m.pattern());
+    List<EntryMatch> matched = findNonOverlapping(tokens);
+    for (EntryMatch m:matched) {
+      Entry entry = m.entry;
 
       // Check if we will overwrite the existing annotation with this annotation
       int g = entry.annotateGroup;
       int start = m.start(g);
       int end = m.end(g);
 
-      String str = m.group(g);
+      String str = (m.result != null) ? m.result.group(g) :
+              ChunkAnnotationUtils.getTokenText(tokens.subList(start, end), CoreAnnotations.TextAnnotation.class);
       if (commonWords.contains(str)) {
         if (verbose) {
           log.info("Not annotating (common word) '" + str + "': " +
-              StringUtils.joinFields(m.groupNodes(g), CoreAnnotations.NamedEntityTagAnnotation.class)
+              StringUtils.joinFields(tokens.subList(start, end), CoreAnnotations.NamedEntityTagAnnotation.class)
               + " with " + entry.getTypeDescription() + ", sentence is '" + StringUtils.joinWords(tokens, " ") + "'");
         }
         continue;
@@ -409,8 +584,8 @@ public class TokensRegexNERAnnotator implements Annotator  {
         }
       } else {
         if (verbose) {
-          log.info("Not annotating  '" + m.group(g) + "': " +
-                  StringUtils.joinFields(m.groupNodes(g), CoreAnnotations.NamedEntityTagAnnotation.class)
+          log.info("Not annotating  '" + str + "': " +
+                  StringUtils.joinFields(tokens.subList(start, end), CoreAnnotations.NamedEntityTagAnnotation.class)
                   + " with " + entry.getTypeDescription() + ", sentence is '" + StringUtils.joinWords(tokens, " ") + "'");
         }
       }
@@ -4,6 +4,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import edu.stanford.nlp.io.IOUtils;
@@ -42,10 +43,14 @@ import edu.stanford.nlp.util.logging.Redwood;
  * you can do to get around this is build a new Morphology object for
  * each thread or each set of calls to the Morphology.  For example, the
  * MorphaAnnotator builds a Morphology for each document it annotates.
- * The other approach is to use the synchronized methods in this class.
- * The crucial lexer-accessing portion of all the static methods is synchronized
- * (otherwise, their use tended to be threading bugs waiting to happen).
- * If you want less synchronization, create your own Morphology objects.
+ * The other approach is to use the static methods in this class, which
+ * are thread-safe: each thread gets its own lexer for them.
+ * <p>
+ * The lemmas of (word, tag) pairs are cached, in a cache shared by all
+ * threads and all Morphology objects which use the default options.  The
+ * cache stops growing once it holds {@code LEMMA_CACHE_SIZE} lemmas; by
+ * then it has seen the common words, and lemmas of other words are worked
+ * out by the lexer each time.
  * <br>
  * @author Kristina Toutanova (kristina@cs.stanford.edu)
  * @author Christopher Manning
@@ -56,7 +61,16 @@ public class Morphology implements Function  {
   private static Redwood.RedwoodChannels log = Redwood.channels(Morphology.class);
 
   private static final boolean DEBUG = false;
-  private static Morpha staticLexer;
+
+  /** The lexer used by the static methods, one for each thread */
+  private static final ThreadLocal<Morpha> staticLexer = ThreadLocal.withInitial(() -> new Morpha(System.in));
+
+  /** The most lemmas cached for each setting of lowercasing */
+  private static final int LEMMA_CACHE_SIZE = 200000;
+
+  /** The cached lemmas of words, by word and tag, with and without lowercasing */
+  private static final ConcurrentHashMap<WordTag, String> lowercaseLemmaCache = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<WordTag, String> lemmaCache = new ConcurrentHashMap<>();
 
   private final Morpha lexer;
 
@@ -107,11 +121,11 @@ public class Morphology implements Function  {
 
 
   public String lemma(String word, String tag) {
-    return lemmatize(word, tag, lexer, lexer.option(1));
+    return cachedLemmatize(word, tag, lexer, lexer.option(1));
   }
 
   public String lemma(String word, String tag, boolean lowercase) {
-    return lemmatize(word, tag, lexer, lowercase);
+    return cachedLemmatize(word, tag, lexer, lowercase);
   }
 
 
@@ -128,7 +142,7 @@ public class Morphology implements Function  {
    */
   public void stem(CoreLabel label,
                    Class<? extends CoreAnnotation<String>> ann) {
-    String lemma = lemmatize(label.word(), label.tag(), lexer, lexer.option(1));
+    String lemma = cachedLemmatize(label.word(), label.tag(), lexer, lexer.option(1));
     label.set(ann, lemma);
   }
 
@@ -168,19 +182,33 @@ public class Morphology implements Function  {
     }
   }
 
-  private static synchronized void initStaticLexer() {
-    if (staticLexer == null) {
-      staticLexer = new Morpha(System.in);
+  /** Lemmatize the word like {@link #lemmatize(String, String, Morpha, boolean)},
+   *  looking the lemma up in the cache first if the lexer has the default options.
+   */
+  private static String cachedLemmatize(String word, String tag, Morpha lexer, boolean lowercase) {
+    // the lemma also depends on the other options, so other lexers can't share the cache
+    if (word == null || tag == null || lexer.option(0) || ! lexer.option(2)) {
+      return lemmatize(word, tag, lexer, lowercase);
     }
+    // lemmatize() leaves the lexer with this setting, so a cached lemma should too
+    lexer.setOption(1, lowercase);
+    ConcurrentHashMap<WordTag, String> cache = lowercase ? lowercaseLemmaCache : lemmaCache;
+    WordTag key = new WordTag(word, tag);
+    String lemma = cache.get(key);
+    if (lemma == null) {
+      lemma = lemmatize(word, tag, lexer, lowercase);
+      if (cache.size() < LEMMA_CACHE_SIZE) {
+        cache.put(key, lemma);
+      }
+    }
+    return lemma;
   }
 
   /** Return a new WordTag which has the lemma as the value of word().
-   *  The default is to lowercase non-proper-nouns, unless options have
-   *  been set.
+   *  Words other than proper nouns will be changed to all lowercase.
    */
-  public static synchronized WordTag stemStatic(String word, String tag) {
-    initStaticLexer();
-    return new WordTag(lemmatize(word, tag, staticLexer, staticLexer.option(1)), tag);
+  public static WordTag stemStatic(String word, String tag) {
+    return new WordTag(cachedLemmatize(word, tag, staticLexer.get(), true), tag);
   }
 
 
@@ -191,7 +219,7 @@ public class Morphology implements Function  {
    *  @param tag What part of speech to assume for it.
    *  @return The lemma for the word
    */
-  public static synchronized String lemmaStatic(String word, String tag) {
+  public static String lemmaStatic(String word, String tag) {
     return lemmaStatic(word, tag, true);
   }
 
@@ -204,16 +232,14 @@ public class Morphology implements Function  {
    *      be changed to all lowercase.
    *  @return The lemma for the word
    */
-  public static synchronized String lemmaStatic(String word, String tag,
-                                                boolean lowercase) {
-    initStaticLexer();
-    return lemmatize(word, tag, staticLexer, lowercase);
+  public static String lemmaStatic(String word, String tag,
+                                   boolean lowercase) {
+    return cachedLemmatize(word, tag, staticLexer.get(), lowercase);
   }
 
 
   /** Return a new WordTag which has the lemma as the value of word().
-   *  The default is to lowercase non-proper-nouns, unless options have
-   *  been set.
+   *  Words other than proper nouns will be changed to all lowercase.
    */
   public static WordTag stemStatic(WordTag wT) {
     return stemStatic(wT.word(), wT.tag());
@@ -225,7 +251,7 @@ public class Morphology implements Function  {
     if (in instanceof WordTag) {
       WordTag wt = (WordTag) in;
       String tag = wt.tag();
-      return new WordTag(lemmatize(wt.word(), tag, lexer, lexer.option(1)), tag);
+      return new WordTag(cachedLemmatize(wt.word(), tag, lexer, lexer.option(1)), tag);
     }
     if (in instanceof Word) {
       return stem((Word) in);
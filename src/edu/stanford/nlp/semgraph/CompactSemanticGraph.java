@@ -0,0 +1,354 @@
+package edu.stanford.nlp.semgraph;
+
+import edu.stanford.nlp.graph.DirectedMultiGraph;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.util.Generics;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An array-based copy of the structure of a {@link SemanticGraph}, which
+ * a frozen graph (see {@link SemanticGraph#freeze()}) uses to answer
+ * queries without hashing {@link IndexedWord}s.
+ * <br>
+ * Each vertex gets a number, in order of token index, and the vertices
+ * with token index {@code i} are found directly from {@link #indexStart}.
+ * Only vertices whose index is negative or far larger than the number of
+ * vertices, which do not occur in sentence graphs, are looked up in a map.
+ * The edges are kept CSR style: the outgoing edges of vertex {@code v}
+ * are {@code outEdges[outStart[v]]} up to {@code outEdges[outStart[v+1]]},
+ * with the numbers of their targets in {@link #outTargets}, and likewise
+ * for the incoming edges, the children, and the parents.
+ * <br>
+ * Every list of edges or neighbors is in the order in which the original
+ * graph returned it, so a frozen graph iterates in the same order as
+ * the graph it was built from.
+ */
+class CompactSemanticGraph {
+
+  private final IndexedWord[] vertices;
+  /** The vertices with token index i are numbered from indexStart[i] up to indexStart[i+1] */
+  private final int[] indexStart;
+  /** The first vertex with each token index in the original vertex order, as returned by getNodeByIndexSafe */
+  private final IndexedWord[] nodeByIndex;
+  /** Numbers of the vertices whose token index is outside indexStart, or null if there are none */
+  private final Map<IndexedWord, Integer> otherVertices;
+
+  private final int[] outStart;
+  private final SemanticGraphEdge[] outEdges;
+  private final int[] outTargets;
+  private final int[] inStart;
+  private final SemanticGraphEdge[] inEdges;
+  private final int[] childStart;
+  private final int[] children;
+  private final int[] parentStart;
+  private final int[] parents;
+  /** All edges, in the order of the original graph's edge iterator */
+  private final SemanticGraphEdge[] allEdges;
+
+  CompactSemanticGraph(DirectedMultiGraph<IndexedWord, SemanticGraphEdge> graph) {
+    Set<IndexedWord> vertexSet = graph.getAllVertices();
+    int numVertices = vertexSet.size();
+    vertices = vertexSet.toArray(new IndexedWord[numVertices]);
+    Arrays.sort(vertices, Comparator.comparingInt(IndexedWord::index));
+
+    // Token indices from 0 up to a little more than the number of vertices go in the table
+    int limit = 0;
+    for (IndexedWord vertex : vertices) {
+      int index = vertex.index();
+      if (index >= 0 && index < numVertices * 2 + 16) {
+        limit = Math.max(limit, index + 1);
+      }
+    }
+    indexStart = new int[limit + 1];
+    Map<IndexedWord, Integer> others = null;
+    for (int v = 0; v < numVertices; v++) {
+      int index = vertices[v].index();
+      if (index >= 0 && index < limit) {
+        indexStart[index + 1] = v + 1;
+      } else {
+        if (others == null) {
+          others = Generics.newHashMap();
+        }
+        others.put(vertices[v], v);
+      }
+    }
+    // Vertices with negative indices sort first, so fill in the start of the table from the first positive index
+    int firstInTable = 0;
+    while (firstInTable < numVertices && vertices[firstInTable].index() < 0) {
+      firstInTable++;
+    }
+    indexStart[0] = firstInTable;
+    for (int i = 1; i <= limit; i++) {
+      indexStart[i] = Math.max(indexStart[i], indexStart[i - 1]);
+    }
+    otherVertices = others;
+
+    nodeByIndex = new IndexedWord[limit];
+    for (IndexedWord vertex : vertexSet) {
+      int index = vertex.index();
+      if (index >= 0 && index < limit && nodeByIndex[index] == null) {
+        nodeByIndex[index] = vertex;
+      }
+    }
+
+    int numEdges = graph.getNumEdges();
+    outStart = new int[numVertices + 1];
+    outEdges = new SemanticGraphEdge[numEdges];
+    outTargets = new int[numEdges];
+    inStart = new int[numVertices + 1];
+    inEdges = new SemanticGraphEdge[numEdges];
+    childStart = new int[numVertices + 1];
+    parentStart = new int[numVertices + 1];
+    int numChildren = 0;
+    int numParents = 0;
+    for (int v = 0; v < numVertices; v++) {
+      Set<IndexedWord> vertexChildren = graph.getChildren(vertices[v]);
+      Set<IndexedWord> vertexParents = graph.getParents(vertices[v]);
+      numChildren += vertexChildren == null ? 0 : vertexChildren.size();
+      numParents += vertexParents == null ? 0 : vertexParents.size();
+    }
+    children = new int[numChildren];
+    parents = new int[numParents];
+
+    int out = 0;
+    int in = 0;
+    int child = 0;
+    int parent = 0;
+    for (int v = 0; v < numVertices; v++) {
+      IndexedWord vertex = vertices[v];
+      for (SemanticGraphEdge edge : graph.outgoingEdgeIterable(vertex)) {
+        outEdges[out] = edge;
+        outTargets[out] = id(edge.getTarget());
+        out++;
+      }
+      outStart[v + 1] = out;
+      for (SemanticGraphEdge edge : graph.incomingEdgeIterable(vertex)) {
+        inEdges[in++] = edge;
+      }
+      inStart[v + 1] = in;
+      Set<IndexedWord> vertexChildren = graph.getChildren(vertex);
+      if (vertexChildren != null) {
+        for (IndexedWord c : vertexChildren) {
+          children[child++] = id(c);
+        }
+      }
+      childStart[v + 1] = child;
+      Set<IndexedWord> vertexParents = graph.getParents(vertex);
+      if (vertexParents != null) {
+        for (IndexedWord p : vertexParents) {
+          parents[parent++] = id(p);
+        }
+      }
+      parentStart[v + 1] = parent;
+    }
+
+    allEdges = new SemanticGraphEdge[numEdges];
+    int e = 0;
+    for (SemanticGraphEdge edge : graph.edgeIterable()) {
+      allEdges[e++] = edge;
+    }
+  }
+
+  /** The number of the vertex, or -1 if it is not in the graph */
+  int id(IndexedWord vertex) {
+    int index = vertex.index();
+    if (index >= 0 && index < nodeByIndex.length) {
+      int end = indexStart[index + 1];
+      for (int v = indexStart[index]; v < end; v++) {
+        if (vertices[v] == vertex) {
+          return v;
+        }
+      }
+      for (int v = indexStart[index]; v < end; v++) {
+        if (vertices[v].equals(vertex)) {
+          return v;
+        }
+      }
+      return -1;
+    }
+    if (otherVertices == null) {
+      return -1;
+    }
+    Integer v = otherVertices.get(vertex);
+    return v == null ? -1 : v;
+  }
+
+  boolean containsVertex(IndexedWord vertex) {
+    return id(vertex) >= 0;
+  }
+
+  IndexedWord getNodeByIndex(int index) {
+    if (index >= 0 && index < nodeByIndex.length) {
+      return nodeByIndex[index];
+    }
+    if (otherVertices != null) {
+      for (IndexedWord vertex : otherVertices.keySet()) {
+        if (vertex.index() == index) {
+          return vertex;
+        }
+      }
+    }
+    return null;
+  }
+
+  int outDegree(IndexedWord vertex) {
+    int v = id(vertex);
+    return v < 0 ? 0 : outStart[v + 1] - outStart[v];
+  }
+
+  int inDegree(IndexedWord vertex) {
+    int v = id(vertex);
+    return v < 0 ? 0 : inStart[v + 1] - inStart[v];
+  }
+
+  int edgeCount() {
+    return allEdges.length;
+  }
+
+  /** The edges from gov to dep, in their original order */
+  List<SemanticGraphEdge> getEdges(IndexedWord gov, IndexedWord dep) {
+    int source = id(gov);
+    int target = source < 0 ? -1 : id(dep);
+    if (target < 0) {
+      return Collections.emptyList();
+    }
+    List<SemanticGraphEdge> edges = null;
+    for (int e = outStart[source], end = outStart[source + 1]; e < end; e++) {
+      if (outTargets[e] == target) {
+        if (edges == null) {
+          edges = Generics.newArrayList(2);
+        }
+        edges.add(outEdges[e]);
+      }
+    }
+    return edges == null ? Collections.emptyList() : Collections.unmodifiableList(edges);
+  }
+
+  boolean isEdge(IndexedWord gov, IndexedWord dep) {
+    int source = id(gov);
+    int target = source < 0 ? -1 : id(dep);
+    if (target < 0) {
+      return false;
+    }
+    for (int e = outStart[source], end = outStart[source + 1]; e < end; e++) {
+      if (outTargets[e] == target) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  Iterator<SemanticGraphEdge> outgoingEdgeIterator(IndexedWord vertex) {
+    int v = id(vertex);
+    return v < 0 ? Collections.emptyIterator() : new ArrayIterator<>(outEdges, outStart[v], outStart[v + 1]);
+  }
+
+  Iterator<SemanticGraphEdge> incomingEdgeIterator(IndexedWord vertex) {
+    int v = id(vertex);
+    return v < 0 ? Collections.emptyIterator() : new ArrayIterator<>(inEdges, inStart[v], inStart[v + 1]);
+  }
+
+  Iterator<SemanticGraphEdge> edgeIterator() {
+    return new ArrayIterator<>(allEdges, 0, allEdges.length);
+  }
+
+  /** The children of the vertex, or null if it is not in the graph */
+  Set<IndexedWord> getChildren(IndexedWord vertex) {
+    int v = id(vertex);
+    return v < 0 ? null : new VertexSet(children, childStart[v], childStart[v + 1]);
+  }
+
+  /** The parents of the vertex, or null if it is not in the graph */
+  Set<IndexedWord> getParents(IndexedWord vertex) {
+    int v = id(vertex);
+    return v < 0 ? null : new VertexSet(parents, parentStart[v], parentStart[v + 1]);
+  }
+
+  /** Iterates over part of an array.  Does not support remove. */
+  private static class ArrayIterator<E> implements Iterator<E> {
+    private final E[] items;
+    private final int end;
+    private int next;
+
+    ArrayIterator(E[] items, int start, int end) {
+      this.items = items;
+      this.next = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public E next() {
+      if (next >= end) {
+        throw new NoSuchElementException("Graph edge iterator exhausted.");
+      }
+      return items[next++];
+    }
+  }
+
+  /** An unmodifiable set of the vertices whose numbers are in part of an array */
+  private class VertexSet extends AbstractSet<IndexedWord> {
+    private final int[] ids;
+    private final int start;
+    private final int end;
+
+    VertexSet(int[] ids, int start, int end) {
+      this.ids = ids;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if ( ! (o instanceof IndexedWord)) {
+        return false;
+      }
+      int v = id((IndexedWord) o);
+      for (int i = start; i < end; i++) {
+        if (ids[i] == v) {
+          return v >= 0;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Iterator<IndexedWord> iterator() {
+      return new Iterator<IndexedWord>() {
+        private int next = start;
+
+        @Override
+        public boolean hasNext() {
+          return next < end;
+        }
+
+        @Override
+        public IndexedWord next() {
+          if (next >= end) {
+            throw new NoSuchElementException();
+          }
+          return vertices[ids[next++]];
+        }
+      };
+    }
+  }
+
+}
@@ -48,6 +48,15 @@ import static edu.stanford.nlp.trees.GrammaticalRelation.ROOT;
  * <br>
  * There is no mechanism for returning all edges at once (eg <code>edgeSet()</code>).
  * This is intentional.  Use <code>edgeIterable()</code> to iterate over the edges if necessary.
+ * <br>
+ * A graph which will only be read from, such as the dependencies of a
+ * parsed sentence, can be {@link #freeze() frozen}.  Its structure is then
+ * kept in arrays indexed by token position, which makes looking up nodes
+ * and edges much faster than in the hash maps used by a graph which can
+ * still be changed.  The parse and depparse annotators freeze the
+ * dependency graphs they put on sentences if their {@code freezeGraphs}
+ * property is true; copy a frozen graph with
+ * {@link #SemanticGraph(SemanticGraph)} to change it.
  *
  * @author Christopher Cox
  * @author Teg Grenager
@@ -76,20 +85,68 @@ public class SemanticGraph implements Serializable  {
 
   private LinkedList<String> comments = new LinkedList<>();
 
+  /** The array-based copy of the structure which answers queries once the graph is frozen, or null if it is not */
+  private transient CompactSemanticGraph frozen; // = null
+
+  /**
+   * Makes this graph read-only.  Afterwards, lookups of nodes and edges
+   * use an array-based copy of the graph instead of hashing
+   * {@link IndexedWord}s, and methods which would change the graph throw
+   * an {@code UnsupportedOperationException}.  The nodes and edges
+   * themselves are not copied, and must not be changed in ways which
+   * affect their identity, such as setting their index.
+   * <br>
+   * A frozen graph iterates over nodes and edges in the same order as
+   * before it was frozen.  Copying it with {@link #SemanticGraph(SemanticGraph)}
+   * gives a graph which can be changed again.  A frozen graph is not
+   * frozen after it has been deserialized.
+   *
+   * @return This graph
+   */
+  public SemanticGraph freeze() {
+    if (frozen == null) {
+      frozen = new CompactSemanticGraph(graph);
+    }
+    return this;
+  }
+
+  /** Whether {@link #freeze()} has been called on this graph */
+  public boolean isFrozen() {
+    return frozen != null;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen != null) {
+      throw new UnsupportedOperationException("This SemanticGraph is frozen and cannot be changed");
+    }
+  }
+
   public int edgeCount() {
+    if (frozen != null) {
+      return frozen.edgeCount();
+    }
     return graph.getNumEdges();
   }
 
   public int outDegree(IndexedWord vertex) {
+    if (frozen != null) {
+      return frozen.outDegree(vertex);
+    }
     return graph.getOutDegree(vertex);
   }
 
   public int inDegree(IndexedWord vertex) {
+    if (frozen != null) {
+      return frozen.inDegree(vertex);
+    }
     return graph.getInDegree(vertex);
   }
 
   public List<SemanticGraphEdge> getAllEdges(IndexedWord gov,
                                              IndexedWord dep) {
+    if (frozen != null) {
+      return frozen.getEdges(gov, dep);
+    }
     return graph.getEdges(gov, dep);
   }
 
@@ -98,21 +155,28 @@ public class SemanticGraph implements Serializable  {
   // over getAllEdges.  This has already been done for all uses
   // outside RTE.
   public SemanticGraphEdge getEdge(IndexedWord gov, IndexedWord dep) {
-    List<SemanticGraphEdge> edges = graph.getEdges(gov, dep);
+    List<SemanticGraphEdge> edges = getAllEdges(gov, dep);
     if (edges == null || edges.isEmpty())
       return null;
     return edges.get(0);
   }
 
   public void addVertex(IndexedWord vertex) {
+    checkNotFrozen();
     graph.addVertex(vertex);
   }
 
   public boolean containsVertex(IndexedWord vertex) {
+    if (frozen != null) {
+      return frozen.containsVertex(vertex);
+    }
     return graph.containsVertex(vertex);
   }
 
   public boolean containsEdge(IndexedWord source, IndexedWord target) {
+    if (frozen != null) {
+      return frozen.isEdge(source, target);
+    }
     return graph.isEdge(source, target);
   }
 
@@ -125,10 +189,12 @@ public class SemanticGraph implements Serializable  {
   }
 
   public boolean removeEdge(SemanticGraphEdge e) {
+    checkNotFrozen();
     return graph.removeEdge(e.getSource(), e.getTarget(), e);
   }
 
   public boolean removeVertex(IndexedWord vertex) {
+    checkNotFrozen();
     return graph.removeVertex(vertex);
   }
 
@@ -162,22 +228,40 @@ public class SemanticGraph implements Serializable  {
   }
 
   public Iterable<SemanticGraphEdge> edgeIterable() {
+    if (frozen != null) {
+      CompactSemanticGraph compact = frozen;
+      return compact::edgeIterator;
+    }
     return graph.edgeIterable();
   }
 
   public Iterator<SemanticGraphEdge> outgoingEdgeIterator(IndexedWord v) {
+    if (frozen != null) {
+      return frozen.outgoingEdgeIterator(v);
+    }
     return graph.outgoingEdgeIterator(v);
   }
 
   public Iterable<SemanticGraphEdge> outgoingEdgeIterable(IndexedWord v) {
+    if (frozen != null) {
+      CompactSemanticGraph compact = frozen;
+      return () -> compact.outgoingEdgeIterator(v);
+    }
     return graph.outgoingEdgeIterable(v);
   }
 
   public Iterator<SemanticGraphEdge> incomingEdgeIterator(IndexedWord v) {
+    if (frozen != null) {
+      return frozen.incomingEdgeIterator(v);
+    }
     return graph.incomingEdgeIterator(v);
   }
 
   public Iterable<SemanticGraphEdge> incomingEdgeIterable(IndexedWord v) {
+    if (frozen != null) {
+      CompactSemanticGraph compact = frozen;
+      return () -> compact.incomingEdgeIterator(v);
+    }
     return graph.incomingEdgeIterable(v);
   }
 
@@ -465,6 +549,13 @@ public class SemanticGraph implements Serializable  {
   }
 
   public Set<IndexedWord> getChildren(IndexedWord vertex) {
+    if (frozen != null) {
+      Set<IndexedWord> children = frozen.getChildren(vertex);
+      if (children == null) {
+        throw new IllegalArgumentException();
+      }
+      return children;
+    }
     if (!containsVertex(vertex)) {
       throw new IllegalArgumentException();
     }
@@ -497,6 +588,13 @@ public class SemanticGraph implements Serializable  {
   }
 
   public Set<IndexedWord> getParents(IndexedWord vertex) {
+    if (frozen != null) {
+      Set<IndexedWord> parents = frozen.getParents(vertex);
+      if (parents == null) {
+        throw new IllegalArgumentException();
+      }
+      return parents;
+    }
     if (!containsVertex(vertex)) {
       throw new IllegalArgumentException();
     }
@@ -601,6 +699,9 @@ public class SemanticGraph implements Serializable  {
    * (instead of throwing an exception).
    */
   public IndexedWord getNodeByIndexSafe(int index) {
+    if (frozen != null) {
+      return frozen.getNodeByIndex(index);
+    }
     for (IndexedWord vertex : vertexSet()) {
       if (vertex.index() == index) {
         return vertex;
@@ -761,6 +862,9 @@ public class SemanticGraph implements Serializable  {
   }
 
   public Collection<IndexedWord> getRoots() {
+    if (frozen != null) {
+      return Collections.unmodifiableCollection(roots);
+    }
     return roots;
   }
 
@@ -793,6 +897,7 @@ public class SemanticGraph implements Serializable  {
   }
 
   public void addRoot(IndexedWord root) {
+    checkNotFrozen();
     addVertex(root);
     roots.add(root);
   }
@@ -815,6 +920,7 @@ public class SemanticGraph implements Serializable  {
    * determine if this is a reasonably correct solution.
    */
   public void resetRoots() {
+    checkNotFrozen();
     Collection<IndexedWord> newRoots = getVerticesWithoutParents();
     if (newRoots.size() > 0) {
       roots.clear();
@@ -860,11 +966,13 @@ public class SemanticGraph implements Serializable  {
   }
 
   public void setRoot(IndexedWord word) {
+    checkNotFrozen();
     roots.clear();
     roots.add(word);
   }
 
   public void setRoots(Collection<IndexedWord> words) {
+    checkNotFrozen();
     roots.clear();
     roots.addAll(words);
   }
@@ -1624,12 +1732,14 @@ public class SemanticGraph implements Serializable  {
   }
 
   public SemanticGraphEdge addEdge(IndexedWord s, IndexedWord d, GrammaticalRelation reln, double weight, boolean isExtra) {
+    checkNotFrozen();
     SemanticGraphEdge newEdge = new SemanticGraphEdge(s, d, reln, weight, isExtra);
     graph.add(s, d, newEdge);
     return newEdge;
   }
 
   public SemanticGraphEdge addEdge(SemanticGraphEdge edge) {
+    checkNotFrozen();
     SemanticGraphEdge newEdge = new SemanticGraphEdge(edge.getGovernor(), edge.getDependent(),
         edge.getRelation(), edge.getWeight(), edge.isExtra());
     graph.add(edge.getGovernor(), edge.getDependent(), newEdge);
@@ -1962,6 +2072,7 @@ public class SemanticGraph implements Serializable  {
    *
    */
   public void deleteDuplicateEdges() {
+    checkNotFrozen();
     graph.deleteDuplicateEdges();
   }
 
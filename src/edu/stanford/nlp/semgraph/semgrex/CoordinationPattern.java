@@ -57,6 +57,17 @@ public class CoordinationPattern extends SemgrexPattern  {
     }
   }
 
+  boolean isConj() { return isConj; }
+
+  /** The root of a pattern with iterated nodes ({@code A : B}) is the root of its first node */
+  @Override
+  boolean[] anchorCandidates(SemgrexPatternSet.GraphIndex index, boolean ignoreCase) {
+    if ( ! isNodeCoord || ! isConj || isNegated() || isOptional()) {
+      return null;
+    }
+    return children.get(0).anchorCandidates(index, ignoreCase);
+  }
+
   @Override
   public List<SemgrexPattern> getChildren() {
     return children;
@@ -177,6 +177,80 @@ public class NodePattern extends SemgrexPattern  {
     return !negDesc;
   }
 
+  /**
+   * The root of a pattern can only match a vertex whose attributes match
+   * its description, and which has the edges the relations directly under
+   * it require, such as an outgoing nsubj edge for {@code >nsubj}.
+   */
+  @Override
+  boolean[] anchorCandidates(SemgrexPatternSet.GraphIndex index, boolean ignoreCase) {
+    if (reln != GraphRelation.ROOT || negDesc || isNegated() || isOptional() || isLink || isEmpty) {
+      return null;
+    }
+    boolean[] mask = null;
+    if (isRoot) {
+      mask = index.roots();
+    } else {
+      for (Map.Entry<String, Pair<Object, Object>> attr : attributes.entrySet()) {
+        Class<?> key = Env.lookupAnnotationKey(env, attr.getKey());
+        if (key == null) {
+          return null;
+        }
+        Object toMatch = ignoreCase ? attr.getValue().second : attr.getValue().first;
+        boolean[] attrMask;
+        if (toMatch instanceof Boolean) {
+          if ((Boolean) toMatch) {
+            continue;
+          }
+          attrMask = new boolean[index.size()];
+        } else if (toMatch instanceof String) {
+          String string = (String) toMatch;
+          attrMask = ignoreCase ? index.attributeMatches(key, string::equalsIgnoreCase) : index.attributeEquals(key, string);
+        } else if (toMatch instanceof Pattern) {
+          Pattern pattern = (Pattern) toMatch;
+          attrMask = index.attributeMatches(key, value -> pattern.matcher(value).matches());
+        } else {
+          return null;
+        }
+        mask = intersect(mask, attrMask);
+      }
+    }
+    return requiredEdges(child, index, mask);
+  }
+
+  /** Narrows the mask to the vertices which have the edges required by the relations under a root node */
+  private static boolean[] requiredEdges(SemgrexPattern pattern, SemgrexPatternSet.GraphIndex index, boolean[] mask) {
+    if (pattern == null || pattern.isNegated() || pattern.isOptional()) {
+      return mask;
+    }
+    if (pattern instanceof NodePattern) {
+      GraphRelation relation = ((NodePattern) pattern).reln;
+      if (relation.symbol.equals(">")) {
+        mask = intersect(mask, index.hasEdge(true, relation.type));
+      } else if (relation.symbol.equals("<")) {
+        mask = intersect(mask, index.hasEdge(false, relation.type));
+      }
+    } else if (pattern instanceof CoordinationPattern) {
+      CoordinationPattern coordination = (CoordinationPattern) pattern;
+      if (coordination.isConj() && ! coordination.isNodeCoord()) {
+        for (SemgrexPattern child : coordination.getChildren()) {
+          mask = requiredEdges(child, index, mask);
+        }
+      }
+    }
+    return mask;
+  }
+
+  private static boolean[] intersect(boolean[] mask, boolean[] other) {
+    if (mask == null) {
+      return other;
+    }
+    for (int i = 0; i < mask.length; i++) {
+      mask[i] &= other[i];
+    }
+    return mask;
+  }
+
   public void makeLink() {
     isLink = true;
   }
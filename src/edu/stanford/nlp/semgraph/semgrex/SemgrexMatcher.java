@@ -35,6 +35,8 @@ public abstract class SemgrexMatcher  {
   // these things are used by "find"
   Iterator<IndexedWord> findIterator;
   IndexedWord findCurrent;
+  /** The vertices find() tries as the root of a match, or null for all of them.  Set by SemgrexPatternSet. */
+  List<IndexedWord> findCandidates;
 
   SemgrexMatcher(SemanticGraph sg, 
                  Alignment alignment,
@@ -135,6 +137,9 @@ public abstract class SemgrexMatcher  {
    */
   public boolean find() {
     // log.info("hyp: " + hyp);
+    if (findIterator == null && findCandidates != null) {
+      findIterator = findCandidates.iterator();
+    }
     if (findIterator == null) {
       try {
         if (hyp) {
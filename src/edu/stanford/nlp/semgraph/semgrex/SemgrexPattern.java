@@ -212,6 +212,15 @@ public abstract class SemgrexPattern implements Serializable  {
   // matcher methods
   // ------------------------------------------------------------
 
+  /**
+   * Marks the vertices of the index which could be the root of a match
+   * of this pattern, or returns null if this pattern does not narrow them
+   * down.  A vertex which is not marked can never be the root of a match.
+   */
+  boolean[] anchorCandidates(SemgrexPatternSet.GraphIndex index, boolean ignoreCase) {
+    return null;
+  }
+
   // These get implemented in semgrex.CoordinationMatcher and NodeMatcher
   abstract SemgrexMatcher matcher(SemanticGraph sg, IndexedWord node, Map<String, IndexedWord> namesToNodes,
       Map<String, String> namesToRelations, VariableStrings variableStrings, boolean ignoreCase);
@@ -0,0 +1,261 @@
+package edu.stanford.nlp.semgraph.semgrex;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.util.ErasureUtils;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.TypesafeMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A set of {@link SemgrexPattern}s to be matched against the same graphs,
+ * such as the rules of a rule-based extractor.
+ * <br>
+ * On its own, each pattern's {@code find()} tries every vertex of the
+ * graph as the root of a match.  A pattern set instead indexes each graph
+ * once: the vertices in the order {@code find()} visits them, the
+ * distinct values of each attribute (word, lemma, tag, and so on) which
+ * the patterns test, and the relations of the edges into and out of each
+ * vertex.  From the root node of each pattern, such as
+ * {@code {lemma:die}} in {@code {lemma:die} >nsubj {}=victim}, the set
+ * works out which vertices could be the root of a match, testing each
+ * distinct attribute value and relation name once, and the pattern's
+ * matcher only tries those vertices.  A pattern which cannot match
+ * anywhere in the graph is skipped without matching at all.
+ * <br>
+ * The matchers behave exactly like those from {@link SemgrexPattern#matcher(SemanticGraph)},
+ * and find the same matches in the same order.  The graph should not be
+ * changed while they are in use.  A pattern set itself is not changed by
+ * matching, so one set can be used by several threads at once.
+ * Alignment patterns are not supported.
+ */
+public class SemgrexPatternSet {
+
+  private final List<SemgrexPattern> patterns;
+  private final boolean ignoreCase;
+
+  public SemgrexPatternSet(List<SemgrexPattern> patterns) {
+    this(patterns, false);
+  }
+
+  /**
+   * Makes a pattern set whose matchers ignore case, like
+   * {@link SemgrexPattern#matcher(SemanticGraph, boolean)}.
+   */
+  public SemgrexPatternSet(List<SemgrexPattern> patterns, boolean ignoreCase) {
+    this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+    this.ignoreCase = ignoreCase;
+  }
+
+  public List<SemgrexPattern> patterns() {
+    return patterns;
+  }
+
+  public int size() {
+    return patterns.size();
+  }
+
+  /**
+   * Returns a matcher for each pattern, in the order of the patterns,
+   * all sharing one index of the graph.
+   */
+  public List<SemgrexMatcher> matchers(SemanticGraph sg) {
+    GraphIndex index = new GraphIndex(sg);
+    List<SemgrexMatcher> matchers = new ArrayList<>(patterns.size());
+    for (SemgrexPattern pattern : patterns) {
+      matchers.add(matcher(index, pattern, index.candidates(pattern.anchorCandidates(index, ignoreCase))));
+    }
+    return matchers;
+  }
+
+  /** Returns the patterns which match somewhere in the graph, in the order of the patterns */
+  public List<SemgrexPattern> matchingPatterns(SemanticGraph sg) {
+    GraphIndex index = new GraphIndex(sg);
+    List<SemgrexPattern> matching = new ArrayList<>();
+    for (SemgrexPattern pattern : patterns) {
+      List<IndexedWord> candidates = index.candidates(pattern.anchorCandidates(index, ignoreCase));
+      if ( ! candidates.isEmpty() && matcher(index, pattern, candidates).find()) {
+        matching.add(pattern);
+      }
+    }
+    return matching;
+  }
+
+  private SemgrexMatcher matcher(GraphIndex index, SemgrexPattern pattern, List<IndexedWord> candidates) {
+    SemgrexMatcher matcher = pattern.matcher(index.sg, index.sg.getFirstRoot(), Generics.<String, IndexedWord>newHashMap(),
+        Generics.<String, String>newHashMap(), new VariableStrings(), ignoreCase);
+    matcher.findCandidates = candidates;
+    return matcher;
+  }
+
+  /**
+   * The vertices of a graph, in the order in which {@code find()} visits
+   * them, with their attribute values and the relations of their edges
+   * indexed as they are needed.  A set of vertices is given as a mask
+   * over that order.
+   */
+  static class GraphIndex {
+
+    final SemanticGraph sg;
+    private final List<IndexedWord> vertices;
+    private final Map<IndexedWord, Integer> positions;
+    /** The values of each attribute tested so far */
+    private final Map<Class<?>, AttributeColumn> columns = Generics.newHashMap();
+    /** The vertices with an outgoing or incoming edge of each relation, made when first needed */
+    private Map<String, boolean[]> outgoing;
+    private Map<String, boolean[]> incoming;
+
+    GraphIndex(SemanticGraph sg) {
+      this.sg = sg;
+      List<IndexedWord> order;
+      try {
+        order = sg.topologicalSort();
+      } catch (Exception e) {
+        // same as SemgrexMatcher.find(), for graphs with cycles
+        order = new ArrayList<>(sg.vertexSet());
+      }
+      vertices = order;
+      positions = Generics.newHashMap(vertices.size());
+      for (int i = 0; i < vertices.size(); i++) {
+        positions.put(vertices.get(i), i);
+      }
+    }
+
+    int size() {
+      return vertices.size();
+    }
+
+    /** The vertices in the mask, in order, or all the vertices if the mask is null */
+    List<IndexedWord> candidates(boolean[] mask) {
+      if (mask == null) {
+        return vertices;
+      }
+      List<IndexedWord> candidates = new ArrayList<>();
+      for (int i = 0; i < mask.length; i++) {
+        if (mask[i]) {
+          candidates.add(vertices.get(i));
+        }
+      }
+      return candidates;
+    }
+
+    boolean[] roots() {
+      boolean[] mask = new boolean[vertices.size()];
+      for (IndexedWord root : sg.getRoots()) {
+        Integer position = positions.get(root);
+        if (position != null) {
+          mask[position] = true;
+        }
+      }
+      return mask;
+    }
+
+    /** The vertices whose value for the attribute is exactly the given string */
+    boolean[] attributeEquals(Class<?> key, String value) {
+      AttributeColumn column = column(key);
+      boolean[] mask = new boolean[vertices.size()];
+      Integer id = column.ids.get(value);
+      if (id != null) {
+        int valueId = id;
+        for (int i = 0; i < mask.length; i++) {
+          mask[i] = column.valueIds[i] == valueId;
+        }
+      }
+      return mask;
+    }
+
+    /** The vertices whose value for the attribute passes the filter.  Each distinct value is tested once. */
+    boolean[] attributeMatches(Class<?> key, Predicate<String> filter) {
+      AttributeColumn column = column(key);
+      boolean[] passes = new boolean[column.values.size()];
+      for (int i = 0; i < passes.length; i++) {
+        passes[i] = filter.test(column.values.get(i));
+      }
+      boolean[] mask = new boolean[vertices.size()];
+      for (int i = 0; i < mask.length; i++) {
+        mask[i] = column.valueIds[i] >= 0 && passes[column.valueIds[i]];
+      }
+      return mask;
+    }
+
+    /** The vertices with an edge out of them (or into them) whose relation passes the filter */
+    boolean[] hasEdge(boolean out, Predicate<String> relationFilter) {
+      if (outgoing == null) {
+        outgoing = Generics.newHashMap();
+        incoming = Generics.newHashMap();
+        for (SemanticGraphEdge edge : sg.edgeIterable()) {
+          String relation = edge.getRelation().toString();
+          mark(outgoing, relation, edge.getSource());
+          mark(incoming, relation, edge.getTarget());
+        }
+      }
+      boolean[] mask = new boolean[vertices.size()];
+      for (Map.Entry<String, boolean[]> entry : (out ? outgoing : incoming).entrySet()) {
+        if (relationFilter.test(entry.getKey())) {
+          boolean[] vertexHasEdge = entry.getValue();
+          for (int i = 0; i < mask.length; i++) {
+            mask[i] |= vertexHasEdge[i];
+          }
+        }
+      }
+      return mask;
+    }
+
+    private void mark(Map<String, boolean[]> masks, String relation, IndexedWord vertex) {
+      Integer position = positions.get(vertex);
+      if (position == null) {
+        return;
+      }
+      boolean[] mask = masks.get(relation);
+      if (mask == null) {
+        mask = new boolean[vertices.size()];
+        masks.put(relation, mask);
+      }
+      mask[position] = true;
+    }
+
+    private AttributeColumn column(Class<?> key) {
+      AttributeColumn column = columns.get(key);
+      if (column == null) {
+        Class<? extends TypesafeMap.Key<Object>> valueKey = ErasureUtils.uncheckedCast(key);
+        column = new AttributeColumn(vertices.size());
+        for (int i = 0; i < vertices.size(); i++) {
+          Object value = vertices.get(i).get(valueKey);
+          if (value == null) {
+            column.valueIds[i] = -1;
+          } else {
+            String string = value.toString();
+            Integer id = column.ids.get(string);
+            if (id == null) {
+              id = column.values.size();
+              column.ids.put(string, id);
+              column.values.add(string);
+            }
+            column.valueIds[i] = id;
+          }
+        }
+        columns.put(key, column);
+      }
+      return column;
+    }
+
+    /** The distinct values of an attribute, and the number of the value of each vertex (-1 for none) */
+    private static class AttributeColumn {
+      final List<String> values = new ArrayList<>();
+      final Map<String, Integer> ids = Generics.newHashMap();
+      final int[] valueIds;
+
+      AttributeColumn(int size) {
+        valueIds = new int[size];
+      }
+    }
+
+  }
+
+}
@@ -12,20 +12,18 @@ public class Evaluate extends AbstractEvaluate  {
   /** A logger for this class */
   private static Redwood.RedwoodChannels log = Redwood.channels(Evaluate.class);
 
-  final SentimentCostAndGradient cag;
+  final SentimentBatchPropagator propagator;
   final SentimentModel model;
 
   public Evaluate(SentimentModel model) {
     super(model.op);
     this.model = model;
-    this.cag = new SentimentCostAndGradient(model, null);
+    this.propagator = new SentimentBatchPropagator(model);
   }
 
   @Override
   public void populatePredictedLabels(List<Tree> trees) {
-    for (Tree tree : trees) {
-      cag.forwardPropagateTree(tree);
-    }
+    propagator.forwardPropagateTrees(trees);
   }
 
   /**
@@ -0,0 +1,412 @@
+package edu.stanford.nlp.sentiment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.simple.SimpleMatrix;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.neural.SimpleTensor;
+import edu.stanford.nlp.neural.rnn.RNNCoreAnnotations;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.util.logging.Redwood;
+
+/**
+ * Assigns the same annotations as
+ * {@link SentimentCostAndGradient#forwardPropagateTree}, but for many
+ * trees at once.
+ * <br>
+ * The nodes of all of the trees are grouped by their height, where the
+ * preterminals have height 0.  The children of a node are always lower
+ * than the node, so all of the nodes of one height can be computed
+ * together once the lower heights are done.  For each height, the
+ * inputs of the nodes which use the same transform are put in the rows
+ * of one matrix, the transform is applied with one matrix multiply,
+ * and the tensor is applied to all of the rows in one pass over each
+ * slice.  The class predictions of all the nodes are also computed
+ * with one multiply per classification matrix.  With the simplified
+ * model, which has one transform and one classification matrix, this
+ * is a few large operations per height instead of several small
+ * matrices per node.
+ * <br>
+ * The bilinear products of the tensor only need the upper triangle of
+ * each slice plus its transpose, which is half the work of
+ * {@link SimpleTensor#bilinearProducts}.  This sums in a different
+ * order, so the node vectors and predictions can differ from those of
+ * forwardPropagateTree in the last few bits.
+ * <br>
+ * The work is done in buffers which are kept between calls, so the
+ * only objects made for each node are the annotations.  The buffers
+ * grow to fit the largest call, but after a call with more than
+ * {@link #MAX_KEPT_NODES} nodes they are dropped, so that one very
+ * large document does not keep its buffers for the life of the thread.
+ * <br>
+ * This is not threadsafe; each thread should use its own object.
+ * The model should not be changed while it is in use, as the tensors
+ * are copied the first time they are used.
+ */
+public class SentimentBatchPropagator {
+
+  private static final Redwood.RedwoodChannels log = Redwood.channels(SentimentBatchPropagator.class);
+
+  /** The buffers are made again after a call with more nodes than this */
+  static final int MAX_KEPT_NODES = 4096;
+
+  private final SentimentModel model;
+  private final int numHid;
+
+  /** The nodes of the trees, with the children before their parents */
+  private final List<Tree> nodes = new ArrayList<>();
+  private int[] leftChild;
+  private int[] rightChild;
+  private int[] height;
+  /** The indices of the nodes, sorted by height */
+  private int[] byHeight;
+
+  /** The node vectors, one row per node */
+  private DenseMatrix64F nodeVectors;
+  /** The inputs of a batch of nodes: one row per node, with the bias at the end */
+  private DenseMatrix64F inputs;
+  private DenseMatrix64F outputs;
+  private final double[] partialProducts;
+
+  private final Map<SimpleTensor, double[]> tensorTriangles = new IdentityHashMap<>();
+
+  private final List<Batch> batches = new ArrayList<>();
+  private int numBatches;
+
+  public SentimentBatchPropagator(SentimentModel model) {
+    this.model = model;
+    this.numHid = model.numHid;
+    this.partialProducts = new double[numHid * 2];
+    allocateBuffers();
+  }
+
+  /** Makes the buffers at their starting size */
+  private void allocateBuffers() {
+    leftChild = new int[64];
+    rightChild = new int[64];
+    height = new int[64];
+    byHeight = new int[64];
+    nodeVectors = new DenseMatrix64F(1, 1);
+    inputs = new DenseMatrix64F(1, 1);
+    outputs = new DenseMatrix64F(1, 1);
+    batches.clear();
+  }
+
+  /** The number of nodes the buffers have room for without growing */
+  int capacity() {
+    return height.length;
+  }
+
+  /** The nodes which are computed with the same matrices */
+  private static class Batch {
+    SimpleMatrix matrix;
+    SimpleTensor tensor;
+    int[] nodes = new int[16];
+    int size;
+
+    void add(int node) {
+      if (size == nodes.length) {
+        int[] newNodes = new int[nodes.length * 2];
+        System.arraycopy(nodes, 0, newNodes, 0, size);
+        nodes = newNodes;
+      }
+      nodes[size++] = node;
+    }
+  }
+
+  /**
+   * Sets the NodeVector, Predictions, and PredictedClass annotations of
+   * every non-leaf node of the trees.  The results are the same as
+   * calling {@link SentimentCostAndGradient#forwardPropagateTree} on
+   * each tree, up to rounding, and the trees must satisfy the same
+   * conditions.
+   */
+  public void forwardPropagateTrees(List<Tree> trees) {
+    try {
+      propagate(trees);
+    } finally {
+      if (nodes.size() > MAX_KEPT_NODES) {
+        allocateBuffers();
+      }
+      // don't hold on to the trees until the next call
+      nodes.clear();
+    }
+  }
+
+  private void propagate(List<Tree> trees) {
+    nodes.clear();
+    int maxHeight = 0;
+    for (Tree tree : trees) {
+      int root = addNodes(tree);
+      maxHeight = Math.max(maxHeight, height[root]);
+    }
+    int numNodes = nodes.size();
+    if (numNodes == 0) {
+      return;
+    }
+    sortByHeight(maxHeight);
+    nodeVectors.reshape(numNodes, numHid, false);
+
+    // the preterminals are at the start of byHeight
+    int start = 0;
+    while (start < numNodes && height[byHeight[start]] == 0) {
+      int node = byHeight[start++];
+      String word = nodes.get(node).children()[0].label().value();
+      double[] wordVector = model.getWordVector(word).getMatrix().data;
+      for (int i = 0; i < numHid; ++i) {
+        nodeVectors.data[node * numHid + i] = Math.tanh(wordVector[i]);
+      }
+    }
+
+    while (start < numNodes) {
+      int end = start;
+      int currentHeight = height[byHeight[start]];
+      numBatches = 0;
+      for (; end < numNodes && height[byHeight[end]] == currentHeight; ++end) {
+        int node = byHeight[end];
+        Tree[] children = nodes.get(node).children();
+        String leftCategory = children[0].label().value();
+        String rightCategory = children[1].label().value();
+        SimpleMatrix transform = model.getBinaryTransform(leftCategory, rightCategory);
+        SimpleTensor tensor = model.op.useTensors ? model.getBinaryTensor(leftCategory, rightCategory) : null;
+        findBatch(transform, tensor).add(node);
+      }
+      for (int i = 0; i < numBatches; ++i) {
+        composeBatch(batches.get(i));
+      }
+      start = end;
+    }
+
+    numBatches = 0;
+    for (int node = 0; node < numNodes; ++node) {
+      Tree tree = nodes.get(node);
+      SimpleMatrix classification;
+      if (tree.isPreTerminal()) {
+        classification = model.getUnaryClassification(tree.label().value());
+      } else {
+        Tree[] children = tree.children();
+        classification = model.getBinaryClassification(children[0].label().value(), children[1].label().value());
+      }
+      findBatch(classification, null).add(node);
+    }
+    for (int i = 0; i < numBatches; ++i) {
+      classifyBatch(batches.get(i));
+    }
+  }
+
+  /**
+   * Adds the nodes of the tree, children first, and returns the index
+   * of its root.  Checks the tree the same way forwardPropagateTree does.
+   */
+  private int addNodes(Tree tree) {
+    int left = -1;
+    int right = -1;
+    int nodeHeight;
+    if (tree.isLeaf()) {
+      log.info("SentimentBatchPropagator: warning: We reached leaves in forwardPropagate: " + tree);
+      throw new AssertionError("We should not have reached leaves in forwardPropagate");
+    } else if (tree.isPreTerminal()) {
+      nodeHeight = 0;
+    } else if (tree.children().length == 1) {
+      log.info("SentimentBatchPropagator: warning: Non-preterminal nodes of size 1: " + tree);
+      throw new AssertionError("Non-preterminal nodes of size 1 should have already been collapsed");
+    } else if (tree.children().length == 2) {
+      left = addNodes(tree.children()[0]);
+      right = addNodes(tree.children()[1]);
+      nodeHeight = Math.max(height[left], height[right]) + 1;
+    } else {
+      log.info("SentimentBatchPropagator: warning: Tree not correctly binarized: " + tree);
+      throw new AssertionError("Tree not correctly binarized");
+    }
+    if (!(tree.label() instanceof CoreLabel)) {
+      log.info("SentimentBatchPropagator: warning: No CoreLabels in nodes: " + tree);
+      throw new AssertionError("Expected CoreLabels in the nodes");
+    }
+
+    int node = nodes.size();
+    if (node == height.length) {
+      int size = node * 2;
+      leftChild = grow(leftChild, size);
+      rightChild = grow(rightChild, size);
+      height = grow(height, size);
+      byHeight = new int[size];
+    }
+    nodes.add(tree);
+    leftChild[node] = left;
+    rightChild[node] = right;
+    height[node] = nodeHeight;
+    return node;
+  }
+
+  private static int[] grow(int[] array, int size) {
+    int[] newArray = new int[size];
+    System.arraycopy(array, 0, newArray, 0, array.length);
+    return newArray;
+  }
+
+  /** A counting sort of the nodes by height, keeping their order within each height */
+  private void sortByHeight(int maxHeight) {
+    int numNodes = nodes.size();
+    int[] starts = new int[maxHeight + 2];
+    for (int node = 0; node < numNodes; ++node) {
+      ++starts[height[node] + 1];
+    }
+    for (int i = 1; i < starts.length; ++i) {
+      starts[i] += starts[i - 1];
+    }
+    for (int node = 0; node < numNodes; ++node) {
+      byHeight[starts[height[node]]++] = node;
+    }
+  }
+
+  private Batch findBatch(SimpleMatrix matrix, SimpleTensor tensor) {
+    for (int i = 0; i < numBatches; ++i) {
+      Batch batch = batches.get(i);
+      if (batch.matrix == matrix && batch.tensor == tensor) {
+        return batch;
+      }
+    }
+    if (numBatches == batches.size()) {
+      batches.add(new Batch());
+    }
+    Batch batch = batches.get(numBatches++);
+    batch.matrix = matrix;
+    batch.tensor = tensor;
+    batch.size = 0;
+    return batch;
+  }
+
+  /**
+   * Computes tanh(W [left; right; 1] + tensor products) for each of the
+   * nodes of the batch.
+   */
+  private void composeBatch(Batch batch) {
+    int inputSize = numHid * 2 + 1;
+    inputs.reshape(batch.size, inputSize, false);
+    double[] vectors = nodeVectors.data;
+    for (int i = 0; i < batch.size; ++i) {
+      int node = batch.nodes[i];
+      int row = i * inputSize;
+      System.arraycopy(vectors, leftChild[node] * numHid, inputs.data, row, numHid);
+      System.arraycopy(vectors, rightChild[node] * numHid, inputs.data, row + numHid, numHid);
+      inputs.data[row + numHid * 2] = 1.0;
+    }
+
+    outputs.reshape(batch.size, numHid, false);
+    CommonOps.multTransB(inputs, batch.matrix.getMatrix(), outputs);
+
+    if (batch.tensor != null) {
+      // in^T slice in is the same as in^T U in, where U is the upper
+      // triangle of slice + slice^T, which is half as much work.
+      // For each row r of U this adds in[r] * U[r] to the partial
+      // products, which are then multiplied by the input.
+      double[] triangles = upperTriangles(batch.tensor);
+      int tensorSize = numHid * 2;
+      int triangleSize = tensorSize * (tensorSize + 1) / 2;
+      double[] input = inputs.data;
+      for (int slice = 0; slice < numHid; ++slice) {
+        int sliceStart = slice * triangleSize;
+        for (int i = 0; i < batch.size; ++i) {
+          int inputRow = i * inputSize;
+          Arrays.fill(partialProducts, 0.0);
+          for (int r = 0, rowStart = sliceStart; r < tensorSize; rowStart += tensorSize - r, ++r) {
+            double value = input[inputRow + r];
+            for (int c = r; c < tensorSize; ++c) {
+              partialProducts[c] += value * triangles[rowStart + c - r];
+            }
+          }
+          double result = 0.0;
+          for (int c = 0; c < tensorSize; ++c) {
+            result += partialProducts[c] * input[inputRow + c];
+          }
+          outputs.data[i * numHid + slice] += result;
+        }
+      }
+    }
+
+    for (int i = 0; i < batch.size; ++i) {
+      int node = batch.nodes[i];
+      for (int j = 0; j < numHid; ++j) {
+        vectors[node * numHid + j] = Math.tanh(outputs.data[i * numHid + j]);
+      }
+    }
+  }
+
+  /**
+   * The upper triangles of slice + slice^T for each slice of the
+   * tensor, packed one row after another.
+   */
+  private double[] upperTriangles(SimpleTensor tensor) {
+    double[] triangles = tensorTriangles.get(tensor);
+    if (triangles != null) {
+      return triangles;
+    }
+    int tensorSize = numHid * 2;
+    if (tensor.numRows() != tensorSize || tensor.numCols() != tensorSize || tensor.numSlices() != numHid) {
+      throw new AssertionError("Tensor has the wrong dimensions for this model");
+    }
+    triangles = new double[numHid * tensorSize * (tensorSize + 1) / 2];
+    int index = 0;
+    for (int slice = 0; slice < numHid; ++slice) {
+      SimpleMatrix matrix = tensor.getSlice(slice);
+      for (int r = 0; r < tensorSize; ++r) {
+        triangles[index++] = matrix.get(r, r);
+        for (int c = r + 1; c < tensorSize; ++c) {
+          triangles[index++] = matrix.get(r, c) + matrix.get(c, r);
+        }
+      }
+    }
+    tensorTriangles.put(tensor, triangles);
+    return triangles;
+  }
+
+  /** Computes the predictions for the nodes of the batch and sets their annotations */
+  private void classifyBatch(Batch batch) {
+    int inputSize = numHid + 1;
+    inputs.reshape(batch.size, inputSize, false);
+    for (int i = 0; i < batch.size; ++i) {
+      int row = i * inputSize;
+      System.arraycopy(nodeVectors.data, batch.nodes[i] * numHid, inputs.data, row, numHid);
+      inputs.data[row + numHid] = 1.0;
+    }
+    int numClasses = batch.matrix.numRows();
+    outputs.reshape(batch.size, numClasses, false);
+    CommonOps.multTransB(inputs, batch.matrix.getMatrix(), outputs);
+
+    for (int i = 0; i < batch.size; ++i) {
+      int node = batch.nodes[i];
+      // the same as NeuralUtils.softmax
+      SimpleMatrix predictions = new SimpleMatrix(numClasses, 1);
+      double[] p = predictions.getMatrix().data;
+      double sum = 0.0;
+      for (int j = 0; j < numClasses; ++j) {
+        p[j] = Math.exp(outputs.data[i * numClasses + j]);
+        sum += p[j];
+      }
+      double scale = 1.0 / sum;
+      int argmax = 0;
+      for (int j = 0; j < numClasses; ++j) {
+        p[j] *= scale;
+        if (p[j] > p[argmax]) {
+          argmax = j;
+        }
+      }
+
+      SimpleMatrix nodeVector = new SimpleMatrix(numHid, 1);
+      System.arraycopy(nodeVectors.data, node * numHid, nodeVector.getMatrix().data, 0, numHid);
+
+      CoreLabel label = (CoreLabel) nodes.get(node).label();
+      label.set(RNNCoreAnnotations.Predictions.class, predictions);
+      label.set(RNNCoreAnnotations.PredictedClass.class, argmax);
+      label.set(RNNCoreAnnotations.NodeVector.class, nodeVector);
+    }
+  }
+
+}
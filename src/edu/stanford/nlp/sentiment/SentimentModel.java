@@ -468,6 +468,8 @@ public class SentimentModel implements Serializable  {
 
   void readWordVectors() {
     Embedding embedding = new Embedding(op.wordVectors, op.numHid);
+    // The word vectors are parameters of the model, which training
+    // changes in place, so vectors from a mapped file are copied here
     this.wordVectors = Generics.newTreeMap();
 //    Map<String, SimpleMatrix> rawWordVectors = NeuralUtils.readRawWordVectors(op.wordVectors, op.numHid);
 //    for (String word : rawWordVectors.keySet()) {
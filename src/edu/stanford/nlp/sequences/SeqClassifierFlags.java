@@ -436,6 +436,8 @@ public class SeqClassifierFlags implements Serializable  {
   public transient String loadAuxClassifier = null;
   public transient String serializeTo = null;
   public transient String serializeToText = null;
+  /** Write a CRF in the memory-mapped format, which loads without deserializing its features and weights */
+  public transient String serializeToMapped = null;
   public transient int interimOutputFreq = 0;
   public transient String initialWeights = null;
   public transient List<String> gazettes = new ArrayList<>();
@@ -505,6 +507,12 @@ public class SeqClassifierFlags implements Serializable  {
   public String svmModelFile = null;
 
   public String inferenceType = "Viterbi";
+  /**
+   * For CRFClassifier Viterbi inference, decode directly from clique
+   * potentials using per-thread scratch buffers, rather than building
+   * a calibrated clique tree for each document.
+   */
+  public boolean useScratchViterbi = false;
 
   public boolean useLemmaAsWord = false;
 
@@ -1568,6 +1576,8 @@ public class SeqClassifierFlags implements Serializable  {
         serializeTo = val;
       } else if (key.equalsIgnoreCase("serializeToText")) {
         serializeToText = val;
+      } else if (key.equalsIgnoreCase("serializeToMapped")) {
+        serializeToMapped = val;
       } else if (key.equalsIgnoreCase("serializeDatasetsDir")) {
         serializeDatasetsDir = val;
       } else if (key.equalsIgnoreCase("loadDatasetsDir")) {
@@ -1967,6 +1977,8 @@ public class SeqClassifierFlags implements Serializable  {
         numSamples = Integer.parseInt(val);
       } else if (key.equalsIgnoreCase("inferenceType")) {
         inferenceType = val;
+      } else if (key.equalsIgnoreCase("useScratchViterbi")) {
+        useScratchViterbi = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("loadProcessedData")) {
         loadProcessedData = val;
       } else if (key.equalsIgnoreCase("normalizationTable")) {
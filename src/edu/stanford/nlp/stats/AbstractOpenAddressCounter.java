@@ -0,0 +1,635 @@
+package edu.stanford.nlp.stats;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import edu.stanford.nlp.math.SloppyMath;
+import edu.stanford.nlp.util.logging.PrettyLogger;
+import edu.stanford.nlp.util.logging.Redwood.RedwoodChannels;
+
+/**
+ * The part of {@link OpenAddressCounter} and {@link IntOpenAddressCounter}
+ * which doesn't depend on how the keys are stored.
+ * <br>
+ * The counts are kept in a {@code double[]}, and the keys in a table of
+ * the same length which the subclass owns.  Slots are found by linear
+ * probing from the hash of the key.  A slot is either free, holds a key,
+ * or holds a marker for a key which was removed; removed slots are
+ * reused by later keys, and dropped when the table is next rebuilt.
+ * This is what lets the views of the counter remove keys while
+ * iterating.
+ * <br>
+ * So that int keys need not be boxed, a key is passed to the table as
+ * both an Object and an int, and each subclass only looks at the one
+ * it stores.
+ *
+ * @param <E> The type of the keys
+ */
+abstract class AbstractOpenAddressCounter<E> implements Serializable, Counter<E>, Iterable<E> {
+
+  private static final long serialVersionUID = 1L;
+
+  static final int MIN_CAPACITY = 4;
+
+  transient double[] values;
+  /** The number of keys */
+  private transient int size;
+  /** The number of keys plus the number of removed markers */
+  private transient int used;
+  private transient int modCount;
+
+  private double totalCount; // = 0.0
+  private double defaultValue; // = 0.0
+
+
+  // THE KEY TABLE, WHICH THE SUBCLASS KEEPS
+
+  /** Replaces the key table with an empty one of the given size, and returns the old one */
+  abstract Object newKeyTable(int capacity);
+
+  /** Whether the slot has not held a key since the table was made */
+  abstract boolean isFree(int slot);
+
+  /** Whether the slot held a key which was removed */
+  abstract boolean isRemoved(int slot);
+
+  /** Whether the key in an occupied slot is the given key */
+  abstract boolean keyEquals(int slot, Object key, int intKey);
+
+  abstract void setKey(int slot, Object key, int intKey);
+
+  abstract void markRemoved(int slot);
+
+  /** The key in an occupied slot */
+  abstract E keyAt(int slot);
+
+  /** Whether the slot of an old key table holds a key */
+  abstract boolean hasKey(Object table, int slot);
+
+  /** The hash of the key in the slot of an old key table, as passed to {@link #add} */
+  abstract int hashOf(Object table, int slot);
+
+  /** Moves the key in the slot of an old key table to a slot of the current one */
+  abstract void moveKey(Object table, int from, int to);
+
+  /** The slot holding the key, or -1 if it isn't in the counter */
+  abstract int findSlot(Object key);
+
+  /** The slot holding the key, adding it with a count of 0.0 if it isn't in the counter yet */
+  abstract int insertSlot(E key);
+
+  abstract void writeKey(ObjectOutputStream out, int slot) throws IOException;
+
+  /** Reads a key written by {@link #writeKey} and returns its slot, adding it to the counter */
+  abstract int readKey(ObjectInputStream in) throws IOException, ClassNotFoundException;
+
+
+  // THE HASH TABLE
+
+  /** The smallest power of two which keeps the table at most half full */
+  static int capacityFor(int numKeys) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < numKeys * 2 && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  final void allocate(int capacity) {
+    newKeyTable(capacity);
+    values = new double[capacity];
+    used = size;
+  }
+
+  private static int firstSlot(int hash, int mask) {
+    int h = hash * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  final boolean isOccupied(int slot) {
+    return ! isFree(slot) && ! isRemoved(slot);
+  }
+
+  /**
+   * Looks for a key by linear probing.
+   *
+   * @return The slot holding the key, or if it isn't in the counter,
+   *     -1 minus the slot to add it in
+   */
+  final int probe(Object key, int intKey, int hash) {
+    int mask = values.length - 1;
+    int firstRemoved = -1;
+    for (int i = firstSlot(hash, mask); ; i = (i + 1) & mask) {
+      if (isFree(i)) {
+        return -1 - (firstRemoved >= 0 ? firstRemoved : i);
+      }
+      if (isRemoved(i)) {
+        if (firstRemoved < 0) {
+          firstRemoved = i;
+        }
+      } else if (keyEquals(i, key, intKey)) {
+        return i;
+      }
+    }
+  }
+
+  /** The slot holding the key, or -1 if it isn't in the counter */
+  final int find(Object key, int intKey, int hash) {
+    int i = probe(key, intKey, hash);
+    return (i < 0) ? -1 : i;
+  }
+
+  /**
+   * The slot holding the key, adding the key with a count of 0.0 if it
+   * isn't in the counter yet
+   */
+  final int add(Object key, int intKey, int hash) {
+    int i = probe(key, intKey, hash);
+    if (i >= 0) {
+      return i;
+    }
+    i = -1 - i;
+    if (isFree(i)) {
+      if ((used + 1) * 4 > values.length * 3) {
+        // full of keys or removed markers: rebuild the table, then start over
+        rehash(capacityFor(size + 1));
+        return add(key, intKey, hash);
+      }
+      ++used;
+    }
+    setKey(i, key, intKey);
+    values[i] = 0.0;
+    ++size;
+    ++modCount;
+    return i;
+  }
+
+  private void rehash(int capacity) {
+    double[] oldValues = values;
+    Object oldKeys = newKeyTable(capacity);
+    values = new double[capacity];
+    used = size;
+    int mask = capacity - 1;
+    for (int j = 0; j < oldValues.length; ++j) {
+      if (hasKey(oldKeys, j)) {
+        int i = firstSlot(hashOf(oldKeys, j), mask);
+        while ( ! isFree(i)) {
+          i = (i + 1) & mask;
+        }
+        moveKey(oldKeys, j, i);
+        values[i] = oldValues[j];
+      }
+    }
+    ++modCount;
+  }
+
+  final void removeSlot(int i) {
+    totalCount -= values[i];
+    markRemoved(i);
+    values[i] = 0.0;
+    --size;
+    ++modCount;
+  }
+
+
+  // COUNTS BY SLOT, WHICH THE SUBCLASSES SHARE
+
+  /** The count in the slot, or the default value if the slot is -1 */
+  final double countAt(int i) {
+    return (i < 0) ? defaultValue : values[i];
+  }
+
+  final void setCountAt(int i, double value) {
+    totalCount += value - values[i];
+    values[i] = value;
+  }
+
+  final double incrementCountAt(int i, double value) {
+    totalCount += value;
+    return values[i] += value;
+  }
+
+  final double logIncrementCountAt(int i, double value) {
+    double count = SloppyMath.logAdd(value, values[i]);
+    setCountAt(i, count);
+    return count;
+  }
+
+  /** Removes the key in the slot and returns its count, or returns the default value if the slot is -1 */
+  final double removeAt(int i) {
+    if (i < 0) {
+      return defaultValue;
+    }
+    double value = values[i];
+    removeSlot(i);
+    return value;
+  }
+
+
+  // METHODS NEEDED BY THE Counter INTERFACE
+
+  /** {@inheritDoc} */
+  @Override
+  public final void setDefaultReturnValue(double rv) { defaultValue = rv; }
+
+  /** {@inheritDoc} */
+  @Override
+  public double defaultReturnValue() { return defaultValue; }
+
+  /** {@inheritDoc} */
+  @Override
+  public double getCount(Object key) {
+    return countAt(findSlot(key));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setCount(E key, double value) {
+    setCountAt(insertSlot(key), value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double incrementCount(E key, double value) {
+    return incrementCountAt(insertSlot(key), value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final double incrementCount(E key) {
+    return incrementCount(key, 1.0);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double decrementCount(E key, double value) {
+    return incrementCount(key, -value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double decrementCount(E key) {
+    return incrementCount(key, -1.0);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double logIncrementCount(E key, double value) {
+    int existing = findSlot(key);
+    if (existing < 0) {
+      setCount(key, value);
+      return value;
+    }
+    return logIncrementCountAt(existing, value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void addAll(Counter<E> counter) {
+    Counters.addInPlace(this, counter);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double remove(E key) {
+    return removeAt(findSlot(key));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean containsKey(E key) {
+    return findSlot(key) >= 0;
+  }
+
+  /** An iterator over the occupied slots of the table */
+  private abstract class SlotIterator<T> implements Iterator<T> {
+    private int next = -1;
+    private int current = -1;
+    private int expectedModCount = modCount;
+
+    SlotIterator() {
+      advance();
+    }
+
+    private void advance() {
+      for (++next; next < values.length; ++next) {
+        if (isOccupied(next)) {
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < values.length;
+    }
+
+    /** Moves to the next slot and returns it */
+    int nextSlot() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (next >= values.length) {
+        throw new NoSuchElementException();
+      }
+      current = next;
+      advance();
+      return current;
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      removeSlot(current);
+      current = -1;
+      expectedModCount = modCount;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Set<E> keySet() {
+    return new AbstractSet<E>() {
+      @Override
+      public Iterator<E> iterator() {
+        return new SlotIterator<E>() {
+          @Override
+          public E next() {
+            return keyAt(nextSlot());
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public boolean contains(Object key) {
+        return findSlot(key) >= 0;
+      }
+
+      @Override
+      public boolean remove(Object key) {
+        int i = findSlot(key);
+        if (i < 0) {
+          return false;
+        }
+        removeSlot(i);
+        return true;
+      }
+
+      @Override
+      public void clear() {
+        AbstractOpenAddressCounter.this.clear();
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Collection<Double> values() {
+    return new AbstractCollection<Double>() {
+      @Override
+      public Iterator<Double> iterator() {
+        return new SlotIterator<Double>() {
+          @Override
+          public Double next() {
+            return values[nextSlot()];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public void clear() {
+        AbstractOpenAddressCounter.this.clear();
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Set<Map.Entry<E,Double>> entrySet() {
+    return new AbstractSet<Map.Entry<E,Double>>() {
+      @Override
+      public Iterator<Map.Entry<E,Double>> iterator() {
+        return new SlotIterator<Map.Entry<E,Double>>() {
+          @Override
+          public Map.Entry<E,Double> next() {
+            return new Entry(nextSlot());
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public void clear() {
+        AbstractOpenAddressCounter.this.clear();
+      }
+    };
+  }
+
+  /**
+   * An entry of the counter.  As with a HashMap, it reflects the counter
+   * only until the counter is next changed other than through setValue.
+   */
+  private class Entry implements Map.Entry<E,Double> {
+    private final int slot;
+
+    Entry(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public E getKey() {
+      return keyAt(slot);
+    }
+
+    @Override
+    public Double getValue() {
+      return values[slot];
+    }
+
+    @Override
+    public Double setValue(Double value) {
+      double old = values[slot];
+      setCountAt(slot, value);
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if ( ! (o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+      return Objects.equals(getKey(), e.getKey()) && getValue().equals(e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(getKey()) ^ Double.hashCode(values[slot]);
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + values[slot];
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void clear() {
+    newKeyTable(values.length);
+    Arrays.fill(values, 0.0);
+    size = 0;
+    used = 0;
+    totalCount = 0.0;
+    ++modCount;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double totalCount() {
+    return totalCount;
+  }
+
+
+  // ADDITIONAL OPERATIONS (NOT IN Counter INTERFACE)
+
+  /**
+   * Shrinks the table to fit the current keys, for counters which
+   * are kept around after they are built.
+   */
+  public void trimToSize() {
+    int capacity = capacityFor(size);
+    if (capacity < values.length || used > size) {
+      rehash(capacity);
+    }
+  }
+
+  /** This is a shorthand for keySet.iterator(). */
+  @Override
+  public Iterator<E> iterator() {
+    return keySet().iterator();
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+
+  // OBJECT STUFF
+
+  /**
+   * Equality is defined over all Counter implementations, as in
+   * {@link ClassicCounter#equals}.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    } else if ( ! (o instanceof Counter)) {
+      return false;
+    }
+    return Counters.equals(this, (Counter<E>) o);
+  }
+
+  /** The same hashCode as a ClassicCounter with the same counts */
+  @Override
+  public int hashCode() {
+    int h = 0;
+    for (int i = 0; i < values.length; ++i) {
+      if (isOccupied(i)) {
+        h += Objects.hashCode(keyAt(i)) ^ Double.hashCode(values[i]);
+      }
+    }
+    return h;
+  }
+
+  /** Returns a String in the same format as a ClassicCounter */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < values.length; ++i) {
+      if (isOccupied(i)) {
+        if (sb.length() > 1) {
+          sb.append(", ");
+        }
+        sb.append(keyAt(i)).append('=').append(values[i]);
+      }
+    }
+    return sb.append('}').toString();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void prettyLog(RedwoodChannels channels, String description) {
+    PrettyLogger.log(channels, description, Counters.asMap(this));
+  }
+
+
+  // SERIALIZATION
+
+  // The table may hold marker objects, which wouldn't be the same
+  // objects once read back, so the keys and counts are written as a
+  // list instead, without the empty slots
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(size);
+    for (int i = 0; i < values.length; ++i) {
+      if (isOccupied(i)) {
+        writeKey(out, i);
+        out.writeDouble(values[i]);
+      }
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int numKeys = in.readInt();
+    size = 0;
+    allocate(capacityFor(numKeys));
+    for (int i = 0; i < numKeys; ++i) {
+      values[readKey(in)] = in.readDouble();
+    }
+  }
+
+}
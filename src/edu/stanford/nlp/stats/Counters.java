@@ -326,6 +326,15 @@ public class Counters  {
    * Sets each value of target to be target[k]+arg[k] for all keys k in arg.
    */
   public static <E> void addInPlace(Counter<E> target, Counter<E> arg) {
+    if (arg instanceof OpenAddressCounter) {
+      // avoids making an Entry and a Double for each count
+      ((OpenAddressCounter<E>) arg).forEachEntry((key, count) -> {
+        if (count != 0) {
+          target.incrementCount(key, count);
+        }
+      });
+      return;
+    }
     for (Map.Entry<E, Double> entry : arg.entrySet()) {
       double count = entry.getValue();
       if (count != 0) {
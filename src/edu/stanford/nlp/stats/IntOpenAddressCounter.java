@@ -0,0 +1,268 @@
+package edu.stanford.nlp.stats;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import edu.stanford.nlp.util.Factory;
+
+/**
+ * A {@link Counter} over int keys, such as the ids of the features in an
+ * {@link edu.stanford.nlp.util.Index}, which keeps its keys and counts in
+ * an {@code int[]} and a {@code double[]} rather than boxing either.
+ * This is the int keyed version of {@link OpenAddressCounter}; see there
+ * for how the table works.
+ * <br>
+ * Besides the methods of the Counter interface, which take and return
+ * Integers, there are versions of the usual methods which take an int,
+ * and {@link #dotProduct(double[])} and {@link #addTo(double[], double)}
+ * for using the counts with arrays indexed by the same ids.
+ * <br>
+ * Keys must not be negative, as Index ids never are.
+ * Counts of negative or null keys are the default value, and adding one
+ * throws an IllegalArgumentException.
+ * <br>
+ * This class is not threadsafe.
+ */
+public class IntOpenAddressCounter extends AbstractOpenAddressCounter<Integer> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int EMPTY = -1;
+  private static final int REMOVED = -2;
+
+  private transient int[] keys;
+
+  public IntOpenAddressCounter() {
+    this(MIN_CAPACITY);
+  }
+
+  /** Makes a counter which can hold initialCapacity keys without growing */
+  public IntOpenAddressCounter(int initialCapacity) {
+    allocate(capacityFor(initialCapacity));
+  }
+
+  /**
+   * Constructs a new Counter with the contents of the given Counter.
+   *
+   * @param c The Counter which will be copied.
+   */
+  public IntOpenAddressCounter(Counter<Integer> c) {
+    this(c.size());
+    Counters.addInPlace(this, c);
+    setDefaultReturnValue(c.defaultReturnValue());
+  }
+
+  /** A factory which makes empty IntOpenAddressCounters */
+  public static Factory<Counter<Integer>> factory() {
+    return new IntOpenAddressCounterFactory();
+  }
+
+  private static class IntOpenAddressCounterFactory implements Factory<Counter<Integer>> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Counter<Integer> create() {
+      return new IntOpenAddressCounter();
+    }
+  }
+
+
+  // THE KEY TABLE
+
+  @Override
+  Object newKeyTable(int capacity) {
+    int[] oldKeys = keys;
+    keys = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    return oldKeys;
+  }
+
+  @Override
+  boolean isFree(int slot) {
+    return keys[slot] == EMPTY;
+  }
+
+  @Override
+  boolean isRemoved(int slot) {
+    return keys[slot] == REMOVED;
+  }
+
+  @Override
+  boolean keyEquals(int slot, Object key, int intKey) {
+    return keys[slot] == intKey;
+  }
+
+  @Override
+  void setKey(int slot, Object key, int intKey) {
+    keys[slot] = intKey;
+  }
+
+  @Override
+  void markRemoved(int slot) {
+    keys[slot] = REMOVED;
+  }
+
+  @Override
+  Integer keyAt(int slot) {
+    return keys[slot];
+  }
+
+  @Override
+  boolean hasKey(Object table, int slot) {
+    return ((int[]) table)[slot] >= 0;
+  }
+
+  @Override
+  int hashOf(Object table, int slot) {
+    return ((int[]) table)[slot];
+  }
+
+  @Override
+  void moveKey(Object table, int from, int to) {
+    keys[to] = ((int[]) table)[from];
+  }
+
+  /** The slot holding the key, or -1 if it isn't in the counter */
+  private int find(int key) {
+    return (key < 0) ? -1 : find(null, key, key);
+  }
+
+  /**
+   * The slot holding the key, adding the key with a count of 0.0 if it
+   * isn't in the counter yet
+   */
+  private int insert(int key) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Keys of an IntOpenAddressCounter can't be negative: " + key);
+    }
+    return add(null, key, key);
+  }
+
+  private static int toInt(Integer key) {
+    if (key == null) {
+      throw new IllegalArgumentException("Keys of an IntOpenAddressCounter can't be null");
+    }
+    return key;
+  }
+
+  @Override
+  int findSlot(Object key) {
+    return (key instanceof Integer) ? find(((Integer) key).intValue()) : -1;
+  }
+
+  @Override
+  int insertSlot(Integer key) {
+    return insert(toInt(key));
+  }
+
+  @Override
+  void writeKey(ObjectOutputStream out, int slot) throws IOException {
+    out.writeInt(keys[slot]);
+  }
+
+  @Override
+  int readKey(ObjectInputStream in) throws IOException {
+    return insert(in.readInt());
+  }
+
+
+  // INT VERSIONS OF THE Counter METHODS
+
+  public double getCount(int key) {
+    return countAt(find(key));
+  }
+
+  public void setCount(int key, double value) {
+    setCountAt(insert(key), value);
+  }
+
+  public double incrementCount(int key, double value) {
+    return incrementCountAt(insert(key), value);
+  }
+
+  public double incrementCount(int key) {
+    return incrementCount(key, 1.0);
+  }
+
+  public double decrementCount(int key, double value) {
+    return incrementCount(key, -value);
+  }
+
+  public double decrementCount(int key) {
+    return incrementCount(key, -1.0);
+  }
+
+  public double logIncrementCount(int key, double value) {
+    int existing = find(key);
+    if (existing < 0) {
+      setCount(key, value);
+      return value;
+    }
+    return logIncrementCountAt(existing, value);
+  }
+
+  public double remove(int key) {
+    return removeAt(find(key));
+  }
+
+  public boolean containsKey(int key) {
+    return find(key) >= 0;
+  }
+
+
+  // METHODS NEEDED BY THE Counter INTERFACE
+
+  /** {@inheritDoc} */
+  @Override
+  public Factory<Counter<Integer>> getFactory() {
+    return factory();
+  }
+
+
+  // ADDITIONAL OPERATIONS (NOT IN Counter INTERFACE)
+
+  /** The keys of the counter, in increasing order */
+  public int[] keyArray() {
+    int[] result = new int[size()];
+    int n = 0;
+    for (int k : keys) {
+      if (k >= 0) {
+        result[n++] = k;
+      }
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * The sum of each count times the weight with the same index as its key.
+   * Keys past the end of the weights are skipped.
+   */
+  public double dotProduct(double[] weights) {
+    double result = 0.0;
+    for (int i = 0; i < keys.length; ++i) {
+      int k = keys[i];
+      if (k >= 0 && k < weights.length) {
+        result += values[i] * weights[k];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds each count times the scale to the element of the target with
+   * the same index as its key.
+   */
+  public void addTo(double[] target, double scale) {
+    for (int i = 0; i < keys.length; ++i) {
+      int k = keys[i];
+      if (k >= 0) {
+        target[k] += values[i] * scale;
+      }
+    }
+  }
+
+}
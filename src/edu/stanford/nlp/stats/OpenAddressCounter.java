@@ -0,0 +1,208 @@
+package edu.stanford.nlp.stats;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.function.ObjDoubleConsumer;
+
+import edu.stanford.nlp.util.Factory;
+
+/**
+ * A {@link Counter} which keeps its keys and counts in two parallel
+ * arrays, an open addressed hash table with linear probing, rather
+ * than in a {@code Map<E, MutableDouble>} as {@link ClassicCounter} does.
+ * A count costs a slot in each of the arrays instead of a map entry and
+ * a MutableDouble, which is about a third of the memory, and updating a
+ * count doesn't allocate anything.
+ * <br>
+ * It behaves the same as a ClassicCounter backed by a HashMap, and can
+ * be used anywhere one is.  Null keys are allowed.  Removed keys leave a
+ * marker in the table until it is next rebuilt, so the views returned by
+ * {@link #keySet()}, {@link #values()} and {@link #entrySet()} support
+ * removal while iterating.
+ * <br>
+ * To make new counters of this kind, such as in {@link Counters}
+ * methods which copy a counter, use {@link #getFactory()} or
+ * {@link #factory()}.  For keys which are the ids of an
+ * {@link edu.stanford.nlp.util.Index}, {@link IntOpenAddressCounter}
+ * avoids boxing the keys as well.
+ * <br>
+ * This class is not threadsafe.
+ */
+public class OpenAddressCounter<E> extends AbstractOpenAddressCounter<E> {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Stands in for a null key, since null marks an empty slot */
+  private static final Object NULL_KEY = new Object();
+  /** Marks the slot of a key which was removed */
+  private static final Object REMOVED = new Object();
+
+  private transient Object[] keys;
+
+  public OpenAddressCounter() {
+    this(MIN_CAPACITY);
+  }
+
+  /** Makes a counter which can hold initialCapacity keys without growing */
+  public OpenAddressCounter(int initialCapacity) {
+    allocate(capacityFor(initialCapacity));
+  }
+
+  /**
+   * Constructs a new Counter with the contents of the given Counter.
+   * Keys will be shared and should be an immutable class.
+   *
+   * @param c The Counter which will be copied.
+   */
+  public OpenAddressCounter(Counter<E> c) {
+    this(c.size());
+    Counters.addInPlace(this, c);
+    setDefaultReturnValue(c.defaultReturnValue());
+  }
+
+  /**
+   * Constructs a new Counter by counting the elements in the given Collection.
+   *
+   * @param collection Each item in the Collection is made a key in the
+   *     Counter with count being its multiplicity in the Collection.
+   */
+  public OpenAddressCounter(Collection<E> collection) {
+    this(MIN_CAPACITY);
+    for (E key : collection) {
+      incrementCount(key);
+    }
+  }
+
+  /** A factory which makes empty OpenAddressCounters */
+  public static <E> Factory<Counter<E>> factory() {
+    return new OpenAddressCounterFactory<>();
+  }
+
+  private static class OpenAddressCounterFactory<E> implements Factory<Counter<E>> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Counter<E> create() {
+      return new OpenAddressCounter<>();
+    }
+  }
+
+
+  // THE KEY TABLE
+
+  private static Object maskNull(Object key) {
+    return (key == null) ? NULL_KEY : key;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> E unmaskNull(Object key) {
+    return (key == NULL_KEY) ? null : (E) key;
+  }
+
+  @Override
+  Object newKeyTable(int capacity) {
+    Object[] oldKeys = keys;
+    keys = new Object[capacity];
+    return oldKeys;
+  }
+
+  @Override
+  boolean isFree(int slot) {
+    return keys[slot] == null;
+  }
+
+  @Override
+  boolean isRemoved(int slot) {
+    return keys[slot] == REMOVED;
+  }
+
+  @Override
+  boolean keyEquals(int slot, Object key, int intKey) {
+    Object k = keys[slot];
+    return k == key || k.equals(key);
+  }
+
+  @Override
+  void setKey(int slot, Object key, int intKey) {
+    keys[slot] = key;
+  }
+
+  @Override
+  void markRemoved(int slot) {
+    keys[slot] = REMOVED;
+  }
+
+  @Override
+  E keyAt(int slot) {
+    return unmaskNull(keys[slot]);
+  }
+
+  @Override
+  boolean hasKey(Object table, int slot) {
+    Object k = ((Object[]) table)[slot];
+    return k != null && k != REMOVED;
+  }
+
+  @Override
+  int hashOf(Object table, int slot) {
+    return ((Object[]) table)[slot].hashCode();
+  }
+
+  @Override
+  void moveKey(Object table, int from, int to) {
+    keys[to] = ((Object[]) table)[from];
+  }
+
+  @Override
+  int findSlot(Object key) {
+    Object maskedKey = maskNull(key);
+    return find(maskedKey, 0, maskedKey.hashCode());
+  }
+
+  @Override
+  int insertSlot(E key) {
+    Object maskedKey = maskNull(key);
+    return add(maskedKey, 0, maskedKey.hashCode());
+  }
+
+  @Override
+  void writeKey(ObjectOutputStream out, int slot) throws IOException {
+    out.writeObject(keyAt(slot));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  int readKey(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    return insertSlot((E) in.readObject());
+  }
+
+
+  // METHODS NEEDED BY THE Counter INTERFACE
+
+  /** {@inheritDoc} */
+  @Override
+  public Factory<Counter<E>> getFactory() {
+    return factory();
+  }
+
+
+  // ADDITIONAL OPERATIONS (NOT IN Counter INTERFACE)
+
+  /**
+   * Calls the action with each key and its count, without making
+   * Map.Entry or Double objects as {@link #entrySet()} does.
+   * The action shouldn't add or remove keys.
+   */
+  public void forEachEntry(ObjDoubleConsumer<? super E> action) {
+    for (int i = 0; i < keys.length; ++i) {
+      Object k = keys[i];
+      if (k != null && k != REMOVED) {
+        action.accept(unmaskNull(k), values[i]);
+      }
+    }
+  }
+
+}
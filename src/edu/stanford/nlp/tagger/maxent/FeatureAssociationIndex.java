@@ -0,0 +1,111 @@
+package edu.stanford.nlp.tagger.maxent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import edu.stanford.nlp.util.Hashing;
+
+/**
+ * A compact, read-only copy of {@link MaxentTagger#fAssociations}
+ * which is used on the tagging hot path.
+ * <br>
+ * For each extractor, the feature values are kept in an open-addressed
+ * table keyed on a 64-bit hash of the value, which maps to a row
+ * number.  The tag associations for all values of an extractor are
+ * laid out one row after the other in a single flat {@code int[]}, so a
+ * lookup touches a {@code long[]} probe sequence, one string
+ * comparison to confirm the match, and then a contiguous block of ints.
+ * <br>
+ * The index is built once from the maps after a model is loaded (or
+ * trained) and must be rebuilt if those maps are changed.
+ */
+class FeatureAssociationIndex {
+
+  /** Marks an unused slot in {@link #slotRows} */
+  private static final int EMPTY = -1;
+
+  private final int ySize;
+
+  /** For each extractor, the hashes of the values in each slot */
+  private final long[][] slotHashes;
+  /** For each extractor, the row stored in each slot, or EMPTY */
+  private final int[][] slotRows;
+  /** For each extractor, the feature value of each row */
+  private final String[][] rowValues;
+  /** For each extractor, the tag associations of all rows, ySize per row */
+  private final int[][] associations;
+
+  FeatureAssociationIndex(List<Map<String, int[]>> fAssociations, int ySize) {
+    this.ySize = ySize;
+    int numExtractors = fAssociations.size();
+    slotHashes = new long[numExtractors][];
+    slotRows = new int[numExtractors][];
+    rowValues = new String[numExtractors][];
+    associations = new int[numExtractors][];
+
+    for (int extractor = 0; extractor < numExtractors; ++extractor) {
+      Map<String, int[]> values = fAssociations.get(extractor);
+      int capacity = Hashing.tableSize(values.size());
+      long[] hashes = new long[capacity];
+      int[] rows = new int[capacity];
+      Arrays.fill(rows, EMPTY);
+      String[] rowValue = new String[values.size()];
+      int[] assoc = new int[values.size() * ySize];
+
+      int row = 0;
+      for (Map.Entry<String, int[]> entry : values.entrySet()) {
+        String value = entry.getKey();
+        long hash = hash(value);
+        int slot = (int) hash & (capacity - 1);
+        while (rows[slot] != EMPTY) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        hashes[slot] = hash;
+        rows[slot] = row;
+        rowValue[row] = value;
+        System.arraycopy(entry.getValue(), 0, assoc, row * ySize, ySize);
+        ++row;
+      }
+
+      slotHashes[extractor] = hashes;
+      slotRows[extractor] = rows;
+      rowValues[extractor] = rowValue;
+      associations[extractor] = assoc;
+    }
+  }
+
+  /**
+   * Returns the offset of the tag associations of the given feature
+   * value in {@link #associations(int)}, or -1 if the extractor never
+   * produced this value in training.  The association for the tag
+   * with index {@code t} is then found at {@code offset + t}.
+   */
+  int find(int extractor, String value) {
+    long[] hashes = slotHashes[extractor];
+    int[] rows = slotRows[extractor];
+    int mask = hashes.length - 1;
+    long hash = hash(value);
+    for (int slot = (int) hash & mask; rows[slot] != EMPTY; slot = (slot + 1) & mask) {
+      if (hashes[slot] == hash) {
+        int row = rows[slot];
+        if (Objects.equals(rowValues[extractor][row], value)) {
+          return row * ySize;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /** The flat tag associations of all values of the given extractor */
+  int[] associations(int extractor) {
+    return associations[extractor];
+  }
+
+  /** The hash of a value, which may be null */
+  private static long hash(String value) {
+    return (value == null) ? 0L : Hashing.hash64(value);
+  }
+
+}
@@ -356,6 +356,9 @@ public class MaxentTagger extends Tagger implements ListProcessor<List<? extends
   // For each extractor index, we have a map from possible extracted
   // features to an array which maps from tag number to feature weight index in the lambdas array.
   List<Map<String, int[]>> fAssociations = Generics.newArrayList();
+  // A compact copy of fAssociations used when tagging.  Built lazily,
+  // and discarded whenever fAssociations is changed.
+  private volatile FeatureAssociationIndex fAssociationIndex;
   //PairsHolder pairs = new PairsHolder();
   Extractors extractors;
   Extractors extractorsRare;
@@ -539,6 +542,25 @@ public class MaxentTagger extends Tagger implements ListProcessor<List<? extends
   }
 
 
+  /**
+   * Returns the index of feature associations used when tagging,
+   * building it from {@link #fAssociations} if needed.
+   */
+  FeatureAssociationIndex getFeatureAssociationIndex() {
+    FeatureAssociationIndex index = fAssociationIndex;
+    if (index == null) {
+      index = buildFeatureAssociationIndex();
+    }
+    return index;
+  }
+
+  private synchronized FeatureAssociationIndex buildFeatureAssociationIndex() {
+    if (fAssociationIndex == null) {
+      fAssociationIndex = new FeatureAssociationIndex(fAssociations, ySize);
+    }
+    return fAssociationIndex;
+  }
+
   private synchronized void initDefaultScores() {
     if (defaultScores == null) {
       defaultScores = new double[ySize + 1];
@@ -674,6 +696,7 @@ public class MaxentTagger extends Tagger implements ListProcessor<List<? extends
         fAssociation.remove(rule);
       }
     }
+    fAssociationIndex = null;
   }
 
   /**
@@ -717,6 +740,7 @@ public class MaxentTagger extends Tagger implements ListProcessor<List<? extends
     }
 
     prob = new LambdaSolveTagger(condensedLambda);
+    fAssociationIndex = null;
   }
 
   protected void saveModel(String filename) {
@@ -910,6 +934,7 @@ public class MaxentTagger extends Tagger implements ListProcessor<List<? extends
       if (VERBOSE) {
         log.info("prob read ");
       }
+      fAssociationIndex = new FeatureAssociationIndex(fAssociations, ySize);
       if (printLoading) {
         t.done(log, "Loading POS tagger from " + source);
       }
@@ -466,85 +466,74 @@ public class TestSentence implements SequenceModel  {
   private double[] getExactHistories(History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare) {
     double[] scores = new double[maxentTagger.ySize];
     int szCommon = maxentTagger.extractors.size();
+    FeatureAssociationIndex index = maxentTagger.getFeatureAssociationIndex();
+    double[] lambda = maxentTagger.getLambdaSolve().lambda;
 
     for (Pair<Integer,Extractor> e : extractors) {
-      int kf = e.first();
-      Extractor ex = e.second();
-      String val = ex.extract(h);
-      int[] fAssociations = maxentTagger.fAssociations.get(kf).get(val);
-      if (fAssociations != null) {
-        for (int i = 0; i < maxentTagger.ySize; i++) {
-          int fNum = fAssociations[i];
-          if (fNum > -1) {
-            scores[i] += maxentTagger.getLambdaSolve().lambda[fNum];
-          }
-        }
-      }
+      addExactScores(scores, h, index, lambda, e.first(), e.second());
     }
     if (extractorsRare != null) {
       for (Pair<Integer,Extractor> e : extractorsRare) {
-        int kf = e.first();
-        Extractor ex = e.second();
-        String val = ex.extract(h);
-        int[] fAssociations = maxentTagger.fAssociations.get(kf+szCommon).get(val);
-        if (fAssociations != null) {
-          for (int i = 0; i < maxentTagger.ySize; i++) {
-            int fNum = fAssociations[i];
-            if (fNum > -1) {
-              scores[i] += maxentTagger.getLambdaSolve().lambda[fNum];
-            }
-          }
-        }
+        addExactScores(scores, h, index, lambda, e.first() + szCommon, e.second());
       }
     }
     return scores;
   }
 
-  // todo [cdm 2016]: Could this be sped up a bit by caching lambda array, extracting method for shared code?
-  // todo [cdm 2016]: Also it's allocating java.util.ArrayList$Itr for for loop - why can't it just random access array?
+  private void addExactScores(double[] scores, History h, FeatureAssociationIndex index, double[] lambda,
+                              int kf, Extractor ex) {
+    int offset = index.find(kf, ex.extract(h));
+    if (offset >= 0) {
+      int[] fAssociations = index.associations(kf);
+      for (int i = 0; i < scores.length; i++) {
+        int fNum = fAssociations[offset + i];
+        if (fNum > -1) {
+          scores[i] += lambda[fNum];
+        }
+      }
+    }
+  }
+
   /** Returns an unnormalized score (in log space) for each tag. */
   private double[] getApproximateHistories(String[] tags, History h, List<Pair<Integer,Extractor>> extractors, List<Pair<Integer,Extractor>> extractorsRare) {
 
     double[] scores = new double[tags.length];
     int szCommon = maxentTagger.extractors.size();
+    FeatureAssociationIndex index = maxentTagger.getFeatureAssociationIndex();
+    double[] lambda = maxentTagger.getLambdaSolve().lambda;
+    int[] tagIndices = new int[tags.length];
+    for (int j = 0; j < tags.length; j++) {
+      tagIndices[j] = maxentTagger.tags.getIndex(tags[j]);
+    }
 
     for (Pair<Integer,Extractor> e : extractors) {
-      int kf = e.first();
-      Extractor ex = e.second();
-      String val = ex.extract(h);
-      int[] fAssociations = maxentTagger.fAssociations.get(kf).get(val);
-      if (fAssociations != null) {
-        for (int j = 0; j < tags.length; j++) {
-          String tag = tags[j];
-          int tagIndex = maxentTagger.tags.getIndex(tag);
-          int fNum = fAssociations[tagIndex];
-          if (fNum > -1) {
-            scores[j] += maxentTagger.getLambdaSolve().lambda[fNum];
-          }
-        }
-      }
+      addApproximateScores(scores, tagIndices, h, index, lambda, e.first(), e.second());
     }
     if (extractorsRare != null) {
       for (Pair<Integer,Extractor> e : extractorsRare) {
-        int kf = e.first();
-        Extractor ex = e.second();
-        String val = ex.extract(h);
-        int[] fAssociations = maxentTagger.fAssociations.get(szCommon+kf).get(val);
-        if (fAssociations != null) {
-          for (int j = 0; j < tags.length; j++) {
-            String tag = tags[j];
-            int tagIndex = maxentTagger.tags.getIndex(tag);
-            int fNum = fAssociations[tagIndex];
-            if (fNum > -1) {
-              scores[j] += maxentTagger.getLambdaSolve().lambda[fNum];
-            }
-          }
-        }
+        addApproximateScores(scores, tagIndices, h, index, lambda, szCommon + e.first(), e.second());
       }
     }
     return scores;
   }
 
+  private void addApproximateScores(double[] scores, int[] tagIndices, History h, FeatureAssociationIndex index,
+                                    double[] lambda, int kf, Extractor ex) {
+    int offset = index.find(kf, ex.extract(h));
+    if (offset >= 0) {
+      int[] fAssociations = index.associations(kf);
+      for (int j = 0; j < tagIndices.length; j++) {
+        if (tagIndices[j] < 0) {
+          continue;
+        }
+        int fNum = fAssociations[offset + tagIndices[j]];
+        if (fNum > -1) {
+          scores[j] += lambda[fNum];
+        }
+      }
+    }
+  }
+
 
   /**
    * This method should be called after the sentence has been tagged.
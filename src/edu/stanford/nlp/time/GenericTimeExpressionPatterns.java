@@ -8,7 +8,9 @@ import edu.stanford.nlp.pipeline.CoreMapAttributeAggregator;
 import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.StringUtils;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -22,6 +24,21 @@ public class GenericTimeExpressionPatterns implements TimeExpressionPatterns {
   Env env;
   Options options;
 
+  /** The SUTime constants which are compared by identity, so a {@link RulesBundle} must not copy them */
+  private static final Map<String, Object> BUNDLE_CONSTANTS = new LinkedHashMap<>();
+  static {
+    BUNDLE_CONSTANTS.put("SUTime.TIME_REF", SUTime.TIME_REF);
+    BUNDLE_CONSTANTS.put("SUTime.TIME_REF_UNKNOWN", SUTime.TIME_REF_UNKNOWN);
+    BUNDLE_CONSTANTS.put("SUTime.TIME_UNKNOWN", SUTime.TIME_UNKNOWN);
+    BUNDLE_CONSTANTS.put("SUTime.TIME_NONE_OK", SUTime.TIME_NONE_OK);
+    BUNDLE_CONSTANTS.put("SUTime.TIME_NOW", SUTime.TIME_NOW);
+    BUNDLE_CONSTANTS.put("SUTime.TIME_PRESENT", SUTime.TIME_PRESENT);
+    BUNDLE_CONSTANTS.put("SUTime.TIME_PAST", SUTime.TIME_PAST);
+    BUNDLE_CONSTANTS.put("SUTime.TIME_FUTURE", SUTime.TIME_FUTURE);
+    BUNDLE_CONSTANTS.put("SUTime.DURATION_UNKNOWN", SUTime.DURATION_UNKNOWN);
+    BUNDLE_CONSTANTS.put("SUTime.DURATION_NONE", SUTime.DURATION_NONE);
+  }
+
   public GenericTimeExpressionPatterns(Options options) {
     this.options = options;
     initEnv();
@@ -34,10 +51,18 @@ public class GenericTimeExpressionPatterns implements TimeExpressionPatterns {
 
   public CoreMapExpressionExtractor createExtractor() {
     List<String> filenames = StringUtils.split(options.grammarFilename, "\\s*[,;]\\s*");
+    if (options.rulesBundle != null) {
+      CoreMapExpressionExtractor extractor = RulesBundle.createExtractor(env, filenames, options.grammarSettings(),
+          options.rulesBundle, BUNDLE_CONSTANTS);
+      env = extractor.getEnv();
+      return extractor;
+    }
     return CoreMapExpressionExtractor.createExtractorFromFiles(env, filenames);
   }
 
   private static class TimexTypeMatchNodePattern extends NodePattern<TimeExpression> {
+    private static final long serialVersionUID = -6320786967867902899L;
+
     SUTime.TimexType type;
     public TimexTypeMatchNodePattern(SUTime.TimexType type) { this.type = type; }
     public boolean match(TimeExpression te) {
@@ -52,6 +77,8 @@ public class GenericTimeExpressionPatterns implements TimeExpressionPatterns {
   }
 
   private static class MatchedExpressionValueTypeMatchNodePattern extends NodePattern<MatchedExpression> {
+    private static final long serialVersionUID = 3112617875222861231L;
+
     String valueType;
     public MatchedExpressionValueTypeMatchNodePattern(String valueType) { this.valueType = valueType; }
     public boolean match(MatchedExpression me) {
@@ -33,6 +33,10 @@ public class Options {
   // TODO: Add default country for holidays and default time format
   // would want a per document default as well
   String grammarFilename = null;
+  // Bundle of the compiled grammar, which is read instead of the grammar
+  // files if it is up to date, and is written by
+  // edu.stanford.nlp.ling.tokensregex.RulesBundle.main
+  String rulesBundle = null;
   Env.Binder[] binders = null;
 
   static final String DEFAULT_GRAMMAR_FILES = "edu/stanford/nlp/models/sutime/defs.sutime.txt,edu/stanford/nlp/models/sutime/english.sutime.txt,edu/stanford/nlp/models/sutime/english.holidays.sutime.txt";
@@ -61,6 +65,7 @@ public class Options {
     verbose = PropertiesUtils.getBool(props, name + ".verbose", verbose);
 
     grammarFilename = props.getProperty(name + ".rules", DEFAULT_GRAMMAR_FILES);
+    rulesBundle = props.getProperty(name + ".rulesBundle", rulesBundle);
 
     searchForDocDate = PropertiesUtils.getBool(props, name + ".searchForDocDate", searchForDocDate);
 
@@ -94,4 +99,25 @@ public class Options {
       }
     }
   }
+
+  /**
+   * The options which can change how the grammar is compiled, for checking
+   * that a bundle of the compiled grammar is up to date.
+   */
+  String grammarSettings() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("markTimeRanges=").append(markTimeRanges);
+    sb.append(",restrictToTimex3=").append(restrictToTimex3);
+    sb.append(",teRelHeurLevel=").append(teRelHeurLevel);
+    sb.append(",includeNested=").append(includeNested);
+    sb.append(",includeRange=").append(includeRange);
+    sb.append(",searchForDocDate=").append(searchForDocDate);
+    sb.append(",binders=");
+    if (binders != null) {
+      for (Env.Binder binder : binders) {
+        sb.append(binder.getClass().getName()).append(';');
+      }
+    }
+    return sb.toString();
+  }
 }
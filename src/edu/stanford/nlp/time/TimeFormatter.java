@@ -12,6 +12,7 @@ import edu.stanford.nlp.util.Generics;
 import org.joda.time.*;
 import org.joda.time.format.*;
 
+import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -82,7 +83,8 @@ public class TimeFormatter {
   }
 
 
-  static class ApplyActionWrapper<I,O> implements Function<I,O> {
+  static class ApplyActionWrapper<I,O> implements Function<I,O>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     private final Env env;
     private final Function<I,O> base;
@@ -191,15 +193,18 @@ public class TimeFormatter {
   /**
    * Converts time string pattern to text pattern.
    */
-  public static class CustomDateFormatExtractor implements Function<String, Value> {
+  public static class CustomDateFormatExtractor implements Function<String, Value>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     private final FormatterBuilder builder;
     private final String timePattern;
+    private final String localeString;
     private final Pattern textPattern;
 
     public CustomDateFormatExtractor(String timePattern, String localeString) {
       Locale locale = (localeString != null)? new Locale(localeString): Locale.getDefault();
       this.timePattern = timePattern;
+      this.localeString = localeString;
       builder = new FormatterBuilder();
       builder.locale = locale;
       parsePatternTo(builder, timePattern);
@@ -238,6 +243,27 @@ public class TimeFormatter {
       return new Expressions.PrimitiveValue("Temporal", t);
     }
 
+    /** The formatter isn't serializable, so this is serialized as its pattern and rebuilt when read */
+    private Object writeReplace() {
+      return new SerializedForm(timePattern, localeString);
+    }
+
+    private static class SerializedForm implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final String timePattern;
+      private final String localeString;
+
+      SerializedForm(String timePattern, String localeString) {
+        this.timePattern = timePattern;
+        this.localeString = localeString;
+      }
+
+      private Object readResolve() {
+        return new CustomDateFormatExtractor(timePattern, localeString);
+      }
+    }
+
   }
 
 
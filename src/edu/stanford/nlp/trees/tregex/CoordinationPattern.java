@@ -7,6 +7,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 
 class CoordinationPattern extends TregexPattern {
 
@@ -63,6 +64,23 @@ class CoordinationPattern extends TregexPattern {
     return sb.toString();
   }
 
+  /** A disjunction of patterns can only match where one of its disjuncts can */
+  @Override
+  Predicate<String> rootLabelFilter() {
+    if (isConj || isNegated() || isOptional()) {
+      return null;
+    }
+    Predicate<String> filter = null;
+    for (TregexPattern child : children) {
+      Predicate<String> childFilter = child.rootLabelFilter();
+      if (childFilter == null) {
+        return null;
+      }
+      filter = (filter == null) ? childFilter : filter.or(childFilter);
+    }
+    return filter;
+  }
+
   @Override
   public TregexMatcher matcher(Tree root, Tree tree,
                                IdentityHashMap<Tree, Tree> nodesToParents,
@@ -282,6 +282,43 @@ public class DescriptionPattern extends TregexPattern  {
     }
   }
 
+  /**
+   * The root of a pattern can only match a node whose label matches its
+   * description, unless the description is negated (a variable group
+   * which fails to match can then make a matching label acceptable) or
+   * is a link or backreference.
+   */
+  @Override
+  Predicate<String> rootLabelFilter() {
+    if (rel != Relation.ROOT || negDesc || isNegated() || isOptional() ||
+        descriptionMode == null || descriptionMode == DescriptionMode.ANYTHING) {
+      return null;
+    }
+    return this::descriptionMatches;
+  }
+
+  /** Whether the label matches the description, not counting variable groups */
+  private boolean descriptionMatches(String value) {
+    if (value == null) {
+      return false;
+    }
+    if (basicCatFunction != null) {
+      value = basicCatFunction.apply(value);
+    }
+    switch (descriptionMode) {
+    case EXACT:
+      return value.equals(exactMatch);
+    case PATTERN:
+      return descPattern.matcher(value).find();
+    case ANYTHING:
+      return true;
+    case STRINGS:
+      return stringFilter.test(value);
+    default:
+      throw new IllegalArgumentException("Unexpected match mode");
+    }
+  }
+
   @Override
   public TregexMatcher matcher(Tree root, Tree tree,
                                IdentityHashMap<Tree, Tree> nodesToParents,
@@ -51,6 +51,8 @@ public abstract class TregexMatcher {
   // these things are used by "find"
   private Iterator<Tree> findIterator;
   private Tree findCurrent;
+  /** The nodes find() tries as the root of a match, or null for all the nodes of the tree */
+  private List<Tree> findCandidates;
 
   final HeadFinder headFinder;
 
@@ -65,6 +67,15 @@ public abstract class TregexMatcher {
 
   public HeadFinder getHeadFinder() { return this.headFinder; }
 
+  /**
+   * Restricts {@code find()} to trying the given nodes, in the given
+   * order, as the root of a match.  This is used by {@link TregexPatternSet},
+   * which has already ruled out the other nodes.
+   */
+  void setFindCandidates(List<Tree> findCandidates) {
+    this.findCandidates = findCandidates;
+  }
+
   /**
    * Resets the matcher so that its search starts over.
    */
@@ -128,7 +139,7 @@ public abstract class TregexMatcher {
    */
   public boolean find() {
     if (findIterator == null) {
-      findIterator = root.iterator();
+      findIterator = findCandidates == null ? root.iterator() : findCandidates.iterator();
     }
     if (findCurrent != null && matches()) {
       return true;
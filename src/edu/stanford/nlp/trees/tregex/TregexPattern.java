@@ -35,6 +35,7 @@ import java.io.*;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.function.Predicate;
 
 import edu.stanford.nlp.io.IOUtils;
 import edu.stanford.nlp.ling.StringLabelFactory;
@@ -397,6 +398,15 @@ public abstract class TregexPattern implements Serializable  {
     return opt;
   }
 
+  /**
+   * A test which the label of a node must pass for this pattern to match
+   * with that node as its root, or null if there is no such test.  A null
+   * label never passes the test.
+   */
+  Predicate<String> rootLabelFilter() {
+    return null;
+  }
+
   abstract TregexMatcher matcher(Tree root, Tree tree,
                                  IdentityHashMap<Tree, Tree> nodesToParents,
                                  Map<String, Tree> namesToNodes,
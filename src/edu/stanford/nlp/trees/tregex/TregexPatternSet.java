@@ -0,0 +1,180 @@
+package edu.stanford.nlp.trees.tregex;
+
+import edu.stanford.nlp.trees.HeadFinder;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.util.ArrayMap;
+import edu.stanford.nlp.util.Generics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A set of {@link TregexPattern}s to be matched against the same trees.
+ * <br>
+ * Matching many patterns one at a time against a tree repeats work for
+ * every pattern: each matcher builds its own map from nodes to parents
+ * the first time it needs one, and {@code find()} tries every node of
+ * the tree as the root of a match.  The matchers from a pattern set
+ * instead share one index of the tree, built once per tree, which holds
+ * the parent of each node and a number for each distinct label.  Most
+ * patterns begin with a description of their root node, such as
+ * {@code NP} in {@code NP < PP}, and the set tests each distinct label of
+ * the tree against that description once, so that {@code find()} only
+ * tries the nodes whose labels pass.  A pattern whose root matches no
+ * label in the tree is skipped without matching at all.
+ * <br>
+ * For example, to find the patterns which match somewhere in each tree:
+ * <pre>
+ *   TregexPatternSet patterns = new TregexPatternSet(compiledPatterns);
+ *   for (Tree tree : trees) {
+ *     List&lt;TregexPattern&gt; matched = patterns.matchingPatterns(tree);
+ *     ...
+ *   }
+ * </pre>
+ * The matchers behave exactly like those from {@link TregexPattern#matcher(Tree)},
+ * and find the same matches in the same order.  As with any matcher, the
+ * tree should not be changed while they are in use; a Tsurgeon operation
+ * which changes the tree requires new matchers.  A pattern set itself is
+ * not changed by matching, so one set can be used by several threads at
+ * once.
+ */
+public class TregexPatternSet {
+
+  private final List<TregexPattern> patterns;
+  /** The test of each pattern's root label, or null where a pattern has none */
+  private final List<Predicate<String>> rootLabelFilters;
+  private final HeadFinder headFinder;
+
+  public TregexPatternSet(List<TregexPattern> patterns) {
+    this(patterns, null);
+  }
+
+  /**
+   * Makes a pattern set whose matchers use the given HeadFinder, like
+   * {@link TregexPattern#matcher(Tree, HeadFinder)}.
+   */
+  public TregexPatternSet(List<TregexPattern> patterns, HeadFinder headFinder) {
+    this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+    this.rootLabelFilters = new ArrayList<>(patterns.size());
+    for (TregexPattern pattern : patterns) {
+      rootLabelFilters.add(pattern.rootLabelFilter());
+    }
+    this.headFinder = headFinder;
+  }
+
+  public List<TregexPattern> patterns() {
+    return patterns;
+  }
+
+  public int size() {
+    return patterns.size();
+  }
+
+  /**
+   * Returns a matcher for each pattern, in the order of the patterns,
+   * all sharing one index of the tree.
+   */
+  public List<TregexMatcher> matchers(Tree tree) {
+    TreeIndex index = new TreeIndex(tree);
+    List<TregexMatcher> matchers = new ArrayList<>(patterns.size());
+    for (int i = 0; i < patterns.size(); i++) {
+      matchers.add(matcher(index, i, index.candidates(rootLabelFilters.get(i))));
+    }
+    return matchers;
+  }
+
+  /** Returns the patterns which match somewhere in the tree, in the order of the patterns */
+  public List<TregexPattern> matchingPatterns(Tree tree) {
+    TreeIndex index = new TreeIndex(tree);
+    List<TregexPattern> matching = new ArrayList<>();
+    for (int i = 0; i < patterns.size(); i++) {
+      List<Tree> candidates = index.candidates(rootLabelFilters.get(i));
+      if (candidates != null && candidates.isEmpty()) {
+        continue;
+      }
+      if (matcher(index, i, candidates).find()) {
+        matching.add(patterns.get(i));
+      }
+    }
+    return matching;
+  }
+
+  private TregexMatcher matcher(TreeIndex index, int i, List<Tree> candidates) {
+    TregexMatcher matcher = patterns.get(i).matcher(index.root, index.root, index.nodesToParents,
+        ArrayMap.<String, Tree>newArrayMap(), new VariableStrings(), headFinder);
+    matcher.setFindCandidates(candidates);
+    return matcher;
+  }
+
+  /** The nodes of a tree in preorder, with their parents and label numbers */
+  private static class TreeIndex {
+    final Tree root;
+    final IdentityHashMap<Tree, Tree> nodesToParents = new IdentityHashMap<>();
+    final List<Tree> nodes = new ArrayList<>();
+    /** The number of the label of each node, or -1 for a null label */
+    private final int[] labelIds;
+    private final List<String> labels = new ArrayList<>();
+
+    TreeIndex(Tree root) {
+      this.root = root;
+      Map<String, Integer> labelNumbers = Generics.newHashMap();
+      List<Integer> ids = new ArrayList<>();
+      addNodes(root, null, labelNumbers, ids);
+      labelIds = new int[ids.size()];
+      for (int i = 0; i < labelIds.length; i++) {
+        labelIds[i] = ids.get(i);
+      }
+    }
+
+    private void addNodes(Tree node, Tree parent, Map<String, Integer> labelNumbers, List<Integer> ids) {
+      nodesToParents.put(node, parent);
+      nodes.add(node);
+      String value = node.value();
+      if (value == null) {
+        ids.add(-1);
+      } else {
+        Integer id = labelNumbers.get(value);
+        if (id == null) {
+          id = labels.size();
+          labelNumbers.put(value, id);
+          labels.add(value);
+        }
+        ids.add(id);
+      }
+      for (Tree child : node.children()) {
+        addNodes(child, node, labelNumbers, ids);
+      }
+    }
+
+    /**
+     * The nodes, in preorder, whose labels pass the filter, or null for
+     * all the nodes if there is no filter.
+     */
+    List<Tree> candidates(Predicate<String> filter) {
+      if (filter == null) {
+        return null;
+      }
+      boolean[] passes = new boolean[labels.size()];
+      boolean any = false;
+      for (int i = 0; i < passes.length; i++) {
+        passes[i] = filter.test(labels.get(i));
+        any |= passes[i];
+      }
+      if ( ! any) {
+        return Collections.emptyList();
+      }
+      List<Tree> candidates = new ArrayList<>();
+      for (int i = 0; i < labelIds.length; i++) {
+        if (labelIds[i] >= 0 && passes[labelIds[i]]) {
+          candidates.add(nodes.get(i));
+        }
+      }
+      return candidates;
+    }
+  }
+
+}
@@ -20,6 +20,7 @@ import java.util.TreeSet;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import edu.stanford.nlp.util.concurrent.ConcurrentInterner;
 import edu.stanford.nlp.util.concurrent.SynchronizedInterner;
 
 /**
@@ -280,6 +281,10 @@ public class Generics  {
     return new Interner<>();
   }
 
+  public static <T> ConcurrentInterner<T> newConcurrentInterner() {
+    return new ConcurrentInterner<>();
+  }
+
   public static <T> SynchronizedInterner<T> newSynchronizedInterner(Interner<T> interner) {
     return new SynchronizedInterner<>(interner);
   }
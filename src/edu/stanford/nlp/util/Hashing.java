@@ -0,0 +1,83 @@
+package edu.stanford.nlp.util;
+
+/**
+ * Hash functions and sizing for the open-addressed hash tables which are
+ * keyed by the hash of a string, such as the feature tables of the tagger,
+ * the memory-mapped CRF and the shift-reduce parser.
+ * <br>
+ * A string is hashed with 64 bit FNV-1a over its chars, followed by the
+ * finalizer of MurmurHash3 ({@link #fmix64}), so that every bit of the
+ * hash depends on every char and the low bits can be masked to find a slot.
+ * The FNV-1a steps are public so that a hash can be built up a piece at a
+ * time without making the string.
+ * <br>
+ * Tables keyed by an int hash, such as {@link String#hashCode}, spread
+ * its bits with {@link #fmix32} before masking it.
+ * <br>
+ * These hashes are written into model files, so they must not change.
+ */
+public class Hashing {
+
+  /** The starting value of a 64 bit FNV-1a hash */
+  public static final long FNV64_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  /** The multiplier of a 64 bit FNV-1a hash */
+  public static final long FNV64_PRIME = 0x100000001b3L;
+
+  private Hashing() {} // static methods
+
+  /** Adds a char to a 64 bit FNV-1a hash */
+  public static long fnv64(long hash, char c) {
+    return (hash ^ c) * FNV64_PRIME;
+  }
+
+  /** Adds the chars of a string to a 64 bit FNV-1a hash */
+  public static long fnv64(long hash, String s) {
+    for (int i = 0, length = s.length(); i < length; ++i) {
+      hash ^= s.charAt(i);
+      hash *= FNV64_PRIME;
+    }
+    return hash;
+  }
+
+  /** The 64 bit finalizer of MurmurHash3 */
+  public static long fmix64(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /** The 32 bit finalizer of MurmurHash3 */
+  public static int fmix32(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /** The 64 bit hash of a string: FNV-1a over its chars, then {@link #fmix64} */
+  public static long hash64(String s) {
+    return fmix64(fnv64(FNV64_OFFSET_BASIS, s));
+  }
+
+  /**
+   * The smallest power of two, and at least 2, which keeps the load factor
+   * of a table holding {@code size} entries at or below 1/2.
+   */
+  public static int tableSize(int size) {
+    if (size > (1 << 29)) {
+      throw new IllegalArgumentException("Too many entries for a hash table: " + size);
+    }
+    int capacity = 2;
+    while (capacity < size * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+}
@@ -22,6 +22,9 @@ import java.util.Set;
  * Note that in general it is just as good or better to use the
  * static Interner.globalIntern() method rather than making an
  * instance of Interner and using the instance-level intern().
+ * The global interner is a
+ * {@link edu.stanford.nlp.util.concurrent.ConcurrentInterner}, so it can
+ * be used by many threads at once without them all waiting on one lock.
  * <p/>
  * Author: Dan Klein
  * Date: 9/28/03
@@ -33,7 +36,7 @@ public class Interner<T>  {
   /** A logger for this class */
   private static Redwood.RedwoodChannels log = Redwood.channels(Interner.class);
 
-  protected static Interner<Object> interner = Generics.newInterner();
+  protected static Interner<Object> interner = Generics.newConcurrentInterner();
 
   /**
    * For getting the instance that global methods use.
@@ -64,7 +67,20 @@ public class Interner<T>  {
   }
 
 
-  protected Map<T,WeakReference<T>> map = Generics.newWeakHashMap();
+  protected Map<T,WeakReference<T>> map;
+
+  public Interner() {
+    this(Generics.newWeakHashMap());
+  }
+
+  /**
+   * For subclasses which keep the interned objects elsewhere.  These pass
+   * a null map, and must then override {@link #intern}, {@link #clear}
+   * and {@link #size}.
+   */
+  protected Interner(Map<T,WeakReference<T>> map) {
+    this.map = map;
+  }
 
   public void clear() { map = Generics.newWeakHashMap(); }
   
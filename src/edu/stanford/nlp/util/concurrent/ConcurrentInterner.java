@@ -0,0 +1,108 @@
+package edu.stanford.nlp.util.concurrent;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+import edu.stanford.nlp.util.ErasureUtils;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.Hashing;
+import edu.stanford.nlp.util.Interner;
+
+/**
+ * <p>
+ * An {@link Interner} for a multi-threaded environment, where many threads
+ * intern at once, such as when models are loaded in parallel.
+ * </p>
+ *
+ * <p>
+ * The interned objects are spread by hash code over a number of stripes,
+ * each a WeakHashMap with its own lock, so threads only wait for each other
+ * when they intern objects in the same stripe.  As in {@link Interner},
+ * if the only pointers to an interned item are the interner's backing maps,
+ * that item can still be garbage collected.
+ * </p>
+ *
+ * <p>
+ * This is the kind of interner {@link Interner#getGlobal()} returns unless
+ * another one is set, and a {@link SynchronizedInterner} around one of these
+ * uses it without locking.
+ * </p>
+ *
+ * @see edu.stanford.nlp.util.Interner
+ */
+public class ConcurrentInterner<T> extends Interner<T> {
+
+  private static final int DEFAULT_NUM_STRIPES = 64;
+
+  private final Map<T, WeakReference<T>>[] stripes;
+
+  public ConcurrentInterner() {
+    this(DEFAULT_NUM_STRIPES);
+  }
+
+  /**
+   * @param numStripes The number of independently locked maps, which is rounded up to a power of two.
+   *                   More stripes let more threads intern at once.
+   */
+  public ConcurrentInterner(int numStripes) {
+    // the stripes take the place of the map of an Interner
+    super(null);
+    if (numStripes < 1) {
+      throw new IllegalArgumentException("Need at least one stripe, not " + numStripes);
+    }
+    int size = Integer.highestOneBit(numStripes);
+    if (size < numStripes) {
+      size <<= 1;
+    }
+    stripes = ErasureUtils.uncheckedCast(new Map<?, ?>[size]);
+    for (int i = 0; i < size; i++) {
+      stripes[i] = Generics.newWeakHashMap();
+    }
+  }
+
+  private Map<T, WeakReference<T>> stripe(Object o) {
+    // Scramble the hash code well: the maps also index by it, and if the objects
+    // in a stripe had similar bits they would collide in its map
+    return stripes[Hashing.fmix32(o.hashCode()) & (stripes.length - 1)];
+  }
+
+  @Override
+  public void clear() {
+    for (Map<T, WeakReference<T>> stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns a unique object o' that .equals the argument o.  If o
+   * itself is returned, this is the first request for an object
+   * .equals to o.
+   */
+  @Override
+  public T intern(T o) {
+    Map<T, WeakReference<T>> stripe = stripe(o);
+    synchronized (stripe) {
+      WeakReference<T> ref = stripe.get(o);
+      T interned = (ref == null) ? null : ref.get();
+      if (interned == null) {
+        stripe.put(o, Generics.newWeakReference(o));
+        interned = o;
+      }
+      return interned;
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Map<T, WeakReference<T>> stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+
+}
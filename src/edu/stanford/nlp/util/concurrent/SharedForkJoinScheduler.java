@@ -0,0 +1,253 @@
+package edu.stanford.nlp.util.concurrent;
+
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A process-wide work-stealing pool for running many small jobs, such as
+ * annotating the sentences of a document, with an optional timeout on
+ * each job.
+ * <br>
+ * Every caller shares the same {@link ForkJoinPool}, so there is no
+ * thread creation per call, and idle threads pick up jobs from whichever
+ * caller has work left rather than waiting for the slowest job of their
+ * own batch.  The number of jobs a single call of {@link #runAll} has
+ * running at once can be limited, for example to honor an annotator's
+ * thread setting.
+ * <br>
+ * A timeout starts when a job starts running.  When it expires, the
+ * thread running the job is interrupted and the job is counted as
+ * failed; as with {@link InterruptibleMulticoreWrapper}, this only stops
+ * the work if the job checks {@code Thread.interrupted()}.  A job which
+ * keeps running after its timeout still counts against the limit on
+ * running jobs until it returns.
+ * <br>
+ * An exception thrown by a job is not swallowed: once every job has
+ * settled, {@link #runAll} throws the exception of the first item which
+ * threw one, as a loop over the items on the calling thread would.
+ * <br>
+ * The size of the pool is the number of available processors, or the
+ * value of the system property {@code edu.stanford.nlp.sharedSchedulerThreads}
+ * if that is set.
+ */
+public class SharedForkJoinScheduler {
+
+  private static final ForkJoinPool pool =
+      new ForkJoinPool(Integer.getInteger("edu.stanford.nlp.sharedSchedulerThreads", Runtime.getRuntime().availableProcessors()),
+          p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("SharedForkJoinScheduler-" + thread.getPoolIndex());
+            return thread;
+          }, null, false);
+
+  /** Interrupts jobs which run past their timeout */
+  private static final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+    Thread thread = new Thread(r, "SharedForkJoinScheduler-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    watchdog.setRemoveOnCancelPolicy(true);
+  }
+
+  private SharedForkJoinScheduler() {} // static methods
+
+  /** The number of threads in the shared pool */
+  public static int parallelism() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Runs the job on every item in the shared pool and waits until each
+   * one has either finished or timed out.
+   *
+   * @param items The items to process
+   * @param job The work to do for each item.  This is called from several
+   *            threads at once if maxConcurrent is more than 1.
+   * @param maxConcurrent The maximum number of items of this call to work on at once
+   * @param timeout The maximum time in milliseconds to spend on each item,
+   *                or a non-positive number for no limit
+   * @return The items which timed out, in their original order
+   * @throws RuntimeInterruptedException If the calling thread is
+   *     interrupted.  Running jobs are interrupted as well.
+   * @throws RuntimeException The exception thrown by the first item whose
+   *     job threw one, with those of any later items added as suppressed
+   */
+  public static <I> List<I> runAll(Iterable<I> items, Consumer<? super I> job, int maxConcurrent, long timeout) {
+    Semaphore permits = new Semaphore(Math.max(1, maxConcurrent));
+    List<Job<I>> jobs = new ArrayList<>();
+    try {
+      for (I item : items) {
+        ForkJoinPool.managedBlock(new Blocker(permits, null));
+        Job<I> next = new Job<>(item, job, permits, timeout);
+        jobs.add(next);
+        pool.execute(next);
+      }
+      for (Job<I> started : jobs) {
+        ForkJoinPool.managedBlock(new Blocker(null, started.settled));
+      }
+    } catch (InterruptedException e) {
+      for (Job<I> started : jobs) {
+        started.cancel();
+      }
+      throw new RuntimeInterruptedException(e);
+    }
+
+    List<I> failed = new ArrayList<>();
+    Throwable error = null;
+    for (Job<I> finished : jobs) {
+      Throwable thrown = finished.thrown();
+      if (thrown == null) {
+        if (finished.failed()) {
+          failed.add(finished.item);
+        }
+      } else if (error == null) {
+        error = thrown;
+      } else {
+        error.addSuppressed(thrown);
+      }
+    }
+    if (error instanceof Error) {
+      throw (Error) error;
+    } else if (error != null) {
+      throw (RuntimeException) error;
+    }
+    return failed;
+  }
+
+  /** Waits for a permit or a latch without starving the pool if the caller is itself a worker of the pool */
+  private static class Blocker implements ForkJoinPool.ManagedBlocker {
+    private final Semaphore permits;
+    private final CountDownLatch latch;
+    private boolean done = false;
+
+    Blocker(Semaphore permits, CountDownLatch latch) {
+      this.permits = permits;
+      this.latch = latch;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      if (permits != null) {
+        permits.acquire();
+      } else {
+        latch.await();
+      }
+      done = true;
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      if ( ! done) {
+        done = permits != null ? permits.tryAcquire() : latch.getCount() == 0;
+      }
+      return done;
+    }
+  }
+
+  private static class Job<I> implements Runnable {
+    final I item;
+    private final Consumer<? super I> work;
+    private final Semaphore permits;
+    private final long timeout;
+    /**
+     * Counted down once the job has finished, timed out, or been cancelled.
+     * The permit is only released once the job is no longer running.
+     */
+    final CountDownLatch settled = new CountDownLatch(1);
+
+    private Thread runner;
+    private ScheduledFuture<?> alarm;
+    private boolean finished = false;
+    private boolean timedOut = false;
+    private boolean cancelled = false;
+    /** What the job threw, other than an interrupt from a timeout or cancel */
+    private Throwable thrown;
+
+    Job(I item, Consumer<? super I> work, Semaphore permits, long timeout) {
+      this.item = item;
+      this.work = work;
+      this.permits = permits;
+      this.timeout = timeout;
+    }
+
+    @Override
+    public void run() {
+      synchronized (this) {
+        if (cancelled) {
+          settle();
+          permits.release();
+          return;
+        }
+        runner = Thread.currentThread();
+        if (timeout > 0) {
+          alarm = watchdog.schedule(this::expire, timeout, TimeUnit.MILLISECONDS);
+        }
+      }
+      try {
+        work.accept(item);
+      } catch (RuntimeException | Error e) {
+        synchronized (this) {
+          // an interrupt is expected if the job timed out or was cancelled
+          if ( ! timedOut && ! cancelled) {
+            thrown = e;
+          }
+        }
+      } finally {
+        synchronized (this) {
+          finished = true;
+          runner = null;
+          if (alarm != null) {
+            alarm.cancel(false);
+          }
+          settle();
+        }
+        // Clear an interrupt which arrived after the work was done, so
+        // that it does not affect the next job on this thread
+        Thread.interrupted();
+        permits.release();
+      }
+    }
+
+    private synchronized void expire() {
+      if ( ! finished && runner != null) {
+        timedOut = true;
+        runner.interrupt();
+        settle();
+      }
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+
+    synchronized boolean failed() {
+      return timedOut || thrown != null || cancelled;
+    }
+
+    synchronized Throwable thrown() {
+      return thrown;
+    }
+
+    /** Must be called while holding the lock on this job */
+    private void settle() {
+      settled.countDown();
+    }
+  }
+
+}
@@ -26,6 +26,10 @@ import edu.stanford.nlp.util.Interner;
  * static SynchronizedInterner.globalIntern() method rather than making an
  * instance of SynchronizedInterner and using the instance-level intern().
  * <p/>
+ * A {@link ConcurrentInterner} is already thread-safe, and interning
+ * through a SynchronizedInterner around one does not take the lock.
+ * By default, the global interner is one.
+ * <p/>
  *
  * @author Ilya Sherman
  * @see edu.stanford.nlp.util.Interner
@@ -66,25 +70,27 @@ public class SynchronizedInterner<T> {
    */
   @SuppressWarnings("unchecked")
   public static <T> T globalIntern(T o) {
-    synchronized(globalMutex) {
-      return (T) getGlobal().intern(o);
-    }
+    return (T) getGlobal().intern(o);
   }
 
 
   protected final Interner<T> delegate;
   protected final Object mutex;
+  /** Whether the delegate is thread-safe by itself */
+  private final boolean concurrent;
 
   public SynchronizedInterner(Interner<T> delegate) {
     if (delegate == null) throw new NullPointerException();
     this.delegate = delegate;
     this.mutex = this;
+    this.concurrent = delegate instanceof ConcurrentInterner;
   }
 
   public SynchronizedInterner(Interner<T> delegate, Object mutex) {
     if (delegate == null) throw new NullPointerException();
     this.delegate = delegate;
     this.mutex = mutex;
+    this.concurrent = delegate instanceof ConcurrentInterner;
   }
 
   public void clear() {
@@ -99,6 +105,9 @@ public class SynchronizedInterner<T> {
    * .equals to o.
    */
   public T intern(T o) {
+    if (concurrent) {
+      return delegate.intern(o);
+    }
     synchronized(mutex) {
       return delegate.intern(o);
     }
@@ -110,6 +119,9 @@ public class SynchronizedInterner<T> {
    * original set.
    */
   public Set<T> internAll(Set<T> s) {
+    if (concurrent) {
+      return delegate.internAll(s);
+    }
     synchronized(mutex) {
       return delegate.internAll(s);
     }
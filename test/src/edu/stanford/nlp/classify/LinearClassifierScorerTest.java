@@ -0,0 +1,159 @@
+package edu.stanford.nlp.classify;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import edu.stanford.nlp.ling.Datum;
+import edu.stanford.nlp.ling.RVFDatum;
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.stats.Counters;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+
+public class LinearClassifierScorerTest extends TestCase {
+
+  private static final int NUM_FEATURES = 50;
+  private static final int NUM_LABELS = 4;
+
+  private LinearClassifier<String, String> classifier;
+  private int[][] data;
+
+  @Override
+  public void setUp() {
+    Random random = new Random(1234);
+    Index<String> featureIndex = new HashIndex<>();
+    for (int f = 0; f < NUM_FEATURES; ++f) {
+      featureIndex.add("f" + f);
+    }
+    Index<String> labelIndex = new HashIndex<>();
+    for (int l = 0; l < NUM_LABELS; ++l) {
+      labelIndex.add("l" + l);
+    }
+    double[][] weights = new double[NUM_FEATURES][NUM_LABELS];
+    for (double[] row : weights) {
+      for (int l = 0; l < NUM_LABELS; ++l) {
+        row[l] = random.nextGaussian();
+      }
+    }
+    classifier = new LinearClassifier<>(weights, featureIndex, labelIndex);
+
+    data = new int[20][];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = new int[random.nextInt(10)];
+      for (int j = 0; j < data[i].length; ++j) {
+        data[i][j] = random.nextInt(NUM_FEATURES);
+      }
+    }
+  }
+
+  private void checkScores(double[] scores, int i, Counter<String> expected, double tolerance) {
+    for (int l = 0; l < NUM_LABELS; ++l) {
+      assertEquals(expected.getCount("l" + l), scores[i * NUM_LABELS + l], tolerance);
+    }
+  }
+
+  public void testScores() {
+    LinearClassifierScorer<String, String> scorer = classifier.batchScorer(false);
+    assertEquals(NUM_LABELS, scorer.numLabels());
+    double[] scores = new double[data.length * NUM_LABELS];
+    scorer.scoresOf(data, scores);
+    for (int i = 0; i < data.length; ++i) {
+      Counter<String> expected = classifier.scoresOf(data[i]);
+      checkScores(scores, i, expected, 0.0);
+      if (data[i].length > 0) {
+        assertEquals(classifier.labelIndex().indexOf(Counters.argmax(expected)), scorer.argmax(scores, i));
+      }
+    }
+
+    double[] single = new double[NUM_LABELS + 3];
+    scorer.scoresOf(data[5], single, 3);
+    for (int l = 0; l < NUM_LABELS; ++l) {
+      assertEquals(scores[5 * NUM_LABELS + l], single[3 + l]);
+    }
+
+    try {
+      scorer.scoresOf(data, new double[scores.length - 1]);
+      fail("Expected the scores array to be too small");
+    } catch (IllegalArgumentException e) {
+      // yay
+    }
+  }
+
+  public void testFloatScores() {
+    LinearClassifierScorer<String, String> scorer = classifier.batchScorer(true);
+    double[] scores = new double[data.length * NUM_LABELS];
+    scorer.scoresOf(data, scores);
+    for (int i = 0; i < data.length; ++i) {
+      checkScores(scores, i, classifier.scoresOf(data[i]), 1e-5);
+    }
+  }
+
+  public void testProbabilities() {
+    LinearClassifierScorer<String, String> scorer = classifier.batchScorer(false);
+    double[] scores = new double[data.length * NUM_LABELS];
+    scorer.logProbabilitiesOf(data, scores);
+    for (int i = 0; i < data.length; ++i) {
+      checkScores(scores, i, classifier.logProbabilityOf(data[i]), 1e-9);
+    }
+    scorer.probabilitiesOf(data, scores);
+    for (int i = 0; i < data.length; ++i) {
+      checkScores(scores, i, classifier.probabilityOf(data[i]), 1e-9);
+    }
+  }
+
+  public void testPackedValues() {
+    Random random = new Random(5678);
+    int[] rowStarts = new int[data.length + 1];
+    for (int i = 0; i < data.length; ++i) {
+      rowStarts[i + 1] = rowStarts[i] + data[i].length;
+    }
+    int[] features = new int[rowStarts[data.length]];
+    double[] values = new double[features.length];
+    for (int i = 0; i < data.length; ++i) {
+      System.arraycopy(data[i], 0, features, rowStarts[i], data[i].length);
+    }
+    for (int j = 0; j < values.length; ++j) {
+      values[j] = random.nextDouble();
+    }
+
+    LinearClassifierScorer<String, String> scorer = classifier.batchScorer(false);
+    double[] scores = new double[data.length * NUM_LABELS];
+    // without values, this is the same as the datums one at a time
+    scorer.scoresOf(rowStarts, features, null, scores);
+    for (int i = 0; i < data.length; ++i) {
+      checkScores(scores, i, classifier.scoresOf(data[i]), 0.0);
+    }
+
+    scorer.scoresOf(rowStarts, features, values, scores);
+    for (int i = 0; i < data.length; ++i) {
+      Counter<String> datumFeatures = new ClassicCounter<>();
+      for (int j = rowStarts[i]; j < rowStarts[i + 1]; ++j) {
+        datumFeatures.incrementCount(classifier.featureIndex().get(features[j]), values[j]);
+      }
+      Datum<String, String> datum = new RVFDatum<>(datumFeatures);
+      checkScores(scores, i, classifier.scoresOf(datum), 1e-9);
+
+      // one datum at a time, with its values
+      double[] datumValues = Arrays.copyOfRange(values, rowStarts[i], rowStarts[i + 1]);
+      double[] datumScores = new double[NUM_LABELS + 1];
+      scorer.scoresOf(data[i], datumValues, datumScores, 1);
+      checkScores(Arrays.copyOfRange(datumScores, 1, NUM_LABELS + 1), 0, classifier.scoresOf(datum), 1e-9);
+    }
+  }
+
+  public void testUnknownFeatures() {
+    LinearClassifierScorer<String, String> scorer = classifier.batchScorer(false);
+    int[] features = scorer.indexFeatures(Arrays.asList("f3", "unknown", "f7"));
+    assertEquals(2, features.length);
+    assertEquals(3, features[0]);
+    assertEquals(7, features[1]);
+
+    double[] scores = new double[NUM_LABELS];
+    scorer.scoresOf(new int[] { -1, 3, NUM_FEATURES + 10, 7 }, scores, 0);
+    checkScores(scores, 0, classifier.scoresOf(new int[] { 3, 7 }), 0.0);
+  }
+
+}
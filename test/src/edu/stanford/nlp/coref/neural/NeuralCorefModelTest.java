@@ -0,0 +1,95 @@
+package edu.stanford.nlp.coref.neural;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.ejml.simple.SimpleMatrix;
+
+import edu.stanford.nlp.neural.NeuralUtils;
+
+/**
+ * Checks that scoring mentions and pairs in batches gives the same scores
+ * as scoring them one at a time, on a small random model.
+ */
+public class NeuralCorefModelTest extends TestCase {
+
+  private static final int EMBEDDING_SIZE = 6;
+  private static final int HIDDEN_SIZE = 5;
+  private static final int PAIR_FEATURES = 4;
+  private static final int ANAPHORICITY_FEATURES = 3;
+  private static final int NUM_MENTIONS = 7;
+
+  private final Random random = new Random(1234);
+
+  private SimpleMatrix random(int rows, int cols) {
+    return SimpleMatrix.random(rows, cols, -1, 1, random);
+  }
+
+  private List<SimpleMatrix> randomLayers(int inputSize) {
+    return Arrays.asList(random(4, inputSize), random(4, 1), random(1, 4), random(1, 1));
+  }
+
+  /** The scores as NeuralCorefModel computed them one column at a time before batching */
+  private static double referenceScore(SimpleMatrix features, List<SimpleMatrix> weights) {
+    for (int i = 0; i < weights.size(); i += 2) {
+      features = weights.get(i).mult(features).plus(weights.get(i + 1));
+      if (weights.get(i).numRows() > 1) {
+        features = NeuralUtils.elementwiseApplyReLU(features);
+      }
+    }
+    return features.elementSum();
+  }
+
+  public void testBatchedScores() {
+    SimpleMatrix antecedentMatrix = random(HIDDEN_SIZE, EMBEDDING_SIZE);
+    SimpleMatrix anaphorMatrix = random(HIDDEN_SIZE, EMBEDDING_SIZE);
+    SimpleMatrix pairFeaturesMatrix = random(HIDDEN_SIZE, PAIR_FEATURES);
+    SimpleMatrix pairwiseFirstLayerBias = random(HIDDEN_SIZE, 1);
+    List<SimpleMatrix> anaphoricityModel = randomLayers(EMBEDDING_SIZE + ANAPHORICITY_FEATURES);
+    List<SimpleMatrix> pairwiseModel = randomLayers(HIDDEN_SIZE);
+    NeuralCorefModel model = new NeuralCorefModel(antecedentMatrix, anaphorMatrix, pairFeaturesMatrix,
+        pairwiseFirstLayerBias, anaphoricityModel, pairwiseModel, null);
+
+    SimpleMatrix mentions = random(EMBEDDING_SIZE, NUM_MENTIONS);
+    SimpleMatrix anaphoricityFeatures = random(ANAPHORICITY_FEATURES, NUM_MENTIONS);
+    double[] anaphoricityScores = model.getAnaphoricityScores(mentions, anaphoricityFeatures);
+    assertEquals(NUM_MENTIONS, anaphoricityScores.length);
+    for (int m = 0; m < NUM_MENTIONS; m++) {
+      SimpleMatrix mention = mentions.extractVector(false, m);
+      SimpleMatrix features = anaphoricityFeatures.extractVector(false, m);
+      double expected = referenceScore(NeuralUtils.concatenate(mention, features), anaphoricityModel);
+      assertEquals(expected, model.getAnaphoricityScore(mention, features), 1e-9);
+      assertEquals(expected, anaphoricityScores[m], 1e-9);
+    }
+
+    // every pair of an earlier antecedent and a later anaphor
+    int numPairs = NUM_MENTIONS * (NUM_MENTIONS - 1) / 2;
+    int[] antecedents = new int[numPairs];
+    int[] anaphors = new int[numPairs];
+    for (int anaphor = 0, pair = 0; anaphor < NUM_MENTIONS; anaphor++) {
+      for (int antecedent = 0; antecedent < anaphor; antecedent++, pair++) {
+        antecedents[pair] = antecedent;
+        anaphors[pair] = anaphor;
+      }
+    }
+    SimpleMatrix pairFeatures = random(PAIR_FEATURES, numPairs);
+    SimpleMatrix antecedentEmbeddings = model.getAntecedentEmbedding(mentions);
+    SimpleMatrix anaphorEmbeddings = model.getAnaphorEmbedding(mentions);
+    double[] pairScores = model.getPairwiseScores(antecedentEmbeddings, anaphorEmbeddings,
+        antecedents, anaphors, pairFeatures);
+    assertEquals(numPairs, pairScores.length);
+    for (int pair = 0; pair < numPairs; pair++) {
+      SimpleMatrix antecedent = model.getAntecedentEmbedding(mentions.extractVector(false, antecedents[pair]));
+      SimpleMatrix anaphor = model.getAnaphorEmbedding(mentions.extractVector(false, anaphors[pair]));
+      SimpleMatrix features = pairFeatures.extractVector(false, pair);
+      SimpleMatrix firstLayer = NeuralUtils.elementwiseApplyReLU(antecedent.plus(anaphor)
+          .plus(pairFeaturesMatrix.mult(features)).plus(pairwiseFirstLayerBias));
+      double expected = referenceScore(firstLayer, pairwiseModel);
+      assertEquals(expected, model.getPairwiseScore(antecedent, anaphor, features), 1e-9);
+      assertEquals(expected, pairScores[pair], 1e-9);
+    }
+  }
+
+}
@@ -0,0 +1,121 @@
+package edu.stanford.nlp.coref.statistical;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import edu.stanford.nlp.coref.data.Dictionaries.MentionType;
+import edu.stanford.nlp.coref.data.Mention;
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+
+/**
+ * Checks that the hashed features of {@link MetaFeatureExtractor} score the same as the
+ * named features.
+ */
+public class MetaFeatureExtractorTest extends TestCase {
+
+  private final Random random = new Random(42);
+  private final Compressor<String> compressor = new Compressor<>();
+  private final Map<Integer, CompressedFeatureVector> mentionFeatures = new HashMap<>();
+
+  private Mention mention(int id, MentionType type, String... features) {
+    Mention m = new Mention();
+    m.mentionID = id;
+    m.mentionType = type;
+    mentionFeatures.put(id, compressor.compress(counter(features)));
+    return m;
+  }
+
+  private Counter<String> counter(String... features) {
+    Counter<String> c = new ClassicCounter<>();
+    for (String feature : features) {
+      c.setCount(feature, random.nextInt(3) == 0 ? 1.0 : random.nextDouble());
+    }
+    return c;
+  }
+
+  private Example pair(Mention m1, Mention m2) {
+    return new Example(0, m1, m2, 1.0,
+        compressor.compress(counter("distance=1", "same-speaker", "parent-word=says")));
+  }
+
+  /** Gives every named feature of the examples a weight, and checks the two ways of scoring */
+  private void checkScores(MetaFeatureExtractor meta, Example... examples) {
+    SimpleLinearClassifier classifier = new SimpleLinearClassifier(SimpleLinearClassifier.log(),
+        SimpleLinearClassifier.constant(0.1), 0.0);
+    for (Example example : examples) {
+      for (String feature : meta.getFeatures(example, mentionFeatures, compressor).keySet()) {
+        classifier.setWeight(feature, random.nextGaussian());
+      }
+    }
+    classifier.setWeight("unused", 1.0);
+    HashedLinearClassifier hashed = classifier.toHashed();
+    assertEquals(0, hashed.numCollisions());
+
+    HashedFeatureVector vector = new HashedFeatureVector(4);
+    for (Example example : examples) {
+      Counter<String> features = meta.getFeatures(example, mentionFeatures, compressor);
+      meta.getHashedFeatures(example, mentionFeatures, compressor, vector);
+      Set<Integer> expected = new HashSet<>();
+      for (String feature : features.keySet()) {
+        expected.add(feature.hashCode());
+      }
+      Set<Integer> hashes = new HashSet<>();
+      for (int i = 0; i < vector.size(); i++) {
+        hashes.add(vector.hash(i));
+      }
+      assertEquals(expected, hashes);
+      assertEquals(classifier.weightFeatureProduct(features),
+          hashed.weightFeatureProduct(vector), 1e-12);
+    }
+  }
+
+  public void testPairs() {
+    Mention pronoun = mention(1, MentionType.PRONOMINAL, "head-word=she", "gender=FEMALE");
+    Mention proper = mention(2, MentionType.PROPER, "head-ne-type=PERSON", "head-word=Smith");
+    Mention nominal = mention(3, MentionType.NOMINAL, "head-word=doctor", "number=SINGULAR");
+    Mention noType = mention(4, MentionType.PROPER, "head-word=Acme");
+    // the identifier drops every "head-word=", not just the first
+    Mention odd = mention(5, MentionType.PRONOMINAL, "head-word=ahead-word=b");
+    Example[] examples = { pair(proper, pronoun), pair(pronoun, proper), pair(nominal, proper),
+        pair(proper, nominal), pair(noType, pronoun), pair(pronoun, noType), pair(odd, nominal) };
+
+    checkScores(MetaFeatureExtractor.newBuilder().build(), examples);
+    checkScores(MetaFeatureExtractor.newBuilder()
+        .pairConjunctions(MetaFeatureExtractor.PairConjunction.values())
+        .singleConjunctions(MetaFeatureExtractor.SingleConjunction.values())
+        .disallowedPrefixes(new String[] {"parent-word", "gender"})
+        .useNEType(false)
+        .build(), examples);
+  }
+
+  public void testNewLinks() {
+    Mention pronoun = mention(1, MentionType.PRONOMINAL, "head-word=he", "number=SINGULAR");
+    Mention proper = mention(2, MentionType.PROPER, "head-ne-type=ORG", "parent-word=of");
+    Example[] examples = { new Example(pair(proper, pronoun), true),
+        new Example(pair(pronoun, proper), false) };
+
+    checkScores(MetaFeatureExtractor.newBuilder().build(), examples);
+    checkScores(MetaFeatureExtractor.anaphoricityMFE(), examples);
+  }
+
+  public void testCollisions() {
+    Counter<String> weights = new ClassicCounter<>();
+    // "Aa" and "BB" have the same String.hashCode
+    weights.setCount("Aa", 1.0);
+    weights.setCount("BB", 2.0);
+    weights.setCount("C", 4.0);
+    HashedLinearClassifier hashed = new HashedLinearClassifier(SimpleLinearClassifier.log(), weights);
+    assertEquals(1, hashed.numCollisions());
+
+    HashedFeatureVector vector = new HashedFeatureVector();
+    vector.add("Aa".hashCode(), 1.0);
+    assertEquals(3.0, hashed.weightFeatureProduct(vector), 1e-12);
+  }
+
+}
@@ -0,0 +1,91 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreLabel;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+public class CRFViterbiDecoderTest extends TestCase {
+
+  private static final String TRAIN =
+      "John\tPER\nSmith\tPER\nlives\tO\nin\tO\nNew\tLOC\nYork\tLOC\n.\tO\n\n" +
+      "Mary\tPER\nworks\tO\nfor\tO\nAcme\tORG\nCorp\tORG\nin\tO\nParis\tLOC\n.\tO\n\n" +
+      "The\tO\nIBM\tORG\noffice\tO\nin\tO\nRome\tLOC\nhired\tO\nPeter\tPER\nJones\tPER\n.\tO\n\n" +
+      "Smith\tPER\nvisited\tO\nYork\tLOC\nand\tO\nmet\tO\nAcme\tORG\nstaff\tO\n.\tO\n";
+
+  private static final String[] TEXTS = {
+      "John Smith works for IBM in New York .",
+      "Peter visited Paris and Rome .",
+      "Acme Corp hired Mary Jones in York .",
+      "Nobody we know lives here .",
+      "Smith",
+      "Jones Jones Jones met York York Acme IBM .",
+  };
+
+  private static CRFClassifier<CoreLabel> train(int maxLeft) throws IOException {
+    return train(TRAIN, maxLeft);
+  }
+
+  private static CRFClassifier<CoreLabel> train(String data, int maxLeft) throws IOException {
+    File trainFile = File.createTempFile("CRFViterbiDecoderTest", ".tsv");
+    trainFile.deleteOnExit();
+    IOUtils.writeStringToFile(data, trainFile.getPath(), "utf-8");
+    Properties props = new Properties();
+    props.setProperty("map", "word=0,answer=1");
+    props.setProperty("useWord", "true");
+    props.setProperty("useClassFeature", "true");
+    props.setProperty("useNGrams", "true");
+    props.setProperty("maxNGramLeng", "3");
+    props.setProperty("usePrev", "true");
+    props.setProperty("useNext", "true");
+    props.setProperty("useSequences", "true");
+    props.setProperty("usePrevSequences", "true");
+    props.setProperty("useWordPairs", "true");
+    props.setProperty("maxLeft", Integer.toString(maxLeft));
+    props.setProperty("trainFile", trainFile.getPath());
+    CRFClassifier<CoreLabel> crf = new CRFClassifier<>(props);
+    crf.train();
+    return crf;
+  }
+
+  private static String classify(CRFClassifier<CoreLabel> crf, boolean useScratchViterbi) {
+    crf.flags.useScratchViterbi = useScratchViterbi;
+    StringBuilder output = new StringBuilder();
+    for (String text : TEXTS) {
+      output.append(crf.classifyToString(text, "tsv", false)).append('\n');
+    }
+    return output.toString();
+  }
+
+  private static void checkSameOutput(CRFClassifier<CoreLabel> crf) {
+    crf.flags.useScratchViterbi = true;
+    assertTrue(crf.canDecodeWithScratchViterbi());
+    assertEquals(classify(crf, false), classify(crf, true));
+  }
+
+  public void testSameOutput() throws IOException {
+    checkSameOutput(train(1));
+    checkSameOutput(train(2));
+  }
+
+  /** A thread which moves between classifiers decodes each with its own buffers, and keeps them */
+  public void testSwitchClassifiers() throws IOException {
+    CRFClassifier<CoreLabel> people = train(TRAIN.replaceAll("ORG|LOC", "O"), 2);
+    CRFClassifier<CoreLabel> all = train(2);
+    String peopleOutput = classify(people, false);
+    String allOutput = classify(all, false);
+    CRFViterbiDecoder peopleDecoder = people.viterbiDecoder();
+    CRFViterbiDecoder allDecoder = all.viterbiDecoder();
+    assertNotSame(peopleDecoder, allDecoder);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(peopleOutput, classify(people, true));
+      assertEquals(allOutput, classify(all, true));
+    }
+    assertSame(peopleDecoder, people.viterbiDecoder());
+    assertSame(allDecoder, all.viterbiDecoder());
+  }
+
+}
@@ -0,0 +1,132 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+public class MappedCRFModelTest extends TestCase {
+
+  private static final String[] FEATURES = { "W-Paris|C", "SHAPE-Xxxxx|C", "", "W-Zürich|C", "W-東京|C", "PW-and-W-London|CpC" };
+
+  private File file;
+  private double[][] weights;
+  private MappedCRFModel model;
+
+  @Override
+  public void setUp() throws IOException {
+    Index<String> featureIndex = new HashIndex<>(Arrays.asList(FEATURES));
+    weights = new double[FEATURES.length][];
+    for (int i = 0; i < FEATURES.length; i++) {
+      weights[i] = new double[i % 2 == 0 ? 3 : 9];
+      for (int j = 0; j < weights[i].length; j++) {
+        weights[i][j] = i - 0.25 * j;
+      }
+    }
+    file = File.createTempFile("MappedCRFModelTest", ".mmap");
+    file.deleteOnExit();
+    MappedCRFModel.write(file, new byte[] { 1, 2, 3 }, featureIndex, weights);
+    model = MappedCRFModel.open(file);
+  }
+
+  public void testIsMappedModel() {
+    assertTrue(MappedCRFModel.isMappedModel(file));
+    assertFalse(MappedCRFModel.isMappedModel(new File(file.getPath() + ".missing")));
+  }
+
+  public void testFeatureIndex() {
+    MappedFeatureIndex index = model.featureIndex;
+    assertEquals(FEATURES.length, index.size());
+    for (int i = 0; i < FEATURES.length; i++) {
+      assertEquals(FEATURES[i], index.get(i));
+      assertEquals(i, index.indexOf(FEATURES[i]));
+      assertEquals(i, index.indexOf(new String(FEATURES[i].toCharArray())));
+    }
+    assertEquals(-1, index.indexOf("W-Pari|C"));
+    assertEquals(-1, index.indexOf("W-Zurich|C"));
+    assertEquals(-1, index.indexOf("W-東|C"));
+    assertEquals(-1, index.indexOf(null));
+    assertFalse(index.add("W-Berlin|C"));
+    assertEquals(-1, index.addToIndex("W-Berlin|C"));
+    assertEquals(FEATURES.length, index.size());
+    assertEquals(Arrays.asList(FEATURES), index.objectsList());
+  }
+
+  public void testSerializesAsHashIndex() throws IOException, ClassNotFoundException {
+    File copy = File.createTempFile("MappedCRFModelTest", ".ser");
+    copy.deleteOnExit();
+    IOUtils.writeObjectToFile(model.featureIndex, copy);
+    Index<String> index = IOUtils.readObjectFromFile(copy);
+    assertTrue(index instanceof HashIndex);
+    assertEquals(Arrays.asList(FEATURES), index.objectsList());
+  }
+
+  public void testPotentials() {
+    MappedLinearCliquePotentialFunction potentials = model.potentials;
+    LinearCliquePotentialFunction expected = new LinearCliquePotentialFunction(weights);
+    for (int i = 0; i < FEATURES.length; i++) {
+      for (int j = 0; j < weights[i].length; j++) {
+        assertEquals(weights[i][j], potentials.weight(i, j));
+      }
+    }
+    int[] features = { 1, 3, 5 };
+    double[] values = { 0.5, 2.0, -1.0 };
+    for (int label = 0; label < 9; label++) {
+      assertEquals(expected.computeCliquePotential(2, label, features, null, 0),
+          potentials.computeCliquePotential(2, label, features, null, 0), 1e-12);
+      assertEquals(expected.computeCliquePotential(2, label, features, values, 0),
+          potentials.computeCliquePotential(2, label, features, values, 0), 1e-12);
+    }
+  }
+
+  public void testMeta() throws IOException {
+    InputStream meta = model.metaStream();
+    byte[] bytes = new byte[4];
+    assertEquals(3, meta.read(bytes));
+    assertEquals(-1, meta.read());
+    assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, Arrays.copyOf(bytes, 3)));
+  }
+
+  private static CRFClassifier<CoreLabel> train(String data) throws IOException {
+    File trainFile = File.createTempFile("MappedCRFModelTest", ".tsv");
+    trainFile.deleteOnExit();
+    IOUtils.writeStringToFile(data, trainFile.getPath(), "utf-8");
+    Properties props = new Properties();
+    props.setProperty("map", "word=0,answer=1");
+    props.setProperty("useWord", "true");
+    props.setProperty("useNGrams", "true");
+    props.setProperty("maxNGramLeng", "3");
+    props.setProperty("usePrev", "true");
+    props.setProperty("useNext", "true");
+    props.setProperty("trainFile", trainFile.getPath());
+    CRFClassifier<CoreLabel> crf = new CRFClassifier<>(props);
+    crf.train();
+    return crf;
+  }
+
+  /** Loading another model must not keep the potentials of a mapped model loaded before */
+  public void testLoadAfterMapped() throws Exception {
+    CRFClassifier<CoreLabel> places = train("Paris\tLOC\nis\tO\nbig\tO\n\nRome\tLOC\nis\tO\nold\tO\n");
+    CRFClassifier<CoreLabel> adjectives = train("Paris\tO\nis\tO\nbig\tADJ\n\nRome\tO\nis\tO\nold\tADJ\n");
+    File mapped = File.createTempFile("MappedCRFModelTest", ".crf.mmap");
+    mapped.deleteOnExit();
+    places.serializeMappedClassifier(mapped.getPath());
+    File serialized = File.createTempFile("MappedCRFModelTest", ".crf.ser.gz");
+    serialized.deleteOnExit();
+    adjectives.serializeClassifier(serialized.getPath());
+
+    CRFClassifier<CoreLabel> crf = new CRFClassifier<>(new Properties());
+    crf.loadClassifier(mapped.getPath(), null);
+    assertEquals("Paris/LOC is/O big/O", crf.classifyToString("Paris is big"));
+    crf.loadClassifier(serialized.getPath(), null);
+    assertEquals("Paris/O is/O big/ADJ", crf.classifyToString("Paris is big"));
+  }
+
+}
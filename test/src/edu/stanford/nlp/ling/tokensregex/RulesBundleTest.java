@@ -0,0 +1,147 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.StringUtils;
+
+public class RulesBundleTest extends TestCase {
+
+  private static final String[] RULES = {
+      "ner = { type: \"CLASS\", value: \"edu.stanford.nlp.ling.CoreAnnotations$NamedEntityTagAnnotation\" }",
+      "$COLOR = \"/red|green|blue/\"",
+      "{ ruleType: \"tokens\", pattern: ( $COLOR /cat|dog/ ), action: ( Annotate($0, ner, \"PET\") ), result: \"PET\" }",
+      "{ ruleType: \"text\", pattern: /[0-9]+ (?:legs|paws)/, result: \"LIMBS\" }",
+  };
+
+  private File rulesFile;
+  private File bundleFile;
+
+  @Override
+  public void setUp() throws IOException {
+    rulesFile = File.createTempFile("rulesbundletest", ".rules.txt");
+    rulesFile.deleteOnExit();
+    writeRules(RULES);
+    bundleFile = File.createTempFile("rulesbundletest", ".bundle");
+    bundleFile.deleteOnExit();
+    assertTrue(bundleFile.delete());
+  }
+
+  @Override
+  public void tearDown() {
+    rulesFile.delete();
+    bundleFile.delete();
+  }
+
+  private void writeRules(String ... rules) throws IOException {
+    PrintWriter pw = IOUtils.getPrintWriter(rulesFile.getAbsolutePath());
+    for (String rule : rules) {
+      pw.println(rule);
+    }
+    pw.close();
+  }
+
+  private CoreMapExpressionExtractor<MatchedExpression> createExtractor(String settings) {
+    return RulesBundle.createExtractor(TokenSequencePattern.getNewEnv(),
+        Collections.singletonList(rulesFile.getAbsolutePath()), settings, bundleFile.getAbsolutePath());
+  }
+
+  private CoreMapExpressionExtractor<MatchedExpression> buildExtractor(String settings) {
+    return RulesBundle.buildExtractor(TokenSequencePattern.getNewEnv(),
+        Collections.singletonList(rulesFile.getAbsolutePath()), settings, bundleFile.getAbsolutePath(),
+        Collections.emptyMap());
+  }
+
+  private static String extract(CoreMapExpressionExtractor<MatchedExpression> extractor, String text) {
+    List<CoreLabel> tokens = new ArrayList<>();
+    int offset = 0;
+    for (String word : text.split(" ")) {
+      CoreLabel token = new CoreLabel();
+      token.setWord(word);
+      token.setValue(word);
+      token.setNER("O");
+      token.setBeginPosition(offset);
+      token.setEndPosition(offset + word.length());
+      offset += word.length() + 1;
+      tokens.add(token);
+    }
+    Annotation annotation = new Annotation(text);
+    annotation.set(CoreAnnotations.TokensAnnotation.class, tokens);
+    List<String> results = new ArrayList<>();
+    for (MatchedExpression expression : extractor.extractExpressions(annotation)) {
+      results.add(expression.getText() + '=' + expression.getValue().get());
+    }
+    return StringUtils.join(results, ";") + '|' + StringUtils.joinFields(tokens, CoreAnnotations.NamedEntityTagAnnotation.class);
+  }
+
+  private static final String TEXT = "the red cat has 4 legs and the green dog too";
+
+  public void testReadWrite() {
+    CoreMapExpressionExtractor<MatchedExpression> parsed = buildExtractor("");
+    assertTrue(bundleFile.isFile());
+    String expected = extract(parsed, TEXT);
+    assertEquals("red cat=PET;4 legs=LIMBS;green dog=PET|O PET PET O O O O O PET PET O", expected);
+
+    String checksum = RulesBundle.checksum(Collections.singletonList(rulesFile.getAbsolutePath()), "");
+    CoreMapExpressionExtractor<MatchedExpression> read =
+        RulesBundle.read(TokenSequencePattern.getNewEnv(), checksum, bundleFile.getAbsolutePath(), Collections.emptyMap());
+    assertNotNull(read);
+    assertEquals(expected, extract(read, TEXT));
+    assertNotNull(read.getEnv().get("$COLOR"));
+    assertEquals(expected, extract(createExtractor(""), TEXT));
+  }
+
+  public void testReadOnly() {
+    assertEquals("red cat=PET;4 legs=LIMBS;green dog=PET|O PET PET O O O O O PET PET O",
+        extract(createExtractor(""), TEXT));
+    assertFalse(bundleFile.exists());
+  }
+
+  public void testMain() {
+    RulesBundle.main(new String[] { "-annotators", "pets",
+        "-pets.rules", rulesFile.getAbsolutePath(), "-pets.rulesBundle", bundleFile.getAbsolutePath() });
+    assertTrue(bundleFile.isFile());
+    // the annotator's settings are part of the checksum
+    String checksum = RulesBundle.checksum(Collections.singletonList(rulesFile.getAbsolutePath()), "caseInsensitive=false");
+    assertNotNull(RulesBundle.read(TokenSequencePattern.getNewEnv(), checksum, bundleFile.getAbsolutePath(), Collections.emptyMap()));
+  }
+
+  public void testOutOfDate() throws IOException {
+    buildExtractor("");
+    assertTrue(bundleFile.isFile());
+    String checksum = RulesBundle.checksum(Collections.singletonList(rulesFile.getAbsolutePath()), "");
+
+    // other settings don't match the bundle
+    assertNull(RulesBundle.read(TokenSequencePattern.getNewEnv(), checksum + 'x', bundleFile.getAbsolutePath(), Collections.emptyMap()));
+
+    // and neither do changed rules, which are parsed again
+    writeRules(RULES[0], RULES[1], RULES[2]);
+    assertFalse(checksum.equals(RulesBundle.checksum(Collections.singletonList(rulesFile.getAbsolutePath()), "")));
+    assertEquals("red cat=PET;green dog=PET|O PET PET O O O O O PET PET O", extract(createExtractor(""), TEXT));
+  }
+
+  public void testCodeVersion() {
+    // the checksum changes with the code, not just the rules and settings
+    assertTrue(RulesBundle.codeVersion().startsWith("TokensRegexRulesBundle/"));
+    assertTrue(RulesBundle.codeVersion().split(" ").length > 1);
+  }
+
+  public void testUnreadable() throws IOException {
+    PrintWriter pw = IOUtils.getPrintWriter(bundleFile.getAbsolutePath());
+    pw.println("not a bundle");
+    pw.close();
+    assertEquals("red cat=PET;4 legs=LIMBS;green dog=PET|O PET PET O O O O O PET PET O",
+        extract(createExtractor(""), TEXT));
+  }
+
+}
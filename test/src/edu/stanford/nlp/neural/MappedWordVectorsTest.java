@@ -0,0 +1,125 @@
+package edu.stanford.nlp.neural;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import org.ejml.simple.SimpleMatrix;
+
+import edu.stanford.nlp.io.IOUtils;
+
+public class MappedWordVectorsTest extends TestCase {
+
+  private static String tempFile(String suffix) throws IOException {
+    File file = File.createTempFile("mappedwordvectorstest", suffix);
+    file.deleteOnExit();
+    return file.getAbsolutePath();
+  }
+
+  private static SimpleMatrix column(double ... values) {
+    SimpleMatrix vector = new SimpleMatrix(values.length, 1);
+    for (int i = 0; i < values.length; i++) {
+      vector.set(i, values[i]);
+    }
+    return vector;
+  }
+
+  private static void assertVector(SimpleMatrix expected, SimpleMatrix actual) {
+    assertNotNull(actual);
+    assertEquals(expected.getNumElements(), actual.getNumElements());
+    assertEquals(1, actual.numCols());
+    for (int i = 0; i < expected.getNumElements(); i++) {
+      assertEquals(expected.get(i), actual.get(i), 1e-6);
+    }
+  }
+
+  public void testReadWrite() throws IOException {
+    Map<String, SimpleMatrix> vectors = new HashMap<>();
+    SimpleMatrix unk = column(0.5, -0.5, 0.25);
+    vectors.put("UNK", unk);
+    vectors.put("kitten", column(1.0, 2.0, 3.0));
+    vectors.put("Schrödinger", column(-1.5, 0.0, 1e-3));
+    vectors.put("猫", column(4.0, 5.0, 6.0));
+    for (int i = 0; i < 100; i++) {
+      vectors.put("word" + i, column(i, -i, i * 0.5));
+    }
+    Embedding embedding = new Embedding(vectors);
+    assertTrue(vectors.containsKey(Embedding.UNKNOWN_WORD));
+
+    String file = tempFile(".bin");
+    embedding.writeMapped(file);
+    assertTrue(MappedWordVectors.isMappedFile(file));
+
+    MappedWordVectors mapped = new MappedWordVectors(file);
+    assertEquals(vectors.size(), mapped.size());
+    assertEquals(3, mapped.getDimension());
+    assertEquals(vectors.keySet(), new HashSet<>(mapped.keySet()));
+    for (Map.Entry<String, SimpleMatrix> entry : vectors.entrySet()) {
+      assertTrue(mapped.containsKey(entry.getKey()));
+      assertVector(entry.getValue(), mapped.get(entry.getKey()));
+    }
+    assertFalse(mapped.containsKey("puppy"));
+    assertNull(mapped.get("puppy"));
+    assertNull(mapped.getArray("puppy"));
+    assertEquals(2.0, mapped.getArray("kitten")[1], 1e-6);
+
+    Embedding mappedEmbedding = new Embedding(file);
+    assertEquals(3, mappedEmbedding.getEmbeddingSize());
+    assertVector(unk, mappedEmbedding.get("puppy"));
+    assertVector(unk, mappedEmbedding.getUnknownWordVector());
+    assertTrue(mappedEmbedding.containsWord("猫"));
+  }
+
+  public void testTextFile() throws IOException {
+    String text = tempFile(".txt");
+    PrintWriter pw = IOUtils.getPrintWriter(text);
+    pw.println("UNKNOWN 0.1 0.2 0.3 0.4");
+    pw.println("<s> 1 2 3 4");
+    pw.println("cat -1 -2 -3 -4");
+    pw.close();
+    assertFalse(MappedWordVectors.isMappedFile(text));
+
+    String file = tempFile(".bin");
+    MappedWordVectors.main(new String[] { text, file });
+
+    Embedding embedding = new Embedding(text);
+    Embedding mapped = new Embedding(file);
+    assertEquals(embedding.keySet(), new HashSet<>(mapped.keySet()));
+    for (String word : embedding.keySet()) {
+      assertVector(embedding.get(word), mapped.get(word));
+    }
+    assertVector(column(1, 2, 3, 4), mapped.getStartWordVector());
+
+    // vectors longer than asked for are truncated, as for text files
+    Embedding truncated = new Embedding(file, 2);
+    assertEquals(2, truncated.getEmbeddingSize());
+    assertVector(column(-1, -2), truncated.get("cat"));
+    try {
+      new Embedding(file, 5);
+      fail("Expected the vectors to be too short");
+    } catch (RuntimeException e) {
+      // yay
+    }
+  }
+
+  public void testSerialize() throws IOException, ClassNotFoundException {
+    Map<String, SimpleMatrix> vectors = new HashMap<>();
+    vectors.put("*UNK*", column(1, 2));
+    vectors.put("cat", column(3, 4));
+    String file = tempFile(".bin");
+    MappedWordVectors.write(vectors, file);
+
+    Embedding embedding = new Embedding(file);
+    String ser = tempFile(".ser");
+    IOUtils.writeObjectToFile(embedding, ser);
+    Embedding copy = IOUtils.readObjectFromFile(ser);
+    assertTrue(copy.getWordVectors() instanceof HashMap);
+    assertVector(column(3, 4), copy.get("cat"));
+    assertVector(column(1, 2), copy.get("dog"));
+  }
+
+}
@@ -0,0 +1,125 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.SentenceUtils;
+import edu.stanford.nlp.parser.common.ParserGrammar;
+import edu.stanford.nlp.parser.common.ParserQuery;
+import edu.stanford.nlp.trees.MemoryTreebank;
+import edu.stanford.nlp.trees.Tree;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LexicalizedParserTest extends TestCase {
+
+  private static final String[] TREES = {
+      "(ROOT (S (NP (DT The) (NN dog)) (VP (VBD saw) (NP (DT a) (NN cat))) (. .)))",
+      "(ROOT (S (NP (NNP John)) (VP (VBD saw) (NP (DT the) (NN man)) (PP (IN with) (NP (DT a) (NN telescope)))) (. .)))",
+      "(ROOT (S (NP (DT A) (NN man)) (VP (VBD ate) (NP (NP (DT the) (NN cake)) (PP (IN in) (NP (DT the) (NN kitchen))))) (. .)))",
+      "(ROOT (S (NP (PRP He)) (VP (VBD walked) (PP (IN to) (NP (DT the) (NN park)))) (. .)))",
+      "(ROOT (S (NP (NNP John)) (VP (VBD saw) (NP (NP (NP (DT the) (NN man)) (PP (IN in) (NP (DT the) (NN kitchen)))) (PP (IN in) (NP (DT the) (NN park))))) (. .)))",
+  };
+
+  private static final String[] SENTENCES = {
+      "The man saw a dog with the cake in the park .",
+      "John ate the cat .",
+      "He walked to the kitchen with a telescope .",
+      "John saw the dog with a cake in the kitchen .",
+  };
+
+  private static LexicalizedParser train() {
+    MemoryTreebank treebank = new MemoryTreebank();
+    for (String tree : TREES) {
+      treebank.add(Tree.valueOf(tree));
+    }
+    Options op = new Options();
+    op.doDep = false;
+    op.doPCFG = true;
+    return LexicalizedParser.trainFromTreebank(treebank, op);
+  }
+
+  private static List<HasWord> words(String sentence) {
+    return SentenceUtils.toWordList(sentence.split(" "));
+  }
+
+  /** A sentence longer than any which a reused query keeps its charts for */
+  private static List<HasWord> longSentence() {
+    List<HasWord> words = new ArrayList<>(words("John saw the man"));
+    while (words.size() <= ParserGrammar.MAX_REUSED_QUERY_LENGTH) {
+      words.addAll(words("in the kitchen"));
+    }
+    words.addAll(words("."));
+    return words;
+  }
+
+  private static List<Tree> parseWithNewQueries(LexicalizedParser lp) {
+    List<Tree> trees = new ArrayList<>();
+    for (String sentence : SENTENCES) {
+      ParserQuery pq = lp.parserQuery();
+      assertTrue(pq.parse(words(sentence)));
+      Tree tree = pq.getBestParse();
+      tree.setScore(pq.getPCFGScore());
+      trees.add(tree);
+    }
+    return trees;
+  }
+
+  /** Parses each sentence with the same query, as ParserAnnotator does on each thread */
+  private static List<Tree> parseWithQuery(ParserQuery pq, List<String> sentences) {
+    List<Tree> trees = new ArrayList<>();
+    for (String sentence : sentences) {
+      assertTrue(pq.parse(words(sentence)));
+      Tree tree = pq.getBestParse();
+      tree.setScore(pq.getPCFGScore());
+      trees.add(tree);
+    }
+    return trees;
+  }
+
+  /** A query reused for sentences of any length parses them as new queries do */
+  public void testReusedQuery() {
+    LexicalizedParser lp = train();
+    List<Tree> expected = parseWithNewQueries(lp);
+
+    ParserQuery pq = lp.parserQuery();
+    assertEquals(expected, parseWithQuery(pq, Arrays.asList(SENTENCES)));
+    // the charts are larger than a shorter sentence needs
+    List<String> reversed = new ArrayList<>(Arrays.asList(SENTENCES));
+    Collections.reverse(reversed);
+    List<Tree> reversedTrees = parseWithQuery(pq, reversed);
+    Collections.reverse(reversedTrees);
+    assertEquals(expected, reversedTrees);
+
+    assertTrue(pq.parse(longSentence()));
+    assertEquals(expected, parseWithQuery(pq, Arrays.asList(SENTENCES)));
+  }
+
+  public void testBeam() {
+    LexicalizedParser lp = train();
+    List<Tree> expected = parseWithNewQueries(lp);
+    double[] scores = new double[SENTENCES.length];
+    for (int i = 0; i < SENTENCES.length; i++) {
+      scores[i] = expected.get(i).score();
+    }
+
+    lp.getOp().testOptions.pcfgBeam = 1000.0;
+    assertEquals(expected, parseWithNewQueries(lp));
+
+    // a narrow beam can lose the best parse, or every parse, but never finds a better one
+    lp.getOp().testOptions.pcfgBeam = 0.5;
+    int failed = 0;
+    for (int i = 0; i < SENTENCES.length; i++) {
+      ParserQuery pq = lp.parserQuery();
+      if (pq.parse(words(SENTENCES[i]))) {
+        assertTrue(pq.getPCFGScore() <= scores[i] + 1e-4);
+      } else {
+        failed++;
+      }
+    }
+    assertTrue(failed > 0);
+  }
+
+}
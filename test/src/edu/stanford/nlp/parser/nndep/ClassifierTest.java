@@ -0,0 +1,67 @@
+package edu.stanford.nlp.parser.nndep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that scoring a batch of configurations gives exactly the same
+ * scores as scoring them one at a time.
+ */
+public class ClassifierTest extends TestCase {
+
+  private static final int NUM_WORDS = 30;
+  private static final int EMBEDDING_SIZE = 5;
+  private static final int HIDDEN_SIZE = 7;
+  private static final int NUM_LABELS = 4;
+
+  private static double[][] randomMatrix(Random random, int rows, int cols) {
+    double[][] matrix = new double[rows][cols];
+    for (double[] row : matrix) {
+      for (int j = 0; j < cols; j++) {
+        row[j] = random.nextGaussian();
+      }
+    }
+    return matrix;
+  }
+
+  public void testBatchedScores() {
+    Random random = new Random(7);
+    Properties props = new Properties();
+    props.setProperty("embeddingSize", Integer.toString(EMBEDDING_SIZE));
+    props.setProperty("hiddenSize", Integer.toString(HIDDEN_SIZE));
+    Config config = new Config(props);
+    // precompute some of the (word, position) pairs, so both paths are used
+    List<Integer> preComputed = new ArrayList<>();
+    for (int tok = 0; tok < NUM_WORDS; tok += 3) {
+      for (int pos = 0; pos < Config.numTokens; pos += 2) {
+        preComputed.add(tok * Config.numTokens + pos);
+      }
+    }
+    Classifier classifier = new Classifier(config,
+        randomMatrix(random, NUM_WORDS, EMBEDDING_SIZE),
+        randomMatrix(random, HIDDEN_SIZE, Config.numTokens * EMBEDDING_SIZE),
+        randomMatrix(random, 1, HIDDEN_SIZE)[0],
+        randomMatrix(random, NUM_LABELS, HIDDEN_SIZE),
+        preComputed);
+    classifier.preCompute();
+
+    int[][] features = new int[13][Config.numTokens];
+    for (int[] feature : features) {
+      for (int j = 0; j < feature.length; j++) {
+        feature[j] = random.nextInt(NUM_WORDS);
+      }
+    }
+    double[][] batched = classifier.computeScores(features);
+    assertEquals(features.length, batched.length);
+    for (int b = 0; b < features.length; b++) {
+      assertTrue(Arrays.equals(classifier.computeScores(features[b]), batched[b]));
+    }
+    assertEquals(0, classifier.computeScores(new int[0][]).length);
+  }
+
+}
@@ -0,0 +1,30 @@
+package edu.stanford.nlp.parser.nndep;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class UtilTest extends TestCase {
+
+  private static final double[][] EMBEDDINGS = {
+      { 1.0, 2.0, 3.0 },
+      { -1.0, 0.5, 4.0 },
+      { 2.0, 2.0, -2.5 },
+  };
+
+  public void testScalingStatistics() {
+    double[] stats = Util.scalingStatistics(Arrays.asList(EMBEDDINGS), 0.0, 1.0);
+    assertEquals(11.0 / 9, stats[0], 1e-12);
+    double sumOfSquares = 1 + 4 + 9 + 1 + 0.25 + 16 + 4 + 4 + 6.25;
+    assertEquals(Math.sqrt(sumOfSquares / 9 - stats[0] * stats[0]), stats[1], 1e-12);
+  }
+
+  public void testScaling() {
+    double[][] scaled = Util.scaling(EMBEDDINGS, 1.0, 2.0);
+    double[] stats = Util.scalingStatistics(Arrays.asList(scaled), 0.0, 1.0);
+    assertEquals(1.0, stats[0], 1e-12);
+    assertEquals(2.0, stats[1], 1e-12);
+    assertEquals(1.0, EMBEDDINGS[0][0]);
+  }
+
+}
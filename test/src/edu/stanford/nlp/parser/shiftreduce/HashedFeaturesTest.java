@@ -0,0 +1,167 @@
+package edu.stanford.nlp.parser.shiftreduce;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import edu.stanford.nlp.parser.lexparser.BinaryHeadFinder;
+import edu.stanford.nlp.parser.lexparser.Options;
+import edu.stanford.nlp.trees.HeadFinder;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.Trees;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Hashing;
+import edu.stanford.nlp.util.Index;
+import edu.stanford.nlp.util.ScoredObject;
+
+public class HashedFeaturesTest extends TestCase {
+  String[] treeStrings = {
+    "(ROOT (S (INTJ (RB No)) (@S (, ,) (@S (NP (PRP it)) (@S (VP (@VP (VBD was) (RB n't)) (NP (NNP Black) (NNP Monday))) (. .))))) (.$$. .$.))",
+    "(ROOT (S (NP (NP (DT Some) (@NP (`` ``) (@NP (NN circuit) (@NP (NNS breakers) ('' ''))))) (VP (VBN installed) (PP (IN after) (NP (DT the) (@NP (NNP October) (@NP (CD 1987) (NN crash))))))) (@S (VP (@VP (@VP (VBD failed) (NP (PRP$ their) (@NP (JJ first) (NN test)))) (PRN (, ,) (@PRN (S (NP (NNS traders)) (VP (VBP say))) (, ,)))) (S (ADJP (JJ unable) (S (VP (TO to) (VP (VB cool) (NP (NP (DT the) (@NP (NN selling) (NN panic))) (PP (IN in) (NP (DT both) (@NP (@NP (NNS stocks) (CC and)) (NNS futures))))))))))) (. .))) (.$$. .$.))",
+    "(ROOT (FRAG (NP (DT A) (@NP (ADJP (JJ short) (@ADJP (, ,) (JJ simple))) (NN test)))))",
+  };
+
+  Tree convertTree(String treeText) {
+    Options op = new Options();
+    HeadFinder binaryHeadFinder = new BinaryHeadFinder(op.tlpParams.headFinder());
+    Tree tree = Tree.valueOf(treeText);
+    Trees.convertToCoreLabels(tree);
+    tree.percolateHeadAnnotations(binaryHeadFinder);
+    return tree;
+  }
+
+  /** All of the states on the way to building each of the trees */
+  List<State> buildStates(Index<Transition> transitionIndex) {
+    List<State> states = new ArrayList<>();
+    for (String treeText : treeStrings) {
+      Tree tree = convertTree(treeText);
+      List<Transition> transitions = CreateTransitionSequence.createTransitionSequence(tree, true, Collections.singleton("ROOT"), Collections.singleton("ROOT"));
+      transitionIndex.addAll(transitions);
+      State state = ShiftReduceParser.initialStateFromGoldTagTree(tree);
+      for (Transition transition : transitions) {
+        states.add(state);
+        state = transition.apply(state);
+      }
+      states.add(state);
+    }
+    return states;
+  }
+
+  public void testAppend() {
+    HashedFeatures features = new HashedFeatures(1);
+    features.start("S0C-").append("NP").end();
+    features.start("Sepb").append("S0").append('-').append(0).append('-').append(true).end();
+    features.start("x").append(-1234).append(Integer.MIN_VALUE).append(Integer.MAX_VALUE).end();
+    features.add("QUEUE_FINISHED");
+    features.start("").end();
+
+    assertEquals(5, features.size());
+    assertEquals(HashedFeatures.hash("S0C-NP"), features.get(0));
+    assertEquals(HashedFeatures.hash("SepbS0-0-true"), features.get(1));
+    assertEquals(HashedFeatures.hash("x-1234" + Integer.MIN_VALUE + Integer.MAX_VALUE), features.get(2));
+    assertEquals(HashedFeatures.hash("QUEUE_FINISHED"), features.get(3));
+    assertEquals(HashedFeatures.hash(""), features.get(4));
+    assertFalse(HashedFeatures.hash("S0C-NP") == HashedFeatures.hash("S0C-VP"));
+    // hashed models store these ids, so the hash must not change
+    assertEquals(0x734d1e88043939f0L, HashedFeatures.hash("S0C-NP"));
+    assertEquals(Hashing.hash64("QUEUE_FINISHED"), HashedFeatures.hash("QUEUE_FINISHED"));
+
+    features.clear();
+    assertEquals(0, features.size());
+  }
+
+  /**
+   * The hashed features of a state should be the hashes of its
+   * feature strings, in the same order
+   */
+  public void testBasicFeatureFactory() {
+    FeatureFactory featureFactory = new CombinationFeatureFactory(new FeatureFactory[] { new BasicFeatureFactory() });
+    for (State state : buildStates(new HashIndex<>())) {
+      List<String> features = featureFactory.featurize(state);
+      HashedFeatures hashed = new HashedFeatures();
+      featureFactory.featurize(state, hashed);
+      assertEquals(features.size(), hashed.size());
+      for (int i = 0; i < features.size(); ++i) {
+        assertEquals(features.get(i), HashedFeatures.hash(features.get(i)), hashed.get(i));
+      }
+    }
+  }
+
+  public void testWeights() {
+    Map<String, Weight> featureWeights = Generics.newHashMap();
+    Random random = new Random(1234);
+    for (int i = 0; i < 1000; ++i) {
+      Weight weight = new Weight();
+      for (int j = 0; j < i % 4; ++j) {
+        weight.updateWeight(random.nextInt(10), random.nextFloat() - 0.5f);
+      }
+      featureWeights.put("feature" + i, weight);
+    }
+    HashedFeatureWeights hashedWeights = new HashedFeatureWeights(featureWeights);
+    // the features with no weights are left out
+    assertEquals(750, hashedWeights.size());
+
+    for (int i = 0; i < 1010; ++i) {
+      float[] expected = new float[10];
+      if (featureWeights.containsKey("feature" + i)) {
+        featureWeights.get("feature" + i).score(expected);
+      }
+      float[] scores = new float[10];
+      hashedWeights.score(HashedFeatures.hash("feature" + i), scores);
+      for (int j = 0; j < 10; ++j) {
+        assertEquals(expected[j], scores[j], 0.0f);
+      }
+    }
+  }
+
+  /**
+   * A model converted to hashed features should score transitions
+   * exactly as it did before
+   */
+  public void testHashFeatures() {
+    Index<Transition> transitionIndex = new HashIndex<>();
+    List<State> states = buildStates(transitionIndex);
+    Set<String> roots = Collections.singleton("ROOT");
+    PerceptronModel model = new PerceptronModel(new ShiftReduceOptions(), transitionIndex, Generics.newHashSet(), roots, roots);
+
+    Random random = new Random(1234);
+    for (State state : states) {
+      for (String feature : model.featureFactory.featurize(state)) {
+        if (random.nextInt(3) == 0) {
+          continue;
+        }
+        Weight weight = model.featureWeights.computeIfAbsent(feature, k -> new Weight());
+        weight.updateWeight(random.nextInt(transitionIndex.size()), random.nextFloat());
+      }
+    }
+    Set<String> tags = model.tagSet();
+
+    PerceptronModel hashed = new PerceptronModel(model);
+    hashed.hashFeatures();
+    assertTrue(hashed.featureWeights.isEmpty());
+    assertEquals(tags, hashed.tagSet());
+
+    for (State state : states) {
+      List<ScoredObject<Integer>> expected = new ArrayList<>(model.findHighestScoringTransitions(state, false, transitionIndex.size(), null));
+      List<ScoredObject<Integer>> actual = new ArrayList<>(hashed.findHighestScoringTransitions(state, false, transitionIndex.size(), null));
+      assertEquals(expected.size(), actual.size());
+      assertEquals(scores(expected), scores(actual));
+    }
+  }
+
+  private static Map<Integer, Double> scores(Collection<ScoredObject<Integer>> transitions) {
+    Map<Integer, Double> scores = Generics.newHashMap();
+    for (ScoredObject<Integer> transition : transitions) {
+      scores.put(transition.object(), transition.score());
+    }
+    return scores;
+  }
+
+}
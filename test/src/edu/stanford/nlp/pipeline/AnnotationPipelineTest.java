@@ -0,0 +1,138 @@
+package edu.stanford.nlp.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import junit.framework.TestCase;
+
+/**
+ * Tests running an AnnotationPipeline as a staged pipeline.
+ */
+public class AnnotationPipelineTest extends TestCase {
+
+  /** Appends its name to the text of the document, so the order of the stages can be checked */
+  private static class AppendingAnnotator implements Annotator {
+    private final String name;
+    private final String failOn;
+
+    AppendingAnnotator(String name, String failOn) {
+      this.name = name;
+      this.failOn = failOn;
+    }
+
+    @Override
+    public void annotate(Annotation annotation) {
+      String text = annotation.get(CoreAnnotations.TextAnnotation.class);
+      if (text.startsWith(failOn + ' ')) {
+        throw new IllegalStateException("failed on " + text);
+      }
+      annotation.set(CoreAnnotations.TextAnnotation.class, text + ' ' + name);
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+      return Collections.emptySet();
+    }
+  }
+
+  private static AnnotationPipeline makePipeline(String failOn) {
+    AnnotationPipeline pipeline = new AnnotationPipeline();
+    pipeline.addAnnotator(new AppendingAnnotator("a", failOn));
+    pipeline.addAnnotator(new AppendingAnnotator("b", failOn));
+    pipeline.addAnnotator(new AppendingAnnotator("c", failOn));
+    return pipeline;
+  }
+
+  private static List<Annotation> makeDocuments(int count) {
+    List<Annotation> documents = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      documents.add(new Annotation(Integer.toString(i)));
+    }
+    return documents;
+  }
+
+  public void testStagedAnnotatesEveryDocument() {
+    AnnotationPipeline pipeline = makePipeline("none");
+    List<Annotation> documents = makeDocuments(200);
+    List<Annotation> finished = Collections.synchronizedList(new ArrayList<>());
+
+    pipeline.annotateStaged(documents, new int[] { 1, 3, 2 }, 4, finished::add);
+
+    assertEquals(documents.size(), finished.size());
+    for (int i = 0; i < documents.size(); ++i) {
+      assertEquals(i + " a b c", documents.get(i).get(CoreAnnotations.TextAnnotation.class));
+      assertTrue(finished.contains(documents.get(i)));
+    }
+  }
+
+  public void testStagedRethrowsFailure() {
+    AnnotationPipeline pipeline = makePipeline("17");
+    List<Annotation> documents = makeDocuments(50);
+    try {
+      pipeline.annotateStaged(documents, new int[] { 2, 2, 2 }, ann -> {});
+      fail("Expected the failure of an annotator to be rethrown");
+    } catch (IllegalStateException e) {
+      assertEquals("failed on 17 a", e.getMessage());
+    }
+  }
+
+  public void testStagedRejectsWrongThreadCounts() {
+    AnnotationPipeline pipeline = makePipeline("none");
+    try {
+      pipeline.annotateStaged(makeDocuments(1), new int[] { 1, 1 }, ann -> {});
+      fail("Expected an exception for the wrong number of stages");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /** The number of live worker threads of staged pipelines */
+  private static int countStageThreads() {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.isAlive() && thread.getName().startsWith("AnnotationPipeline stage ")) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  public void testStagedStopsWorkersWhenInputFails() {
+    AnnotationPipeline pipeline = makePipeline("none");
+    List<Annotation> documents = makeDocuments(20);
+    Iterable<Annotation> failingInput = () -> new Iterator<Annotation>() {
+      private final Iterator<Annotation> documentIterator = documents.iterator();
+
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+
+      @Override
+      public Annotation next() {
+        if (!documentIterator.hasNext()) {
+          throw new IllegalStateException("out of documents");
+        }
+        return documentIterator.next();
+      }
+    };
+    try {
+      pipeline.annotateStaged(failingInput, new int[] { 2, 3, 2 }, ann -> {});
+      fail("Expected the failure of the input to be rethrown");
+    } catch (IllegalStateException e) {
+      assertEquals("out of documents", e.getMessage());
+    }
+    assertEquals(0, countStageThreads());
+  }
+
+}
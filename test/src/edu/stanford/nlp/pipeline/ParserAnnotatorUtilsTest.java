@@ -0,0 +1,66 @@
+package edu.stanford.nlp.pipeline;
+
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.trees.GrammaticalStructure;
+import edu.stanford.nlp.trees.PennTreebankLanguagePack;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.Trees;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+
+public class ParserAnnotatorUtilsTest extends TestCase {
+
+  private static CoreMap parsedSentence(boolean freezeGraphs) {
+    Tree tree = Tree.valueOf("(ROOT (S (NP (DT The) (NN cat)) (VP (VBD sat)) (. .)))");
+    Trees.convertToCoreLabels(tree);
+    tree.indexLeaves();
+    List<CoreLabel> tokens = tree.taggedLabeledYield();
+    CoreMap sentence = new ArrayCoreMap();
+    sentence.set(CoreAnnotations.TokensAnnotation.class, tokens);
+    ParserAnnotatorUtils.fillInParseAnnotations(false, true, freezeGraphs,
+        new PennTreebankLanguagePack().grammaticalStructureFactory(), sentence,
+        Collections.singletonList(tree), GrammaticalStructure.Extras.NONE);
+    return sentence;
+  }
+
+  /** By default the graphs can still be changed in place */
+  public void testGraphsAreNotFrozenByDefault() {
+    CoreMap sentence = parsedSentence(false);
+    SemanticGraph graph = sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class);
+    assertFalse(graph.isFrozen());
+    assertFalse(sentence.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class).isFrozen());
+    int size = graph.size();
+    graph.removeVertex(graph.getNodeByIndex(1));
+    assertEquals(size - 1, graph.size());
+  }
+
+  public void testGraphsAreFrozen() {
+    CoreMap sentence = parsedSentence(true);
+    SemanticGraph graph = sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class);
+    assertTrue(graph.isFrozen());
+    assertTrue(sentence.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class).isFrozen());
+    assertEquals("sat", graph.getFirstRoot().word());
+    try {
+      graph.addEdge(graph.getFirstRoot(), graph.getNodeByIndex(1), GrammaticalRelation.DEPENDENT, 1.0, false);
+      fail("A frozen graph should not be changed");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    // a copy can be changed
+    SemanticGraph copy = new SemanticGraph(graph);
+    assertFalse(copy.isFrozen());
+    copy.removeVertex(copy.getNodeByIndex(1));
+    assertEquals(graph.size() - 1, copy.size());
+  }
+
+}
@@ -0,0 +1,142 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.coref.CorefCoreAnnotations;
+import edu.stanford.nlp.coref.data.CorefChain;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.util.CoreMap;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+public class ProtobufAnnotationSerializerTest extends TestCase {
+
+  private final ProtobufAnnotationSerializer serializer = new ProtobufAnnotationSerializer(false);
+
+  /** Two sentences with basic dependencies, and a coref chain linking their subjects */
+  private CoreNLPProtos.Document document() {
+    Properties props = new Properties();
+    props.setProperty("annotators", "tokenize,ssplit");
+    Annotation ann = new Annotation("Paris is big. Paris is old.");
+    new StanfordCoreNLP(props).annotate(ann);
+    ann.set(CoreAnnotations.DocIDAnnotation.class, "doc");
+    for (CoreMap sentence : ann.get(CoreAnnotations.SentencesAnnotation.class)) {
+      List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+      SemanticGraph graph = new SemanticGraph();
+      List<IndexedWord> words = new ArrayList<>();
+      for (CoreLabel token : tokens) {
+        IndexedWord word = new IndexedWord(token);
+        words.add(word);
+        graph.addVertex(word);
+      }
+      graph.setRoot(words.get(2));
+      graph.addEdge(words.get(2), words.get(0), GrammaticalRelation.DEPENDENT, 1.0, false);
+      graph.addEdge(words.get(2), words.get(1), GrammaticalRelation.DEPENDENT, 1.0, false);
+      sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, graph);
+    }
+
+    CoreNLPProtos.CorefChain.Builder chain = CoreNLPProtos.CorefChain.newBuilder()
+        .setChainID(7).setRepresentative(0);
+    for (int i = 0; i < 2; i++) {
+      chain.addMention(CoreNLPProtos.CorefChain.CorefMention.newBuilder()
+          .setMentionID(i).setMentionType("PROPER").setNumber("SINGULAR").setGender("NEUTRAL")
+          .setAnimacy("INANIMATE").setBeginIndex(0).setEndIndex(1).setHeadIndex(0)
+          .setSentenceIndex(i).setPosition(1));
+    }
+    return serializer.toProto(ann).toBuilder().addCorefChain(chain).build();
+  }
+
+  private static List<String> words(CoreMap map) {
+    List<String> words = new ArrayList<>();
+    for (CoreLabel token : map.get(CoreAnnotations.TokensAnnotation.class)) {
+      words.add(token.word());
+    }
+    return words;
+  }
+
+  private static void checkDocument(Annotation ann) {
+    assertEquals(Arrays.asList("Paris", "is", "big", ".", "Paris", "is", "old", "."), words(ann));
+    List<CoreMap> sentences = ann.get(CoreAnnotations.SentencesAnnotation.class);
+    assertEquals(2, sentences.size());
+    assertEquals(Arrays.asList("Paris", "is", "old", "."), words(sentences.get(1)));
+    SemanticGraph graph = sentences.get(1).get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class);
+    assertEquals("old", graph.getFirstRoot().word());
+    assertEquals(2, graph.edgeCount());
+    Map<Integer, CorefChain> chains = ann.get(CorefCoreAnnotations.CorefChainAnnotation.class);
+    assertEquals(1, chains.size());
+    assertEquals(2, chains.get(7).getMentionsInTextualOrder().size());
+  }
+
+  /** Java serialization writes the parts of a lazily read document which have not been read yet */
+  public void testSerializeLazyDocument() throws IOException, ClassNotFoundException {
+    Annotation lazy = serializer.fromProtoLazy(document());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(lazy);
+    }
+    Annotation read;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      read = (Annotation) in.readObject();
+    }
+    checkDocument(read);
+    checkDocument(lazy);
+    assertEquals(ArrayList.class, read.get(CoreAnnotations.SentencesAnnotation.class).getClass());
+    // the document and its sentences still share their tokens
+    assertSame(read.get(CoreAnnotations.TokensAnnotation.class).get(4),
+        read.get(CoreAnnotations.SentencesAnnotation.class).get(1).get(CoreAnnotations.TokensAnnotation.class).get(0));
+  }
+
+  public void testProject() {
+    CoreNLPProtos.Document proto = document();
+    Set<String> fields = new HashSet<>(Arrays.asList("sentence", "token"));
+    CoreNLPProtos.Document projected = ProtobufAnnotationSerializer.project(proto, fields);
+    assertEquals(proto.getText(), projected.getText());
+    assertFalse(projected.hasDocID());
+    assertEquals(0, projected.getCorefChainCount());
+    assertEquals(4, projected.getSentence(0).getTokenCount());
+    assertEquals(proto.getSentence(1).getTokenOffsetBegin(), projected.getSentence(1).getTokenOffsetBegin());
+    assertFalse(projected.getSentence(1).hasBasicDependencies());
+    assertEquals(proto.getSentence(1).getToken(0), projected.getSentence(1).getToken(0));
+
+    fields.add("basicDependencies");
+    fields.add("docID");
+    projected = ProtobufAnnotationSerializer.project(proto, fields);
+    assertEquals("doc", projected.getDocID());
+    assertEquals(proto.getSentence(1).getBasicDependencies(), projected.getSentence(1).getBasicDependencies());
+
+    fields.remove("sentence");
+    assertEquals(0, ProtobufAnnotationSerializer.project(proto, fields).getSentenceCount());
+  }
+
+  public void testReadFields() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    document().writeDelimitedTo(bytes);
+    Annotation ann = serializer.read(new ByteArrayInputStream(bytes.toByteArray()),
+        new HashSet<>(Arrays.asList("sentence", "token"))).first;
+    assertEquals(Arrays.asList("Paris", "is", "big", ".", "Paris", "is", "old", "."), words(ann));
+    CoreMap sentence = ann.get(CoreAnnotations.SentencesAnnotation.class).get(1);
+    assertEquals(Arrays.asList("Paris", "is", "old", "."), words(sentence));
+    assertNull(sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class));
+    assertNull(ann.get(CorefCoreAnnotations.CorefChainAnnotation.class));
+    assertNull(ann.get(CoreAnnotations.DocIDAnnotation.class));
+
+    checkDocument(serializer.read(new ByteArrayInputStream(bytes.toByteArray()),
+        new HashSet<>(Arrays.asList("sentence", "token", "basicDependencies", "corefChain"))).first);
+  }
+
+}
@@ -0,0 +1,188 @@
+package edu.stanford.nlp.pipeline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.protobuf.CodedOutputStream;
+import junit.framework.TestCase;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.util.ArgumentParser;
+
+/**
+ * Starts a server on a free port, with one annotation thread and a queue of one request,
+ * and checks how it handles requests.
+ */
+public class StanfordCoreNLPServerTest extends TestCase {
+
+  private int oldThreads;
+  private int oldQueueSize;
+  private StanfordCoreNLPServer server;
+  private int port;
+
+  @Override
+  public void setUp() throws IOException {
+    oldThreads = ArgumentParser.threads;
+    oldQueueSize = StanfordCoreNLPServer.queueSize;
+    ArgumentParser.threads = 1;
+    StanfordCoreNLPServer.queueSize = 1;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    Properties props = new Properties();
+    props.setProperty("server_id", "test" + port);
+    server = new StanfordCoreNLPServer(props, port, 15000, false);
+    server.quiet = true;
+    server.run(Optional.empty(), req -> true, res -> {}, null, false, new AtomicBoolean());
+  }
+
+  @Override
+  public void tearDown() {
+    server.server.stop(0);
+    server.corenlpExecutor.shutdownNow();
+    ArgumentParser.threads = oldThreads;
+    StanfordCoreNLPServer.queueSize = oldQueueSize;
+  }
+
+  private HttpURLConnection post(String path, byte[] body) throws IOException {
+    String props = URLEncoder.encode("{\"annotators\": \"tokenize\", \"outputFormat\": \"json\"}", "utf-8");
+    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path + "?properties=" + props).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream os = connection.getOutputStream()) {
+      os.write(body);
+    }
+    return connection;
+  }
+
+  private static void assertAnnotated(HttpURLConnection connection) throws IOException {
+    assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+    String response = IOUtils.slurpInputStream(connection.getInputStream(), "utf-8");
+    assertTrue(response, response.contains("\"word\":\"world\""));
+  }
+
+  public void testAnnotate() throws IOException {
+    assertAnnotated(post("/", "Hello world.".getBytes("utf-8")));
+  }
+
+  public void testFullQueue() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    // one task takes the only annotation thread, and the next fills the queue
+    server.corenlpExecutor.submit(() -> {
+      started.countDown();
+      release.await();
+      return null;
+    });
+    started.await();
+    server.corenlpExecutor.submit(() -> null);
+    try {
+      HttpURLConnection connection = post("/", "Hello world.".getBytes("utf-8"));
+      assertEquals(429, connection.getResponseCode());
+      assertEquals("1", connection.getHeaderField("Retry-After"));
+    } finally {
+      release.countDown();
+    }
+    // once the queue drains, requests are taken again
+    assertAnnotated(post("/", "Hello world.".getBytes("utf-8")));
+  }
+
+  /** The documents as the body of a request to /stream with inputFormat=text */
+  private static byte[] delimited(String... documents) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+    for (String document : documents) {
+      byte[] utf8 = document.getBytes("utf-8");
+      output.writeRawVarint32(utf8.length);
+      output.writeRawBytes(utf8);
+    }
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  private static InputStream stream(byte[] bytes) {
+    return new ByteArrayInputStream(bytes);
+  }
+
+  public void testReadDelimitedText() throws IOException {
+    InputStream input = stream(delimited("Hello world.", "", "Caf\u00e9 au lait."));
+    assertEquals("Hello world.", StanfordCoreNLPServer.readDelimitedText(input.read(), input));
+    assertEquals("", StanfordCoreNLPServer.readDelimitedText(input.read(), input));
+    assertEquals("Caf\u00e9 au lait.", StanfordCoreNLPServer.readDelimitedText(input.read(), input));
+    assertEquals(-1, input.read());
+  }
+
+  private static void assertMalformed(byte[] bytes) throws IOException {
+    InputStream input = stream(bytes);
+    try {
+      StanfordCoreNLPServer.readDelimitedText(input.read(), input);
+      fail("Expected a MalformedStreamException");
+    } catch (StanfordCoreNLPServer.MalformedStreamException e) {
+      // expected
+    }
+  }
+
+  public void testReadTruncatedText() throws IOException {
+    byte[] bytes = delimited("Hello world.");
+    assertMalformed(Arrays.copyOf(bytes, bytes.length - 1));
+    // the length itself is cut short
+    assertMalformed(new byte[] { (byte) 0x80 });
+  }
+
+  public void testReadOversizedText() throws IOException {
+    // a length of 2^31 - 1 bytes, which must not be allocated
+    assertMalformed(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x07 });
+    // a negative length
+    assertMalformed(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x0F });
+    assertMalformed(delimited(new String(new char[4 * StanfordCoreNLPServer.MAX_CHAR_LENGTH + 1])));
+  }
+
+  public void testStream() throws IOException {
+    HttpURLConnection connection = post("/stream", delimited("Hello world.", "Goodbye, world.", "Third."));
+    assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+    List<String> texts = new ArrayList<>();
+    try (InputStream input = connection.getInputStream()) {
+      CoreNLPProtos.Document document;
+      while ((document = CoreNLPProtos.Document.parseDelimitedFrom(input)) != null) {
+        texts.add(document.getText());
+        assertTrue(document.getSentencelessTokenCount() > 0);
+      }
+    }
+    List<String> expected = new ArrayList<>();
+    expected.add("Hello world.");
+    expected.add("Goodbye, world.");
+    expected.add("Third.");
+    assertEquals(expected, texts);
+  }
+
+  public void testStreamEndsEarly() throws IOException {
+    byte[] bytes = delimited("Hello world.", "Goodbye, world.");
+    HttpURLConnection connection = post("/stream", Arrays.copyOf(bytes, bytes.length - 3));
+    assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, connection.getResponseCode());
+  }
+
+  public void testStreamOversized() throws IOException {
+    byte[] bytes = delimited("Hello world.");
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write(bytes);
+    // claims to be 2^31 - 1 bytes long
+    body.write(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x07, 'x' });
+    HttpURLConnection connection = post("/stream", body.toByteArray());
+    assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, connection.getResponseCode());
+  }
+
+}
@@ -0,0 +1,86 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.util.StringUtils;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Tests of TokensRegexNERAnnotator which don't need models: the tokens
+ * are made by hand, with their original NER tags already set.
+ */
+public class TokensRegexNERAnnotatorTest extends TestCase {
+
+  private static final String[][] PATTERNS = {
+      { "New York", "CITY", "LOCATION,O", "1" },
+      { "New York City", "CITY", "LOCATION,O", "1" },
+      { "York City", "LOCATION" },
+      { "Bank of America", "ORGANIZATION" },
+      { "Bank", "MISC" },
+      { "[Nn]ew Y.*", "STATE_OR_PROVINCE", "", "2" },
+      { "( ( /the/ ) /Bank/ )", "TITLE", "", "0", "1" },
+      { "Ap+le", "ORGANIZATION" },
+  };
+
+  private static TokensRegexNERAnnotator getAnnotator(boolean ignoreCase) throws Exception {
+    File tempFile = File.createTempFile("tokensregexnertest.patterns", "txt");
+    tempFile.deleteOnExit();
+    PrintWriter pw = IOUtils.getPrintWriter(tempFile.getAbsolutePath());
+    for (String[] p : PATTERNS) {
+      pw.println(StringUtils.join(p, "\t"));
+    }
+    pw.close();
+    Properties props = new Properties();
+    props.setProperty("tokensregexner.mapping", tempFile.getAbsolutePath());
+    props.setProperty("tokensregexner.ignorecase", String.valueOf(ignoreCase));
+    return new TokensRegexNERAnnotator("tokensregexner", props);
+  }
+
+  private static String annotate(TokensRegexNERAnnotator annotator, String text) {
+    List<CoreLabel> tokens = new ArrayList<>();
+    for (String word : text.split(" ")) {
+      CoreLabel token = new CoreLabel();
+      token.setWord(word);
+      token.setValue(word);
+      token.setNER("O");
+      tokens.add(token);
+    }
+    Annotation annotation = new Annotation(text);
+    annotation.set(CoreAnnotations.TokensAnnotation.class, tokens);
+    annotator.annotate(annotation);
+    return StringUtils.joinFields(tokens, CoreAnnotations.NamedEntityTagAnnotation.class);
+  }
+
+  public void testLiteralEntries() throws Exception {
+    TokensRegexNERAnnotator annotator = getAnnotator(false);
+    // the longest match wins
+    assertEquals("O ORGANIZATION ORGANIZATION ORGANIZATION", annotate(annotator, "at Bank of America"));
+    assertEquals("MISC O MISC", annotate(annotator, "Bank or Bank"));
+    assertEquals("O LOCATION LOCATION O", annotate(annotator, "in York City today"));
+    // case matters
+    assertEquals("O O O O", annotate(annotator, "at bank of america"));
+  }
+
+  public void testLiteralAndRegexEntries() throws Exception {
+    TokensRegexNERAnnotator annotator = getAnnotator(false);
+    // the regex entry has a higher priority than the literal one
+    assertEquals("STATE_OR_PROVINCE STATE_OR_PROVINCE O", annotate(annotator, "New York City"));
+    assertEquals("O ORGANIZATION O", annotate(annotator, "an Apple pie"));
+    // only the group of the TokensRegex entry is annotated
+    assertEquals("MISC O TITLE O", annotate(annotator, "Bank or the Bank"));
+  }
+
+  public void testIgnoreCase() throws Exception {
+    TokensRegexNERAnnotator annotator = getAnnotator(true);
+    assertEquals("ORGANIZATION ORGANIZATION ORGANIZATION", annotate(annotator, "BANK OF america"));
+    assertEquals("O MISC", annotate(annotator, "a bAnK"));
+  }
+
+}
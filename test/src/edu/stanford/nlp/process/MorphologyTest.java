@@ -98,4 +98,37 @@ public class MorphologyTest extends TestCase {
     assertEquals("radius", wt.word());
   }
 
+  public void testLowercaseCached() {
+    // the same word and tag, with and without lowercasing, are cached apart
+    assertEquals("Book", lemmaStatic("Books", "NNS", false));
+    assertEquals("book", lemmaStatic("Books", "NNS", true));
+    assertEquals("Book", lemmaStatic("Books", "NNS", false));
+    // and lemmatizing without lowercasing doesn't change what stemStatic does
+    assertEquals("book", stemStatic("Books", "NNS").word());
+    assertEquals("book", new Morphology().lemma("Books", "NNS"));
+  }
+
+  public void testStaticThreads() throws InterruptedException {
+    String[] errors = new String[4];
+    Thread[] threads = new Thread[errors.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread(() -> {
+        for (int round = 0; round < 50; round++) {
+          for (int i = 0; i < exWords.length; i++) {
+            String lemma = lemmaStatic(exWords[i], exTags[i]);
+            if ( ! lemma.equals(exAnswers[i])) {
+              errors[thread] = exWords[i] + '/' + exTags[i] + " to " + lemma;
+            }
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      assertNull(errors[t]);
+    }
+  }
+
 }
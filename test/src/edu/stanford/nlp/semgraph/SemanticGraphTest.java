@@ -2,6 +2,7 @@ package edu.stanford.nlp.semgraph;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +11,7 @@ import java.util.Set;
 import edu.stanford.nlp.trees.*;
 import junit.framework.TestCase;
 import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.util.CollectionUtils;
 import edu.stanford.nlp.util.Generics;
 
 /**
@@ -30,6 +32,10 @@ public class SemanticGraphTest extends TestCase {
   }
 
   private static SemanticGraph makeGraph() {
+    return makeGraph(SemanticGraphFactory.Mode.BASIC);
+  }
+
+  private static SemanticGraph makeGraph(SemanticGraphFactory.Mode mode) {
     Tree tree;
 
     try {
@@ -40,7 +46,7 @@ public class SemanticGraphTest extends TestCase {
       throw new RuntimeException(e);
     }
 
-    return SemanticGraphFactory.makeFromTree(tree, SemanticGraphFactory.Mode.BASIC, GrammaticalStructure.Extras.MAXIMAL);
+    return SemanticGraphFactory.makeFromTree(tree, mode, GrammaticalStructure.Extras.MAXIMAL);
   }
 
   public void testShortestPath() {
@@ -245,4 +251,70 @@ public class SemanticGraphTest extends TestCase {
     }
   }
 
+
+  /** The answers to all the queries which a frozen graph answers from its arrays */
+  private static List<Object> queryAll(SemanticGraph g) {
+    List<Object> answers = new ArrayList<>();
+    answers.add(new ArrayList<>(g.vertexSet()));
+    answers.add(g.edgeCount());
+    answers.add(CollectionUtils.toList(g.edgeIterable()));
+    for (int index = -1; index < g.size() + 5; index++) {
+      answers.add(g.getNodeByIndexSafe(index));
+    }
+    for (IndexedWord vertex : g.vertexSet()) {
+      IndexedWord copy = new IndexedWord(vertex);
+      copy.setCopyCount(vertex.copyCount());
+      for (IndexedWord v : new IndexedWord[] { vertex, copy }) {
+        answers.add(g.containsVertex(v));
+        answers.add(g.outgoingEdgeList(v));
+        answers.add(g.incomingEdgeList(v));
+        answers.add(g.outDegree(v));
+        answers.add(g.inDegree(v));
+        answers.add(CollectionUtils.toList(g.getChildren(v)));
+        answers.add(CollectionUtils.toList(g.getParents(v)));
+        answers.add(g.getChildren(v).contains(vertex));
+        answers.add(g.getParent(v));
+      }
+      for (IndexedWord other : g.vertexSet()) {
+        answers.add(g.getAllEdges(vertex, other));
+        answers.add(g.containsEdge(vertex, other));
+      }
+    }
+    return answers;
+  }
+
+  public void testFreeze() {
+    for (SemanticGraphFactory.Mode mode : new SemanticGraphFactory.Mode[] { SemanticGraphFactory.Mode.BASIC, SemanticGraphFactory.Mode.ENHANCED_PLUS_PLUS }) {
+      SemanticGraph frozen = makeGraph(mode);
+      List<Object> expected = queryAll(frozen);
+      int edgeCount = frozen.edgeCount();
+      assertSame(frozen, frozen.freeze());
+      assertTrue(frozen.isFrozen());
+      assertEquals(expected, queryAll(frozen));
+
+      IndexedWord missing = new IndexedWord(frozen.getFirstRoot());
+      missing.setIndex(1000);
+      assertFalse(frozen.containsVertex(missing));
+      assertFalse(frozen.outgoingEdgeIterator(missing).hasNext());
+      assertEquals(0, frozen.outDegree(missing));
+      try {
+        frozen.getChildren(missing);
+        fail("Expected an IllegalArgumentException for a vertex which is not in the graph");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+      try {
+        frozen.removeEdge(frozen.edgeIterable().iterator().next());
+        fail("Expected a frozen graph to be read-only");
+      } catch (UnsupportedOperationException e) {
+        // expected
+      }
+      SemanticGraph thawed = new SemanticGraph(frozen);
+      assertFalse(thawed.isFrozen());
+      assertTrue(thawed.removeEdge(thawed.edgeIterable().iterator().next()));
+      assertEquals(edgeCount, frozen.edgeCount());
+    }
+  }
+
 }
@@ -3,7 +3,9 @@ package edu.stanford.nlp.semgraph.semgrex;
 import junit.framework.AssertionFailedError;
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -682,6 +684,47 @@ public class SemgrexTest extends TestCase {
     assertFalse(matcher.find());
   }
 
+  /** A pattern set should find exactly the matches of each of its patterns used alone */
+  public void testPatternSet() {
+    String[] patterns = { "{} > {word:E}", "{word:/[A-D]/}=a >det {}=b", "{word:E} >mod {} >dep {}",
+                          "{word:e} > {}", "{}=a >>det {word:J}", "{$}", "!{word:A} < {}",
+                          "{word:B} >mod {word:K}", "{} >nsubj {}", "{word:A} : {word:J}=j",
+                          "{word:/[FG]/} [>mod {} | <dep {}]", "{} <=r {word:I}" };
+    List<SemgrexPattern> compiled = new ArrayList<>();
+    for (String pattern : patterns) {
+      compiled.add(SemgrexPattern.compile(pattern));
+    }
+    SemanticGraph graph = makeComplicatedGraph();
+    for (boolean ignoreCase : new boolean[] { false, true }) {
+      SemgrexPatternSet set = new SemgrexPatternSet(compiled, ignoreCase);
+      List<SemgrexMatcher> matchers = set.matchers(graph);
+      List<SemgrexPattern> matching = new ArrayList<>();
+      for (int i = 0; i < patterns.length; i++) {
+        SemgrexMatcher expected = compiled.get(i).matcher(graph, ignoreCase);
+        SemgrexMatcher matcher = matchers.get(i);
+        boolean matched = false;
+        while (expected.find()) {
+          assertTrue(patterns[i], matcher.find());
+          assertEquals(patterns[i], expected.getMatch(), matcher.getMatch());
+          for (String name : expected.getNodeNames()) {
+            assertEquals(patterns[i], expected.getNode(name), matcher.getNode(name));
+          }
+          for (String name : expected.getRelationNames()) {
+            assertEquals(patterns[i], expected.getRelnString(name), matcher.getRelnString(name));
+          }
+          matched = true;
+        }
+        assertFalse(patterns[i], matcher.find());
+        if (matched) {
+          matching.add(compiled.get(i));
+        }
+      }
+      assertEquals(matching, set.matchingPatterns(graph));
+      assertEquals(ignoreCase, matching.contains(compiled.get(3)));
+      assertFalse(matching.contains(compiled.get(7)));
+    }
+  }
+
   public static void outputResults(String pattern, String graph,
                                    String ... ignored) {
     outputResults(SemgrexPattern.compile(pattern),
@@ -0,0 +1,112 @@
+package edu.stanford.nlp.sentiment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.ejml.simple.SimpleMatrix;
+
+import edu.stanford.nlp.neural.rnn.RNNCoreAnnotations;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.Trees;
+
+public class SentimentBatchPropagatorTest extends TestCase {
+
+  private static final String[] TREES = {
+    "(3 (2 It) (4 (3 (2 's) (3 (3 good) (2 fun))) (2 .)))",
+    "(1 (2 (2 The) (2 movie)) (1 (2 was) (1 (1 (2 not) (3 good)) (2 .))))",
+    "(2 (2 Nothing) (2 here))",
+    "(2 unseen)",
+    "(4 (3 (2 (2 A) (3 (3 truly) (4 great))) (2 (2 and) (3 (3 funny) (2 film)))) (2 (2 ,) (3 (2 the) (4 best))))",
+  };
+
+  private static List<Tree> readTrees() {
+    List<Tree> trees = new ArrayList<>();
+    for (String tree : TREES) {
+      Tree t = Tree.valueOf(tree);
+      Trees.convertToCoreLabels(t);
+      trees.add(t);
+    }
+    return trees;
+  }
+
+  private static void checkBatch(boolean useTensors) {
+    RNNOptions op = new RNNOptions();
+    op.numHid = 8;
+    op.useTensors = useTensors;
+    List<Tree> trainingTrees = readTrees();
+    // leave a word out of the model, so that there is an unknown word
+    trainingTrees.remove(3);
+    SentimentModel model = new SentimentModel(op, trainingTrees);
+
+    List<Tree> expected = readTrees();
+    SentimentCostAndGradient scorer = new SentimentCostAndGradient(model, null);
+    for (Tree tree : expected) {
+      scorer.forwardPropagateTree(tree);
+    }
+
+    SentimentBatchPropagator propagator = new SentimentBatchPropagator(model);
+    // the buffers of a very large batch are not kept
+    List<Tree> large = new ArrayList<>();
+    int numNodes = 0;
+    while (numNodes <= SentimentBatchPropagator.MAX_KEPT_NODES) {
+      for (Tree tree : readTrees()) {
+        large.add(tree);
+        numNodes += tree.size() - tree.getLeaves().size();
+      }
+    }
+    propagator.forwardPropagateTrees(large);
+    assertTrue(propagator.capacity() < numNodes);
+    // the buffers should be reused correctly for a smaller batch after a larger one
+    propagator.forwardPropagateTrees(readTrees());
+    List<Tree> actual = readTrees().subList(1, TREES.length);
+    propagator.forwardPropagateTrees(actual);
+
+    for (int i = 0; i < actual.size(); ++i) {
+      Iterator<Tree> expectedNodes = expected.get(i + 1).iterator();
+      for (Tree actualNode : actual.get(i)) {
+        Tree expectedNode = expectedNodes.next();
+        if (actualNode.isLeaf()) {
+          continue;
+        }
+        assertEquals(RNNCoreAnnotations.getPredictedClass(expectedNode), RNNCoreAnnotations.getPredictedClass(actualNode));
+        assertMatrixEquals(RNNCoreAnnotations.getPredictions(expectedNode), RNNCoreAnnotations.getPredictions(actualNode));
+        assertMatrixEquals(RNNCoreAnnotations.getNodeVector(expectedNode), RNNCoreAnnotations.getNodeVector(actualNode));
+      }
+    }
+  }
+
+  private static void assertMatrixEquals(SimpleMatrix expected, SimpleMatrix actual) {
+    assertEquals(expected.numRows(), actual.numRows());
+    assertEquals(expected.numCols(), actual.numCols());
+    for (int i = 0; i < expected.getNumElements(); ++i) {
+      assertEquals(expected.get(i), actual.get(i), 1e-12);
+    }
+  }
+
+  public void testTensors() {
+    checkBatch(true);
+  }
+
+  public void testNoTensors() {
+    checkBatch(false);
+  }
+
+  public void testUnbinarized() {
+    Tree tree = Tree.valueOf("(2 (2 a) (2 b) (2 c))");
+    Trees.convertToCoreLabels(tree);
+    RNNOptions op = new RNNOptions();
+    op.numHid = 4;
+    SentimentModel model = new SentimentModel(op, readTrees());
+    try {
+      new SentimentBatchPropagator(model).forwardPropagateTrees(Collections.singletonList(tree));
+      fail("Expected an AssertionError");
+    } catch (AssertionError e) {
+      // expected
+    }
+  }
+
+}
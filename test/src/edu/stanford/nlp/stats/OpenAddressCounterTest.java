@@ -0,0 +1,186 @@
+package edu.stanford.nlp.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for the OpenAddressCounter: the usual Counter tests, and
+ * checks that it agrees with a ClassicCounter under random updates.
+ */
+public class OpenAddressCounterTest extends CounterTestBase {
+
+  public OpenAddressCounterTest() {
+    super(new OpenAddressCounter<>());
+  }
+
+  /** Applies the same random updates to both counters */
+  private static void randomUpdates(Random random, Counter<String> counter, Counter<String> expected, int numUpdates) {
+    for (int i = 0; i < numUpdates; ++i) {
+      String key = (random.nextInt(50) == 0) ? null : "k" + random.nextInt(300);
+      switch (random.nextInt(5)) {
+      case 0:
+        double value = random.nextInt(10);
+        counter.setCount(key, value);
+        expected.setCount(key, value);
+        break;
+      case 1:
+        assertEquals(expected.remove(key), counter.remove(key));
+        break;
+      default:
+        assertEquals(expected.incrementCount(key, 2.0), counter.incrementCount(key, 2.0));
+      }
+    }
+  }
+
+  public void testAgreesWithClassicCounter() {
+    Random random = new Random(1234);
+    OpenAddressCounter<String> counter = new OpenAddressCounter<>();
+    ClassicCounter<String> expected = new ClassicCounter<>();
+    for (int round = 0; round < 5; ++round) {
+      randomUpdates(random, counter, expected, 2000);
+      assertEquals(expected.size(), counter.size());
+      assertEquals(expected.totalCount(), counter.totalCount(), 1e-6);
+      assertEquals(expected.keySet(), counter.keySet());
+      for (String key : expected.keySet()) {
+        assertTrue(counter.containsKey(key));
+        assertEquals(expected.getCount(key), counter.getCount(key));
+      }
+      assertFalse(counter.containsKey("missing"));
+      assertEquals(expected, counter);
+      assertEquals(counter, expected);
+      assertEquals(expected.hashCode(), counter.hashCode());
+      counter.trimToSize();
+      assertEquals(expected, counter);
+    }
+  }
+
+  public void testRemoveWhileIterating() {
+    OpenAddressCounter<String> counter = new OpenAddressCounter<>();
+    for (int i = 0; i < 100; ++i) {
+      counter.setCount("k" + i, i);
+    }
+    for (Iterator<String> it = counter.keySet().iterator(); it.hasNext(); ) {
+      String key = it.next();
+      if (Integer.parseInt(key.substring(1)) % 2 == 1) {
+        it.remove();
+      }
+    }
+    assertEquals(50, counter.size());
+    assertEquals(2450.0, counter.totalCount());
+    for (Iterator<Map.Entry<String, Double>> it = counter.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, Double> entry = it.next();
+      if (entry.getValue() < 50) {
+        it.remove();
+      } else {
+        entry.setValue(1.0);
+      }
+    }
+    assertEquals(25, counter.size());
+    assertEquals(25.0, counter.totalCount());
+    assertEquals(1.0, counter.getCount("k98"));
+    assertEquals(0.0, counter.getCount("k2"));
+  }
+
+  /** Removing through values() removes the key of the count */
+  private static <E> void checkRemoveValues(Counter<E> counter) {
+    for (Iterator<Double> it = counter.values().iterator(); it.hasNext(); ) {
+      if (it.next() % 3 != 0) {
+        it.remove();
+      }
+    }
+    assertEquals(34, counter.size());
+    assertEquals(1683.0, counter.totalCount());
+    for (E key : counter.keySet()) {
+      assertEquals(0.0, counter.getCount(key) % 3);
+    }
+    counter.values().clear();
+    assertTrue(counter.keySet().isEmpty());
+    assertEquals(0.0, counter.totalCount());
+  }
+
+  public void testRemoveValues() {
+    OpenAddressCounter<String> counter = new OpenAddressCounter<>();
+    IntOpenAddressCounter intCounter = new IntOpenAddressCounter();
+    for (int i = 0; i < 100; ++i) {
+      counter.setCount("k" + i, i);
+      intCounter.setCount(i, i);
+    }
+    checkRemoveValues(counter);
+    checkRemoveValues(intCounter);
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    OpenAddressCounter<String> counter = new OpenAddressCounter<>();
+    counter.setCount("a", 1.5);
+    counter.setCount(null, 2.0);
+    counter.setCount("b", 3.0);
+    counter.remove("b");
+    counter.setDefaultReturnValue(-1.0);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(counter);
+    out.close();
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    OpenAddressCounter<String> read = (OpenAddressCounter<String>) in.readObject();
+
+    assertEquals(counter, read);
+    assertEquals(2, read.size());
+    assertEquals(3.5, read.totalCount());
+    assertEquals(2.0, read.getCount(null));
+    assertEquals(-1.0, read.getCount("b"));
+    read.incrementCount("c");
+    assertEquals(1.0, read.getCount("c"));
+  }
+
+  public void testIntKeys() {
+    Random random = new Random(1234);
+    IntOpenAddressCounter counter = new IntOpenAddressCounter();
+    ClassicCounter<Integer> expected = new ClassicCounter<>();
+    for (int i = 0; i < 5000; ++i) {
+      int key = random.nextInt(500);
+      if (random.nextInt(4) == 0) {
+        assertEquals(expected.remove(key), counter.remove(key));
+      } else {
+        assertEquals(expected.incrementCount(key, 0.5), counter.incrementCount(key, 0.5));
+      }
+    }
+    assertEquals(expected, counter);
+    assertEquals(expected.hashCode(), counter.hashCode());
+    assertEquals(expected.totalCount(), counter.totalCount(), 1e-6);
+    assertEquals(expected.getCount(-1), counter.getCount(-1));
+
+    double[] weights = new double[500];
+    for (int i = 0; i < weights.length; ++i) {
+      weights[i] = random.nextDouble();
+    }
+    double dotProduct = 0.0;
+    for (Map.Entry<Integer, Double> entry : expected.entrySet()) {
+      dotProduct += entry.getValue() * weights[entry.getKey()];
+    }
+    assertEquals(dotProduct, counter.dotProduct(weights), 1e-9);
+    double[] sums = new double[500];
+    counter.addTo(sums, 2.0);
+    int[] keys = counter.keyArray();
+    assertEquals(expected.size(), keys.length);
+    for (int i = 0; i < keys.length; ++i) {
+      assertTrue(i == 0 || keys[i - 1] < keys[i]);
+      assertEquals(2.0 * expected.getCount(keys[i]), sums[keys[i]]);
+    }
+
+    try {
+      counter.incrementCount(-1);
+      fail("Negative keys should not be allowed");
+    } catch (IllegalArgumentException e) {
+      // yay
+    }
+  }
+
+}
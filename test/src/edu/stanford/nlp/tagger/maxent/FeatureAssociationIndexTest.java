@@ -0,0 +1,55 @@
+package edu.stanford.nlp.tagger.maxent;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.nlp.util.Generics;
+
+public class FeatureAssociationIndexTest extends TestCase {
+
+  private static final int Y_SIZE = 3;
+
+  private static int[] associations(int... values) {
+    return values;
+  }
+
+  public void testMatchesMaps() {
+    List<Map<String, int[]>> fAssociations = Generics.newArrayList();
+    for (int extractor = 0; extractor < 2; ++extractor) {
+      Map<String, int[]> map = Generics.newHashMap();
+      for (int i = 0; i < 500; ++i) {
+        map.put("w" + extractor + '-' + i, associations(i, -1, extractor));
+      }
+      fAssociations.add(map);
+    }
+    fAssociations.get(1).put(null, associations(7, 8, 9));
+
+    FeatureAssociationIndex index = new FeatureAssociationIndex(fAssociations, Y_SIZE);
+    for (int extractor = 0; extractor < 2; ++extractor) {
+      for (Map.Entry<String, int[]> entry : fAssociations.get(extractor).entrySet()) {
+        int offset = index.find(extractor, entry.getKey());
+        assertTrue(offset >= 0);
+        for (int t = 0; t < Y_SIZE; ++t) {
+          assertEquals(entry.getValue()[t], index.associations(extractor)[offset + t]);
+        }
+      }
+    }
+  }
+
+  public void testMissingValues() {
+    List<Map<String, int[]>> fAssociations = Generics.newArrayList();
+    Map<String, int[]> map = Generics.newHashMap();
+    map.put("dog", associations(0, 1, 2));
+    fAssociations.add(map);
+    fAssociations.add(Generics.newHashMap());
+
+    FeatureAssociationIndex index = new FeatureAssociationIndex(fAssociations, Y_SIZE);
+    assertEquals(0, index.find(0, "dog"));
+    assertEquals(-1, index.find(0, "cat"));
+    assertEquals(-1, index.find(0, null));
+    assertEquals(-1, index.find(1, "dog"));
+  }
+
+}
@@ -4,7 +4,9 @@ import junit.framework.TestCase;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
 
 import edu.stanford.nlp.trees.*;
@@ -1456,6 +1458,42 @@ public class TregexTest extends TestCase {
     assertFalse(matcher.find());
   }
 
+  /** A pattern set should find exactly the matches of each of its patterns used alone */
+  public void testPatternSet() {
+    String[] patterns = { "NP < NN=n", "@NP", "/^V/ < NP", "NP | VP", "!NP < __", "__ < (DT $+ JJ)",
+                          "/(.*)/#1%x < /(.*)/#1%x", "S=s << (NP=n !< DT)", "FOO", "NNS | FOO" };
+    List<TregexPattern> compiled = new ArrayList<>();
+    for (String pattern : patterns) {
+      compiled.add(TregexPattern.compile(pattern));
+    }
+    TregexPatternSet set = new TregexPatternSet(compiled);
+    assertEquals(patterns.length, set.size());
+
+    Tree tree = treeFromString("(ROOT (S (NP (DT the) (JJ big) (NN dog)) (VP (VBD saw) (NP-TMP (NN yesterday)) (NP (NNS cats)))))");
+    List<TregexMatcher> matchers = set.matchers(tree);
+    List<TregexPattern> matching = new ArrayList<>();
+    for (int i = 0; i < patterns.length; i++) {
+      TregexMatcher expected = compiled.get(i).matcher(tree);
+      TregexMatcher matcher = matchers.get(i);
+      boolean matched = false;
+      while (expected.find()) {
+        assertTrue(patterns[i], matcher.find());
+        assertSame(patterns[i], expected.getMatch(), matcher.getMatch());
+        for (String name : expected.getNodeNames()) {
+          assertSame(patterns[i], expected.getNode(name), matcher.getNode(name));
+        }
+        matched = true;
+      }
+      assertFalse(patterns[i], matcher.find());
+      if (matched) {
+        matching.add(compiled.get(i));
+      }
+    }
+    assertEquals(matching, set.matchingPatterns(tree));
+    assertFalse(matching.contains(compiled.get(8)));
+    assertTrue(matching.contains(compiled.get(9)));
+  }
+
   /**
    * Stores an input and the expected output.  Obviously this is only
    * expected to work with a given pattern, but this is a bit more
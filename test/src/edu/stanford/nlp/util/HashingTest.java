@@ -0,0 +1,45 @@
+package edu.stanford.nlp.util;
+
+import junit.framework.TestCase;
+
+public class HashingTest extends TestCase {
+
+  public void testIncrementalHash() {
+    long h = Hashing.fnv64(Hashing.FNV64_OFFSET_BASIS, "S0C-");
+    h = Hashing.fnv64(h, 'N');
+    h = Hashing.fnv64(h, "P");
+    assertEquals(Hashing.hash64("S0C-NP"), Hashing.fmix64(h));
+    assertFalse(Hashing.hash64("S0C-NP") == Hashing.hash64("S0C-PN"));
+  }
+
+  public void testFnv() {
+    // the published FNV-1a test vectors
+    assertEquals(0xcbf29ce484222325L, Hashing.fnv64(Hashing.FNV64_OFFSET_BASIS, ""));
+    assertEquals(0xaf63dc4c8601ec8cL, Hashing.fnv64(Hashing.FNV64_OFFSET_BASIS, "a"));
+    assertEquals(0x85944171f73967e8L, Hashing.fnv64(Hashing.FNV64_OFFSET_BASIS, "foobar"));
+  }
+
+  public void testFmix() {
+    assertEquals(0, Hashing.fmix32(0));
+    assertEquals(0L, Hashing.fmix64(0L));
+    // neighbouring keys should differ in their low bits
+    assertFalse((Hashing.fmix32(1) & 0xff) == (Hashing.fmix32(2) & 0xff));
+    assertFalse((Hashing.fmix32(1 << 16) & 0xff) == (Hashing.fmix32(2 << 16) & 0xff));
+  }
+
+  public void testTableSize() {
+    assertEquals(2, Hashing.tableSize(0));
+    assertEquals(2, Hashing.tableSize(1));
+    assertEquals(4, Hashing.tableSize(2));
+    assertEquals(8, Hashing.tableSize(3));
+    assertEquals(8, Hashing.tableSize(4));
+    assertEquals(1 << 30, Hashing.tableSize(1 << 29));
+    try {
+      Hashing.tableSize((1 << 29) + 1);
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package edu.stanford.nlp.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import junit.framework.TestCase;
+
+public class ConcurrentInternerTest extends TestCase {
+
+  public void testIntern() {
+    ConcurrentInterner<String> interner = new ConcurrentInterner<>();
+    String kitten = new String("kitten");
+    String kitten2 = new String("kitten");
+    assertSame(kitten, interner.intern(kitten));
+    assertSame(kitten, interner.intern(kitten2));
+    String salamander = new String("salamander");
+    assertSame(salamander, interner.intern(salamander));
+    assertEquals(2, interner.size());
+    interner.clear();
+    assertEquals(0, interner.size());
+    assertSame(kitten2, interner.intern(kitten2));
+  }
+
+  public void testOneStripe() {
+    ConcurrentInterner<Integer> interner = new ConcurrentInterner<>(1);
+    Integer[] ints = new Integer[1000];
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = new Integer(i * 1000);
+      assertSame(ints[i], interner.intern(ints[i]));
+    }
+    for (int i = 0; i < ints.length; i++) {
+      assertSame(ints[i], interner.intern(new Integer(i * 1000)));
+    }
+    assertEquals(ints.length, interner.size());
+  }
+
+  public void testThreads() throws InterruptedException {
+    ConcurrentInterner<String> interner = new ConcurrentInterner<>(4);
+    int numWords = 2000;
+    AtomicReferenceArray<String> first = new AtomicReferenceArray<>(numWords);
+    String[] errors = new String[8];
+    Thread[] threads = new Thread[errors.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < numWords; i++) {
+          // every thread interns its own copy of each word, and all should get the same one back
+          String interned = interner.intern(new String("word" + i));
+          if ( ! first.compareAndSet(i, null, interned) && first.get(i) != interned) {
+            errors[thread] = "word" + i;
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      assertNull(errors[t]);
+    }
+    assertEquals(numWords, interner.size());
+  }
+
+  public void testSynchronizedInterner() {
+    SynchronizedInterner<String> interner = new SynchronizedInterner<>(new ConcurrentInterner<>());
+    String kitten = new String("kitten");
+    assertSame(kitten, interner.intern(kitten));
+    assertSame(kitten, interner.intern(new String("kitten")));
+    assertEquals(1, interner.size());
+  }
+
+}
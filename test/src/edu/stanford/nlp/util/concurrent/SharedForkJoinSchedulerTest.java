@@ -0,0 +1,101 @@
+package edu.stanford.nlp.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+import junit.framework.TestCase;
+
+/**
+ * Test of SharedForkJoinScheduler.
+ */
+public class SharedForkJoinSchedulerTest extends TestCase {
+
+  private static List<Integer> range(int n) {
+    List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      items.add(i);
+    }
+    return items;
+  }
+
+  public void testRunsEveryItem() {
+    int[] done = new int[500];
+    List<Integer> failed = SharedForkJoinScheduler.runAll(range(done.length), i -> done[i]++, 4, -1);
+    assertTrue(failed.isEmpty());
+    for (int count : done) {
+      assertEquals(1, count);
+    }
+  }
+
+  public void testLimitsConcurrency() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    SharedForkJoinScheduler.runAll(range(50), i -> {
+      int now = running.incrementAndGet();
+      maxRunning.accumulateAndGet(now, Math::max);
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      running.decrementAndGet();
+    }, 2, -1);
+    assertTrue(maxRunning.get() <= 2);
+  }
+
+  public void testTimeoutsFail() {
+    List<Integer> failed = SharedForkJoinScheduler.runAll(range(6), i -> {
+      if (i == 1 || i == 4) {
+        try {
+          Thread.sleep(10000);
+        } catch (InterruptedException e) {
+          throw new RuntimeInterruptedException(e);
+        }
+      }
+    }, 3, 200);
+    assertEquals(Arrays.asList(1, 4), failed);
+  }
+
+  public void testExceptionsAreRethrown() {
+    AtomicInteger done = new AtomicInteger();
+    try {
+      SharedForkJoinScheduler.runAll(range(20), i -> {
+        if (i == 4 || i == 11) {
+          throw new IllegalStateException("failure " + i);
+        }
+        done.incrementAndGet();
+      }, 3, -1);
+      fail("Expected the exception of a job to be thrown");
+    } catch (IllegalStateException e) {
+      assertEquals("failure 4", e.getMessage());
+      assertEquals(1, e.getSuppressed().length);
+      assertEquals("failure 11", e.getSuppressed()[0].getMessage());
+    }
+    // the other jobs still ran
+    assertEquals(18, done.get());
+  }
+
+  public void testTimedOutJobKeepsItsPermit() {
+    AtomicBoolean firstRunning = new AtomicBoolean(true);
+    AtomicBoolean overlapped = new AtomicBoolean(false);
+    List<Integer> failed = SharedForkJoinScheduler.runAll(range(2), i -> {
+      if (i == 0) {
+        // ignores the interrupt and runs well past its timeout
+        long end = System.nanoTime() + 300_000_000L;
+        while (System.nanoTime() < end) {
+          Thread.interrupted();
+        }
+        firstRunning.set(false);
+      } else {
+        overlapped.set(firstRunning.get());
+      }
+    }, 1, 50);
+    assertEquals(Arrays.asList(0), failed);
+    assertFalse(overlapped.get());
+  }
+
+}